@@ -510,6 +510,19 @@ public interface CompilerContext extends Context
 	 */
 	boolean getReturnParameterFlag();
 
+	/**
+	 * Mark that the optimizer avoided an ORDER BY sort because the chosen
+	 * access path already returns the rows in order.
+	 */
+	void setSortAvoided();
+
+	/**
+	 * Did the optimizer avoid an ORDER BY sort?
+	 *
+	 * @return	true if the plan relies on the access path for the row ordering
+	 */
+	boolean isSortAvoided();
+
 	/**
 	 * Get the array of DataTypeDescriptor representing the types of
 	 * the ? parameters.
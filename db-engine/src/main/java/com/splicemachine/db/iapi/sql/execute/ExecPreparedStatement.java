@@ -207,5 +207,13 @@ public interface ExecPreparedStatement
 	 */
 	void setDatasetProcessorType(CompilerContext.DataSetProcessorType type);
 
+	/**
+	 * @return true if the optimizer avoided an ORDER BY sort, so the results are
+	 *         only ordered as long as the rows of each scan are returned in order
+	 */
+	boolean isSortAvoided();
+
+	void setSortAvoided(boolean sortAvoided);
+
 }
 
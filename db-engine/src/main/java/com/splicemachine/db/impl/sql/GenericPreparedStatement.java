@@ -159,6 +159,8 @@ public class GenericPreparedStatement implements ExecPreparedStatement {
     private boolean hasXPlainTableOrProcedure;
 
     private CompilerContext.DataSetProcessorType datasetProcessorType;
+
+    private boolean sortAvoided;
     //
     // constructors
     //
@@ -1128,4 +1130,14 @@ public class GenericPreparedStatement implements ExecPreparedStatement {
     public void setDatasetProcessorType(CompilerContext.DataSetProcessorType datasetProcessorType) {
         this.datasetProcessorType = datasetProcessorType;
     }
+
+    @Override
+    public boolean isSortAvoided() {
+        return sortAvoided;
+    }
+
+    @Override
+    public void setSortAvoided(boolean sortAvoided) {
+        this.sortAvoided = sortAvoided;
+    }
 }
@@ -671,6 +671,7 @@ public class GenericStatement implements Statement{
             preparedStmt.setIsAtomic(qt.isAtomic());
             preparedStmt.setExecuteStatementNameAndSchema(qt.executeStatementName(), qt.executeSchemaName());
             preparedStmt.setSPSName(qt.getSPSName());
+            preparedStmt.setSortAvoided(cc.isSortAvoided());
             preparedStmt.completeCompile(qt);
             preparedStmt.setCompileTimeWarnings(cc.getWarnings());
 
@@ -202,6 +202,9 @@ public class GenericStorablePreparedStatement extends GenericPreparedStatement
             paramTypeDescriptors = new DataTypeDescriptor[ArrayUtil.readArrayLength(in)];
             ArrayUtil.readArrayItems(in, paramTypeDescriptors);
         }
+
+        // not stored, assume the plan relies on the access path ordering
+        setSortAvoided(true);
     }
 
     /////////////////////////////////////////////////////////////
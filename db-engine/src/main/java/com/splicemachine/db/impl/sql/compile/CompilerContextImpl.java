@@ -132,6 +132,7 @@ public class CompilerContextImpl extends ContextImpl
 		savedObjects = null;
 		reliability = CompilerContext.SQL_LEGAL;
 		returnParameterFlag = false;
+		sortAvoided = false;
 		initRequiredPriv();
 		defaultSchemaStack = null;
         referencedSequences = null;
@@ -629,6 +630,22 @@ public class CompilerContextImpl extends ContextImpl
 		return returnParameterFlag;
 	}
 
+	/**
+	 * @see CompilerContext#setSortAvoided
+	 */
+	public void setSortAvoided()
+	{
+		sortAvoided = true;
+	}
+
+	/**
+	 * @see CompilerContext#isSortAvoided
+	 */
+	public boolean isSortAvoided()
+	{
+		return sortAvoided;
+	}
+
 	/**
 	 * @see CompilerContext#getParameterTypes
 	 */
@@ -1043,6 +1060,7 @@ public class CompilerContextImpl extends ContextImpl
 
 	private ProviderList		currentAPL;
 	private boolean returnParameterFlag;
+	private boolean sortAvoided;
 
 	private HashMap<Pair<Long, Boolean>, StoreCostController> storeCostControllers = new HashMap<>();
 	private Vector<Integer> skipStatsTableList = new Vector<>();
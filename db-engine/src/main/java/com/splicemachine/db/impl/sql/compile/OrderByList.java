@@ -166,6 +166,7 @@ public class OrderByList extends OrderedColumnList implements RequiredRowOrderin
 		** just return the child result set.
 		*/
         if(!sortNeeded){
+            getCompilerContext().setSortAvoided();
             child.generate(acb,mb);
             return;
         }
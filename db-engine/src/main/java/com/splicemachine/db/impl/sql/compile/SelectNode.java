@@ -1414,6 +1414,7 @@ public class SelectNode extends ResultSetNode{
         if(!(orderByList!=null && orderByList.getSortNeeded()) && orderByQuery){
             // Remember whether or not we can eliminate the sort.
             eliminateSort=true;
+            getCompilerContext().setSortAvoided();
         }
 
 		/* If we were able to eliminate the sort during optimization then
@@ -18,6 +18,7 @@ import com.splicemachine.si.impl.driver.SIDriver;
 import org.apache.hadoop.hbase.ipc.RpcUtils;
 import org.apache.hadoop.hbase.ipc.ServerRpcController;
 import org.spark_project.guava.base.Function;
+import com.google.protobuf.ByteString;
 import com.google.protobuf.RpcCallback;
 import com.google.protobuf.RpcController;
 import com.google.protobuf.Service;
@@ -140,7 +141,7 @@ public class SpliceIndexEndpoint extends SpliceMessage.SpliceIndexService implem
                           SpliceMessage.BulkWriteRequest request,
                           RpcCallback<SpliceMessage.BulkWriteResponse> done){
         try{
-            byte[] bytes=bulkWrites(request.getBytes().toByteArray());
+            byte[] bytes=bulkWrites(requestBytes(request.getBytes()));
             if(bytes==null||bytes.length<=0)
                 LOG.error("No bytes constructed for the result!");
 
@@ -199,4 +200,18 @@ public class SpliceIndexEndpoint extends SpliceMessage.SpliceIndexService implem
         BulkWrites bulkWrites=compressor.decompress(bulkWriteBytes,BulkWrites.class);
         return compressor.compress(bulkWrite(bulkWrites));
     }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private static byte[] requestBytes(ByteString bytes){
+        //the KVPairs are decoded as slices of the request, so avoid copying it if we can
+        try{
+            byte[] array=ZeroCopyLiteralByteString.zeroCopyGetBytes(bytes);
+            if(array.length==bytes.size())
+                return array;
+        }catch(UnsupportedOperationException ignored){
+            //not backed by a single array, so we have to copy it
+        }
+        return bytes.toByteArray();
+    }
 }
@@ -17,10 +17,18 @@ package com.splicemachine.pipeline;
 import java.io.IOException;
 import org.apache.log4j.Logger;
 
+import com.splicemachine.pipeline.client.BulkWrites;
+import com.splicemachine.pipeline.client.PipelineEncoding;
 import com.splicemachine.pipeline.utils.PipelineCompressor;
 import com.splicemachine.compression.SpliceSnappy;
+import com.splicemachine.si.api.data.TxnOperationFactory;
 
 /**
+ * Compresses pipeline messages with Snappy.
+ *
+ * BulkWrites are compressed one region at a time (see {@link PipelineEncoding#encodeChunked}), rather
+ * than compressing the delegate's encoding of the whole message.
+ *
  * @author Scott Fines
  *         Date: 12/29/15
  */
@@ -28,20 +36,27 @@ public class SnappyPipelineCompressor implements PipelineCompressor{
     private static final Logger LOG=Logger.getLogger(SnappyPipelineCompressor.class);
 
     private final PipelineCompressor delegate;
+    private final TxnOperationFactory txnOperationFactory;
 
-    public SnappyPipelineCompressor(PipelineCompressor delegate){
+    public SnappyPipelineCompressor(PipelineCompressor delegate,TxnOperationFactory txnOperationFactory){
         this.delegate=delegate;
+        this.txnOperationFactory=txnOperationFactory;
     }
 
     @Override
     public byte[] compress(Object o) throws IOException {
+        if(o instanceof BulkWrites)
+            return PipelineEncoding.encodeChunked(txnOperationFactory,(BulkWrites)o);
         byte[] d = delegate.compress(o);
         d = SpliceSnappy.compress(d);
         return d;
     }
 
     @Override
+    @SuppressWarnings("unchecked")
     public <T> T decompress(byte[] bytes,Class<T> clazz) throws IOException {
+        if(clazz.isAssignableFrom(BulkWrites.class))
+            return (T)PipelineEncoding.decodeChunked(txnOperationFactory,bytes);
         byte[] d = SpliceSnappy.uncompress(bytes);
         return delegate.decompress(d, clazz);
     }
@@ -337,6 +337,11 @@ public class SpliceSpark {
         conf.set("spark.local.dir", System.getProperty("splice.spark.local.dir", System.getProperty("java.io.tmpdir")));
         conf.set("spark.logConf", System.getProperty("splice.spark.logConf", "true"));
         conf.set("spark.sql.orc.filterPushdown", System.getProperty("spark.sql.orc.filterPushdown", "true"));
+        // pinned tables are held in Spark's columnar cache: encoded and compressed column batches, with per-batch
+        // min/max statistics so that scans skip the batches their filters rule out
+        conf.set("spark.sql.inMemoryColumnarStorage.compressed", System.getProperty("splice.spark.sql.inMemoryColumnarStorage.compressed", "true"));
+        conf.set("spark.sql.inMemoryColumnarStorage.batchSize", System.getProperty("splice.spark.sql.inMemoryColumnarStorage.batchSize", "10000"));
+        conf.set("spark.sql.inMemoryColumnarStorage.partitionPruning", System.getProperty("splice.spark.sql.inMemoryColumnarStorage.partitionPruning", "true"));
         conf.set("spark.master", master);
 
         if (master.startsWith("local[8]")) {
@@ -805,5 +805,7 @@ public class SpliceSparkKryoRegistrator implements KryoRegistrator, KryoPool.Kry
             }
         });
 
+        //registered last, so that the implicit ids of the classes above stay the same
+        instance.register(StreamProtocol.RowBatch.class,EXTERNALIZABLE_SERIALIZER);
     }
 }
\ No newline at end of file
@@ -934,8 +934,13 @@ public class SparkDataSet<V> implements DataSet<V> {
         Dataset<Row> pinDF = SpliceSpark.getSession().createDataFrame(
                 rdd.map(new LocatedRowToRowFunction()),
                 template.schema());
+        // cache the columnar batches off heap if Spark has been given off-heap memory, rather than adding a large,
+        // long-lived set of objects to the executors' heaps
+        pinDF.persist(SpliceSpark.getContext().getConf().getBoolean("spark.memory.offHeap.enabled", false)
+                ? StorageLevel.OFF_HEAP() : StorageLevel.MEMORY_AND_DISK());
         pinDF.createOrReplaceTempView("SPLICE_"+conglomId);
-        SpliceSpark.getSession().catalog().cacheTable("SPLICE_"+conglomId);
+        // build the batches now, instead of on the first scan of the pinned table
+        pinDF.count();
     }
 
     @Override
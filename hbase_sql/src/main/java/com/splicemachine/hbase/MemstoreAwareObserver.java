@@ -34,8 +34,10 @@ import org.apache.hadoop.hbase.coprocessor.ObserverContext;
 import org.apache.hadoop.hbase.coprocessor.RegionCoprocessorEnvironment;
 import org.apache.hadoop.hbase.regionserver.*;
 import org.apache.hadoop.hbase.regionserver.compactions.CompactionRequest;
+import org.apache.hadoop.hbase.util.Pair;
 import org.apache.log4j.Logger;
 import java.io.IOException;
+import java.util.List;
 import java.util.NavigableSet;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -49,6 +51,7 @@ public class MemstoreAwareObserver extends BaseRegionObserver implements Compact
         StoreScannerObserver{
     private static final Logger LOG = Logger.getLogger(MemstoreAwareObserver.class);
     private AtomicReference<MemstoreAware> memstoreAware =new AtomicReference<>(new MemstoreAware());     // Atomic Reference to memstore aware state handling
+    private ZoneMapTracker zoneMaps; // null when the table keeps no zone maps
     @Override
     public InternalScanner preCompact(ObserverContext<RegionCoprocessorEnvironment> e,
                                       Store store,
@@ -77,6 +80,8 @@ public class MemstoreAwareObserver extends BaseRegionObserver implements Compact
     public void postCompact(ObserverContext<RegionCoprocessorEnvironment> e,Store store,StoreFile resultFile,CompactionRequest request) throws IOException{
         try {
             BlockingProbe.blockPostCompact();
+            if (zoneMaps != null)
+                zoneMaps.postCompact(store, request.getFiles(), resultFile);
         } catch (Throwable t) {
             throw CoprocessorUtils.getIOException(t);
         }
@@ -128,7 +133,7 @@ public class MemstoreAwareObserver extends BaseRegionObserver implements Compact
                 if(memstoreAware.compareAndSet(latest, MemstoreAware.changeFlush(latest, true)))
                     break;
             }
-            return scanner;
+            return zoneMaps != null ? zoneMaps.preFlush(store, scanner) : scanner;
         } catch (Throwable t) {
             throw CoprocessorUtils.getIOException(t);
         }
@@ -143,6 +148,8 @@ public class MemstoreAwareObserver extends BaseRegionObserver implements Compact
                 if(memstoreAware.compareAndSet(latest, MemstoreAware.changeFlush(latest, false)))
                     break;
             }
+            if (zoneMaps != null)
+                zoneMaps.postFlush(store, resultFile);
         } catch (Throwable t) {
             throw CoprocessorUtils.getIOException(t);
         }
@@ -190,6 +197,17 @@ public class MemstoreAwareObserver extends BaseRegionObserver implements Compact
         }
     }
 
+    @Override
+    public RegionScanner preScannerOpen(ObserverContext<RegionCoprocessorEnvironment> e, Scan scan, RegionScanner s) throws IOException {
+        try {
+            if (zoneMaps != null)
+                zoneMaps.prune(e.getEnvironment().getRegion(), scan);
+            return super.preScannerOpen(e, scan, s);
+        } catch (Throwable t) {
+            throw CoprocessorUtils.getIOException(t);
+        }
+    }
+
     @Override
     public KeyValueScanner preStoreScannerOpen(ObserverContext<RegionCoprocessorEnvironment> c,Store store,Scan scan,NavigableSet<byte[]> targetCols,KeyValueScanner s) throws IOException{
         try {
@@ -298,6 +316,7 @@ public class MemstoreAwareObserver extends BaseRegionObserver implements Compact
     public void start(CoprocessorEnvironment e) throws IOException {
         try {
             super.start(e);
+            zoneMaps = ZoneMapTracker.forRegion(((RegionCoprocessorEnvironment) e).getRegion());
             if (LOG.isDebugEnabled())
                 SpliceLogUtils.debug(LOG,"starting [%s]",((RegionCoprocessorEnvironment) e).getRegion().getRegionInfo().getRegionNameAsString());
         } catch (Throwable t) {
@@ -305,9 +324,24 @@ public class MemstoreAwareObserver extends BaseRegionObserver implements Compact
         }
     }
 
+    @Override
+    public void postOpen(ObserverContext<RegionCoprocessorEnvironment> e) {
+        if (zoneMaps != null)
+            zoneMaps.buildMissing(e.getEnvironment().getRegion());
+    }
+
+    @Override
+    public boolean postBulkLoadHFile(ObserverContext<RegionCoprocessorEnvironment> e, List<Pair<byte[], String>> familyPaths, boolean hasLoaded) throws IOException {
+        if (hasLoaded && zoneMaps != null)
+            zoneMaps.buildMissing(e.getEnvironment().getRegion());
+        return hasLoaded;
+    }
+
     @Override
     public void stop(CoprocessorEnvironment e) throws IOException {
         try {
+            if (zoneMaps != null)
+                zoneMaps.close();
             super.stop(e);
             if (LOG.isDebugEnabled())
                 SpliceLogUtils.debug(LOG,"stopping [%s]", ((RegionCoprocessorEnvironment) e).getRegion().getRegionInfo().getRegionNameAsString());
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2012 - 2018 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.hbase;
+
+import com.splicemachine.derby.impl.storage.ZoneMap;
+import com.splicemachine.si.constants.SIConstants;
+import com.splicemachine.utils.SpliceLogUtils;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.regionserver.InternalScanner;
+import org.apache.hadoop.hbase.regionserver.ScannerContext;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Passes the cells which a flush writes to a {@link ZoneMap.Builder} on their way to the new store file.
+ *
+ * Failing to build a zone map never fails the flush; the file is just left without one.
+ */
+class ZoneMapCollectingScanner implements InternalScanner{
+    private static final Logger LOG=Logger.getLogger(ZoneMapCollectingScanner.class);
+
+    private final InternalScanner delegate;
+    private final ZoneMap.Builder builder;
+    private boolean failed;
+
+    ZoneMapCollectingScanner(InternalScanner delegate,ZoneMap.Builder builder){
+        this.delegate=delegate;
+        this.builder=builder;
+    }
+
+    @Override
+    public boolean next(List<Cell> results) throws IOException{
+        int start=results.size();
+        boolean more=delegate.next(results);
+        collect(results,start);
+        return more;
+    }
+
+    @Override
+    public boolean next(List<Cell> result,ScannerContext scannerContext) throws IOException{
+        int start=result.size();
+        boolean more=delegate.next(result,scannerContext);
+        collect(result,start);
+        return more;
+    }
+
+    @Override
+    public void close() throws IOException{
+        delegate.close();
+    }
+
+    /**
+     * @return the zone map of the cells which have been scanned, or {@code null} if it could not be built
+     */
+    ZoneMap build(){
+        return failed?null:builder.build();
+    }
+
+    static void add(ZoneMap.Builder builder,Cell cell) throws IOException{
+        builder.row(cell.getRowArray(),cell.getRowOffset(),cell.getRowLength());
+        if(cell.getTypeByte()==KeyValue.Type.Put.getCode()
+                && CellUtils.matchingColumn(cell,SIConstants.DEFAULT_FAMILY_BYTES,SIConstants.PACKED_COLUMN_BYTES)){
+            builder.values(cell.getValueArray(),cell.getValueOffset(),cell.getValueLength());
+        }
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private void collect(List<Cell> cells,int start){
+        if(failed) return;
+        try{
+            for(int i=start;i<cells.size();i++){
+                add(builder,cells.get(i));
+            }
+        }catch(Exception e){
+            SpliceLogUtils.warn(LOG,"Unable to build a zone map, the new file will not have one: %s",e.getMessage());
+            failed=true;
+        }
+    }
+}
@@ -0,0 +1,244 @@
+/*
+ * Copyright (c) 2012 - 2018 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.hbase;
+
+import com.splicemachine.access.HConfiguration;
+import com.splicemachine.access.configuration.SQLConfiguration;
+import com.splicemachine.derby.impl.storage.ZoneMap;
+import com.splicemachine.derby.impl.storage.ZoneMapPredicate;
+import com.splicemachine.utils.SpliceLogUtils;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.filter.Filter;
+import org.apache.hadoop.hbase.filter.FilterList;
+import org.apache.hadoop.hbase.filter.MultiRowRangeFilter;
+import org.apache.hadoop.hbase.filter.PageFilter;
+import org.apache.hadoop.hbase.io.hfile.HFileScanner;
+import org.apache.hadoop.hbase.regionserver.InternalScan;
+import org.apache.hadoop.hbase.regionserver.InternalScanner;
+import org.apache.hadoop.hbase.regionserver.KeyValueScanner;
+import org.apache.hadoop.hbase.regionserver.Region;
+import org.apache.hadoop.hbase.regionserver.Store;
+import org.apache.hadoop.hbase.regionserver.StoreFile;
+import org.apache.log4j.Logger;
+import org.spark_project.guava.util.concurrent.ThreadFactoryBuilder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The zone maps of a region's store files, and the scan pruning which they allow.
+ *
+ * Flushed files get their zone map from the cells as they are flushed. Compactions usually run away from
+ * the region server, so a compacted file is read back in the background once it has been committed, and
+ * scans are not pruned until it has been. The same is done for the files which the region already has when
+ * it opens, and for bulk loaded files. A scan is only pruned when every store file of the region has a
+ * zone map, since a zone map says nothing about rows outside of its file. The memstore has no zone map, so
+ * the span from its first to its last row is always kept.
+ */
+class ZoneMapTracker{
+    private static final Logger LOG=Logger.getLogger(ZoneMapTracker.class);
+    private static final ExecutorService BUILDER=Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder().setNameFormat("zoneMapBuilder-%d").setDaemon(true).setPriority(Thread.MIN_PRIORITY).build());
+
+    private final int blockRows;
+    private final ConcurrentMap<String,ZoneMap> zoneMaps=new ConcurrentHashMap<>();
+    private final ConcurrentMap<Store,ZoneMapCollectingScanner> flushes=new ConcurrentHashMap<>();
+    /*the files which are queued to have their zone map read*/
+    private final Set<String> pending=Collections.newSetFromMap(new ConcurrentHashMap<String,Boolean>());
+    private volatile boolean closed;
+
+    private ZoneMapTracker(int blockRows){
+        this.blockRows=blockRows;
+    }
+
+    /**
+     * @return the tracker for {@code region}, or {@code null} if zone maps are disabled for its table
+     */
+    static ZoneMapTracker forRegion(Region region){
+        int blockRows=HConfiguration.getConfiguration().getZoneMapBlockRows();
+        String tableValue=region.getTableDesc().getValue(SQLConfiguration.ZONE_MAP_BLOCK_ROWS);
+        if(tableValue!=null){
+            try{
+                blockRows=Integer.parseInt(tableValue.trim());
+            }catch(NumberFormatException nfe){
+                SpliceLogUtils.warn(LOG,"Ignoring invalid %s=%s for table %s",
+                        SQLConfiguration.ZONE_MAP_BLOCK_ROWS,tableValue,region.getTableDesc().getNameAsString());
+            }
+        }
+        return blockRows>0?new ZoneMapTracker(blockRows):null;
+    }
+
+    InternalScanner preFlush(Store store,InternalScanner scanner){
+        if(scanner==null) return null;
+        ZoneMapCollectingScanner collecting=new ZoneMapCollectingScanner(scanner,new ZoneMap.Builder(blockRows));
+        flushes.put(store,collecting);
+        return collecting;
+    }
+
+    void postFlush(Store store,StoreFile resultFile){
+        ZoneMapCollectingScanner collecting=store==null?null:flushes.remove(store);
+        if(collecting==null || resultFile==null) return;
+        ZoneMap zoneMap=collecting.build();
+        if(zoneMap!=null)
+            zoneMaps.put(resultFile.getPath().toString(),zoneMap);
+    }
+
+    void postCompact(final Store store,Collection<StoreFile> compactedFiles,final StoreFile resultFile){
+        for(StoreFile compacted:compactedFiles){
+            zoneMaps.remove(compacted.getPath().toString());
+        }
+        if(resultFile==null) return;
+        buildInBackground(store,resultFile);
+    }
+
+    /**
+     * Read the zone maps of all the files of {@code region} which don't have one yet, in the background.
+     * This covers the files which the region had when it opened, and files which were bulk loaded into it.
+     */
+    void buildMissing(Region region){
+        for(Store store:region.getStores()){
+            for(StoreFile storeFile:store.getStorefiles()){
+                if(!zoneMaps.containsKey(storeFile.getPath().toString()))
+                    buildInBackground(store,storeFile);
+            }
+        }
+    }
+
+    void close(){
+        closed=true;
+        zoneMaps.clear();
+        flushes.clear();
+    }
+
+    /**
+     * Restrict {@code scan} to the blocks which may satisfy its zone map predicate, and to the rows of the
+     * memstore, if it has a predicate and every file of the region has a zone map.
+     */
+    void prune(Region region,Scan scan) throws IOException{
+        byte[] predicateBytes=scan.getAttribute(ZoneMapPredicate.SCAN_ATTRIBUTE);
+        if(predicateBytes==null || scan.isReversed()) return;
+        ZoneMapPredicate predicate=ZoneMapPredicate.parseFrom(predicateBytes);
+        List<byte[][]> ranges=new ArrayList<>();
+        /*
+         * Look at the memstore before the files: a flush adds its file to the store before it drops the
+         * snapshot, so every row is in either the memstore range or a file which is looked at afterwards
+         */
+        if(region.getMemstoreSize()>0){
+            for(Store store:region.getStores()){
+                byte[][] memstoreRange=memstoreRange(store);
+                if(memstoreRange!=null)
+                    ranges.add(memstoreRange);
+            }
+        }
+        for(Store store:region.getStores()){
+            for(StoreFile storeFile:store.getStorefiles()){
+                ZoneMap zoneMap=zoneMaps.get(storeFile.getPath().toString());
+                if(zoneMap==null) return;
+                zoneMap.addMatchingRanges(predicate,ranges);
+            }
+        }
+        Filter pruning;
+        if(ranges.isEmpty())
+            pruning=new PageFilter(0); //no block can match
+        else{
+            List<MultiRowRangeFilter.RowRange> rowRanges=new ArrayList<>(ranges.size());
+            for(byte[][] range:ranges){
+                rowRanges.add(new MultiRowRangeFilter.RowRange(range[0],true,range[1],true));
+            }
+            pruning=new MultiRowRangeFilter(rowRanges);
+        }
+        Filter existing=scan.getFilter();
+        scan.setFilter(existing==null?pruning:new FilterList(FilterList.Operator.MUST_PASS_ALL,pruning,existing));
+        if(LOG.isTraceEnabled())
+            SpliceLogUtils.trace(LOG,"pruned scan on %s to %d ranges",region.getRegionInfo().getRegionNameAsString(),ranges.size());
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+
+    /**
+     * @return the first and last row in the memstore (and snapshot) of {@code store}, or {@code null} if it is empty
+     */
+    private static byte[][] memstoreRange(Store store) throws IOException{
+        byte[] first=memstoreEdge(store,false);
+        if(first==null) return null;
+        byte[] last=memstoreEdge(store,true);
+        return new byte[][]{first,last==null?first:last};
+    }
+
+    private static byte[] memstoreEdge(Store store,boolean last) throws IOException{
+        InternalScan edgeScan=new InternalScan(new Scan());
+        edgeScan.checkOnlyMemStore();
+        edgeScan.setReversed(last);
+        //read everything, whether or not it is committed yet; deletes and versions are ignored by peek()
+        KeyValueScanner scanner=store.getScanner(edgeScan,null,Long.MAX_VALUE);
+        try{
+            Cell cell=scanner.peek();
+            return cell==null?null:CellUtil.cloneRow(cell);
+        }finally{
+            scanner.close();
+        }
+    }
+
+    private void buildInBackground(final Store store,final StoreFile storeFile){
+        final String path=storeFile.getPath().toString();
+        if(closed || !pending.add(path)) return; //already queued
+        BUILDER.execute(new Runnable(){
+            @Override
+            public void run(){
+                try{
+                    if(closed || !isLive(store,path)) return;
+                    ZoneMap zoneMap=readZoneMap(storeFile);
+                    zoneMaps.put(path,zoneMap);
+                    if(closed || !isLive(store,path))
+                        zoneMaps.remove(path); //compacted away while it was being read
+                }catch(Exception e){
+                    SpliceLogUtils.warn(LOG,"Unable to build a zone map for %s: %s",path,e.getMessage());
+                }finally{
+                    pending.remove(path);
+                }
+            }
+        });
+    }
+
+    private ZoneMap readZoneMap(StoreFile storeFile) throws IOException{
+        ZoneMap.Builder builder=new ZoneMap.Builder(blockRows);
+        HFileScanner scanner=storeFile.getReader().getScanner(false,true);
+        if(scanner.seekTo()){
+            do{
+                Cell cell=scanner.getKeyValue();
+                ZoneMapCollectingScanner.add(builder,cell);
+            }while(scanner.next());
+        }
+        return builder.build();
+    }
+
+    private static boolean isLive(Store store,String path){
+        for(StoreFile storeFile:store.getStorefiles()){
+            if(storeFile.getPath().toString().equals(path)) return true;
+        }
+        return false;
+    }
+}
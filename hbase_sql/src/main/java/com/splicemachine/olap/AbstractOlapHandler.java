@@ -57,7 +57,7 @@ public abstract class AbstractOlapHandler extends SimpleChannelInboundHandler<Ol
     /*Protected convenience methods*/
     protected void writeResponse(Channel c,final String requestId,OlapStatus status) throws IOException{
         final boolean[] shouldRemove= {false};
-        ChannelFuture futureResponse = c.writeAndFlush(OlapSerializationUtils.buildResponse(status,shouldRemove,jobRegistry.tickTime()));
+        ChannelFuture futureResponse = c.writeAndFlush(OlapSerializationUtils.buildResponse(requestId,status,shouldRemove,jobRegistry.tickTime()));
 
         futureResponse.addListener(new ChannelFutureListener(){
                                        @Override
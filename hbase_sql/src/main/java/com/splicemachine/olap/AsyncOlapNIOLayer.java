@@ -44,17 +44,26 @@ import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.SocketException;
 import java.net.SocketTimeoutException;
+import java.util.Iterator;
 import java.util.concurrent.*;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
 /**
+ * Submits jobs to the Olap server.
+ *
+ * Once a job is submitted, the client subscribes to it over a dedicated event channel and the server pushes
+ * its progress and completion over that channel. Status checks remain as a liveness fallback: they are sent
+ * only every {@link #SUBSCRIBED_STATUS_TICKS} ticks while the subscription is in place, and every tick when
+ * it could not be made or its channel was lost.
+ *
  * @author Scott Fines
  *         Date: 4/4/16
  */
 public class AsyncOlapNIOLayer implements JobExecutor{
     private static final Logger LOG=Logger.getLogger(AsyncOlapNIOLayer.class);
+    private static final int SUBSCRIBED_STATUS_TICKS=10;
 
     private final int maxRetries;
     private ChannelPool channelPool;
@@ -63,6 +72,10 @@ public class AsyncOlapNIOLayer implements JobExecutor{
     private final OlapServerProvider hostProvider;
     private final Object connectionLock = new Object();
     private volatile boolean connected = false;
+    private Bootstrap bootstrap;
+    private ChannelFuture eventChannel;
+    private final ConcurrentMap<String,OlapFuture> subscriptions = new ConcurrentHashMap<>();
+    private final ChannelHandler eventHandler = new EventHandler();
 
     private ExtensionRegistry buildExtensionRegistry(){
         ExtensionRegistry er=ExtensionRegistry.newInstance();
@@ -86,6 +99,9 @@ public class AsyncOlapNIOLayer implements JobExecutor{
             }
             if (channelPool != null)
                 channelPool.close();
+            if (eventChannel != null)
+                eventChannel.channel().close();
+            eventChannel = null;
             if (executorService != null)
                 executorService.shutdown();
             HostAndPort hap = hostProvider.olapServerHost();
@@ -106,15 +122,12 @@ public class AsyncOlapNIOLayer implements JobExecutor{
                     .option(ChannelOption.SO_KEEPALIVE, true)
                     .remoteAddress(socketAddr);
 
+            this.bootstrap = bootstrap;
             //TODO -sf- this may be excessive network usage --consider a bounded pool to prevent over-connection?
             this.channelPool = new SimpleChannelPool(bootstrap, new AbstractChannelPoolHandler() {
                 @Override
                 public void channelCreated(Channel channel) throws Exception {
-                    ChannelPipeline p = channel.pipeline();
-                    p.addLast("frameEncoder", new LengthFieldPrepender(4));
-                    p.addLast("protobufEncoder", new ProtobufEncoder());
-                    p.addLast("frameDecoder", new LengthFieldBasedFrameDecoder(1 << 30, 0, 4, 0, 4));
-                    p.addLast("protobufDecoder", decoder);
+                    initPipeline(channel.pipeline());
                 }
             });
             executorService = group;
@@ -145,6 +158,10 @@ public class AsyncOlapNIOLayer implements JobExecutor{
     @Override
     public void shutdown(){
         channelPool.close(); //disconnect everything
+        synchronized (connectionLock) {
+            if (eventChannel != null)
+                eventChannel.channel().close();
+        }
         executorService.shutdown();
     }
 
@@ -152,6 +169,65 @@ public class AsyncOlapNIOLayer implements JobExecutor{
     /* ****************************************************************************************************************/
     /*Private Helper methods and classes*/
 
+    private void initPipeline(ChannelPipeline p){
+        p.addLast("frameEncoder", new LengthFieldPrepender(4));
+        p.addLast("protobufEncoder", new ProtobufEncoder());
+        p.addLast("frameDecoder", new LengthFieldBasedFrameDecoder(1 << 30, 0, 4, 0, 4));
+        p.addLast("protobufDecoder", decoder);
+    }
+
+    /**
+     * @return the connection which the server pushes job state changes to, opening it if needed
+     */
+    private ChannelFuture eventChannel(){
+        synchronized (connectionLock) {
+            if (eventChannel == null || (eventChannel.isDone() && !eventChannel.channel().isActive())) {
+                eventChannel = bootstrap.clone().handler(new ChannelInitializer<Channel>() {
+                    @Override
+                    protected void initChannel(Channel channel) throws Exception {
+                        initPipeline(channel.pipeline());
+                        channel.pipeline().addLast("eventHandler", eventHandler);
+                    }
+                }).connect();
+            }
+            return eventChannel;
+        }
+    }
+
+    private void subscribe(final OlapFuture future){
+        final String uniqueName = future.job.getUniqueName();
+        subscriptions.put(uniqueName, future);
+        eventChannel().addListener(new ChannelFutureListener() {
+            @Override
+            public void operationComplete(ChannelFuture channelFuture) throws Exception {
+                if (!channelFuture.isSuccess()) {
+                    unsubscribe(future, channelFuture.cause());
+                    return;
+                }
+                OlapMessage.Command cmd = OlapMessage.Command.newBuilder()
+                        .setUniqueName(uniqueName)
+                        .setType(OlapMessage.Command.Type.SUBSCRIBE)
+                        .setExtension(OlapMessage.Subscribe.command,
+                                OlapMessage.Subscribe.newBuilder().setStatusTicks(SUBSCRIBED_STATUS_TICKS).build())
+                        .build();
+                channelFuture.channel().writeAndFlush(cmd).addListener(new ChannelFutureListener() {
+                    @Override
+                    public void operationComplete(ChannelFuture writeFuture) throws Exception {
+                        if (!writeFuture.isSuccess())
+                            unsubscribe(future, writeFuture.cause());
+                    }
+                });
+            }
+        });
+    }
+
+    private void unsubscribe(OlapFuture future, Throwable cause){
+        if (subscriptions.remove(future.job.getUniqueName(), future)) {
+            LOG.warn("Lost the subscription to job " + future.job.getUniqueName() + ", checking its status every tick", cause);
+            future.scheduleStatusCheck(false);
+        }
+    }
+
     private OlapResult parseFromResponse(OlapMessage.Response response) throws IOException{
         switch(response.getType()){
             case NOT_SUBMITTED:
@@ -198,7 +274,6 @@ public class AsyncOlapNIOLayer implements JobExecutor{
         private volatile int notFound;
         private volatile Throwable cause=null;
         private volatile long tickTimeNanos=TimeUnit.MILLISECONDS.toNanos(1000L);
-        private volatile long waitTimeMillis = 1000;
         private ScheduledFuture<?> keepAlive;
         private final ByteString data;
 
@@ -279,6 +354,7 @@ public class AsyncOlapNIOLayer implements JobExecutor{
             Future<Channel> channelFuture=channelPool.acquire();
             channelFuture.addListener(new CancelCommand(job.getUniqueName()));
             cancelled=true;
+            finished();
             signal();
         }
 
@@ -290,8 +366,7 @@ public class AsyncOlapNIOLayer implements JobExecutor{
             }
             this.cause=cause;
             this.failed=true;
-            if (this.keepAlive != null)
-                this.keepAlive.cancel(false);
+            finished();
             this.executionList.execute();
         }
 
@@ -299,10 +374,49 @@ public class AsyncOlapNIOLayer implements JobExecutor{
             if (LOG.isTraceEnabled())
                 LOG.trace("Successful job "+ job.getUniqueName());
             this.finalResult = result;
-            this.keepAlive.cancel(false);
+            finished();
             this.executionList.execute();
         }
 
+        private synchronized void finished() {
+            if (this.keepAlive != null)
+                this.keepAlive.cancel(false);
+            subscriptions.remove(job.getUniqueName(), this);
+        }
+
+        /**
+         * Act on a result received either in response to a status check or pushed by the server
+         */
+        void received(OlapResult or) {
+            //TODO -sf- deal with a OlapServer failover here (i.e. a move to NOT_SUBMITTED from any other state
+            if(or instanceof SubmittedResult) {
+                tickTimeNanos = TimeUnit.MILLISECONDS.toNanos(((SubmittedResult) or).getTickTime());
+                lastStatus = System.currentTimeMillis();
+            } else if(submitted && !isDone() && or instanceof NotSubmittedResult) {
+                // Server says the job is no longer submitted, give it a couple of tries in case messages are out of order
+                long millisSinceLastStatus = System.currentTimeMillis() - lastStatus;
+                LOG.warn("Status not available for job " + job.getUniqueName() +
+                        ", millis since last status " + millisSinceLastStatus);
+                if (notFound++ > maxRetries) {
+                    // The job is no longer submitted, assume aborted
+                    LOG.error("Failing job " + job.getUniqueName() + " after " + maxRetries +
+                            " status not available responses");
+                    fail(new IOException("Status not available, assuming aborted due to client timeout"));
+                }
+            }else if(or.isSuccess()){
+                success(or);
+            }else{
+                // It should have a throwable
+                Throwable t=or.getThrowable();
+                if(t!=null){
+                    fail(t);
+                } else {
+                    LOG.error("Message doesn't match any type of expected results: " + or);
+                }
+            }
+            signal();
+        }
+
         void doSubmit() throws IOException{
             Future<Channel> channelFuture=channelPool.acquire();
             if (LOG.isTraceEnabled())
@@ -346,8 +460,16 @@ public class AsyncOlapNIOLayer implements JobExecutor{
             executionList.add(runnable, executor);
         }
 
-        public void scheduleStatusCheck() {
-            this.keepAlive = executorService.scheduleWithFixedDelay(this, 0, tickTimeNanos, TimeUnit.NANOSECONDS);
+        /**
+         * Check the status of the job every tick, or only every {@link #SUBSCRIBED_STATUS_TICKS} ticks (for liveness)
+         * when its state changes are pushed to us.
+         */
+        synchronized void scheduleStatusCheck(boolean subscribed) {
+            if (isDone()) return;
+            if (this.keepAlive != null)
+                this.keepAlive.cancel(false);
+            long period = subscribed ? tickTimeNanos * SUBSCRIBED_STATUS_TICKS : tickTimeNanos;
+            this.keepAlive = executorService.scheduleWithFixedDelay(this, subscribed ? period : 0, period, TimeUnit.NANOSECONDS);
         }
     }
 
@@ -409,10 +531,6 @@ public class AsyncOlapNIOLayer implements JobExecutor{
             }
 
             OlapMessage.Status.Builder status=OlapMessage.Status.newBuilder();
-            if (olapFuture.waitTimeMillis > 0) {
-                status.setWaitTimeMillis(olapFuture.waitTimeMillis);
-                olapFuture.waitTimeMillis = 0;
-            }
             OlapMessage.Command cmd=OlapMessage.Command.newBuilder()
                     .setUniqueName(olapFuture.job.getUniqueName())
                     .setType(OlapMessage.Command.Type.STATUS)
@@ -489,36 +607,10 @@ public class AsyncOlapNIOLayer implements JobExecutor{
             if (LOG.isTraceEnabled()) {
                 LOG.trace("Received " + or);
             }
-            //TODO -sf- deal with a OlapServer failover here (i.e. a move to NOT_SUBMITTED from any other state
-            if(or instanceof SubmittedResult) {
-                future.tickTimeNanos = TimeUnit.MILLISECONDS.toNanos(((SubmittedResult) or).getTickTime());
-                future.lastStatus = System.currentTimeMillis();
-            } else if(future.submitted && !future.isDone() && or instanceof NotSubmittedResult) {
-                // Server says the job is no longer submitted, give it a couple of tries in case messages are out of order
-                long millisSinceLastStatus = System.currentTimeMillis() - future.lastStatus;
-                LOG.warn("Status not available for job " + future.job.getUniqueName() +
-                        ", millis since last status " + millisSinceLastStatus);
-                if (future.notFound++ > maxRetries) {
-                    // The job is no longer submitted, assume aborted
-                    LOG.error("Failing job " + future.job.getUniqueName() + " after " + maxRetries +
-                            " status not available responses");
-                    future.fail(new IOException("Status not available, assuming aborted due to client timeout"));
-                }
-            }else if(or.isSuccess()){
-                future.success(or);
-            }else{
-                // It should have a throwable
-                Throwable t=or.getThrowable();
-                if(t!=null){
-                    future.fail(t);
-                } else {
-                    LOG.error("Message doesn't match any type of expected results: " + or);
-                }
-            }
             ctx.pipeline().remove(this); //we don't want this in the pipeline anymore
             Channel channel=ctx.channel();
             channelPool.release(channel); //release the underlying channel back to the pool cause we're done
-            future.signal();
+            future.received(or);
         }
 
         @Override
@@ -556,7 +648,10 @@ public class AsyncOlapNIOLayer implements JobExecutor{
             ctx.pipeline().remove(this); //we don't want this in the pipeline anymore
             Channel channel=ctx.channel();
             channelPool.release(channel); //release the underlying channel back to the pool cause we're done
-            future.scheduleStatusCheck();
+            if (future.submitted) {
+                future.scheduleStatusCheck(true);
+                subscribe(future);
+            }
             future.signal();
         }
 
@@ -568,4 +663,45 @@ public class AsyncOlapNIOLayer implements JobExecutor{
             future.signal();
         }
     }
+
+    /**
+     * Handles the job state changes which the server pushes over the event channel.
+     */
+    @ChannelHandler.Sharable
+    private final class EventHandler extends SimpleChannelInboundHandler<OlapMessage.Response>{
+
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx,OlapMessage.Response olapResult) throws Exception{
+            OlapFuture future=subscriptions.get(olapResult.getUniqueName());
+            if(future==null) return; //already done
+            OlapResult or;
+            try{
+                or=parseFromResponse(olapResult);
+            }catch(IOException e){
+                future.fail(e);
+                future.signal();
+                return;
+            }
+            if (LOG.isTraceEnabled()) {
+                LOG.trace("Pushed " + or + " for job " + olapResult.getUniqueName());
+            }
+            future.received(or);
+        }
+
+        @Override
+        public void channelInactive(ChannelHandlerContext ctx) throws Exception{
+            Iterator<OlapFuture> futures=subscriptions.values().iterator();
+            while(futures.hasNext()){
+                futures.next().scheduleStatusCheck(false);
+                futures.remove();
+            }
+            super.channelInactive(ctx);
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx,Throwable cause) throws Exception{
+            LOG.warn("Unexpected error on the Olap event channel, closing it", cause);
+            ctx.close();
+        }
+    }
 }
@@ -16,6 +16,7 @@ package com.splicemachine.olap;
 
 import com.splicemachine.concurrent.Clock;
 import com.splicemachine.derby.iapi.sql.olap.DistributedJob;
+import com.splicemachine.derby.iapi.sql.olap.OlapJobPriority;
 import com.splicemachine.derby.iapi.sql.olap.OlapStatus;
 import com.splicemachine.derby.stream.compaction.SparkCompactionFunction;
 import org.apache.commons.codec.binary.Base64;
@@ -90,6 +91,11 @@ public class DistributedCompaction extends DistributedJob{
         return jobGroup;
     }
 
+    @Override
+    public OlapJobPriority getPriority(){
+        return OlapJobPriority.COMPACTION;
+    }
+
     @Override
     public int hashCode(){
         return jobGroup.hashCode();
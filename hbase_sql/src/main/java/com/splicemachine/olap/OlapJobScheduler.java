@@ -0,0 +1,336 @@
+/*
+ * Copyright (c) 2012 - 2018 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.olap;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.splicemachine.derby.iapi.sql.olap.OlapJobPriority;
+import com.splicemachine.derby.iapi.sql.olap.OlapStatus;
+import org.apache.log4j.Logger;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs submitted Olap jobs, at most {@code maxRunning} at a time.
+ *
+ * When a slot frees up, the scheduler starts a waiting job of the highest {@link OlapJobPriority} class which
+ * has one. Within a class, jobs are shared out evenly between their owners: the next job is taken from the owner
+ * with the fewest running jobs, and from the one which has waited longest among those.
+ *
+ * {@code reservedInteractive} of the slots are kept for interactive jobs, so background work can never take every
+ * slot. Each time a job waits for the aging time, it moves up one class, where it goes ahead of the jobs which
+ * arrived after it. That way a steady stream of higher priority jobs cannot starve compactions or statistics
+ * collection forever, but an aged compaction doesn't jump ahead of the interactive queries which were waiting first.
+ */
+class OlapJobScheduler{
+    private static final Logger LOG =Logger.getLogger(OlapJobScheduler.class);
+    private static final String SYSTEM_OWNER = "";
+
+    private final int maxRunning;
+    /*the most jobs which aren't INTERACTIVE that may run at once*/
+    private final int maxBackground;
+    private final long agingNanos;
+    private final ExecutorService workers;
+    private final ClassQueue[] queues;
+    private final Map<String,Integer> runningByOwner = new HashMap<>();
+
+    /*guarded by this*/
+    private int running;
+    private long sequence;
+
+    OlapJobScheduler(int maxRunning,int reservedInteractive,long agingTime,TimeUnit unit){
+        this.maxRunning = Math.max(1,maxRunning);
+        //background jobs always get at least one slot
+        this.maxBackground = this.maxRunning-Math.max(0,Math.min(reservedInteractive,this.maxRunning-1));
+        this.agingNanos = unit.toNanos(agingTime);
+        this.workers = Executors.newCachedThreadPool(new ThreadFactoryBuilder().setDaemon(true).setNameFormat("olap-worker-%d").build());
+        OlapJobPriority[] priorities = OlapJobPriority.values();
+        this.queues = new ClassQueue[priorities.length];
+        for(OlapJobPriority priority:priorities){
+            queues[priority.ordinal()] = new ClassQueue(priority);
+        }
+        registerJMX();
+    }
+
+    /**
+     * Queue {@code job}, which is run once a slot is free and no job is ahead of it.
+     */
+    synchronized void submit(OlapJobPriority priority,String owner,OlapJobStatus jobStatus,Callable<Void> job){
+        ClassQueue queue = queues[(priority==null?OlapJobPriority.INTERACTIVE:priority).ordinal()];
+        jobStatus.markQueued(queue.priority,queue.waiting);
+        queue.add(new QueuedJob(sequence++,owner==null?SYSTEM_OWNER:owner,jobStatus,job));
+        dispatch();
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private void dispatch(){
+        assert Thread.holdsLock(this);
+        ClassQueue interactive = queues[OlapJobPriority.INTERACTIVE.ordinal()];
+        while(running<maxRunning){
+            QueuedJob next = next(running-interactive.running<maxBackground);
+            if(next==null) return;
+            if(next.jobStatus.currentState()!=OlapStatus.State.SUBMITTED){
+                if(LOG.isTraceEnabled())
+                    LOG.trace("Dropping job "+next.jobStatus+" which is no longer waiting to run");
+                continue;
+            }
+            start(next);
+        }
+    }
+
+    /**
+     * @param backgroundAllowed whether there is a free slot for a job which isn't INTERACTIVE
+     * @return the job to start next, or {@code null} if none may start
+     */
+    private QueuedJob next(boolean backgroundAllowed){
+        ClassQueue chosen = null;
+        int chosenClass = Integer.MAX_VALUE;
+        long chosenSequence = Long.MAX_VALUE;
+        long now = System.nanoTime();
+        for(ClassQueue queue:queues){
+            if(queue.priority!=OlapJobPriority.INTERACTIVE && !backgroundAllowed) continue;
+            QueuedJob head = queue.oldest();
+            if(head==null) continue;
+            int effectiveClass = effectiveClass(queue.priority,head,now);
+            //within the class it has aged into, a job goes ahead of those which arrived after it
+            if(effectiveClass<chosenClass || (effectiveClass==chosenClass && head.sequence<chosenSequence)){
+                chosen = queue;
+                chosenClass = effectiveClass;
+                chosenSequence = head.sequence;
+            }
+        }
+        return chosen==null?null:chosen.poll();
+    }
+
+    /**
+     * @return the class which {@code job} is scheduled in, after moving up one class for each aging period it waited
+     */
+    private int effectiveClass(OlapJobPriority priority,QueuedJob job,long now){
+        if(agingNanos<=0) return 0;
+        long periods = (now-job.queuedNanos)/agingNanos;
+        return (int)Math.max(0,priority.ordinal()-periods);
+    }
+
+    private void start(final QueuedJob queuedJob){
+        final ClassQueue queue = queues[queuedJob.jobStatus.getPriority().ordinal()];
+        running++;
+        queue.running++;
+        Integer ownerRunning = runningByOwner.get(queuedJob.owner);
+        runningByOwner.put(queuedJob.owner,ownerRunning==null?1:ownerRunning+1);
+        queuedJob.jobStatus.markStarted();
+        queue.started(queuedJob.jobStatus.getWaitTime(TimeUnit.MILLISECONDS));
+        workers.execute(new Runnable(){
+            @Override
+            public void run(){
+                try{
+                    queuedJob.job.call();
+                }catch(Throwable t){
+                    LOG.error("Uncaught exception", t);
+                    if(queuedJob.jobStatus.isRunning()){
+                        queuedJob.jobStatus.markCompleted(new FailedOlapResult(t));
+                    }
+                }finally{
+                    finished(queue,queuedJob);
+                }
+            }
+        });
+    }
+
+    private synchronized void finished(ClassQueue queue,QueuedJob queuedJob){
+        queuedJob.jobStatus.markFinished();
+        running--;
+        queue.running--;
+        queue.finished(queuedJob.jobStatus.getRunTime(TimeUnit.MILLISECONDS));
+        int ownerRunning = runningByOwner.get(queuedJob.owner)-1;
+        if(ownerRunning==0)
+            runningByOwner.remove(queuedJob.owner);
+        else
+            runningByOwner.put(queuedJob.owner,ownerRunning);
+        dispatch();
+    }
+
+    private void registerJMX(){
+        try{
+            MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+            for(ClassQueue queue:queues){
+                ObjectName name = new ObjectName("com.splicemachine.olap:type=OlapJobScheduler,priority="+queue.priority);
+                mbs.registerMBean(queue,name);
+            }
+        }catch(InstanceAlreadyExistsException ignored){
+            // another server in this JVM got there first
+        }catch(Exception e){
+            LOG.warn("Unable to register the Olap job scheduler with JMX", e);
+        }
+    }
+
+    private static class QueuedJob{
+        final long sequence;
+        final long queuedNanos = System.nanoTime();
+        final String owner;
+        final OlapJobStatus jobStatus;
+        final Callable<Void> job;
+
+        QueuedJob(long sequence,String owner,OlapJobStatus jobStatus,Callable<Void> job){
+            this.sequence=sequence;
+            this.owner=owner;
+            this.jobStatus=jobStatus;
+            this.job=job;
+        }
+    }
+
+    /**
+     * The waiting jobs of one scheduling class, by owner, and its statistics. Guarded by the scheduler.
+     */
+    private class ClassQueue implements OlapJobSchedulerStatistics{
+        final OlapJobPriority priority;
+        final Map<String,ArrayDeque<QueuedJob>> byOwner = new LinkedHashMap<>();
+        int waiting;
+        int running;
+        long startedJobs;
+        long completedJobs;
+        long totalWaitTimeMs;
+        long maxWaitTimeMs;
+        long totalRunTimeMs;
+
+        ClassQueue(OlapJobPriority priority){
+            this.priority=priority;
+        }
+
+        void add(QueuedJob queuedJob){
+            ArrayDeque<QueuedJob> jobs = byOwner.get(queuedJob.owner);
+            if(jobs==null){
+                jobs = new ArrayDeque<>();
+                byOwner.put(queuedJob.owner,jobs);
+            }
+            jobs.add(queuedJob);
+            waiting++;
+        }
+
+        /**
+         * @return the job which has waited longest in this class, or {@code null} if none is waiting
+         */
+        QueuedJob oldest(){
+            QueuedJob oldest = null;
+            for(ArrayDeque<QueuedJob> jobs:byOwner.values()){
+                QueuedJob head = jobs.peek();
+                if(oldest==null || head.sequence<oldest.sequence)
+                    oldest = head;
+            }
+            return oldest;
+        }
+
+        /**
+         * Remove the next job of the owner with the fewest running jobs
+         */
+        QueuedJob poll(){
+            Iterator<Map.Entry<String,ArrayDeque<QueuedJob>>> owners = byOwner.entrySet().iterator();
+            ArrayDeque<QueuedJob> best = null;
+            int bestRunning = Integer.MAX_VALUE;
+            while(owners.hasNext()){
+                Map.Entry<String,ArrayDeque<QueuedJob>> owner = owners.next();
+                Integer ownerRunning = runningByOwner.get(owner.getKey());
+                int r = ownerRunning==null?0:ownerRunning;
+                ArrayDeque<QueuedJob> jobs = owner.getValue();
+                if(r<bestRunning || (r==bestRunning && jobs.peek().sequence<best.peek().sequence)){
+                    best = jobs;
+                    bestRunning = r;
+                }
+            }
+            if(best==null) return null;
+            QueuedJob next = best.poll();
+            if(best.isEmpty())
+                byOwner.remove(next.owner);
+            waiting--;
+            return next;
+        }
+
+        void started(long waitTimeMs){
+            startedJobs++;
+            totalWaitTimeMs+=waitTimeMs;
+            maxWaitTimeMs = Math.max(maxWaitTimeMs,waitTimeMs);
+        }
+
+        void finished(long runTimeMs){
+            completedJobs++;
+            totalRunTimeMs+=runTimeMs;
+        }
+
+        @Override
+        public String getPriority(){
+            return priority.name();
+        }
+
+        @Override
+        public int getQueueDepth(){
+            synchronized(OlapJobScheduler.this){
+                return waiting;
+            }
+        }
+
+        @Override
+        public int getRunningJobs(){
+            synchronized(OlapJobScheduler.this){
+                return running;
+            }
+        }
+
+        @Override
+        public long getStartedJobs(){
+            synchronized(OlapJobScheduler.this){
+                return startedJobs;
+            }
+        }
+
+        @Override
+        public long getCompletedJobs(){
+            synchronized(OlapJobScheduler.this){
+                return completedJobs;
+            }
+        }
+
+        @Override
+        public long getTotalWaitTimeMs(){
+            synchronized(OlapJobScheduler.this){
+                return totalWaitTimeMs;
+            }
+        }
+
+        @Override
+        public long getMaxWaitTimeMs(){
+            synchronized(OlapJobScheduler.this){
+                return maxWaitTimeMs;
+            }
+        }
+
+        @Override
+        public long getTotalRunTimeMs(){
+            synchronized(OlapJobScheduler.this){
+                return totalRunTimeMs;
+            }
+        }
+    }
+}
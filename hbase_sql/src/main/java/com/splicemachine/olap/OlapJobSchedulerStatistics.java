@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2012 - 2018 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.olap;
+
+import javax.management.MXBean;
+
+/**
+ * Interface for exposing the queue of one scheduling class of the {@link OlapJobScheduler} via JMX.
+ */
+@MXBean
+public interface OlapJobSchedulerStatistics{
+
+    /**
+     * @return the name of the scheduling class
+     */
+    String getPriority();
+
+    /**
+     * @return the number of jobs which are waiting to be started
+     */
+    int getQueueDepth();
+
+    /**
+     * @return the number of jobs which are running
+     */
+    int getRunningJobs();
+
+    /**
+     * @return the number of jobs which have been started since the server started
+     */
+    long getStartedJobs();
+
+    /**
+     * @return the number of jobs which have finished since the server started
+     */
+    long getCompletedJobs();
+
+    /**
+     * @return the total number of milliseconds which started jobs spent waiting in the queue
+     */
+    long getTotalWaitTimeMs();
+
+    /**
+     * @return the longest number of milliseconds which a started job spent waiting in the queue
+     */
+    long getMaxWaitTimeMs();
+
+    /**
+     * @return the total number of milliseconds which finished jobs spent running
+     */
+    long getTotalRunTimeMs();
+}
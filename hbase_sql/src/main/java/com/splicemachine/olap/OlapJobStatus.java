@@ -17,6 +17,7 @@ package com.splicemachine.olap;
 import akka.remote.FailureDetector;
 import akka.remote.FailureDetector$;
 import akka.remote.PhiAccrualFailureDetector;
+import com.splicemachine.derby.iapi.sql.olap.OlapJobPriority;
 import com.splicemachine.derby.iapi.sql.olap.OlapResult;
 import com.splicemachine.derby.iapi.sql.olap.OlapStatus;
 import org.apache.log4j.Logger;
@@ -34,22 +35,42 @@ import java.util.concurrent.atomic.AtomicReference;
 public class OlapJobStatus implements OlapStatus{
     private static final Logger LOG = Logger.getLogger(OlapJobStatus.class);
 
-    private final FailureDetector failureDetector;
     private final long tickTime;
+    private final int numTicks;
+    /*replaced when the expected interval between status checks changes*/
+    private volatile FailureDetector failureDetector;
 
     private volatile AtomicReference<OlapStatus.State> currentState = new AtomicReference<>(State.NOT_SUBMITTED);
     private ArrayBlockingQueue<OlapResult> results;
     private volatile OlapResult cachedResult;
 
-    public OlapJobStatus(long tickTime,int numTicks){
-        //TODO -sf- remove the constants
-        FiniteDuration maxHeartbeatInterval = FiniteDuration.apply(numTicks*tickTime,TimeUnit.MILLISECONDS);
-        FiniteDuration stdDev = FiniteDuration.apply(2*tickTime,TimeUnit.MILLISECONDS);
-        FiniteDuration firstTick = FiniteDuration.apply(tickTime,TimeUnit.MILLISECONDS);
+    /*scheduling information, set by the OlapJobScheduler*/
+    private volatile OlapJobPriority priority;
+    private volatile int queueDepth;
+    private volatile long queuedNanos;
+    private volatile long startedNanos;
+    private volatile long finishedNanos;
 
-        failureDetector = new PhiAccrualFailureDetector(10,128,stdDev,maxHeartbeatInterval,firstTick,
-                FailureDetector$.MODULE$.defaultClock());
+    /*the client connection which job state changes are pushed to, set by the OlapSubscribeHandler*/
+    private volatile Listener listener;
+
+    /**
+     * Notified of every state change of a job.
+     */
+    interface Listener{
+        void stateChanged(OlapJobStatus status);
+
+        /**
+         * Called once the job stops pushing its state changes to this listener, because the job finished or
+         * the subscription was dropped.
+         */
+        void unsubscribed();
+    }
+
+    public OlapJobStatus(long tickTime,int numTicks){
         this.tickTime = tickTime;
+        this.numTicks = numTicks;
+        this.failureDetector = newFailureDetector(tickTime);
         this.results = new ArrayBlockingQueue<>(1);
     }
 
@@ -95,6 +116,7 @@ public class OlapJobStatus implements OlapStatus{
             shouldContinue = !currentState.compareAndSet(currState,State.CANCELED);
         }while(shouldContinue);
         results.offer(new CancelledResult());
+        notifyListener();
     }
 
     public boolean isAvailable(){
@@ -134,6 +156,7 @@ public class OlapJobStatus implements OlapStatus{
             shouldContinue = !currentState.compareAndSet(currState,State.COMPLETE);
         }while(shouldContinue);
         results.offer(result);
+        notifyListener();
     }
 
     public boolean markRunning(){
@@ -149,6 +172,7 @@ public class OlapJobStatus implements OlapStatus{
             }
             shouldContinue = !currentState.compareAndSet(currState,State.RUNNING);
         }while(shouldContinue);
+        notifyListener();
         return true;
     }
 
@@ -169,8 +193,82 @@ public class OlapJobStatus implements OlapStatus{
         return cachedResult != null;
     }
 
+    /**
+     * @return the scheduling class the job was queued in, or {@code null} if it has not been queued
+     */
+    public OlapJobPriority getPriority(){
+        return priority;
+    }
+
+    /**
+     * @return the number of jobs of the same scheduling class which were already waiting when this job was queued
+     */
+    public int getQueueDepth(){
+        return queueDepth;
+    }
+
+    /**
+     * @return how long the job waited (or has been waiting so far) for the scheduler to start it
+     */
+    public long getWaitTime(TimeUnit unit){
+        if(queuedNanos==0) return 0;
+        long end = startedNanos!=0?startedNanos:System.nanoTime();
+        return unit.convert(end-queuedNanos,TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return how long the job ran (or has been running so far)
+     */
+    public long getRunTime(TimeUnit unit){
+        if(startedNanos==0) return 0;
+        long end = finishedNanos!=0?finishedNanos:System.nanoTime();
+        return unit.convert(end-startedNanos,TimeUnit.NANOSECONDS);
+    }
+
     /*package-private methods*/
     /* ****************************************************************************************************************/
+    void markQueued(OlapJobPriority priority,int queueDepth){
+        this.priority = priority;
+        this.queueDepth = queueDepth;
+        this.queuedNanos = System.nanoTime();
+    }
+
+    void markStarted(){
+        startedNanos = System.nanoTime();
+    }
+
+    void markFinished(){
+        finishedNanos = System.nanoTime();
+    }
+
+    /**
+     * Push every later state change of this job to {@code listener}, starting with the current state.
+     *
+     * @param statusTicks the number of ticks between the status checks of the subscribed client
+     */
+    synchronized void subscribe(Listener listener,int statusTicks){
+        Listener old = this.listener;
+        if(old!=null)
+            old.unsubscribed();
+        expectStatusChecksEvery(Math.max(1,statusTicks)*tickTime);
+        this.listener = listener;
+        notifyListener();
+    }
+
+    /**
+     * Stop pushing state changes to {@code listener}, and expect a status check every tick again.
+     */
+    synchronized void unsubscribe(Listener listener){
+        if(this.listener!=listener) return;
+        this.listener = null;
+        listener.unsubscribed();
+        expectStatusChecksEvery(tickTime);
+    }
+
+    boolean isSubscribed(Listener listener){
+        return this.listener==listener;
+    }
+
     State currentState(){
         /*
          * Get the current state of the job. If the job has timed out because the waiting client has died (or
@@ -193,19 +291,58 @@ public class OlapJobStatus implements OlapStatus{
              * This task is still running, so we need to check to see if the responsible client has died
              * or not.
              */
-            if(!failureDetector.isAvailable()){
+            if(!isAvailable()){
                 results.offer(new FailedOlapResult(new TimeoutException("Client timed out response, assuming it died")));
                 currentState.compareAndSet(curState,State.FAILED); //all other states don't have to be marked failed
                 curState=State.FAILED;
+                notifyListener();
             }
         }
         return curState;
     }
 
+    private void notifyListener(){
+        Listener l = listener;
+        if(l==null) return;
+        l.stateChanged(this);
+        switch(currentState.get()){
+            case CANCELED:
+            case FAILED:
+            case COMPLETE:
+                //nothing else will change, so let go of the subscriber
+                unsubscribe(l);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void expectStatusChecksEvery(long intervalMillis){
+        FailureDetector fd = newFailureDetector(intervalMillis);
+        fd.heartbeat(); //the subscription counts as a check
+        failureDetector = fd;
+    }
+
+    /**
+     * The detector expects a heartbeat (status check) every {@code intervalMillis}, and tolerates a pause of
+     * {@code numTicks} ticks, or of a few intervals if that is longer.
+     */
+    private FailureDetector newFailureDetector(long intervalMillis){
+        FiniteDuration maxHeartbeatInterval = FiniteDuration.apply(Math.max(numTicks*tickTime,3*intervalMillis),TimeUnit.MILLISECONDS);
+        FiniteDuration stdDev = FiniteDuration.apply(2*intervalMillis,TimeUnit.MILLISECONDS);
+        FiniteDuration firstTick = FiniteDuration.apply(intervalMillis,TimeUnit.MILLISECONDS);
+        return new PhiAccrualFailureDetector(10,128,stdDev,maxHeartbeatInterval,firstTick,
+                FailureDetector$.MODULE$.defaultClock());
+    }
+
     @Override
     public String toString() {
         return "OlapJobStatus{" +
                 "currentState=" + currentState +
+                ", priority=" + priority +
+                ", queueDepth=" + queueDepth +
+                ", waitTime=" + getWaitTime(TimeUnit.MILLISECONDS) + "ms" +
+                ", runTime=" + getRunTime(TimeUnit.MILLISECONDS) + "ms" +
                 ", failureDetector.phi =" + ((PhiAccrualFailureDetector)failureDetector).phi() +
                 '}';
     }
@@ -14,7 +14,6 @@
 
 package com.splicemachine.olap;
 
-import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.splicemachine.access.api.SConfiguration;
 import com.splicemachine.concurrent.Clock;
 import com.splicemachine.derby.iapi.sql.olap.DistributedJob;
@@ -22,9 +21,7 @@ import io.netty.channel.ChannelHandlerContext;
 import org.apache.log4j.Logger;
 
 import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @author Scott Fines
@@ -33,7 +30,7 @@ import java.util.concurrent.ThreadFactory;
 class OlapRequestHandler extends AbstractOlapHandler{
     private static final Logger LOG =Logger.getLogger(OlapRequestHandler.class);
 
-    private final ExecutorService executionPool;
+    private final OlapJobScheduler scheduler;
     private final Clock clock;
     private final long clientCheckTimeMs;
 
@@ -42,7 +39,8 @@ class OlapRequestHandler extends AbstractOlapHandler{
                        Clock clock,
                        long clientCheckTimeMs){
         super(jobRegistry);
-        this.executionPool=configureThreadPool(config);
+        this.scheduler=new OlapJobScheduler(config.getOlapServerThreads(),config.getOlapServerReservedInteractiveThreads(),
+                config.getOlapServerJobAgingTime(),TimeUnit.MILLISECONDS);
         this.clock=clock;
         this.clientCheckTimeMs=clientCheckTimeMs;
     }
@@ -86,7 +84,7 @@ class OlapRequestHandler extends AbstractOlapHandler{
             default:
                 throw new IllegalStateException("Unexpected job state: "+state);
         }
-        final Callable<Void> job=jr.toCallable(jobStatus,clock,clientCheckTimeMs);
+        Callable<Void> job=jr.toCallable(jobStatus,clock,clientCheckTimeMs);
 
         // Tell the client it was successfully submitted before we actually schedule it for execution, otherwise
         // it might send the result before we send the confirmation
@@ -94,33 +92,6 @@ class OlapRequestHandler extends AbstractOlapHandler{
             LOG.trace("Job "+ jobRequest.getUniqueName()+" successfully submitted");
         writeResponse(ctx.channel(),jr.getUniqueName(),jobStatus);
 
-        executionPool.submit(new Callable<Void>() {
-            @Override
-            public Void call() throws Exception {
-                try {
-                    return job.call();
-                } catch (Throwable t) {
-                    LOG.error("Uncaught exception", t);
-                    if (jobStatus.isRunning()) {
-                        jobStatus.markCompleted(new FailedOlapResult(t));
-                    }
-                }
-                return null;
-            }
-        });
+        scheduler.submit(jr.getPriority(),jr.getOwner(),jobStatus,job);
     }
-
-
-
-    /* ****************************************************************************************************************/
-    /*private helper methods*/
-
-
-    private ExecutorService configureThreadPool(SConfiguration config){
-        //TODO -sf- bound this by the number of possible Spark tasks which can run in YARN
-        ThreadFactory tf =new ThreadFactoryBuilder().setDaemon(true).setNameFormat("olap-worker-%d").build();
-        return Executors.newCachedThreadPool(tf);
-    }
-
-
 }
@@ -56,8 +56,8 @@ class OlapSerializationUtils{
         return response.build();
     }
 
-    static OlapMessage.Response buildResponse(OlapStatus status,boolean[] shouldRemoveAfterWriting,long tickTime) throws IOException{
-        OlapMessage.Response.Builder response = OlapMessage.Response.newBuilder();
+    static OlapMessage.Response buildResponse(String uniqueName,OlapStatus status,boolean[] shouldRemoveAfterWriting,long tickTime) throws IOException{
+        OlapMessage.Response.Builder response = OlapMessage.Response.newBuilder().setUniqueName(uniqueName);
         if(status==null){
             response.setType(OlapMessage.Response.Type.NOT_SUBMITTED);
             OlapMessage.ProgressResponse pr=OlapMessage.ProgressResponse.newBuilder().setTickTimeMillis(tickTime).build();
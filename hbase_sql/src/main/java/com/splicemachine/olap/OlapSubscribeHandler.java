@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2012 - 2018 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.olap;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+
+/**
+ * Pushes the state changes of a job to the channel which subscribed to it, so that clients learn
+ * about progress and completion as soon as it happens instead of on their next status check.
+ *
+ * The channel is shared by all the jobs of a client, so it says nothing about whether a job is still
+ * wanted; the job's own (less frequent) status checks keep it alive. When the channel closes, the job
+ * goes back to expecting a status check every tick.
+ */
+@ChannelHandler.Sharable
+public class OlapSubscribeHandler extends AbstractOlapHandler{
+    private static final Logger LOG = Logger.getLogger(OlapSubscribeHandler.class);
+
+    public OlapSubscribeHandler(OlapJobRegistry registry){
+        super(registry);
+    }
+
+    @Override
+    protected void channelRead0(ChannelHandlerContext ctx, OlapMessage.Command cmd) throws Exception {
+        if(cmd.getType()!=OlapMessage.Command.Type.SUBSCRIBE){
+            ctx.fireChannelRead(cmd);
+            return;
+        }
+        OlapJobStatus status = jobRegistry.getStatus(cmd.getUniqueName());
+        if(status==null){
+            writeResponse(ctx.channel(),cmd.getUniqueName(),null);
+            return;
+        }
+        if (LOG.isTraceEnabled()) {
+            LOG.trace("Subscribing to " + cmd.getUniqueName());
+        }
+        OlapMessage.Subscribe subscribe = cmd.getExtension(OlapMessage.Subscribe.command);
+        int statusTicks = subscribe.hasStatusTicks()?subscribe.getStatusTicks():1;
+        ChannelListener listener = new ChannelListener(ctx.channel(),cmd.getUniqueName(),status);
+        status.subscribe(listener,statusTicks);
+        ctx.channel().closeFuture().addListener(listener);
+        if(!status.isSubscribed(listener)) //the job finished already
+            ctx.channel().closeFuture().removeListener(listener);
+    }
+
+    private class ChannelListener implements OlapJobStatus.Listener,ChannelFutureListener{
+        private final Channel channel;
+        private final String uniqueName;
+        private final OlapJobStatus status;
+
+        ChannelListener(Channel channel,String uniqueName,OlapJobStatus status){
+            this.channel=channel;
+            this.uniqueName=uniqueName;
+            this.status=status;
+        }
+
+        @Override
+        public void stateChanged(OlapJobStatus status){
+            if(!channel.isActive())
+                return; //the client will find out through a status check
+            try{
+                writeResponse(channel,uniqueName,status);
+            }catch(IOException e){
+                LOG.warn("Unable to push the state of job "+uniqueName,e);
+            }
+        }
+
+        @Override
+        public void unsubscribed(){
+            //don't keep finished jobs reachable from the long-lived channel
+            channel.closeFuture().removeListener(this);
+        }
+
+        @Override
+        public void operationComplete(ChannelFuture closeFuture){
+            status.unsubscribe(this);
+        }
+    }
+}
@@ -107,13 +107,21 @@ public abstract class AbstractOrcDataSource
         // Note: this code does not use the Java 8 stream APIs to avoid any extra object allocation
         //
 
-        // split disk ranges into "big" and "small"
+        // split disk ranges into "big" and "small", serving small ones from the file cache when possible
+        OrcFileCache.CachedFile fileCache = getFileCache();
         long maxReadSizeBytes = maxBufferSize.toBytes();
+        ImmutableMap.Builder<K, FixedLengthSliceInput> slices = ImmutableMap.builder();
         ImmutableMap.Builder<K, DiskRange> smallRangesBuilder = ImmutableMap.builder();
         ImmutableMap.Builder<K, DiskRange> largeRangesBuilder = ImmutableMap.builder();
         for (Entry<K, DiskRange> entry : diskRanges.entrySet()) {
             if (entry.getValue().getLength() <= maxReadSizeBytes) {
-                smallRangesBuilder.put(entry);
+                byte[] cached = fileCache == null ? null : fileCache.getStream(entry.getValue());
+                if (cached != null) {
+                    slices.put(entry.getKey(), Slices.wrappedBuffer(cached).getInput());
+                }
+                else {
+                    smallRangesBuilder.put(entry);
+                }
             }
             else {
                 largeRangesBuilder.put(entry);
@@ -123,14 +131,13 @@ public abstract class AbstractOrcDataSource
         Map<K, DiskRange> largeRanges = largeRangesBuilder.build();
 
         // read ranges
-        ImmutableMap.Builder<K, FixedLengthSliceInput> slices = ImmutableMap.builder();
-        slices.putAll(readSmallDiskRanges(smallRanges));
+        slices.putAll(readSmallDiskRanges(smallRanges, fileCache));
         slices.putAll(readLargeDiskRanges(largeRanges));
 
         return slices.build();
     }
 
-    private <K> Map<K, FixedLengthSliceInput> readSmallDiskRanges(Map<K, DiskRange> diskRanges)
+    private <K> Map<K, FixedLengthSliceInput> readSmallDiskRanges(Map<K, DiskRange> diskRanges, OrcFileCache.CachedFile fileCache)
             throws IOException
     {
         if (diskRanges.isEmpty()) {
@@ -150,7 +157,14 @@ public abstract class AbstractOrcDataSource
 
         ImmutableMap.Builder<K, FixedLengthSliceInput> slices = ImmutableMap.builder();
         for (Entry<K, DiskRange> entry : diskRanges.entrySet()) {
-            slices.put(entry.getKey(), getDiskRangeSlice(entry.getValue(), buffers).getInput());
+            Slice slice = getDiskRangeSlice(entry.getValue(), buffers);
+            if (fileCache != null) {
+                // copy the range, so the cache does not pin the rest of the merged buffer
+                byte[] data = slice.getBytes();
+                fileCache.putStream(entry.getValue(), data);
+                slice = Slices.wrappedBuffer(data);
+            }
+            slices.put(entry.getKey(), slice.getInput());
         }
         return slices.build();
     }
@@ -112,6 +112,12 @@ public class CachingOrcDataSource
         return builder.build();
     }
 
+    @Override
+    public OrcFileCache.CachedFile getFileCache()
+    {
+        return dataSource.getFileCache();
+    }
+
     @Override
     public void close()
             throws IOException
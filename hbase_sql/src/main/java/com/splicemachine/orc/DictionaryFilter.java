@@ -0,0 +1,33 @@
+/*
+ * Copyright (c) 2012 - 2017 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.orc;
+
+import io.airlift.slice.Slice;
+
+/**
+ * A predicate on the values of a single column, which a dictionary encoded column can evaluate
+ * once per dictionary entry instead of once per row.
+ *
+ * A filter must be exact: a row whose value does not match must not be able to satisfy the
+ * predicate, since the reader drops it.
+ */
+public interface DictionaryFilter
+{
+    boolean matches(Slice value);
+
+    boolean matches(long value);
+
+    boolean matchesNull();
+}
@@ -23,11 +23,24 @@ public class HdfsOrcDataSource
         extends AbstractOrcDataSource
 {
     private final FSDataInputStream inputStream;
+    private final OrcFileCache.CachedFile fileCache;
 
     public HdfsOrcDataSource(String name, long size, DataSize maxMergeDistance, DataSize maxReadSize, DataSize streamBufferSize, FSDataInputStream inputStream)
+    {
+        this(name, size, maxMergeDistance, maxReadSize, streamBufferSize, inputStream, null);
+    }
+
+    public HdfsOrcDataSource(String name, long size, DataSize maxMergeDistance, DataSize maxReadSize, DataSize streamBufferSize, FSDataInputStream inputStream, OrcFileCache.CachedFile fileCache)
     {
         super(name, size, maxMergeDistance, maxReadSize, streamBufferSize);
         this.inputStream = inputStream;
+        this.fileCache = fileCache;
+    }
+
+    @Override
+    public OrcFileCache.CachedFile getFileCache()
+    {
+        return fileCache;
     }
 
     @Override
@@ -37,6 +37,15 @@ public interface OrcDataSource
     <K> Map<K, FixedLengthSliceInput> readFully(Map<K, DiskRange> diskRanges)
             throws IOException;
 
+    /**
+     * @return the entries of the shared {@link OrcFileCache} for the file behind this source, or {@code null}
+     * if what is read through this source should not be cached
+     */
+    default OrcFileCache.CachedFile getFileCache()
+    {
+        return null;
+    }
+
     @Override
     default void close()
             throws IOException
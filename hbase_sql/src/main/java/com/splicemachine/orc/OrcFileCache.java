@@ -0,0 +1,400 @@
+/*
+ * Copyright (c) 2012 - 2017 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.orc;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalNotification;
+import com.splicemachine.orc.metadata.RowGroupIndex;
+import com.splicemachine.orc.metadata.StripeFooter;
+import io.airlift.log.Logger;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A size-bounded cache of ORC file contents, shared by every reader in the JVM.
+ *
+ * Each reader of an ORC file reads and parses the file tail, and then the footer and row
+ * group indexes of every stripe it touches, before it reads any data. When many tasks scan
+ * the same files (or the same task scans them again), this cache lets them share:
+ *
+ * <ul>
+ *     <li>the parsed file tail (footer, metadata and post script)</li>
+ *     <li>parsed stripe footers</li>
+ *     <li>parsed row group indexes (with their bloom filters)</li>
+ *     <li>the raw bytes of stream ranges small enough to be read in a single request</li>
+ * </ul>
+ *
+ * Entries are keyed by the path and modification time of the file, along with the offset
+ * (and length) of what was read, so a file which is rewritten in place is never served stale
+ * contents; the entries of the old file simply age out. Stream bytes are held as they are
+ * stored, and are decompressed by each reader as it consumes them.
+ *
+ * Parsed entries are weighed as a multiple of their size in the file, which is only an
+ * estimate of what they retain.
+ */
+public class OrcFileCache
+        implements OrcFileCacheStatistics
+{
+    private static final Logger log = Logger.get(OrcFileCache.class);
+
+    // parsed protobuf messages are considerably larger than their serialized form
+    private static final int PARSED_SIZE_FACTOR = 4;
+    // key, entry and array headers
+    private static final int ENTRY_OVERHEAD = 128;
+
+    private static volatile OrcFileCache instance;
+
+    private final Cache<EntryKey, Object> cache;
+    private final long maxBytes;
+    private final LongAdder[] hits = new LongAdder[EntryKind.values().length];
+    private final LongAdder[] misses = new LongAdder[EntryKind.values().length];
+    private final LongAdder evictions = new LongAdder();
+    private final AtomicLong currentBytes = new AtomicLong();
+
+    public OrcFileCache(long maxBytes)
+    {
+        checkArgument(maxBytes > 0, "maxBytes must be positive");
+        this.maxBytes = maxBytes;
+        this.cache = CacheBuilder.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((EntryKey key, Object value) -> key.weight)
+                .removalListener(this::onRemoval)
+                .build();
+        for (int i = 0; i < hits.length; i++) {
+            hits[i] = new LongAdder();
+            misses[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * @param maxBytes the memory budget of the cache, which only takes effect if it is created by this call
+     * @return the cache shared by every reader in this JVM, or {@code null} if {@code maxBytes} disables caching
+     */
+    public static OrcFileCache getInstance(long maxBytes)
+    {
+        if (maxBytes <= 0) {
+            return null;
+        }
+        OrcFileCache cache = instance;
+        if (cache == null) {
+            synchronized (OrcFileCache.class) {
+                cache = instance;
+                if (cache == null) {
+                    cache = new OrcFileCache(maxBytes);
+                    cache.registerJMX();
+                    instance = cache;
+                }
+            }
+        }
+        return cache;
+    }
+
+    /**
+     * @return a view of the cache for the file at {@code path}, as it was when last modified at {@code modificationTime}
+     */
+    public CachedFile forFile(String path, long modificationTime)
+    {
+        return new CachedFile(requireNonNull(path, "path is null"), modificationTime);
+    }
+
+    public void invalidateAll()
+    {
+        cache.invalidateAll();
+    }
+
+    @Override
+    public long getFileTailHits()
+    {
+        return hits[EntryKind.FILE_TAIL.ordinal()].sum();
+    }
+
+    @Override
+    public long getFileTailMisses()
+    {
+        return misses[EntryKind.FILE_TAIL.ordinal()].sum();
+    }
+
+    @Override
+    public long getStripeFooterHits()
+    {
+        return hits[EntryKind.STRIPE_FOOTER.ordinal()].sum();
+    }
+
+    @Override
+    public long getStripeFooterMisses()
+    {
+        return misses[EntryKind.STRIPE_FOOTER.ordinal()].sum();
+    }
+
+    @Override
+    public long getRowIndexHits()
+    {
+        return hits[EntryKind.ROW_INDEX.ordinal()].sum();
+    }
+
+    @Override
+    public long getRowIndexMisses()
+    {
+        return misses[EntryKind.ROW_INDEX.ordinal()].sum();
+    }
+
+    @Override
+    public long getStreamHits()
+    {
+        return hits[EntryKind.STREAM.ordinal()].sum();
+    }
+
+    @Override
+    public long getStreamMisses()
+    {
+        return misses[EntryKind.STREAM.ordinal()].sum();
+    }
+
+    @Override
+    public long getEvictions()
+    {
+        return evictions.sum();
+    }
+
+    @Override
+    public long getCurrentBytes()
+    {
+        return currentBytes.get();
+    }
+
+    @Override
+    public long getMaxBytes()
+    {
+        return maxBytes;
+    }
+
+    @Override
+    public long getEntryCount()
+    {
+        return cache.size();
+    }
+
+    /**
+     * Loads an entry which was not found in the cache.
+     */
+    public interface Loader<T>
+    {
+        T load()
+                throws IOException;
+    }
+
+    /**
+     * The entries of a single version of a single file. All offsets are absolute positions in the file.
+     */
+    public final class CachedFile
+    {
+        private final String path;
+        private final long modificationTime;
+
+        private CachedFile(String path, long modificationTime)
+        {
+            this.path = path;
+            this.modificationTime = modificationTime;
+        }
+
+        /**
+         * @param fileSize the size of the file, which identifies its tail
+         */
+        public OrcFileTail getFileTail(long fileSize, Loader<OrcFileTail> loader)
+                throws IOException
+        {
+            EntryKey key = new EntryKey(this, EntryKind.FILE_TAIL, fileSize, 0);
+            OrcFileTail tail = get(key, OrcFileTail.class);
+            if (tail == null) {
+                tail = loader.load();
+                put(key.withWeight((long) tail.getSerializedSize() * PARSED_SIZE_FACTOR), tail);
+            }
+            return tail;
+        }
+
+        public StripeFooter getStripeFooter(long offset, int length, Loader<StripeFooter> loader)
+                throws IOException
+        {
+            EntryKey key = new EntryKey(this, EntryKind.STRIPE_FOOTER, offset, length);
+            StripeFooter footer = get(key, StripeFooter.class);
+            if (footer == null) {
+                footer = loader.load();
+                put(key.withWeight((long) length * PARSED_SIZE_FACTOR), footer);
+            }
+            return footer;
+        }
+
+        /**
+         * @param offset the offset of the column's row index stream
+         * @param length the length of the column's row index stream
+         * @return the column's row group indexes, or {@code null} if they are not cached
+         */
+        @SuppressWarnings("unchecked")
+        public List<RowGroupIndex> getRowIndexes(long offset, int length)
+        {
+            return get(new EntryKey(this, EntryKind.ROW_INDEX, offset, length), List.class);
+        }
+
+        /**
+         * @param serializedSize the length of the row index stream, plus that of the bloom filter stream (if any)
+         *                       which was merged into the indexes
+         */
+        public void putRowIndexes(long offset, int length, int serializedSize, List<RowGroupIndex> rowIndexes)
+        {
+            put(new EntryKey(this, EntryKind.ROW_INDEX, offset, length).withWeight((long) serializedSize * PARSED_SIZE_FACTOR), rowIndexes);
+        }
+
+        /**
+         * @return the bytes of the range, which must not be modified, or {@code null} if they are not cached
+         */
+        public byte[] getStream(DiskRange range)
+        {
+            return get(new EntryKey(this, EntryKind.STREAM, range.getOffset(), range.getLength()), byte[].class);
+        }
+
+        public void putStream(DiskRange range, byte[] data)
+        {
+            checkArgument(data.length == range.getLength(), "data does not match range");
+            put(new EntryKey(this, EntryKind.STREAM, range.getOffset(), range.getLength()).withWeight(data.length), data);
+        }
+
+        @Override
+        public String toString()
+        {
+            return path + "@" + modificationTime;
+        }
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods and classes*/
+
+    private <T> T get(EntryKey key, Class<T> type)
+    {
+        Object value = cache.getIfPresent(key);
+        if (value == null) {
+            misses[key.kind.ordinal()].increment();
+            return null;
+        }
+        hits[key.kind.ordinal()].increment();
+        return type.cast(value);
+    }
+
+    private void put(EntryKey key, Object value)
+    {
+        if (key.weight > maxBytes) {
+            return;
+        }
+        // when two readers load the same entry, the second one replaces the first
+        currentBytes.addAndGet(key.weight);
+        cache.put(key, value);
+    }
+
+    private void onRemoval(RemovalNotification<EntryKey, Object> notification)
+    {
+        currentBytes.addAndGet(-notification.getKey().weight);
+        if (notification.wasEvicted()) {
+            evictions.increment();
+        }
+    }
+
+    private void registerJMX()
+    {
+        try {
+            MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName("com.splicemachine.orc:type=OrcFileCacheStatistics");
+            mbs.registerMBean(this, name);
+        }
+        catch (InstanceAlreadyExistsException ignored) {
+            // another cache in this JVM got there first
+        }
+        catch (Exception e) {
+            log.warn(e, "Unable to register ORC file cache with JMX");
+        }
+    }
+
+    private enum EntryKind
+    {
+        FILE_TAIL,
+        STRIPE_FOOTER,
+        ROW_INDEX,
+        STREAM
+    }
+
+    private static final class EntryKey
+    {
+        private final String path;
+        private final long modificationTime;
+        private final EntryKind kind;
+        private final long offset;
+        private final int length;
+        // not part of the identity of the key
+        private final int weight;
+
+        EntryKey(CachedFile file, EntryKind kind, long offset, int length)
+        {
+            this(file.path, file.modificationTime, kind, offset, length, 0);
+        }
+
+        private EntryKey(String path, long modificationTime, EntryKind kind, long offset, int length, int weight)
+        {
+            this.path = path;
+            this.modificationTime = modificationTime;
+            this.kind = kind;
+            this.offset = offset;
+            this.length = length;
+            this.weight = weight;
+        }
+
+        EntryKey withWeight(long estimatedBytes)
+        {
+            return new EntryKey(path, modificationTime, kind, offset, length, (int) Math.min(Integer.MAX_VALUE, estimatedBytes + ENTRY_OVERHEAD));
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (this == obj) {
+                return true;
+            }
+            if (obj == null || getClass() != obj.getClass()) {
+                return false;
+            }
+            EntryKey other = (EntryKey) obj;
+            return modificationTime == other.modificationTime &&
+                    offset == other.offset &&
+                    length == other.length &&
+                    kind == other.kind &&
+                    path.equals(other.path);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(path, modificationTime, kind, offset, length);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2012 - 2017 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.orc;
+
+import javax.management.MXBean;
+
+/**
+ * Interface for exposing the behavior of the shared {@link OrcFileCache} via JMX.
+ */
+@MXBean
+public interface OrcFileCacheStatistics
+{
+    /**
+     * @return the number of file tails (footer, metadata and post script) which were found in the cache
+     */
+    long getFileTailHits();
+
+    /**
+     * @return the number of file tails which had to be read and parsed
+     */
+    long getFileTailMisses();
+
+    /**
+     * @return the number of stripe footers which were found in the cache
+     */
+    long getStripeFooterHits();
+
+    /**
+     * @return the number of stripe footers which had to be read and parsed
+     */
+    long getStripeFooterMisses();
+
+    /**
+     * @return the number of column row group indexes which were found in the cache
+     */
+    long getRowIndexHits();
+
+    /**
+     * @return the number of column row group indexes which had to be read and parsed
+     */
+    long getRowIndexMisses();
+
+    /**
+     * @return the number of stream ranges which were found in the cache
+     */
+    long getStreamHits();
+
+    /**
+     * @return the number of stream ranges which had to be read from the file system
+     */
+    long getStreamMisses();
+
+    /**
+     * @return the number of entries which were evicted because the cache exceeded its memory budget
+     */
+    long getEvictions();
+
+    /**
+     * @return the estimated number of bytes held by all entries in the cache
+     */
+    long getCurrentBytes();
+
+    /**
+     * @return the maximum number of bytes which the cache will retain
+     */
+    long getMaxBytes();
+
+    /**
+     * @return the number of entries currently in the cache
+     */
+    long getEntryCount();
+}
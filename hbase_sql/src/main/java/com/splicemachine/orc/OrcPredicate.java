@@ -37,4 +37,14 @@ public interface OrcPredicate
      * in the file; this will match the field order from the hive metastore
      */
     boolean matches(long numberOfRows, Map<Integer, ColumnStatistics> statisticsByColumnIndex);
+
+    /**
+     * @param columnIndex the ordinal position of a column, as for {@link #matches}
+     * @return the part of this predicate which applies to the values of the column alone, or
+     * {@code null} if there is none
+     */
+    default DictionaryFilter getDictionaryFilter(int columnIndex)
+    {
+        return null;
+    }
 }
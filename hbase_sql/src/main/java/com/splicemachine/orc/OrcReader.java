@@ -55,7 +55,6 @@ public class OrcReader
     private final Footer footer;
     private final Metadata metadata;
 
-    // This is based on the Apache Hive ORC code
     public OrcReader(OrcDataSource orcDataSource, MetadataReader metadataReader, DataSize maxMergeDistance, DataSize maxReadSize)
             throws IOException
     {
@@ -65,77 +64,16 @@ public class OrcReader
         this.maxMergeDistance = requireNonNull(maxMergeDistance, "maxMergeDistance is null");
         this.maxReadSize = requireNonNull(maxReadSize, "maxReadSize is null");
 
-        //
-        // Read the file tail:
-        //
-        // variable: Footer
-        // variable: Metadata
-        // variable: PostScript - contains length of footer and metadata
-        // 3 bytes: file magic "ORC"
-        // 1 byte: postScriptSize = PostScript + Magic
-
-        // figure out the size of the file using the option or filesystem
-        long size = orcDataSource.getSize();
-        if (size <= 0) {
-            throw new OrcCorruptionException("Malformed ORC file %s. Invalid file size %s", orcDataSource, size);
-        }
-
-        // Read the tail of the file
-        byte[] buffer = new byte[toIntExact(min(size, EXPECTED_FOOTER_SIZE))];
-        orcDataSource.readFully(size - buffer.length, buffer);
-
-        // get length of PostScript - last byte of the file
-        int postScriptSize = buffer[buffer.length - SIZE_OF_BYTE] & 0xff;
-
-        // make sure this is an ORC file and not an RCFile or something else
-        verifyOrcFooter(orcDataSource, postScriptSize, buffer);
-
-        // decode the post script
-        int postScriptOffset = buffer.length - SIZE_OF_BYTE - postScriptSize;
-        PostScript postScript = metadataReader.readPostScript(buffer, postScriptOffset, postScriptSize);
-
-        // verify this is a supported version
-        checkOrcVersion(orcDataSource, postScript.getVersion());
-
-        // check compression codec is supported
-        this.compressionKind = postScript.getCompression();
-
-        this.hiveWriterVersion = postScript.getHiveWriterVersion();
-        this.bufferSize = toIntExact(postScript.getCompressionBlockSize());
-
-        int footerSize = toIntExact(postScript.getFooterLength());
-        int metadataSize = toIntExact(postScript.getMetadataLength());
-
-        // check if extra bytes need to be read
-        Slice completeFooterSlice;
-        int completeFooterSize = footerSize + metadataSize + postScriptSize + SIZE_OF_BYTE;
-        if (completeFooterSize > buffer.length) {
-            // allocate a new buffer large enough for the complete footer
-            byte[] newBuffer = new byte[completeFooterSize];
-            completeFooterSlice = Slices.wrappedBuffer(newBuffer);
-
-            // initial read was not large enough, so read missing section
-            orcDataSource.readFully(size - completeFooterSize, newBuffer, 0, completeFooterSize - buffer.length);
-
-            // copy already read bytes into the new buffer
-            completeFooterSlice.setBytes(completeFooterSize - buffer.length, buffer);
-        }
-        else {
-            // footer is already in the bytes in buffer, just adjust position, length
-            completeFooterSlice = Slices.wrappedBuffer(buffer, buffer.length - completeFooterSize, completeFooterSize);
-        }
-
-        // read metadata
-        Slice metadataSlice = completeFooterSlice.slice(0, metadataSize);
-        try (InputStream metadataInputStream = new OrcInputStream(orcDataSource.toString(), metadataSlice.getInput(), compressionKind, bufferSize, new AggregatedMemoryContext())) {
-            this.metadata = metadataReader.readMetadata(hiveWriterVersion, metadataInputStream);
-        }
-
-        // read footer
-        Slice footerSlice = completeFooterSlice.slice(metadataSize, footerSize);
-        try (InputStream footerInputStream = new OrcInputStream(orcDataSource.toString(), footerSlice.getInput(), compressionKind, bufferSize, new AggregatedMemoryContext())) {
-            this.footer = metadataReader.readFooter(hiveWriterVersion, footerInputStream);
-        }
+        // the tail is parsed once for each version of a file, when it is cached
+        OrcFileCache.CachedFile fileCache = orcDataSource.getFileCache();
+        OrcFileTail tail = fileCache == null
+                ? readTail(orcDataSource, metadataReader)
+                : fileCache.getFileTail(orcDataSource.getSize(), () -> readTail(this.orcDataSource, metadataReader));
+        this.compressionKind = tail.getCompressionKind();
+        this.hiveWriterVersion = tail.getHiveWriterVersion();
+        this.bufferSize = tail.getBufferSize();
+        this.metadata = tail.getMetadata();
+        this.footer = tail.getFooter();
     }
 
     public List<String> getColumnNames()
@@ -208,6 +146,86 @@ public class OrcReader
                 partitionValues);
     }
 
+    // This is based on the Apache Hive ORC code
+    private static OrcFileTail readTail(OrcDataSource orcDataSource, MetadataReader metadataReader)
+            throws IOException
+    {
+        //
+        // Read the file tail:
+        //
+        // variable: Footer
+        // variable: Metadata
+        // variable: PostScript - contains length of footer and metadata
+        // 3 bytes: file magic "ORC"
+        // 1 byte: postScriptSize = PostScript + Magic
+
+        // figure out the size of the file using the option or filesystem
+        long size = orcDataSource.getSize();
+        if (size <= 0) {
+            throw new OrcCorruptionException("Malformed ORC file %s. Invalid file size %s", orcDataSource, size);
+        }
+
+        // Read the tail of the file
+        byte[] buffer = new byte[toIntExact(min(size, EXPECTED_FOOTER_SIZE))];
+        orcDataSource.readFully(size - buffer.length, buffer);
+
+        // get length of PostScript - last byte of the file
+        int postScriptSize = buffer[buffer.length - SIZE_OF_BYTE] & 0xff;
+
+        // make sure this is an ORC file and not an RCFile or something else
+        verifyOrcFooter(orcDataSource, postScriptSize, buffer);
+
+        // decode the post script
+        int postScriptOffset = buffer.length - SIZE_OF_BYTE - postScriptSize;
+        PostScript postScript = metadataReader.readPostScript(buffer, postScriptOffset, postScriptSize);
+
+        // verify this is a supported version
+        checkOrcVersion(orcDataSource, postScript.getVersion());
+
+        // check compression codec is supported
+        CompressionKind compressionKind = postScript.getCompression();
+
+        HiveWriterVersion hiveWriterVersion = postScript.getHiveWriterVersion();
+        int bufferSize = toIntExact(postScript.getCompressionBlockSize());
+
+        int footerSize = toIntExact(postScript.getFooterLength());
+        int metadataSize = toIntExact(postScript.getMetadataLength());
+
+        // check if extra bytes need to be read
+        Slice completeFooterSlice;
+        int completeFooterSize = footerSize + metadataSize + postScriptSize + SIZE_OF_BYTE;
+        if (completeFooterSize > buffer.length) {
+            // allocate a new buffer large enough for the complete footer
+            byte[] newBuffer = new byte[completeFooterSize];
+            completeFooterSlice = Slices.wrappedBuffer(newBuffer);
+
+            // initial read was not large enough, so read missing section
+            orcDataSource.readFully(size - completeFooterSize, newBuffer, 0, completeFooterSize - buffer.length);
+
+            // copy already read bytes into the new buffer
+            completeFooterSlice.setBytes(completeFooterSize - buffer.length, buffer);
+        }
+        else {
+            // footer is already in the bytes in buffer, just adjust position, length
+            completeFooterSlice = Slices.wrappedBuffer(buffer, buffer.length - completeFooterSize, completeFooterSize);
+        }
+
+        // read metadata
+        Metadata metadata;
+        Slice metadataSlice = completeFooterSlice.slice(0, metadataSize);
+        try (InputStream metadataInputStream = new OrcInputStream(orcDataSource.toString(), metadataSlice.getInput(), compressionKind, bufferSize, new AggregatedMemoryContext())) {
+            metadata = metadataReader.readMetadata(hiveWriterVersion, metadataInputStream);
+        }
+
+        // read footer
+        Footer footer;
+        Slice footerSlice = completeFooterSlice.slice(metadataSize, footerSize);
+        try (InputStream footerInputStream = new OrcInputStream(orcDataSource.toString(), footerSlice.getInput(), compressionKind, bufferSize, new AggregatedMemoryContext())) {
+            footer = metadataReader.readFooter(hiveWriterVersion, footerInputStream);
+        }
+        return new OrcFileTail(compressionKind, hiveWriterVersion, bufferSize, footer, metadata, completeFooterSize);
+    }
+
     private static OrcDataSource wrapWithCacheIfTiny(OrcDataSource dataSource, DataSize maxCacheSize)
     {
         if (dataSource instanceof CachingOrcDataSource) {
@@ -76,6 +76,7 @@ public class OrcRecordReader
     private long nextRowInGroup;
     private final Map<String, Slice> userMetadata;
     private final AbstractAggregatedMemoryContext systemMemoryUsage;
+    private final List<Integer> filteredColumns;
     protected Map<Integer, DataType> includedColumns;
     protected List<String> partitionValues;
     protected List<Integer> partitionIds;
@@ -202,6 +203,17 @@ public class OrcRecordReader
                 partitionIds);
 
         streamReaders = createStreamReaders(orcDataSource, types, hiveStorageTimeZone, presentColumnsAndTypes, partitionIds);
+
+        // let dictionary encoded columns evaluate the predicate once per dictionary entry
+        ImmutableList.Builder<Integer> filteredColumns = ImmutableList.builder();
+        for (int column = 0; column < streamReaders.length; column++) {
+            DictionaryFilter dictionaryFilter = streamReaders[column] == null ? null : predicate.getDictionaryFilter(column);
+            if (dictionaryFilter != null) {
+                streamReaders[column].setDictionaryFilter(dictionaryFilter);
+                filteredColumns.add(column);
+            }
+        }
+        this.filteredColumns = filteredColumns.build();
     }
 
     private static boolean splitContainsStripe(long splitOffset, long splitLength, StripeInformation stripe)
@@ -293,6 +305,23 @@ public class OrcRecordReader
         orcDataSource.close();
     }
 
+    /**
+     * Checks the row indexes and bloom filters of the stripes selected for this split, without reading
+     * any column data.
+     *
+     * @return false if no row of the split can match the predicate
+     */
+    public boolean mayHaveMatches()
+            throws IOException
+    {
+        for (StripeInformation stripe : stripes) {
+            if (stripeReader.stripeMayMatch(stripe, systemMemoryUsage.newAggregatedMemoryContext())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     public boolean isColumnPresent(int hiveColumnIndex)
     {
         return presentColumns.contains(hiveColumnIndex);
@@ -372,6 +401,18 @@ public class OrcRecordReader
             l++;
         }
         columnarBatch.setNumRows(currentBatchSize);
+
+        // drop the rows whose dictionary entries did not match the predicate
+        for (int column : filteredColumns) {
+            boolean[] selectedRows = streamReaders[column].getSelectedRows();
+            if (selectedRows != null) {
+                for (int row = 0; row < currentBatchSize; row++) {
+                    if (!selectedRows[row]) {
+                        columnarBatch.markFiltered(row);
+                    }
+                }
+            }
+        }
         return columnarBatch;
     }
 
@@ -391,29 +432,48 @@ public class OrcRecordReader
     {
         nextRowInGroup = 0;
 
-        while (!rowGroups.hasNext() && currentStripe < stripes.size()) {
-            advanceToNextStripe();
-        }
+        while (true) {
+            while (!rowGroups.hasNext() && currentStripe < stripes.size()) {
+                advanceToNextStripe();
+            }
 
-        if (!rowGroups.hasNext()) {
-            currentGroupRowCount = 0;
-            return false;
-        }
+            if (!rowGroups.hasNext()) {
+                currentGroupRowCount = 0;
+                return false;
+            }
 
-        RowGroup currentRowGroup = rowGroups.next();
-        currentGroupRowCount = currentRowGroup.getRowCount();
+            RowGroup currentRowGroup = rowGroups.next();
+            currentGroupRowCount = currentRowGroup.getRowCount();
 
-        currentPosition = currentStripePosition + currentRowGroup.getRowOffset();
-        filePosition = stripeFilePositions.get(currentStripe) + currentRowGroup.getRowOffset();
+            currentPosition = currentStripePosition + currentRowGroup.getRowOffset();
+            filePosition = stripeFilePositions.get(currentStripe) + currentRowGroup.getRowOffset();
 
-        // give reader data streams from row group
-        StreamSources rowGroupStreamSources = currentRowGroup.getStreamSources();
-        for (StreamReader column : streamReaders) {
-            if (column != null) {
-                column.startRowGroup(rowGroupStreamSources);
+            // give reader data streams from row group
+            StreamSources rowGroupStreamSources = currentRowGroup.getStreamSources();
+            for (StreamReader column : streamReaders) {
+                if (column != null) {
+                    column.startRowGroup(rowGroupStreamSources);
+                }
+            }
+
+            if (dictionariesMayMatch()) {
+                return true;
             }
         }
+    }
 
+    /**
+     * @return false if the dictionary of some filtered column has no entry which matches the predicate,
+     * so that the current row group can be skipped
+     */
+    private boolean dictionariesMayMatch()
+            throws IOException
+    {
+        for (int column : filteredColumns) {
+            if (!streamReaders[column].dictionaryMayMatch()) {
+                return false;
+            }
+        }
         return true;
     }
 
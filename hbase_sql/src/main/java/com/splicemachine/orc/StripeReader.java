@@ -23,7 +23,6 @@ import com.splicemachine.orc.metadata.OrcType.OrcTypeKind;
 import com.splicemachine.orc.metadata.PostScript.HiveWriterVersion;
 import com.splicemachine.orc.metadata.Stream.StreamKind;
 import com.splicemachine.orc.stream.*;
-import com.google.common.base.Predicates;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
@@ -108,8 +107,12 @@ public class StripeReader
         // handle stripes with more than one row group or a dictionary
         if ((stripe.getNumberOfRows() > rowsInRowGroup) || hasRowGroupDictionary) {
             // determine ranges of the stripe to read
-            Map<StreamId, DiskRange> diskRanges = getDiskRanges(stripeFooter.getStreams());
-            diskRanges = Maps.filterKeys(diskRanges, Predicates.in(streams.keySet()));
+            Map<StreamId, DiskRange> streamRanges = getDiskRanges(stripeFooter.getStreams());
+
+            // row indexes which have already been parsed need not be read again
+            Map<Integer, List<RowGroupIndex>> cachedColumnIndexes = getCachedColumnIndexes(stripe.getOffset(), streams, streamRanges);
+            Map<StreamId, DiskRange> diskRanges = Maps.filterKeys(streamRanges, streamId -> streams.containsKey(streamId) &&
+                    !(cachedColumnIndexes.containsKey(streamId.getColumn()) && (streamId.getStreamKind() == ROW_INDEX || streamId.getStreamKind() == BLOOM_FILTER)));
 
             // read the file regions
             Map<StreamId, OrcInputStream> streamsData = readDiskRanges(stripe.getOffset(), diskRanges, systemMemoryUsage);
@@ -118,7 +121,7 @@ public class StripeReader
             Map<Integer, List<HiveBloomFilter>> bloomFilterIndexes = readBloomFilterIndexes(streams, streamsData);
 
             // read the row index for each column
-            Map<Integer, List<RowGroupIndex>> columnIndexes = readColumnIndexes(streams, streamsData, bloomFilterIndexes);
+            Map<Integer, List<RowGroupIndex>> columnIndexes = readColumnIndexes(stripe.getOffset(), streams, streamRanges, streamsData, bloomFilterIndexes, cachedColumnIndexes);
 
             // select the row groups matching the tuple domain
             Set<Integer> selectedRowGroups = selectRowGroups(stripe, columnIndexes);
@@ -187,6 +190,41 @@ public class StripeReader
         return new Stripe(stripe.getNumberOfRows(), columnEncodings, ImmutableList.of(rowGroup), dictionaryStreamSources);
     }
 
+    /**
+     * Evaluates the predicate against the row group statistics and bloom filters of a stripe, reading only its
+     * footer and index streams (both of which are kept in the file cache, if there is one).
+     *
+     * @return false if no row group of the stripe can match the predicate
+     */
+    public boolean stripeMayMatch(StripeInformation stripe, AggregatedMemoryContext systemMemoryUsage)
+            throws IOException
+    {
+        try {
+            StripeFooter stripeFooter = readStripeFooter(stripe, systemMemoryUsage);
+
+            Map<StreamId, Stream> streams = new HashMap<>();
+            for (Stream stream : stripeFooter.getStreams()) {
+                if (includedOrcColumns.contains(stream.getColumn()) && (stream.getStreamKind() == ROW_INDEX || stream.getStreamKind() == BLOOM_FILTER)) {
+                    streams.put(new StreamId(stream), stream);
+                }
+            }
+
+            Map<StreamId, DiskRange> streamRanges = getDiskRanges(stripeFooter.getStreams());
+            Map<Integer, List<RowGroupIndex>> cachedColumnIndexes = getCachedColumnIndexes(stripe.getOffset(), streams, streamRanges);
+            Map<StreamId, DiskRange> diskRanges = Maps.filterKeys(streamRanges, streamId -> streams.containsKey(streamId) &&
+                    !cachedColumnIndexes.containsKey(streamId.getColumn()));
+
+            Map<StreamId, OrcInputStream> streamsData = readDiskRanges(stripe.getOffset(), diskRanges, systemMemoryUsage);
+            Map<Integer, List<HiveBloomFilter>> bloomFilterIndexes = readBloomFilterIndexes(streams, streamsData);
+            Map<Integer, List<RowGroupIndex>> columnIndexes = readColumnIndexes(stripe.getOffset(), streams, streamRanges, streamsData, bloomFilterIndexes, cachedColumnIndexes);
+
+            return !selectRowGroups(stripe, columnIndexes).isEmpty();
+        }
+        finally {
+            systemMemoryUsage.close();
+        }
+    }
+
     public Map<StreamId, OrcInputStream> readDiskRanges(long stripeOffset, Map<StreamId, DiskRange> diskRanges, AbstractAggregatedMemoryContext systemMemoryUsage)
             throws IOException
     {
@@ -310,6 +348,16 @@ public class StripeReader
         long offset = stripe.getOffset() + stripe.getIndexLength() + stripe.getDataLength();
         int tailLength = toIntExact(stripe.getFooterLength());
 
+        OrcFileCache.CachedFile fileCache = orcDataSource.getFileCache();
+        if (fileCache != null) {
+            return fileCache.getStripeFooter(offset, tailLength, () -> readStripeFooter(offset, tailLength, systemMemoryUsage));
+        }
+        return readStripeFooter(offset, tailLength, systemMemoryUsage);
+    }
+
+    private StripeFooter readStripeFooter(long offset, int tailLength, AbstractAggregatedMemoryContext systemMemoryUsage)
+            throws IOException
+    {
         // read the footer
         byte[] tailBuffer = new byte[tailLength];
         orcDataSource.readFully(offset, tailBuffer);
@@ -324,21 +372,48 @@ public class StripeReader
         ImmutableMap.Builder<Integer, List<HiveBloomFilter>> bloomFilters = ImmutableMap.builder();
         for (Entry<StreamId, Stream> entry : streams.entrySet()) {
             Stream stream = entry.getValue();
-            if (stream.getStreamKind() == BLOOM_FILTER) {
-                OrcInputStream inputStream = streamsData.get(entry.getKey());
+            OrcInputStream inputStream = streamsData.get(entry.getKey());
+            if (stream.getStreamKind() == BLOOM_FILTER && inputStream != null) {
                 bloomFilters.put(stream.getColumn(), metadataReader.readBloomFilterIndexes(inputStream));
             }
         }
         return bloomFilters.build();
     }
 
-    private Map<Integer, List<RowGroupIndex>> readColumnIndexes(Map<StreamId, Stream> streams, Map<StreamId, OrcInputStream> streamsData, Map<Integer, List<HiveBloomFilter>> bloomFilterIndexes)
+    private Map<Integer, List<RowGroupIndex>> getCachedColumnIndexes(long stripeOffset, Map<StreamId, Stream> streams, Map<StreamId, DiskRange> streamRanges)
+    {
+        OrcFileCache.CachedFile fileCache = orcDataSource.getFileCache();
+        if (fileCache == null) {
+            return ImmutableMap.of();
+        }
+        ImmutableMap.Builder<Integer, List<RowGroupIndex>> columnIndexes = ImmutableMap.builder();
+        for (StreamId streamId : streams.keySet()) {
+            if (streamId.getStreamKind() == ROW_INDEX) {
+                DiskRange diskRange = streamRanges.get(streamId);
+                List<RowGroupIndex> rowGroupIndexes = fileCache.getRowIndexes(stripeOffset + diskRange.getOffset(), diskRange.getLength());
+                if (rowGroupIndexes != null) {
+                    columnIndexes.put(streamId.getColumn(), rowGroupIndexes);
+                }
+            }
+        }
+        return columnIndexes.build();
+    }
+
+    private Map<Integer, List<RowGroupIndex>> readColumnIndexes(
+            long stripeOffset,
+            Map<StreamId, Stream> streams,
+            Map<StreamId, DiskRange> streamRanges,
+            Map<StreamId, OrcInputStream> streamsData,
+            Map<Integer, List<HiveBloomFilter>> bloomFilterIndexes,
+            Map<Integer, List<RowGroupIndex>> cachedColumnIndexes)
             throws IOException
     {
+        OrcFileCache.CachedFile fileCache = orcDataSource.getFileCache();
         ImmutableMap.Builder<Integer, List<RowGroupIndex>> columnIndexes = ImmutableMap.builder();
+        columnIndexes.putAll(cachedColumnIndexes);
         for (Entry<StreamId, Stream> entry : streams.entrySet()) {
             Stream stream = entry.getValue();
-            if (stream.getStreamKind() == ROW_INDEX) {
+            if (stream.getStreamKind() == ROW_INDEX && !cachedColumnIndexes.containsKey(stream.getColumn())) {
                 OrcInputStream inputStream = streamsData.get(entry.getKey());
                 List<HiveBloomFilter> bloomFilters = bloomFilterIndexes.get(stream.getColumn());
                 List<RowGroupIndex> rowGroupIndexes = metadataReader.readRowIndexes(hiveWriterVersion, inputStream);
@@ -352,6 +427,12 @@ public class StripeReader
                     }
                     rowGroupIndexes = newRowGroupIndexes.build();
                 }
+                if (fileCache != null) {
+                    DiskRange diskRange = streamRanges.get(entry.getKey());
+                    Stream bloomFilterStream = streams.get(new StreamId(stream.getColumn(), BLOOM_FILTER));
+                    int serializedSize = diskRange.getLength() + (bloomFilterStream == null ? 0 : bloomFilterStream.getLength());
+                    fileCache.putRowIndexes(stripeOffset + diskRange.getOffset(), diskRange.getLength(), serializedSize, rowGroupIndexes);
+                }
                 columnIndexes.put(stream.getColumn(), rowGroupIndexes);
             }
         }
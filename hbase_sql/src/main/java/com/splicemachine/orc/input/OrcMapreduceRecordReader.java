@@ -20,6 +20,7 @@ import com.splicemachine.orc.predicate.SpliceORCPredicate;
 import io.airlift.units.DataSize;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.hive.metastore.Warehouse;
@@ -52,33 +53,43 @@ public class OrcMapreduceRecordReader extends RecordReader<NullWritable,Row> {
     public void initialize(InputSplit inputSplit, TaskAttemptContext taskAttemptContext) throws IOException, InterruptedException {
         OrcNewSplit orcNewSplit = (OrcNewSplit) inputSplit;
         Configuration configuration = taskAttemptContext.getConfiguration();
+        rowStruct = getRowStruct(configuration);
+        predicate = getSplicePredicate(configuration);
+        orcRecordReader = createOrcRecordReader(orcNewSplit.getPath(), configuration, rowStruct, predicate,
+                getColumnIds(configuration), getPartitionIds(configuration));
+    }
+
+    static OrcRecordReader createOrcRecordReader(Path path, Configuration configuration, StructType rowStruct,
+                                                 SpliceORCPredicate predicate, List<Integer> columnIds, List<Integer> partitions) throws IOException {
         double maxMergeDistance = configuration.getDouble(MAX_MERGE_DISTANCE,MAX_MERGE_DISTANCE_DEFAULT);
         double maxReadSize = configuration.getDouble(MAX_READ_SIZE,MAX_READ_SIZE_DEFAULT);
         double streamBufferSize = configuration.getDouble(STREAM_BUFFER_SIZE,STREAM_BUFFER_SIZE_DEFAULT);
-        Path path = orcNewSplit.getPath();
+        double fileCacheSize = configuration.getDouble(FILE_CACHE_SIZE,FILE_CACHE_SIZE_DEFAULT);
         FileSystem fileSystem = FileSystem.get(path.toUri(),configuration);
-        long size = fileSystem.getFileStatus(path).getLen();
-        FSDataInputStream inputStream = fileSystem.open(path);
-        rowStruct = getRowStruct(configuration);
-        predicate = getSplicePredicate(configuration);
-        List<Integer> partitions = getPartitionIds(configuration);
-        List<Integer> columnIds = getColumnIds(configuration);
-
-
+        FileStatus fileStatus = fileSystem.getFileStatus(path);
+        long size = fileStatus.getLen();
 
         List<String> values = null;
         try {
-            values = Warehouse.getPartValuesFromPartName(((OrcNewSplit) inputSplit).getPath().toString());
+            values = Warehouse.getPartValuesFromPartName(path.toString());
         } catch (MetaException me) {
             throw new IOException(me);
         }
+        FSDataInputStream inputStream = fileSystem.open(path);
+        OrcFileCache fileCache = OrcFileCache.getInstance(new DataSize(fileCacheSize, DataSize.Unit.MEGABYTE).toBytes());
         OrcDataSource orcDataSource = new HdfsOrcDataSource(path.toString(), size, new DataSize(maxMergeDistance, DataSize.Unit.MEGABYTE),
                 new DataSize(maxReadSize, DataSize.Unit.MEGABYTE),
-                new DataSize(streamBufferSize, DataSize.Unit.MEGABYTE), inputStream);
-        OrcReader orcReader = new OrcReader(orcDataSource, new OrcMetadataReader(), new DataSize(maxMergeDistance, DataSize.Unit.MEGABYTE),
-                new DataSize(maxReadSize, DataSize.Unit.MEGABYTE));
-        orcRecordReader = orcReader.createRecordReader(getColumnsAndTypes(columnIds,rowStruct),
-                predicate, HIVE_STORAGE_TIME_ZONE, new AggregatedMemoryContext(),partitions,values);
+                new DataSize(streamBufferSize, DataSize.Unit.MEGABYTE), inputStream,
+                fileCache == null ? null : fileCache.forFile(path.toString(), fileStatus.getModificationTime()));
+        try {
+            OrcReader orcReader = new OrcReader(orcDataSource, new OrcMetadataReader(), new DataSize(maxMergeDistance, DataSize.Unit.MEGABYTE),
+                    new DataSize(maxReadSize, DataSize.Unit.MEGABYTE));
+            return orcReader.createRecordReader(getColumnsAndTypes(columnIds,rowStruct),
+                    predicate, HIVE_STORAGE_TIME_ZONE, new AggregatedMemoryContext(),partitions,values);
+        } catch (IOException | RuntimeException e) {
+            orcDataSource.close();
+            throw e;
+        }
     }
 
     @Override
@@ -16,6 +16,8 @@ package com.splicemachine.orc.input;
 import com.clearspring.analytics.util.Lists;
 import com.google.common.base.Predicate;
 import com.google.common.collect.Iterables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.splicemachine.orc.OrcRecordReader;
 import com.splicemachine.orc.predicate.SpliceORCPredicate;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.hive.metastore.Warehouse;
@@ -25,6 +27,7 @@ import org.apache.hadoop.hive.ql.io.orc.SpliceOrcUtils;
 import org.apache.hadoop.io.NullWritable;
 import org.apache.hadoop.mapreduce.*;
 import org.apache.hadoop.util.StringUtils;
+import org.apache.log4j.Logger;
 import org.apache.spark.sql.Row;
 import org.apache.spark.sql.sources.DataSourceRegister;
 import org.apache.spark.sql.types.DataType;
@@ -33,6 +36,10 @@ import org.joda.time.DateTimeZone;
 import javax.annotation.Nullable;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  *
@@ -40,6 +47,7 @@ import java.util.*;
  */
 public class SpliceOrcNewInputFormat extends InputFormat<NullWritable,Row>
         implements DataSourceRegister {
+    private static final Logger LOG = Logger.getLogger(SpliceOrcNewInputFormat.class);
     public static final DateTimeZone HIVE_STORAGE_TIME_ZONE = DateTimeZone.getDefault();
     public static final String SPARK_STRUCT ="com.splicemachine.spark.struct";
     public static final String SPLICE_PREDICATE ="com.splicemachine.predicate";
@@ -48,9 +56,19 @@ public class SpliceOrcNewInputFormat extends InputFormat<NullWritable,Row>
     public static final String MAX_MERGE_DISTANCE ="com.splicemachine.orc.maxMergeDistance";
     public static final String MAX_READ_SIZE ="com.splicemachine.orc.maxReadSize";
     public static final String STREAM_BUFFER_SIZE ="com.splicemachine.orc.streamBufferSize";
+    public static final String FILE_CACHE_SIZE ="com.splicemachine.orc.fileCacheSize";
+    public static final String PRUNE_SPLITS ="com.splicemachine.orc.pruneSplits";
+    public static final String PRUNE_SPLITS_THREADS ="com.splicemachine.orc.pruneSplitsThreads";
     public static final double MAX_MERGE_DISTANCE_DEFAULT = 1;
     public static final double MAX_READ_SIZE_DEFAULT = 8;
     public static final double STREAM_BUFFER_SIZE_DEFAULT = 8;
+    // megabytes shared by all readers in the JVM; 0 disables the cache
+    public static final double FILE_CACHE_SIZE_DEFAULT = 128;
+    // check file, stripe and row group statistics (and bloom filters) in the driver before scheduling any task;
+    // this reads the metadata of every file before the query starts, so it is only worth it on selective queries
+    public static final boolean PRUNE_SPLITS_DEFAULT = false;
+    // the most files whose metadata is read at once while pruning
+    public static final int PRUNE_SPLITS_THREADS_DEFAULT = 8;
     public static final long DEFAULT_PARTITION_SIZE = 10000;
     public static final String SPLICE_COLLECTSTATS ="com.splicemachine.collectstats";
 
@@ -67,9 +85,10 @@ public class SpliceOrcNewInputFormat extends InputFormat<NullWritable,Row>
         final SpliceORCPredicate orcPredicate = getSplicePredicate(configuration);
         boolean isCollectStats = !(configuration.get(SPLICE_COLLECTSTATS, "").isEmpty());
 
+        List<InputSplit> selectedSplits;
         try {
             // Predicate Pruning...
-            return Lists.newArrayList(Iterables.filter(inputSplits,
+            selectedSplits = Lists.newArrayList(Iterables.filter(inputSplits,
                     new Predicate<InputSplit>() {
                         @Override
                         public boolean apply(@Nullable InputSplit s) {
@@ -86,7 +105,56 @@ public class SpliceOrcNewInputFormat extends InputFormat<NullWritable,Row>
             throw new IOException(e);
         }
 
+        if (!configuration.getBoolean(PRUNE_SPLITS, PRUNE_SPLITS_DEFAULT) || !orcPredicate.hasPushableQualifiers())
+            return selectedSplits;
+
+        // Statistics Pruning: drop the files (and splits) whose statistics and bloom filters rule out every row. The
+        // metadata is read here, in the driver, so it lands in the driver's own file cache; the tasks run in the
+        // executors' JVMs, which have caches of their own, and read it again
+        List<InputSplit> matchingSplits = new ArrayList<>(selectedSplits.size());
+        int threads = Math.min(configuration.getInt(PRUNE_SPLITS_THREADS, PRUNE_SPLITS_THREADS_DEFAULT), selectedSplits.size());
+        if (threads <= 1) {
+            for (InputSplit s : selectedSplits) {
+                if (mayHaveMatches((OrcNewSplit) s, configuration, structType, orcPredicate, columns, partitions))
+                    matchingSplits.add(s);
+            }
+        } else {
+            ExecutorService executor = Executors.newFixedThreadPool(threads,
+                    new ThreadFactoryBuilder().setNameFormat("orcSplitPruner-%d").setDaemon(true).build());
+            try {
+                List<Future<Boolean>> checks = new ArrayList<>(selectedSplits.size());
+                for (InputSplit s : selectedSplits) {
+                    checks.add(executor.submit(() -> mayHaveMatches((OrcNewSplit) s, configuration, structType, orcPredicate, columns, partitions)));
+                }
+                for (int i = 0; i < checks.size(); i++) {
+                    if (checks.get(i).get())
+                        matchingSplits.add(selectedSplits.get(i));
+                }
+            } catch (ExecutionException e) {
+                throw new IOException(e.getCause());
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+        if (LOG.isDebugEnabled())
+            LOG.debug(String.format("pruned %d of %d splits using ORC statistics", selectedSplits.size() - matchingSplits.size(), selectedSplits.size()));
+        return matchingSplits;
+    }
 
+    private static boolean mayHaveMatches(OrcNewSplit split, Configuration configuration, StructType structType,
+                                          SpliceORCPredicate orcPredicate, List<Integer> columns, List<Integer> partitions) {
+        try {
+            OrcRecordReader reader = OrcMapreduceRecordReader.createOrcRecordReader(split.getPath(), configuration, structType, orcPredicate, columns, partitions);
+            try {
+                return reader.mayHaveMatches();
+            } finally {
+                reader.close();
+            }
+        } catch (Exception e) {
+            // let the task read the file, and report any problem with it
+            LOG.warn("Unable to check statistics of " + split.getPath(), e);
+            return true;
+        }
     }
 
     @Override
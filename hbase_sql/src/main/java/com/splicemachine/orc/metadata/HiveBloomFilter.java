@@ -12,14 +12,150 @@
  * If not, see <http://www.gnu.org/licenses/>.
  */
 package com.splicemachine.orc.metadata;
+package com.splicemachine.orc.metadata;
+
+import io.airlift.slice.Slice;
 
 import java.util.List;
 
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * The bloom filter which Hive writes for each row group of a column, as read from the BLOOM_FILTER
+ * stream. This only supports membership tests, and hashes values exactly as Hive's writer does:
+ * integral values (and dates, as days) through a 64-bit integer hash, floating point values through
+ * their long bits, and strings through a 64-bit Murmur3 hash of their UTF-8 bytes.
+ */
 public class HiveBloomFilter
 {
+    private static final int MURMUR3_SEED = 104729;
+
+    private final long[] bits;
+    private final int numBits;
+    private final int numHashFunctions;
+
     // constructor that allows deserialization of a long list into the actual hive bloom filter
     public HiveBloomFilter(List<Long> bits, int numBits, int numHashFunctions)
     {
-        // This is a stub
+        requireNonNull(bits, "bits is null");
+        checkArgument(numBits > 0 && numBits <= bits.size() * 64, "invalid number of bits");
+        this.bits = new long[bits.size()];
+        for (int i = 0; i < this.bits.length; i++) {
+            this.bits[i] = bits.get(i);
+        }
+        this.numBits = numBits;
+        this.numHashFunctions = numHashFunctions;
+    }
+
+    /**
+     * @return false if {@code value} was definitely never added to the filter
+     */
+    public boolean testLong(long value)
+    {
+        return testHash(getLongHash(value));
+    }
+
+    public boolean testDouble(double value)
+    {
+        return testLong(Double.doubleToLongBits(value));
+    }
+
+    public boolean testSlice(Slice value)
+    {
+        return testHash(murmur3Hash64(value.getBytes()));
+    }
+
+    public long getRetainedSize()
+    {
+        return bits.length * 8L;
+    }
+
+    private boolean testHash(long hash64)
+    {
+        int hash1 = (int) hash64;
+        int hash2 = (int) (hash64 >>> 32);
+        for (int i = 1; i <= numHashFunctions; i++) {
+            int combinedHash = hash1 + (i * hash2);
+            // hashcode should be positive, flip all the bits if it's negative
+            if (combinedHash < 0) {
+                combinedHash = ~combinedHash;
+            }
+            int position = combinedHash % numBits;
+            if ((bits[position >>> 6] & (1L << position)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Thomas Wang's integer hash function
+    private static long getLongHash(long key)
+    {
+        key = (~key) + (key << 21);
+        key = key ^ (key >> 24);
+        key = (key + (key << 3)) + (key << 8);
+        key = key ^ (key >> 14);
+        key = (key + (key << 2)) + (key << 4);
+        key = key ^ (key >> 28);
+        key = key + (key << 31);
+        return key;
+    }
+
+    private static long murmur3Hash64(byte[] data)
+    {
+        final long c1 = 0x87c37b91114253d5L;
+        final long c2 = 0x4cf5ad432745937fL;
+        long hash = MURMUR3_SEED;
+        int length = data.length;
+        int blocks = length >> 3;
+
+        for (int i = 0; i < blocks; i++) {
+            int offset = i << 3;
+            long k = ((long) data[offset] & 0xff)
+                    | (((long) data[offset + 1] & 0xff) << 8)
+                    | (((long) data[offset + 2] & 0xff) << 16)
+                    | (((long) data[offset + 3] & 0xff) << 24)
+                    | (((long) data[offset + 4] & 0xff) << 32)
+                    | (((long) data[offset + 5] & 0xff) << 40)
+                    | (((long) data[offset + 6] & 0xff) << 48)
+                    | (((long) data[offset + 7] & 0xff) << 56);
+            k *= c1;
+            k = Long.rotateLeft(k, 31);
+            k *= c2;
+            hash ^= k;
+            hash = Long.rotateLeft(hash, 27) * 5 + 0x52dce729;
+        }
+
+        long k1 = 0;
+        int tail = blocks << 3;
+        switch (length - tail) {
+            case 7:
+                k1 ^= ((long) data[tail + 6] & 0xff) << 48;
+            case 6:
+                k1 ^= ((long) data[tail + 5] & 0xff) << 40;
+            case 5:
+                k1 ^= ((long) data[tail + 4] & 0xff) << 32;
+            case 4:
+                k1 ^= ((long) data[tail + 3] & 0xff) << 24;
+            case 3:
+                k1 ^= ((long) data[tail + 2] & 0xff) << 16;
+            case 2:
+                k1 ^= ((long) data[tail + 1] & 0xff) << 8;
+            case 1:
+                k1 ^= ((long) data[tail] & 0xff);
+                k1 *= c1;
+                k1 = Long.rotateLeft(k1, 31);
+                k1 *= c2;
+                hash ^= k1;
+        }
+
+        hash ^= length;
+        hash ^= (hash >>> 33);
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= (hash >>> 33);
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= (hash >>> 33);
+        return hash;
     }
 }
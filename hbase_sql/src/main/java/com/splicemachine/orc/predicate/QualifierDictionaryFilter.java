@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2012 - 2017 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.splicemachine.orc.predicate;
+package com.splicemachine.orc.predicate;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.store.access.Qualifier;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.db.iapi.types.SQLDate;
+import com.splicemachine.orc.DictionaryFilter;
+import io.airlift.slice.Slice;
+import org.apache.hadoop.hive.serde2.io.DateWritable;
+
+import java.sql.Date;
+
+/**
+ * The qualifiers of a scan which refer to a single column, evaluated against one value at a time
+ * with the same semantics as qualifying a whole row.
+ *
+ * The qualifiers are in conjunctive normal form: each group must have at least one qualifier which
+ * is satisfied.
+ */
+class QualifierDictionaryFilter implements DictionaryFilter {
+    private final Qualifier[][] qualifiers;
+    private final DataValueDescriptor value;
+
+    QualifierDictionaryFilter(Qualifier[][] qualifiers, DataValueDescriptor value) {
+        this.qualifiers = qualifiers;
+        this.value = value;
+    }
+
+    @Override
+    public boolean matches(Slice slice) {
+        try {
+            value.setValue(slice.toStringUtf8());
+        } catch (StandardException se) {
+            throw new RuntimeException(se);
+        }
+        return qualifies();
+    }
+
+    @Override
+    public boolean matches(long longValue) {
+        try {
+            if (value instanceof SQLDate) {
+                // dates are stored as days from 1970-01-01
+                value.setValue(new Date(DateWritable.daysToMillis((int) longValue)));
+            } else {
+                value.setValue(longValue);
+            }
+        } catch (StandardException se) {
+            throw new RuntimeException(se);
+        }
+        return qualifies();
+    }
+
+    @Override
+    public boolean matchesNull() {
+        value.restoreToNull();
+        return qualifies();
+    }
+
+    private boolean qualifies() {
+        try {
+            for (Qualifier[] orGroup : qualifiers) {
+                boolean groupQualifies = false;
+                for (Qualifier q : orGroup) {
+                    groupQualifies = value.compare(q.getOperator(), q.getOrderable(), q.getOrderedNulls(), q.getUnknownRV());
+                    if (q.negateCompareResult())
+                        groupQualifies = !groupQualifies;
+                    if (groupQualifies)
+                        break;
+                }
+                if (!groupQualifies)
+                    return false;
+            }
+            return true;
+        } catch (StandardException se) {
+            throw new RuntimeException(se);
+        }
+    }
+}
@@ -17,6 +17,7 @@ import com.splicemachine.db.iapi.error.StandardException;
 import com.splicemachine.db.iapi.services.io.ArrayUtil;
 import com.splicemachine.db.iapi.store.access.Qualifier;
 import com.splicemachine.db.iapi.types.*;
+import com.splicemachine.orc.DictionaryFilter;
 import com.splicemachine.orc.OrcPredicate;
 import com.splicemachine.orc.metadata.*;
 import org.apache.commons.codec.binary.Base64;
@@ -30,6 +31,7 @@ import java.io.IOException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
 import java.sql.Date;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -99,144 +101,201 @@ public class SpliceORCPredicate implements OrcPredicate, Externalizable {
     @Override
     public boolean matches(long numberOfRows, Map<Integer, ColumnStatistics> statisticsByColumnIndex) {
         try {
-            boolean row_qualifies = true;
             if (qualifiers == null)
                 return numberOfRows > 0;
             for (int i = 0; i < qualifiers[0].length; i++) {
-                Qualifier q = qualifiers[0][i];
-                if (q.getVariantType() == Qualifier.VARIANT)
-                    continue; // Cannot Push Down Qualifier
-                StatsEval statsEval = statsEval(numberOfRows, statisticsByColumnIndex.get(q.getStoragePosition()),
-                        structType.fields()[baseColumnMap[q.getStoragePosition()]].dataType());
-                if (statsEval == null || statsEval.maximumDVD == null || statsEval.minimumDVD == null) {
-                    // predicate on non-partitioning column or no stats info, continue to evaluate other predicates
-                    continue;
+                if (!mayMatch(qualifiers[0][i], numberOfRows, statisticsByColumnIndex))
+                    return false;
+            }
+            // all the qual[0] terms may pass, now process the OR clauses; one fails only if none of its terms can pass
+            for (int and_idx = 1; and_idx < qualifiers.length; and_idx++) {
+                boolean or_qualifies = qualifiers[and_idx].length == 0;
+                for (int or_idx = 0; or_idx < qualifiers[and_idx].length && !or_qualifies; or_idx++) {
+                    or_qualifies = mayMatch(qualifiers[and_idx][or_idx], numberOfRows, statisticsByColumnIndex);
                 }
+                if (!or_qualifies)
+                    return false;
+            }
+            return true;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
 
-                if (q.getOrderable() == null || q.getOrderable().isNull()) {
-                    if (!statsEval.hasNulls)
-                        return false;
-                    continue;
-                }
+    /**
+     * @return false if no row described by the statistics can satisfy the qualifier
+     */
+    private boolean mayMatch(Qualifier q, long numberOfRows, Map<Integer, ColumnStatistics> statisticsByColumnIndex) throws StandardException {
+        if (q.getVariantType() == Qualifier.VARIANT)
+            return true; // Cannot Push Down Qualifier
+        ColumnStatistics columnStatistics = statisticsByColumnIndex.get(q.getStoragePosition());
+        DataType dataType = structType.fields()[baseColumnMap[q.getStoragePosition()]].dataType();
+        StatsEval statsEval = statsEval(numberOfRows, columnStatistics, dataType);
+        if (statsEval == null || statsEval.maximumDVD == null || statsEval.minimumDVD == null) {
+            // predicate on non-partitioning column or no stats info, continue to evaluate other predicates
+            return true;
+        }
+
+        if (q.getOrderable() == null || q.getOrderable().isNull()) {
+            return statsEval.hasNulls;
+        }
 
-                /* min/max value in Date column stats are stored as days from 1970-01-01, while predicate is a date
-                   string, so need to convert the date string to days also
-                 */
-                DataValueDescriptor orderable = q.getOrderable();
-                switch (q.getOperator()) {
-                    case com.splicemachine.db.iapi.types.DataType.ORDER_OP_LESSTHAN:
-                    case com.splicemachine.db.iapi.types.DataType.ORDER_OP_LESSOREQUALS:
-                        if (q.negateCompareResult()) {
-                            row_qualifies =
+        /* min/max value in Date column stats are stored as days from 1970-01-01, while predicate is a date
+           string, so need to convert the date string to days also
+         */
+        DataValueDescriptor orderable = q.getOrderable();
+        boolean row_qualifies = true;
+        switch (q.getOperator()) {
+            case com.splicemachine.db.iapi.types.DataType.ORDER_OP_LESSTHAN:
+            case com.splicemachine.db.iapi.types.DataType.ORDER_OP_LESSOREQUALS:
+                if (q.negateCompareResult()) {
+                    row_qualifies =
+                            statsEval.maximumDVD.compare(
+                                    q.getOperator(),
+                                    orderable,
+                                    q.getOrderedNulls(),
+                                    q.getUnknownRV());
+                } else {
+                    row_qualifies =
+                            statsEval.minimumDVD.compare(
+                                    q.getOperator(),
+                                    orderable,
+                                    q.getOrderedNulls(),
+                                    q.getUnknownRV());
+                }
+                break;
+            case com.splicemachine.db.iapi.types.DataType.ORDER_OP_GREATERTHAN:
+            case com.splicemachine.db.iapi.types.DataType.ORDER_OP_GREATEROREQUALS:
+                if (q.negateCompareResult()) {
+                    row_qualifies =
+                            statsEval.minimumDVD.compare(
+                                    q.getOperator(),
+                                    orderable,
+                                    q.getOrderedNulls(),
+                                    q.getUnknownRV());
+                } else {
+                    row_qualifies =
+                            statsEval.maximumDVD.compare(
+                                    q.getOperator(),
+                                    orderable,
+                                    q.getOrderedNulls(),
+                                    q.getUnknownRV());
+                }
+                break;
+            case com.splicemachine.db.iapi.types.DataType.ORDER_OP_EQUALS:
+                if (q.negateCompareResult()) {
+                    row_qualifies =
+                            statsEval.minimumDVD.compare(
+                                    com.splicemachine.db.iapi.types.DataType.ORDER_OP_EQUALS,
+                                    orderable,
+                                    q.getOrderedNulls(),
+                                    q.getUnknownRV())
+                                    &&
                                     statsEval.maximumDVD.compare(
-                                            q.getOperator(),
-                                            orderable,
-                                            q.getOrderedNulls(),
-                                            q.getUnknownRV());
-                        } else {
-                            row_qualifies =
-                                    statsEval.minimumDVD.compare(
-                                            q.getOperator(),
-                                            orderable,
-                                            q.getOrderedNulls(),
-                                            q.getUnknownRV());
-                        }
-                        break;
-                    case com.splicemachine.db.iapi.types.DataType.ORDER_OP_GREATERTHAN:
-                    case com.splicemachine.db.iapi.types.DataType.ORDER_OP_GREATEROREQUALS:
-                        if (q.negateCompareResult()) {
-                            row_qualifies =
-                                    statsEval.minimumDVD.compare(
-                                            q.getOperator(),
+                                            com.splicemachine.db.iapi.types.DataType.ORDER_OP_EQUALS,
                                             orderable,
                                             q.getOrderedNulls(),
                                             q.getUnknownRV());
-                        } else {
-                            row_qualifies =
+                } else {
+                    row_qualifies =
+                            statsEval.minimumDVD.compare(
+                                    com.splicemachine.db.iapi.types.DataType.ORDER_OP_LESSOREQUALS,
+                                    orderable,
+                                    q.getOrderedNulls(),
+                                    q.getUnknownRV())
+                                    &&
                                     statsEval.maximumDVD.compare(
-                                            q.getOperator(),
-                                            orderable,
-                                            q.getOrderedNulls(),
-                                            q.getUnknownRV());
-                        }
-                        break;
-                    case com.splicemachine.db.iapi.types.DataType.ORDER_OP_EQUALS:
-                        if (q.negateCompareResult()) {
-                            row_qualifies =
-                                    statsEval.minimumDVD.compare(
-                                            com.splicemachine.db.iapi.types.DataType.ORDER_OP_EQUALS,
+                                            com.splicemachine.db.iapi.types.DataType.ORDER_OP_GREATEROREQUALS,
                                             orderable,
                                             q.getOrderedNulls(),
                                             q.getUnknownRV())
-                                            &&
-                                            statsEval.maximumDVD.compare(
-                                                    com.splicemachine.db.iapi.types.DataType.ORDER_OP_EQUALS,
-                                                    orderable,
-                                                    q.getOrderedNulls(),
-                                                    q.getUnknownRV());
-                        } else {
-                            row_qualifies =
-                                    statsEval.minimumDVD.compare(
-                                            com.splicemachine.db.iapi.types.DataType.ORDER_OP_LESSOREQUALS,
-                                            orderable,
-                                            q.getOrderedNulls(),
-                                            q.getUnknownRV())
-                                            &&
-                                            statsEval.maximumDVD.compare(
-                                                    com.splicemachine.db.iapi.types.DataType.ORDER_OP_GREATEROREQUALS,
-                                                    orderable,
-                                                    q.getOrderedNulls(),
-                                                    q.getUnknownRV());
-                        }
-                        break;
+                                    &&
+                                    bloomFilterMayContain(columnStatistics.getBloomFilter(), dataType, orderable);
                 }
-                if (q.negateCompareResult())
-                    row_qualifies = !row_qualifies;
-                if (!row_qualifies)
-                    return (false);
-            }
+                break;
+        }
+        if (q.negateCompareResult())
+            row_qualifies = !row_qualifies;
+        return row_qualifies;
+    }
+
+    /**
+     * Row group statistics carry the bloom filter Hive wrote for the column, if any, which lets a point lookup
+     * skip row groups whose min/max range covers the value. Only values which hash the same way as the stored
+     * values do are probed; strings are not, since CHAR/VARCHAR equality ignores trailing blanks and the
+     * filter does not.
+     */
+    private static boolean bloomFilterMayContain(HiveBloomFilter bloomFilter, DataType dataType, DataValueDescriptor orderable) throws StandardException {
+        if (bloomFilter == null)
             return true;
-        } catch (Exception e) {
-            throw new RuntimeException(e);
+        if (dataType instanceof LongType || dataType instanceof IntegerType || dataType instanceof ShortType) {
+            if (orderable instanceof SQLLongint || orderable instanceof SQLInteger
+                    || orderable instanceof SQLSmallint || orderable instanceof SQLTinyint)
+                return bloomFilter.testLong(orderable.getLong());
         }
-            /*
-            // all the qual[0] and terms passed, now process the OR clauses
-            for (int and_idx = 1; and_idx < qual_list.length; and_idx++) {
-                Column orCols = null;
-                for (int or_idx = 0; or_idx < qual_list[and_idx].length; or_idx++) {
-                    Qualifier q = qual_list[and_idx][or_idx];
-                    if (q.getVariantType() == Qualifier.VARIANT)
-                        continue; // Cannot Push Down Qualifier
-                    q.clearOrderableCache();
-                    Column orCol = dataset.col(allColIdInSpark[(baseColumnMap != null ? baseColumnMap[q.getStoragePosition()] : q.getStoragePosition())]);
-                    Object value = q.getOrderable().getObject();
-                    switch (q.getOperator()) {
-                        case DataType.ORDER_OP_LESSTHAN:
-                            orCol = q.negateCompareResult() ? orCol.geq(value) : orCol.lt(value);
-                            break;
-                        case DataType.ORDER_OP_LESSOREQUALS:
-                            orCol = q.negateCompareResult() ? orCol.gt(value) : orCol.leq(value);
-                            break;
-                        case DataType.ORDER_OP_GREATERTHAN:
-                            orCol = q.negateCompareResult() ? orCol.leq(value) : orCol.gt(value);
-                            break;
-                        case DataType.ORDER_OP_GREATEROREQUALS:
-                            orCol = q.negateCompareResult() ? orCol.lt(value) : orCol.geq(value);
-                            break;
-                        case DataType.ORDER_OP_EQUALS:
-                            orCol = q.negateCompareResult() ? orCol.notEqual(value) : orCol.equalTo(value);
-                            break;
-                    }
-                    if (orCols == null)
-                        orCols = orCol;
-                    else
-                        orCols = orCols.or(orCol);
-                }
+        else if (dataType instanceof DateType && orderable instanceof SQLDate) {
+            return bloomFilter.testLong(DateWritable.dateToDays(orderable.getDate(null)));
+        }
+        else if (dataType instanceof DoubleType && orderable instanceof SQLDouble) {
+            double value = orderable.getDouble();
+            // 0.0 and -0.0 are equal, but have different bits
+            return bloomFilter.testDouble(value) || (value == 0 && bloomFilter.testDouble(-value));
+        }
+        return true;
+    }
+
+    @Override
+    public DictionaryFilter getDictionaryFilter(int columnIndex) {
+        if (qualifiers == null || columnIndex >= baseColumnMap.length || baseColumnMap[columnIndex] < 0)
+            return null;
+        DataValueDescriptor value;
+        DataType dataType = structType.fields()[baseColumnMap[columnIndex]].dataType();
+        if (dataType instanceof StringType)
+            value = new SQLVarchar();
+        else if (dataType instanceof LongType)
+            value = new SQLLongint();
+        else if (dataType instanceof DateType)
+            value = new SQLDate();
+        else
+            return null; // not read through a dictionary we can filter
+
+        // the AND clauses on this column, and any OR clauses (such as IN lists) which only refer to this column
+        List<Qualifier[]> columnQualifiers = new ArrayList<>();
+        for (Qualifier q : qualifiers[0]) {
+            if (appliesTo(q, columnIndex))
+                columnQualifiers.add(new Qualifier[]{q});
+        }
+        for (int and_idx = 1; and_idx < qualifiers.length; and_idx++) {
+            boolean applies = qualifiers[and_idx].length > 0;
+            for (Qualifier q : qualifiers[and_idx]) {
+                applies &= appliesTo(q, columnIndex);
             }
-        } catch (Exception e) {
-            throw new RuntimeException(e);
+            if (applies)
+                columnQualifiers.add(qualifiers[and_idx]);
         }
-        */
+        if (columnQualifiers.isEmpty())
+            return null;
+        return new QualifierDictionaryFilter(columnQualifiers.toArray(new Qualifier[columnQualifiers.size()][]), value);
+    }
+
+    /**
+     * @return true if some qualifier can be checked against column statistics, so that files, stripes and
+     * row groups may be skipped
+     */
+    public boolean hasPushableQualifiers() {
+        if (qualifiers == null)
+            return false;
+        for (Qualifier[] clause : qualifiers) {
+            for (Qualifier q : clause) {
+                if (q.getVariantType() != Qualifier.VARIANT)
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean appliesTo(Qualifier q, int columnIndex) {
+        return q.getVariantType() != Qualifier.VARIANT && q.getStoragePosition() == columnIndex;
     }
 
     public String serialize() throws IOException {
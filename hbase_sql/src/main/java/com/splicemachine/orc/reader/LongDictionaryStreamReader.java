@@ -13,6 +13,7 @@
  */
 package com.splicemachine.orc.reader;
 
+import com.splicemachine.orc.DictionaryFilter;
 import com.splicemachine.orc.OrcCorruptionException;
 import com.splicemachine.orc.StreamDescriptor;
 import com.splicemachine.orc.metadata.ColumnEncoding;
@@ -64,6 +65,16 @@ public class LongDictionaryStreamReader
     private boolean dictionaryOpen;
     private boolean rowGroupOpen;
 
+    @Nullable
+    private DictionaryFilter dictionaryFilter;
+    // whether each entry of the stripe dictionary matches the filter
+    @Nonnull
+    private boolean[] dictionaryMatches = new boolean[0];
+    private boolean anyDictionaryMatch = true;
+    private boolean nullMatches;
+    @Nonnull
+    private boolean[] selectedRows = new boolean[0];
+
     public LongDictionaryStreamReader(StreamDescriptor streamDescriptor)
     {
         this.streamDescriptor = requireNonNull(streamDescriptor, "stream is null");
@@ -76,6 +87,32 @@ public class LongDictionaryStreamReader
         nextBatchSize = batchSize;
     }
 
+    @Override
+    public void setDictionaryFilter(DictionaryFilter filter)
+    {
+        this.dictionaryFilter = filter;
+    }
+
+    @Override
+    public boolean dictionaryMayMatch()
+            throws IOException
+    {
+        if (dictionaryFilter == null) {
+            return true;
+        }
+        if (!rowGroupOpen) {
+            openRowGroup();
+        }
+        // values which are not in the dictionary can only be checked row by row
+        return anyDictionaryMatch || inDictionaryStream != null;
+    }
+
+    @Override
+    public boolean[] getSelectedRows()
+    {
+        return dictionaryFilter == null ? null : selectedRows;
+    }
+
     @Override
     public ColumnVector readBlock(DataType type, ColumnVector vector)
             throws IOException
@@ -152,6 +189,10 @@ public class LongDictionaryStreamReader
             }
         }
 
+        if (dictionaryFilter != null) {
+            selectRows();
+        }
+
         readOffset = 0;
         nextBatchSize = 0;
 
@@ -173,6 +214,9 @@ public class LongDictionaryStreamReader
             }
             dictionaryStream.nextLongVector(dictionarySize, dictionary);
         }
+        if (!dictionaryOpen && dictionaryFilter != null) {
+            matchDictionary();
+        }
         dictionaryOpen = true;
 
         presentStream = presentStreamSource.openStream();
@@ -182,6 +226,40 @@ public class LongDictionaryStreamReader
         rowGroupOpen = true;
     }
 
+    /**
+     * Evaluate the filter against each entry of the stripe dictionary, which is shared by all of the stripe's row groups.
+     */
+    private void matchDictionary()
+    {
+        if (dictionaryMatches.length < dictionarySize) {
+            dictionaryMatches = new boolean[dictionarySize];
+        }
+        nullMatches = dictionaryFilter.matchesNull();
+        anyDictionaryMatch = nullMatches;
+        for (int i = 0; i < dictionarySize; i++) {
+            dictionaryMatches[i] = dictionaryFilter.matches(dictionary[i]);
+            anyDictionaryMatch |= dictionaryMatches[i];
+        }
+    }
+
+    private void selectRows()
+    {
+        if (selectedRows.length < nextBatchSize) {
+            selectedRows = new boolean[nextBatchSize];
+        }
+        for (int i = 0; i < nextBatchSize; i++) {
+            if (nullVector[i]) {
+                selectedRows[i] = nullMatches;
+            }
+            else if (inDictionary[i]) {
+                selectedRows[i] = dictionaryMatches[(int) dataVector[i]];
+            }
+            else {
+                selectedRows[i] = dictionaryFilter.matches(dataVector[i]);
+            }
+        }
+    }
+
     @Override
     public void startStripe(StreamSources dictionaryStreamSources, List<ColumnEncoding> encoding)
             throws IOException
@@ -13,6 +13,7 @@
  */
 package com.splicemachine.orc.reader;
 
+import com.splicemachine.orc.DictionaryFilter;
 import com.splicemachine.orc.StreamDescriptor;
 import com.splicemachine.orc.metadata.ColumnEncoding;
 import com.splicemachine.orc.metadata.ColumnEncoding.ColumnEncodingKind;
@@ -84,6 +85,25 @@ public class LongStreamReader
         currentReader.startRowGroup(dataStreamSources);
     }
 
+    @Override
+    public void setDictionaryFilter(DictionaryFilter filter)
+    {
+        dictionaryReader.setDictionaryFilter(filter);
+    }
+
+    @Override
+    public boolean dictionaryMayMatch()
+            throws IOException
+    {
+        return currentReader.dictionaryMayMatch();
+    }
+
+    @Override
+    public boolean[] getSelectedRows()
+    {
+        return currentReader.getSelectedRows();
+    }
+
     @Override
     public String toString()
     {
@@ -13,6 +13,7 @@
  */
 package com.splicemachine.orc.reader;
 
+import com.splicemachine.orc.DictionaryFilter;
 import com.splicemachine.orc.OrcCorruptionException;
 import com.splicemachine.orc.StreamDescriptor;
 import com.splicemachine.orc.metadata.ColumnEncoding;
@@ -80,6 +81,18 @@ public class SliceDictionaryStreamReader extends AbstractStreamReader {
 
     private boolean rowGroupOpen;
 
+    @Nullable
+    private DictionaryFilter dictionaryFilter;
+    // whether each entry of the stripe dictionary matches the filter
+    @Nonnull
+    private boolean[] stripeDictionaryMatches = new boolean[0];
+    // whether each entry of the current dictionary (including the null entry at the end) matches the filter
+    @Nonnull
+    private boolean[] dictionaryMatches = new boolean[0];
+    private boolean anyDictionaryMatch = true;
+    @Nonnull
+    private boolean[] selectedRows = new boolean[0];
+
     public SliceDictionaryStreamReader(StreamDescriptor streamDescriptor)
     {
         this.streamDescriptor = requireNonNull(streamDescriptor, "stream is null");
@@ -98,12 +111,37 @@ public class SliceDictionaryStreamReader extends AbstractStreamReader {
         return readBlock(type,ColumnVector.allocate(nextBatchSize, DataTypes.IntegerType, MemoryMode.ON_HEAP));
     }
 
+    @Override
+    public void setDictionaryFilter(DictionaryFilter filter)
+    {
+        this.dictionaryFilter = filter;
+    }
+
+    @Override
+    public boolean dictionaryMayMatch()
+            throws IOException
+    {
+        if (dictionaryFilter == null) {
+            return true;
+        }
+        if (!rowGroupOpen) {
+            openRowGroup();
+        }
+        return anyDictionaryMatch;
+    }
+
+    @Override
+    public boolean[] getSelectedRows()
+    {
+        return dictionaryFilter == null ? null : selectedRows;
+    }
+
     @Override
     public ColumnVector readBlock(DataType type, ColumnVector vector)
             throws IOException
     {
         if (!rowGroupOpen) {
-            openRowGroup(type);
+            openRowGroup();
         }
 
         if (readOffset > 0) {
@@ -161,6 +199,9 @@ public class SliceDictionaryStreamReader extends AbstractStreamReader {
         else {
             inDictionaryStream.getSetBits(nextBatchSize, inDictionary, isNullVector);
         }
+        if (dictionaryFilter != null && selectedRows.length < nextBatchSize) {
+            selectedRows = new boolean[nextBatchSize];
+        }
         vector.reserveDictionaryIds(dataVector.length);
         vector.setDictionary(dictionaryBlock);
         ColumnVector dictionaryVector = vector.getDictionaryIds();
@@ -172,20 +213,25 @@ public class SliceDictionaryStreamReader extends AbstractStreamReader {
                 dictionaryVector.appendInt(dictionaryBlock.size() - 1); // Null
                 j++;
             }
+            int id;
             if (isNullVector[i]) {
                 // null is the last entry in the slice dictionary
                 vector.appendNull();
-                dictionaryVector.appendInt(dictionaryBlock.size() - 1);
+                id = dictionaryBlock.size() - 1;
             }
             else if (inDictionary[i]) {
                 vector.appendNotNull();
-                dictionaryVector.appendInt(dataVector[i]);
+                id = dataVector[i];
                 // stripe dictionary elements have the same dictionary id
             }
             else {
                 vector.appendNotNull();
                 // row group dictionary elements are after the main dictionary
-                dictionaryVector.appendInt(dataVector[i] + stripeDictionarySize);
+                id = dataVector[i] + stripeDictionarySize;
+            }
+            dictionaryVector.appendInt(id);
+            if (dictionaryFilter != null) {
+                selectedRows[i] = dictionaryMatches[id];
             }
         }
 
@@ -203,7 +249,7 @@ public class SliceDictionaryStreamReader extends AbstractStreamReader {
         }
     }
 
-    private void openRowGroup(DataType type)
+    private void openRowGroup()
             throws IOException
     {
         // read the dictionary
@@ -223,7 +269,11 @@ public class SliceDictionaryStreamReader extends AbstractStreamReader {
 
                 // read dictionary values
                 ByteArrayStream dictionaryDataStream = stripeDictionaryDataStreamSource.openStream();
-                readDictionary(dictionaryDataStream, stripeDictionarySize, dictionaryLength, 0, stripeDictionary, type);
+                readDictionary(dictionaryDataStream, stripeDictionarySize, dictionaryLength, 0, stripeDictionary);
+            }
+            if (dictionaryFilter != null) {
+                // the stripe dictionary is shared by all of the stripe's row groups, so only evaluate it once
+                stripeDictionaryMatches = evaluateDictionary(stripeDictionary, 0, stripeDictionarySize, new boolean[stripeDictionarySize]);
             }
         }
         stripeDictionaryOpen = true;
@@ -248,11 +298,17 @@ public class SliceDictionaryStreamReader extends AbstractStreamReader {
 
             // read dictionary values
             ByteArrayStream dictionaryDataStream = rowGroupDictionaryDataStreamSource.openStream();
-            readDictionary(dictionaryDataStream, rowGroupDictionarySize, rowGroupDictionaryLength, stripeDictionarySize, rowGroupDictionary, type);
+            readDictionary(dictionaryDataStream, rowGroupDictionarySize, rowGroupDictionaryLength, stripeDictionarySize, rowGroupDictionary);
+            if (dictionaryFilter != null) {
+                matchDictionary(rowGroupDictionary);
+            }
         }
         else {
             // there is no row group dictionary so use the stripe dictionary
             setDictionaryBlockData(stripeDictionary);
+            if (dictionaryFilter != null) {
+                matchDictionary(stripeDictionary);
+            }
         }
 
         presentStream = presentStreamSource.openStream();
@@ -267,8 +323,7 @@ public class SliceDictionaryStreamReader extends AbstractStreamReader {
             int dictionarySize,
             int[] dictionaryLength,
             int dictionaryOutputOffset,
-            Slice[] dictionary,
-            DataType type)
+            Slice[] dictionary)
             throws IOException
     {
         // build dictionary slices
@@ -293,6 +348,34 @@ public class SliceDictionaryStreamReader extends AbstractStreamReader {
         }
     }
 
+    /**
+     * Evaluate the filter against each entry of the dictionary of the current row group, reusing
+     * what was found for the stripe dictionary.
+     */
+    private void matchDictionary(Slice[] dictionary)
+    {
+        int size = dictionary.length;
+        if (dictionaryMatches.length < size) {
+            dictionaryMatches = new boolean[size];
+        }
+        System.arraycopy(stripeDictionaryMatches, 0, dictionaryMatches, 0, stripeDictionarySize);
+        evaluateDictionary(dictionary, stripeDictionarySize, size - 1, dictionaryMatches);
+        dictionaryMatches[size - 1] = dictionaryFilter.matchesNull();
+
+        anyDictionaryMatch = false;
+        for (int i = 0; i < size && !anyDictionaryMatch; i++) {
+            anyDictionaryMatch = dictionaryMatches[i];
+        }
+    }
+
+    private boolean[] evaluateDictionary(Slice[] dictionary, int start, int end, boolean[] matches)
+    {
+        for (int i = start; i < end; i++) {
+            matches[i] = dictionaryFilter.matches(dictionary[i]);
+        }
+        return matches;
+    }
+
     @Override
     public void startStripe(StreamSources dictionaryStreamSources, List<ColumnEncoding> encoding)
             throws IOException
@@ -13,6 +13,7 @@
  */
 package com.splicemachine.orc.reader;
 
+import com.splicemachine.orc.DictionaryFilter;
 import com.splicemachine.orc.metadata.ColumnEncoding;
 import com.splicemachine.orc.stream.StreamSources;
 import org.apache.spark.sql.execution.vectorized.ColumnVector;
@@ -37,4 +38,31 @@ public interface StreamReader {
             throws IOException;
 
     int getBatchSize();
+
+    /**
+     * Gives the reader a filter on the values of its column, which dictionary encoded columns
+     * evaluate once per dictionary entry. Readers which cannot make use of it ignore it.
+     */
+    default void setDictionaryFilter(DictionaryFilter filter)
+    {
+    }
+
+    /**
+     * @return false if no value in the dictionary of the current row group matches the filter,
+     * so that none of its rows can; true if some might
+     */
+    default boolean dictionaryMayMatch()
+            throws IOException
+    {
+        return true;
+    }
+
+    /**
+     * @return which rows of the last block read matched the filter, or {@code null} if the
+     * block was not filtered
+     */
+    default boolean[] getSelectedRows()
+    {
+        return null;
+    }
 }
@@ -24,10 +24,12 @@ import com.splicemachine.db.iapi.reference.SQLState;
 import com.splicemachine.db.iapi.sql.Activation;
 import com.splicemachine.db.iapi.sql.execute.ExecRow;
 import com.splicemachine.derby.iapi.sql.execute.SpliceOperation;
+import com.splicemachine.derby.iapi.sql.olap.OlapJobPriority;
 import com.splicemachine.derby.iapi.sql.olap.OlapResult;
 import com.splicemachine.derby.impl.sql.execute.operations.*;
 import com.splicemachine.derby.stream.ActivationHolder;
 import com.splicemachine.derby.stream.iapi.RemoteQueryClient;
+import com.splicemachine.derby.utils.StatisticsOperation;
 import com.splicemachine.pipeline.Exceptions;
 import io.netty.channel.ChannelHandler;
 import org.apache.log4j.Logger;
@@ -82,7 +84,8 @@ public class RemoteQueryClientImpl implements RemoteQueryClient {
             SConfiguration config = HConfiguration.getConfiguration();
             int streamingBatches = config.getSparkResultStreamingBatches();
             int streamingBatchSize = config.getSparkResultStreamingBatchSize();
-            streamListener = new StreamListener(limit, offset, streamingBatches, streamingBatchSize);
+            boolean ordered = !config.getSparkResultStreamingUnordered() || isOrdered(root);
+            streamListener = new StreamListener(limit, offset, streamingBatches, streamingBatchSize, ordered);
             StreamListenerServer server = getServer();
             server.register(streamListener);
             HostAndPort hostAndPort = server.getHostAndPort();
@@ -99,7 +102,7 @@ public class RemoteQueryClientImpl implements RemoteQueryClient {
             String session = hostname + ":" + localPort + "," + sessionId + opUuid;
 
             RemoteQueryJob jobRequest = new RemoteQueryJob(ah, root.getResultSetNumber(), uuid, host, port, session, userId, sql,
-                    streamingBatches, streamingBatchSize);
+                    streamingBatches, streamingBatchSize, getPriority());
             olapFuture = EngineDriver.driver().getOlapClient().submit(jobRequest);
             olapFuture.addListener(new Runnable() {
                 @Override
@@ -123,6 +126,32 @@ public class RemoteQueryClientImpl implements RemoteQueryClient {
         }
     }
 
+    private OlapJobPriority getPriority() {
+        if (root instanceof StatisticsOperation)
+            return OlapJobPriority.STATISTICS;
+        if (root instanceof InsertOperation && ((InsertOperation) root).statusDirectory != null)
+            return OlapJobPriority.IMPORT; // only imports have a bad record directory
+        return OlapJobPriority.INTERACTIVE;
+    }
+
+    /**
+     * The results have to be ordered if the top of the plan sorts them, or if the optimizer avoided that sort
+     * because the scans already return the rows in order (in which case there's no sort left in the plan).
+     */
+    private static boolean isOrdered(SpliceOperation op) {
+        if (op.getActivation().getPreparedStatement().isSortAvoided())
+            return true;
+        while (op instanceof ScrollInsensitiveOperation
+                || op instanceof AnyOperation
+                || op instanceof OnceOperation
+                || op instanceof RowCountOperation
+                || op instanceof ProjectRestrictOperation
+                || op instanceof NormalizeOperation) {
+            op = op.getSubOperations().get(0);
+        }
+        return op instanceof SortOperation;
+    }
+
     private void updateLimitOffset() throws StandardException {
         if (root instanceof ScrollInsensitiveOperation
                 || root instanceof AnyOperation
@@ -16,6 +16,7 @@ package com.splicemachine.stream;
 
 import com.splicemachine.concurrent.Clock;
 import com.splicemachine.derby.iapi.sql.olap.DistributedJob;
+import com.splicemachine.derby.iapi.sql.olap.OlapJobPriority;
 import com.splicemachine.derby.iapi.sql.olap.OlapStatus;
 import com.splicemachine.derby.stream.ActivationHolder;
 
@@ -36,11 +37,12 @@ public class RemoteQueryJob extends DistributedJob {
     String sql;
     int streamingBatches;
     int streamingBatchSize;
+    OlapJobPriority priority;
 
 
     public RemoteQueryJob(ActivationHolder ah, int rootResultSetNumber, UUID uuid, String host, int port,
                           String session, String userId, String sql,
-                          int streamingBatches, int streamingBatchSize) {
+                          int streamingBatches, int streamingBatchSize, OlapJobPriority priority) {
         this.ah = ah;
         this.rootResultSetNumber = rootResultSetNumber;
         this.uuid = uuid;
@@ -51,6 +53,7 @@ public class RemoteQueryJob extends DistributedJob {
         this.sql = sql;
         this.streamingBatches = streamingBatches;
         this.streamingBatchSize = streamingBatchSize;
+        this.priority = priority;
     }
 
     @Override
@@ -62,4 +65,14 @@ public class RemoteQueryJob extends DistributedJob {
     public String getName() {
         return "query-"+uuid;
     }
+
+    @Override
+    public OlapJobPriority getPriority() {
+        return priority;
+    }
+
+    @Override
+    public String getOwner() {
+        return userId;
+    }
 }
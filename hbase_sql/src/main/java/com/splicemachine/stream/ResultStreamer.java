@@ -34,8 +34,10 @@ import org.apache.spark.api.java.function.Function2;
 
 import java.io.*;
 import java.net.InetSocketAddress;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
+import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.*;
 
@@ -87,6 +89,7 @@ public class ResultStreamer<T> extends ChannelInboundHandlerAdapter implements F
             private long consumed;
             private long sent;
             private int currentBatch;
+            private List<Object> rows = new ArrayList<>(batchSize);
 
             @Override
             public Long call() throws InterruptedException {
@@ -104,7 +107,7 @@ public class ResultStreamer<T> extends ChannelInboundHandlerAdapter implements F
                         consumed++;
 
 
-                        ctx.write(lr, ctx.voidPromise());
+                        rows.add(lr);
                         currentBatch++;
                         sent++;
 
@@ -117,6 +120,7 @@ public class ResultStreamer<T> extends ChannelInboundHandlerAdapter implements F
                         consumeOffset();
                     }
                     // Data has been written, request close
+                    writeRows();
                     ctx.writeAndFlush(new StreamProtocol.RequestClose());
 
                     return consumed;
@@ -132,6 +136,7 @@ public class ResultStreamer<T> extends ChannelInboundHandlerAdapter implements F
              */
             private void flushAndGetPermit() throws InterruptedException {
                 if (currentBatch >= batchSize) {
+                    writeRows();
                     ctx.flush();
                     currentBatch = 0;
                     permits.acquire();
@@ -140,12 +145,23 @@ public class ResultStreamer<T> extends ChannelInboundHandlerAdapter implements F
                 }
             }
 
+            /**
+             * Write the rows buffered since the last write as a single message, without flushing the connection
+             */
+            private void writeRows() {
+                if (rows.isEmpty())
+                    return;
+                ctx.write(new StreamProtocol.RowBatch(rows), ctx.voidPromise());
+                rows = new ArrayList<>(batchSize);
+            }
+
             /**
              * If the client hast told us to ignore up to 'offset' messages, consume them here. The client request can
              * arrive after we've already sent some messages.
              */
             private void consumeOffset() {
                 if (consumed < offset) {
+                    writeRows();
                     long count = 0;
                     while (locatedRowIterator.hasNext() && consumed < offset) {
                         locatedRowIterator.next();
@@ -162,6 +178,7 @@ public class ResultStreamer<T> extends ChannelInboundHandlerAdapter implements F
              */
             private boolean checkLimit() {
                 if (consumed > limit) {
+                    writeRows();
                     ctx.flush();
                     if (LOG.isTraceEnabled())
                         LOG.trace("Reached limit, stopping. consumed " + consumed + " sent " + sent + " limit " + limit);
@@ -24,14 +24,20 @@ import org.apache.log4j.Logger;
 
 import java.util.*;
 import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
 
 
 /**
  * This class handles connections from Spark tasks streaming data to the query client. One connection is created from
  * each task, it handles failures and recovery in case the task is retried.
  *
+ * When the results don't have to be ordered, rows are returned from whichever partition has some available instead
+ * of reading partitions one after another, so a slow partition doesn't hold back the others. In that mode the offset
+ * is applied here across all partitions, and each partition is only told the limit.
+ *
  * Created by dgomezferro on 5/20/16.
  */
 @ChannelHandler.Sharable
@@ -42,6 +48,7 @@ public class StreamListener<T> extends ChannelInboundHandlerAdapter implements I
     private static final Object RETRY = new Object();
     private final int queueSize;
     private final int batchSize;
+    private final boolean ordered;
     private final UUID uuid;
     private long limit;
     private long offset;
@@ -59,6 +66,14 @@ public class StreamListener<T> extends ChannelInboundHandlerAdapter implements I
     private volatile boolean canBlock = true;
     private volatile boolean stopped = false;
 
+    // Unordered mode: partitions with messages to read, one entry per message received from a partition (entries
+    // can be stale if the message was read along with a previous one)
+    private final BlockingQueue<PartitionState> ready = new LinkedBlockingQueue<>();
+    private final PartitionState wakeUp = new PartitionState(-1, 0);
+    private final Set<Integer> finishedPartitions = new HashSet<>();
+    private PartitionState currentState;
+    private int readFromCurrent;
+
     StreamListener() {
         this(-1, 0);
     }
@@ -68,9 +83,14 @@ public class StreamListener<T> extends ChannelInboundHandlerAdapter implements I
     }
 
     public StreamListener(long limit, long offset, int batches, int batchSize) {
+        this(limit, offset, batches, batchSize, true);
+    }
+
+    public StreamListener(long limit, long offset, int batches, int batchSize, boolean ordered) {
         this.offset = offset;
         this.limit = limit;
         this.batchSize = batchSize;
+        this.ordered = ordered;
         this.queueSize = batches*batchSize;
         // start with this to force a channel advancement
         PartitionState first = new PartitionState(0, 0);
@@ -81,6 +101,11 @@ public class StreamListener<T> extends ChannelInboundHandlerAdapter implements I
     }
 
     public Iterator<T> getIterator() {
+        if (!ordered) {
+            // This will block until some data is available from any partition
+            advanceUnordered();
+            return this;
+        }
         // Initialize first partition
         PartitionState ps = partitionStateMap.putIfAbsent(0, new PartitionState(1, queueSize));
         if (failure != null) {
@@ -111,19 +136,30 @@ public class StreamListener<T> extends ChannelInboundHandlerAdapter implements I
         if (msg instanceof StreamProtocol.RequestClose) {
             // We can't block here, we negotiate throughput with the server to guarantee it
             state.messages.add(SENTINEL);
+            markReady(state);
             // Let server know it can close the connection
             ctx.writeAndFlush(new StreamProtocol.ConfirmClose());
             ctx.close().sync();
         } else if (msg instanceof StreamProtocol.ConfirmClose) {
             ctx.close().sync();
             partitionMap.remove(channel);
+        } else if (msg instanceof StreamProtocol.RowBatch) {
+            // We can't block here, we negotiate throughput with the server to guarantee it
+            state.messages.addAll(((StreamProtocol.RowBatch) msg).rows);
+            markReady(state);
         } else {
             // Data or StreamProtocol.Skipped
             // We can't block here, we negotiate throughput with the server to guarantee it
             state.messages.add(msg);
+            markReady(state);
         }
     }
 
+    private void markReady(PartitionState state) {
+        if (!ordered)
+            ready.add(state);
+    }
+
     @Override
     public boolean hasNext() {
         if (failure != null) {
@@ -137,7 +173,10 @@ public class StreamListener<T> extends ChannelInboundHandlerAdapter implements I
     @Override
     public T next() {
         T result = currentResult;
-        advance();
+        if (ordered)
+            advance();
+        else
+            advanceUnordered();
         if (failure != null) {
             // The remote job failed, raise exception to caller
             Exceptions.throwAsRuntime(Exceptions.parseException(failure));
@@ -242,6 +281,126 @@ public class StreamListener<T> extends ChannelInboundHandlerAdapter implements I
         }
     }
 
+    private void advanceUnordered() {
+        T next = null;
+        try {
+            while (next == null) {
+                if (failure != null || stopped) {
+                    currentResult = null;
+                    return;
+                }
+                PartitionState state = currentState;
+                Object msg = null;
+                if (state != null) {
+                    if (readFromCurrent < batchSize || ready.isEmpty())
+                        msg = state.messages.poll();
+                    else
+                        ready.add(state); // give other partitions a chance, we'll come back to this one
+                }
+                if (msg == null) {
+                    // Move on to another partition with data, blocking until there is one
+                    state = canBlock ? ready.take() : ready.poll();
+                    if (state == null) {
+                        // The olap job completed and there's nothing left to read
+                        currentResult = null;
+                        close();
+                        return;
+                    }
+                    currentState = null;
+                    if (state == wakeUp || state.retryPending || finishedPartitions.contains(state.partition)) {
+                        continue;
+                    }
+                    currentState = state;
+                    readFromCurrent = 0;
+                    continue;
+                }
+                if (msg == FAILURE) {
+                    // The olap job failed, return right away
+                    currentResult = null;
+                    return;
+                }
+                if (!state.initialized && limit > 0) {
+                    // Partitions can't skip the offset since they don't know what the others sent, only the limit
+                    // is pushed down
+                    if (LOG.isTraceEnabled())
+                        LOG.trace("Sending skip " + (limit + offset) + ", 0 to partition " + state.partition);
+                    state.channel.writeAndFlush(new StreamProtocol.Skip(limit + offset, 0));
+                }
+                state.initialized = true;
+                if (msg == RETRY) {
+                    // There was a retried task, skip all records already read from the previous run of the task
+                    PartitionState retried = state.next;
+                    long serverLimit = limit > 0 ? state.readTotal + limit + offset : -1;
+                    retried.skip = state.readTotal;
+                    retried.channel.writeAndFlush(new StreamProtocol.Skip(serverLimit, state.readTotal));
+                    retried.initialized = true;
+                    retried.retryPending = false;
+                    state.messages.clear();
+
+                    // Update maps with the new state/channel, and read whatever it has sent so far
+                    partitionStateMap.put(state.partition, retried);
+                    currentState = retried;
+                    readFromCurrent = 0;
+                    if (LOG.isTraceEnabled()) {
+                        LOG.trace("Retried task, skip " + retried.skip + " serverLimit " + serverLimit + " state " + retried);
+                    }
+                } else if (msg == SENTINEL) {
+                    // This partition is finished
+                    partitionStateMap.remove(state.partition, state);
+                    if (state.channel != null)
+                        partitionMap.remove(state.channel);
+                    currentState = null;
+                    finishedPartitions.add(state.partition);
+                    if (finishedPartitions.size() >= numPartitions) {
+                        if (LOG.isTraceEnabled())
+                            LOG.trace("End of stream");
+                        currentResult = null;
+                        close();
+                        return;
+                    }
+                } else {
+                    if (msg instanceof StreamProtocol.Skipped) {
+                        // Only a retried task skips records, they were read from its previous run
+                        StreamProtocol.Skipped skipped = (StreamProtocol.Skipped) msg;
+                        state.skip -= skipped.skipped;
+                        state.readTotal += skipped.skipped;
+                    } else {
+                        state.consumed++;
+                        state.readTotal++;
+                        readFromCurrent++;
+                        if (state.skip > 0) {
+                            // Already read from the previous run of a retried task
+                            state.skip--;
+                        } else if (offset > 0) {
+                            // We still have to ignore 'offset' messages
+                            offset--;
+                        } else {
+                            // We are returning a message
+                            next = (T) msg;
+                            // Check the limit
+                            if (limit > 0) {
+                                limit--;
+                                if (limit == 0) {
+                                    stopAllStreams();
+                                }
+                            }
+                        }
+                    }
+
+                    if (state.consumed > batchSize) {
+                        if (LOG.isTraceEnabled())
+                            LOG.trace("Writing CONT");
+                        state.channel.writeAndFlush(new StreamProtocol.Continue());
+                        state.consumed -= batchSize;
+                    }
+                }
+            }
+            currentResult = next;
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     private void clearCurrentQueue() {
         PartitionState ps = partitionStateMap.remove(currentQueue);
         if (ps != null && ps.channel != null)
@@ -267,6 +426,11 @@ public class StreamListener<T> extends ChannelInboundHandlerAdapter implements I
         for (Channel channel : partitionMap.keySet()) {
             channel.writeAndFlush(new StreamProtocol.RequestClose());
         }
+        if (!ordered) {
+            ready.add(wakeUp); // in case we are blocked in advanceUnordered()
+            close();
+            return;
+        }
         // create fake queue with finish message so the next call to next() returns null
         currentQueue = (int) numPartitions + 1;
         PartitionState ps = new PartitionState(currentQueue, 0);
@@ -302,11 +466,14 @@ public class StreamListener<T> extends ChannelInboundHandlerAdapter implements I
             LOG.info("Received connection from retried task, current state " + ps);
             PartitionState nextState = new PartitionState(partition, queueSize);
             nextState.channel = channel;
+            // don't read from it before the retry has been handled
+            nextState.retryPending = !ordered;
             ps.next = nextState;
             partitionMap.put(channel, ps.next);
             partitionMap.remove(ps.channel); // don't accept more messages from this channel
             // this is a new connection from a retried task
             ps.messages.add(RETRY);
+            markReady(ps);
         } else {
             partitionMap.put(channel, ps);
             ps.channel = channel;
@@ -382,6 +549,7 @@ public class StreamListener<T> extends ChannelInboundHandlerAdapter implements I
                 state.messages.add(FAILURE);
             }
         }
+        ready.add(wakeUp);
     }
 }
 
@@ -391,7 +559,9 @@ class PartitionState {
     ArrayBlockingQueue<Object> messages;
     long consumed;
     long readTotal;
+    long skip; // records already read from the previous run of a retried task, only used when unordered
     boolean initialized;
+    boolean retryPending;
     volatile PartitionState next = null; // used when a task is retried after a failure
 
     PartitionState(int partition, int queueSize) {
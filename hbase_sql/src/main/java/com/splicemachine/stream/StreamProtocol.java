@@ -15,6 +15,8 @@
 package com.splicemachine.stream;
 
 import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
 
 /**
@@ -146,6 +148,43 @@ public class StreamProtocol implements Serializable {
         }
     }
 
+    /**
+     * A batch of rows, sent as a single message to avoid framing and flushing every row on its own
+     */
+    public static class RowBatch implements Serializable, Externalizable {
+        public List<Object> rows;
+
+        public RowBatch() {}
+
+        public RowBatch(List<Object> rows) {
+            this.rows = rows;
+        }
+
+        @Override
+        public void writeExternal(ObjectOutput out) throws IOException {
+            out.writeInt(rows.size());
+            for (Object row : rows) {
+                out.writeObject(row);
+            }
+        }
+
+        @Override
+        public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+            int size = in.readInt();
+            rows = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                rows.add(in.readObject());
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "RowBatch{" +
+                    "rows=" + rows.size() +
+                    '}';
+        }
+    }
+
     public static class Continue implements Serializable, Externalizable {
         public Continue() {}
         @Override
@@ -84,6 +84,18 @@ public class OlapClientTest {
         Assert.assertEquals(13, result.order);
     }
 
+    @Test
+    public void completionIsPushedTest() throws Exception {
+        // a status check would only notice the job finished on a tick boundary, one second apart
+        int sleep = 1200;
+        long start = System.currentTimeMillis();
+        DumbOlapResult result = olapClient.execute(new DumbDistributedJob(sleep,13));
+        long elapsed = System.currentTimeMillis() - start;
+        Assert.assertNotNull(result);
+        Assert.assertEquals(13, result.order);
+        Assert.assertTrue("Completion took " + elapsed + "ms to reach the client", elapsed < 1800);
+    }
+
     @Test
     public void manyFastJobsTest() throws Exception {
         int sleep = 0;
@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2012 - 2018 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.olap;
+
+import com.splicemachine.derby.iapi.sql.olap.OlapJobPriority;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for the order in which the {@link OlapJobScheduler} starts waiting jobs.
+ */
+public class OlapJobSchedulerTest{
+    private final List<String> started = Collections.synchronizedList(new ArrayList<String>());
+
+    @Test
+    public void higherPriorityClassesStartFirst() throws Exception{
+        OlapJobScheduler scheduler = new OlapJobScheduler(1,0,1,TimeUnit.HOURS);
+        CountDownLatch gate = new CountDownLatch(1);
+        submit(scheduler,"blocker",OlapJobPriority.INTERACTIVE,"a",gate);
+        submit(scheduler,"compaction",OlapJobPriority.COMPACTION,null,null);
+        submit(scheduler,"statistics",OlapJobPriority.STATISTICS,"a",null);
+        submit(scheduler,"query",OlapJobPriority.INTERACTIVE,"b",null);
+        gate.countDown();
+        awaitStarted(4);
+        Assert.assertEquals("Incorrect start order!",Arrays.asList("blocker","query","statistics","compaction"),started);
+    }
+
+    @Test
+    public void ownersShareTheirClass() throws Exception{
+        OlapJobScheduler scheduler = new OlapJobScheduler(2,0,1,TimeUnit.HOURS);
+        CountDownLatch aGate = new CountDownLatch(1);
+        CountDownLatch xGate = new CountDownLatch(1);
+        CountDownLatch bGate = new CountDownLatch(1);
+        submit(scheduler,"a-blocker",OlapJobPriority.INTERACTIVE,"a",aGate);
+        submit(scheduler,"x-blocker",OlapJobPriority.INTERACTIVE,"x",xGate);
+        submit(scheduler,"a1",OlapJobPriority.INTERACTIVE,"a",null);
+        submit(scheduler,"a2",OlapJobPriority.INTERACTIVE,"a",null);
+        submit(scheduler,"b1",OlapJobPriority.INTERACTIVE,"b",bGate);
+        awaitStarted(2);
+        xGate.countDown();
+        awaitStarted(3);
+        Assert.assertEquals("b has no running job, so should go before a's queued jobs","b1",started.get(2));
+        aGate.countDown();
+        bGate.countDown();
+        awaitStarted(5);
+    }
+
+    @Test
+    public void agedJobsStartInArrivalOrder() throws Exception{
+        OlapJobScheduler scheduler = new OlapJobScheduler(1,0,0,TimeUnit.MILLISECONDS);
+        CountDownLatch gate = new CountDownLatch(1);
+        submit(scheduler,"blocker",OlapJobPriority.INTERACTIVE,"a",gate);
+        submit(scheduler,"compaction",OlapJobPriority.COMPACTION,null,null);
+        submit(scheduler,"query",OlapJobPriority.INTERACTIVE,"a",null);
+        gate.countDown();
+        awaitStarted(3);
+        Assert.assertEquals("Incorrect start order!",Arrays.asList("blocker","compaction","query"),started);
+    }
+
+    @Test
+    public void agedJobsMoveUpOneClass() throws Exception{
+        OlapJobScheduler scheduler = new OlapJobScheduler(1,0,1,TimeUnit.SECONDS);
+        CountDownLatch gate = new CountDownLatch(1);
+        submit(scheduler,"blocker",OlapJobPriority.INTERACTIVE,"a",gate);
+        submit(scheduler,"compaction",OlapJobPriority.COMPACTION,null,null);
+        Thread.sleep(1100); //the compaction now competes with statistics, but not with interactive jobs
+        submit(scheduler,"statistics",OlapJobPriority.STATISTICS,"a",null);
+        submit(scheduler,"query",OlapJobPriority.INTERACTIVE,"a",null);
+        gate.countDown();
+        awaitStarted(4);
+        Assert.assertEquals("Incorrect start order!",Arrays.asList("blocker","query","compaction","statistics"),started);
+    }
+
+    @Test
+    public void backgroundJobsLeaveReservedSlotsFree() throws Exception{
+        OlapJobScheduler scheduler = new OlapJobScheduler(2,1,0,TimeUnit.MILLISECONDS);
+        CountDownLatch gate = new CountDownLatch(1);
+        submit(scheduler,"compaction1",OlapJobPriority.COMPACTION,null,gate);
+        submit(scheduler,"compaction2",OlapJobPriority.COMPACTION,null,null);
+        awaitStarted(1);
+        submit(scheduler,"query",OlapJobPriority.INTERACTIVE,"a",null);
+        awaitStarted(2);
+        Assert.assertEquals("Incorrect start order!",Arrays.asList("compaction1","query"),started);
+        gate.countDown();
+        awaitStarted(3);
+        Assert.assertEquals("Incorrect start order!",Arrays.asList("compaction1","query","compaction2"),started);
+    }
+
+    @Test
+    public void cancelledJobsAreNotStarted() throws Exception{
+        OlapJobScheduler scheduler = new OlapJobScheduler(1,0,1,TimeUnit.HOURS);
+        CountDownLatch gate = new CountDownLatch(1);
+        submit(scheduler,"blocker",OlapJobPriority.INTERACTIVE,"a",gate);
+        OlapJobStatus cancelled = submit(scheduler,"cancelled",OlapJobPriority.INTERACTIVE,"a",null);
+        OlapJobStatus query = submit(scheduler,"query",OlapJobPriority.INTERACTIVE,"a",null);
+        Assert.assertEquals("Incorrect queue depth!",1,query.getQueueDepth());
+        cancelled.cancel();
+        gate.countDown();
+        awaitStarted(2);
+        Assert.assertEquals("Incorrect start order!",Arrays.asList("blocker","query"),started);
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private OlapJobStatus submit(OlapJobScheduler scheduler,final String name,OlapJobPriority priority,String owner,
+                                 final CountDownLatch gate){
+        final OlapJobStatus status = new OlapJobStatus(1000,120);
+        Assert.assertTrue("Could not submit "+name,status.markSubmitted());
+        scheduler.submit(priority,owner,status,new Callable<Void>(){
+            @Override
+            public Void call() throws Exception{
+                status.markRunning();
+                started.add(name);
+                if(gate!=null)
+                    gate.await();
+                return null;
+            }
+        });
+        return status;
+    }
+
+    private void awaitStarted(int count) throws InterruptedException{
+        long deadline = System.currentTimeMillis()+10000;
+        while(started.size()<count){
+            Assert.assertTrue("Timed out waiting for "+count+" jobs to start, started "+started,
+                    System.currentTimeMillis()<deadline);
+            Thread.sleep(10);
+        }
+        Thread.sleep(50); //give any job which should not have been started time to show up
+        Assert.assertEquals("Too many jobs started!",count,started.size());
+    }
+}
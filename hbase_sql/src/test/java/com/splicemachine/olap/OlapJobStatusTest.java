@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2012 - 2018 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.olap;
+
+import com.splicemachine.derby.iapi.sql.olap.OlapStatus;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tests for how a subscribed {@link OlapJobStatus} decides that its client has gone away.
+ */
+public class OlapJobStatusTest{
+
+    @Test
+    public void subscribedJobFailsWithoutStatusChecks() throws Exception{
+        OlapJobStatus status = new OlapJobStatus(10,5);
+        Assert.assertTrue("Could not submit",status.markSubmitted());
+        Assert.assertTrue("Could not start",status.markRunning());
+        RecordingListener listener = new RecordingListener();
+        status.subscribe(listener,10);
+
+        //nobody checks on the job, so it is failed no matter how long the subscription stays around
+        long deadline = System.currentTimeMillis()+10000;
+        while(status.currentState()!=OlapStatus.State.FAILED){
+            Assert.assertTrue("Abandoned job was never failed",System.currentTimeMillis()<deadline);
+            Thread.sleep(10);
+        }
+        Assert.assertEquals("Failure was not pushed to the subscriber",OlapStatus.State.FAILED,
+                listener.states.get(listener.states.size()-1));
+        Assert.assertTrue("Finished job should let go of its subscriber",listener.unsubscribed);
+        Assert.assertFalse("Finished job should let go of its subscriber",status.isSubscribed(listener));
+    }
+
+    @Test
+    public void subscribedJobStaysAliveWithInfrequentStatusChecks() throws Exception{
+        OlapJobStatus status = new OlapJobStatus(10,5);
+        Assert.assertTrue("Could not submit",status.markSubmitted());
+        Assert.assertTrue("Could not start",status.markRunning());
+        status.subscribe(new RecordingListener(),10);
+
+        //checks every 100 ms (10 ticks) would time out an unsubscribed job after 5 ticks
+        for(int i=0;i<10;i++){
+            Thread.sleep(100);
+            Assert.assertEquals("Job failed although its client was checking in",OlapStatus.State.RUNNING,status.checkState());
+        }
+    }
+
+    @Test
+    public void cancelledJobLetsGoOfItsSubscriber() throws Exception{
+        OlapJobStatus status = new OlapJobStatus(1000,120);
+        Assert.assertTrue("Could not submit",status.markSubmitted());
+        RecordingListener listener = new RecordingListener();
+        status.subscribe(listener,10);
+        status.cancel();
+        Assert.assertEquals("Cancellation was not pushed to the subscriber",OlapStatus.State.CANCELED,
+                listener.states.get(listener.states.size()-1));
+        Assert.assertTrue("Cancelled job should let go of its subscriber",listener.unsubscribed);
+        Assert.assertFalse("Cancelled job should let go of its subscriber",status.isSubscribed(listener));
+    }
+
+    @Test
+    public void unsubscribedJobExpectsChecksEveryTickAgain() throws Exception{
+        OlapJobStatus status = new OlapJobStatus(10,5);
+        Assert.assertTrue("Could not submit",status.markSubmitted());
+        Assert.assertTrue("Could not start",status.markRunning());
+        RecordingListener listener = new RecordingListener();
+        status.subscribe(listener,100);
+        status.unsubscribe(listener);
+        Assert.assertTrue("Listener was not detached",listener.unsubscribed);
+
+        long deadline = System.currentTimeMillis()+10000;
+        while(status.currentState()!=OlapStatus.State.FAILED){
+            Assert.assertTrue("Job without a subscriber or status checks was never failed",System.currentTimeMillis()<deadline);
+            Thread.sleep(10);
+        }
+        Assert.assertEquals("Detached listener should not be told about the failure",1,listener.states.size());
+    }
+
+    private static class RecordingListener implements OlapJobStatus.Listener{
+        final List<OlapStatus.State> states = Collections.synchronizedList(new ArrayList<OlapStatus.State>());
+        volatile boolean unsubscribed;
+
+        @Override
+        public void stateChanged(OlapJobStatus status){
+            states.add(status.currentState());
+        }
+
+        @Override
+        public void unsubscribed(){
+            unsubscribed = true;
+        }
+    }
+}
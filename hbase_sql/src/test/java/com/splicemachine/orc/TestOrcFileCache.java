@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2012 - 2017 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.orc;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.splicemachine.orc.metadata.CompressionKind;
+import com.splicemachine.orc.metadata.Footer;
+import com.splicemachine.orc.metadata.Metadata;
+import com.splicemachine.orc.metadata.PostScript.HiveWriterVersion;
+import io.airlift.slice.FixedLengthSliceInput;
+import io.airlift.units.DataSize;
+import io.airlift.units.DataSize.Unit;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TestOrcFileCache
+{
+    @Test
+    public void testSmallRangesAreReadOnce()
+            throws Exception
+    {
+        OrcFileCache cache = new OrcFileCache(1024 * 1024);
+        byte[] data = newData(1024);
+        Map<String, DiskRange> ranges = ImmutableMap.of("a", new DiskRange(0, 100), "b", new DiskRange(500, 200));
+
+        CountingOrcDataSource first = new CountingOrcDataSource(data, cache.forFile("file", 1));
+        assertRanges(data, ranges, first.readFully(ranges));
+        assertEquals(2, cache.getStreamMisses());
+        assertTrue(first.getReadCount() > 0);
+
+        CountingOrcDataSource second = new CountingOrcDataSource(data, cache.forFile("file", 1));
+        assertRanges(data, ranges, second.readFully(ranges));
+        assertEquals(2, cache.getStreamHits());
+        assertEquals(0, second.getReadCount());
+    }
+
+    @Test
+    public void testModifiedFileIsReadAgain()
+            throws Exception
+    {
+        OrcFileCache cache = new OrcFileCache(1024 * 1024);
+        byte[] data = newData(1024);
+        Map<String, DiskRange> ranges = ImmutableMap.of("a", new DiskRange(0, 100));
+
+        new CountingOrcDataSource(data, cache.forFile("file", 1)).readFully(ranges);
+        CountingOrcDataSource modified = new CountingOrcDataSource(data, cache.forFile("file", 2));
+        modified.readFully(ranges);
+        assertEquals(0, cache.getStreamHits());
+        assertEquals(1, modified.getReadCount());
+    }
+
+    @Test
+    public void testFileTailIsParsedOnce()
+            throws Exception
+    {
+        OrcFileCache cache = new OrcFileCache(1024 * 1024);
+        OrcFileTail tail = new OrcFileTail(CompressionKind.ZLIB, HiveWriterVersion.ORC_HIVE_8732, 256 * 1024,
+                new Footer(0, 10000, ImmutableList.of(), ImmutableList.of(), ImmutableList.of(), ImmutableMap.of()),
+                new Metadata(ImmutableList.of()),
+                100);
+        AtomicInteger loads = new AtomicInteger();
+
+        for (int i = 0; i < 3; i++) {
+            OrcFileTail cached = cache.forFile("file", 1).getFileTail(1000, () -> {
+                loads.incrementAndGet();
+                return tail;
+            });
+            assertSame(tail, cached);
+        }
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.getFileTailMisses());
+        assertEquals(2, cache.getFileTailHits());
+    }
+
+    @Test
+    public void testStaysWithinBudget()
+            throws Exception
+    {
+        OrcFileCache cache = new OrcFileCache(64 * 1024);
+        byte[] data = newData(1000 * 1000);
+        CountingOrcDataSource dataSource = new CountingOrcDataSource(data, cache.forFile("file", 1));
+        for (int offset = 0; offset < data.length; offset += 1000) {
+            dataSource.readFully(ImmutableMap.of("a", new DiskRange(offset, 1000)));
+            assertTrue("cache grew too large: " + cache.getCurrentBytes(), cache.getCurrentBytes() <= cache.getMaxBytes());
+        }
+        assertTrue(cache.getEvictions() > 0);
+    }
+
+    private static byte[] newData(int size)
+    {
+        byte[] data = new byte[size];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+        return data;
+    }
+
+    private static void assertRanges(byte[] data, Map<String, DiskRange> ranges, Map<String, FixedLengthSliceInput> slices)
+    {
+        assertEquals(ranges.keySet(), slices.keySet());
+        for (Map.Entry<String, DiskRange> entry : ranges.entrySet()) {
+            DiskRange range = entry.getValue();
+            byte[] expected = new byte[range.getLength()];
+            System.arraycopy(data, (int) range.getOffset(), expected, 0, range.getLength());
+            assertArrayEquals(expected, slices.get(entry.getKey()).readSlice(range.getLength()).getBytes());
+        }
+    }
+
+    private static class CountingOrcDataSource
+            extends AbstractOrcDataSource
+    {
+        private final byte[] data;
+        private final OrcFileCache.CachedFile fileCache;
+        private int readCount;
+
+        CountingOrcDataSource(byte[] data, OrcFileCache.CachedFile fileCache)
+        {
+            super("test", data.length, new DataSize(1, Unit.KILOBYTE), new DataSize(8, Unit.KILOBYTE), new DataSize(8, Unit.KILOBYTE));
+            this.data = data;
+            this.fileCache = fileCache;
+        }
+
+        @Override
+        protected void readInternal(long position, byte[] buffer, int bufferOffset, int bufferLength)
+        {
+            readCount++;
+            System.arraycopy(data, (int) position, buffer, bufferOffset, bufferLength);
+        }
+
+        @Override
+        public OrcFileCache.CachedFile getFileCache()
+        {
+            return fileCache;
+        }
+
+        int getReadCount()
+        {
+            return readCount;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2012 - 2017 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.orc.predicate;
+
+import com.splicemachine.db.iapi.store.access.Qualifier;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.db.iapi.types.SQLLongint;
+import com.splicemachine.db.iapi.types.SQLVarchar;
+import com.splicemachine.orc.DictionaryFilter;
+import org.apache.spark.sql.types.DataTypes;
+import org.apache.spark.sql.types.StructField;
+import org.apache.spark.sql.types.StructType;
+import org.junit.Test;
+
+import static com.splicemachine.db.iapi.types.DataType.ORDER_OP_EQUALS;
+import static com.splicemachine.db.iapi.types.DataType.ORDER_OP_LESSTHAN;
+import static io.airlift.slice.Slices.utf8Slice;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class TestDictionaryFilter
+{
+    private static final StructType STRUCT = new StructType(new StructField[]{
+            DataTypes.createStructField("s", DataTypes.StringType, true),
+            DataTypes.createStructField("l", DataTypes.LongType, true),
+            DataTypes.createStructField("d", DataTypes.DoubleType, true)});
+    private static final int[] BASE_COLUMN_MAP = new int[]{0, 1, 2};
+
+    @Test
+    public void testEquality()
+            throws Exception
+    {
+        Qualifier[][] qualifiers = new Qualifier[][]{{qualifier(0, ORDER_OP_EQUALS, new SQLVarchar("b"), false)}};
+        DictionaryFilter filter = new SpliceORCPredicate(qualifiers, BASE_COLUMN_MAP, STRUCT).getDictionaryFilter(0);
+
+        assertNotNull(filter);
+        assertTrue(filter.matches(utf8Slice("b")));
+        assertFalse(filter.matches(utf8Slice("a")));
+        assertFalse(filter.matchesNull());
+    }
+
+    @Test
+    public void testInList()
+            throws Exception
+    {
+        Qualifier[][] qualifiers = new Qualifier[][]{
+                {},
+                {qualifier(1, ORDER_OP_EQUALS, new SQLLongint(1), false), qualifier(1, ORDER_OP_EQUALS, new SQLLongint(3), false)}};
+        DictionaryFilter filter = new SpliceORCPredicate(qualifiers, BASE_COLUMN_MAP, STRUCT).getDictionaryFilter(1);
+
+        assertNotNull(filter);
+        assertTrue(filter.matches(1));
+        assertFalse(filter.matches(2));
+        assertTrue(filter.matches(3));
+    }
+
+    @Test
+    public void testNegatedComparison()
+            throws Exception
+    {
+        // NOT (l < 5)
+        Qualifier[][] qualifiers = new Qualifier[][]{{qualifier(1, ORDER_OP_LESSTHAN, new SQLLongint(5), true)}};
+        DictionaryFilter filter = new SpliceORCPredicate(qualifiers, BASE_COLUMN_MAP, STRUCT).getDictionaryFilter(1);
+
+        assertFalse(filter.matches(4));
+        assertTrue(filter.matches(5));
+    }
+
+    @Test
+    public void testOnlyFiltersQualifiedDictionaryColumns()
+            throws Exception
+    {
+        Qualifier[][] qualifiers = new Qualifier[][]{
+                {qualifier(0, ORDER_OP_EQUALS, new SQLVarchar("b"), false)},
+                // an OR across columns cannot be evaluated against a single column
+                {qualifier(1, ORDER_OP_EQUALS, new SQLLongint(1), false), qualifier(0, ORDER_OP_EQUALS, new SQLVarchar("c"), false)}};
+        SpliceORCPredicate predicate = new SpliceORCPredicate(qualifiers, BASE_COLUMN_MAP, STRUCT);
+
+        assertNull(predicate.getDictionaryFilter(1));
+        assertNull(predicate.getDictionaryFilter(2));
+        assertTrue(predicate.getDictionaryFilter(0).matches(utf8Slice("b")));
+    }
+
+    private static Qualifier qualifier(int column, int operator, DataValueDescriptor orderable, boolean negate)
+            throws Exception
+    {
+        Qualifier qualifier = mock(Qualifier.class);
+        when(qualifier.getStoragePosition()).thenReturn(column);
+        when(qualifier.getOperator()).thenReturn(operator);
+        when(qualifier.getOrderable()).thenReturn(orderable);
+        when(qualifier.negateCompareResult()).thenReturn(negate);
+        when(qualifier.getOrderedNulls()).thenReturn(false);
+        when(qualifier.getUnknownRV()).thenReturn(false);
+        when(qualifier.getVariantType()).thenReturn(Qualifier.CONSTANT);
+        return qualifier;
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2012 - 2017 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.splicemachine.orc.predicate;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.splicemachine.db.iapi.store.access.Qualifier;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.db.iapi.types.SQLLongint;
+import com.splicemachine.orc.metadata.ColumnStatistics;
+import com.splicemachine.orc.metadata.HiveBloomFilter;
+import com.splicemachine.orc.metadata.IntegerStatistics;
+import org.apache.spark.sql.types.DataTypes;
+import org.apache.spark.sql.types.StructField;
+import org.apache.spark.sql.types.StructType;
+import org.junit.Test;
+
+import java.util.Map;
+
+import static com.splicemachine.db.iapi.types.DataType.ORDER_OP_EQUALS;
+import static com.splicemachine.db.iapi.types.DataType.ORDER_OP_LESSTHAN;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class TestStatisticsPruning
+{
+    private static final StructType STRUCT = new StructType(new StructField[]{
+            DataTypes.createStructField("l", DataTypes.LongType, true)});
+    private static final int[] BASE_COLUMN_MAP = new int[]{0};
+    private static final long ROWS = 100;
+
+    @Test
+    public void testBloomFilterRulesOutPointLookup()
+            throws Exception
+    {
+        SpliceORCPredicate predicate = predicate(new Qualifier[][]{{qualifier(ORDER_OP_EQUALS, 50, false)}});
+
+        assertTrue(predicate.matches(ROWS, statistics(0, 100, null)));
+        assertTrue(predicate.matches(ROWS, statistics(0, 100, bloomFilter(-1L))));
+        assertFalse(predicate.matches(ROWS, statistics(0, 100, bloomFilter(0L))));
+        assertFalse(predicate.matches(ROWS, statistics(60, 100, bloomFilter(-1L))));
+    }
+
+    @Test
+    public void testBloomFilterIgnoredForOtherComparisons()
+            throws Exception
+    {
+        assertTrue(predicate(new Qualifier[][]{{qualifier(ORDER_OP_LESSTHAN, 50, false)}})
+                .matches(ROWS, statistics(0, 100, bloomFilter(0L))));
+        // NOT (l = 50)
+        assertTrue(predicate(new Qualifier[][]{{qualifier(ORDER_OP_EQUALS, 50, true)}})
+                .matches(ROWS, statistics(0, 100, bloomFilter(0L))));
+    }
+
+    @Test
+    public void testOrClauses()
+            throws Exception
+    {
+        SpliceORCPredicate outOfRange = predicate(new Qualifier[][]{
+                {},
+                {qualifier(ORDER_OP_EQUALS, 200, false), qualifier(ORDER_OP_EQUALS, 300, false)}});
+        assertFalse(outOfRange.matches(ROWS, statistics(0, 100, null)));
+
+        SpliceORCPredicate oneInRange = predicate(new Qualifier[][]{
+                {},
+                {qualifier(ORDER_OP_EQUALS, 200, false), qualifier(ORDER_OP_EQUALS, 50, false)}});
+        assertTrue(oneInRange.matches(ROWS, statistics(0, 100, null)));
+        assertFalse(oneInRange.matches(ROWS, statistics(0, 100, bloomFilter(0L))));
+    }
+
+    private static SpliceORCPredicate predicate(Qualifier[][] qualifiers)
+    {
+        return new SpliceORCPredicate(qualifiers, BASE_COLUMN_MAP, STRUCT);
+    }
+
+    private static Map<Integer, ColumnStatistics> statistics(long min, long max, HiveBloomFilter bloomFilter)
+    {
+        return ImmutableMap.of(0, new ColumnStatistics(ROWS, null, new IntegerStatistics(min, max), null, null, null, null, bloomFilter));
+    }
+
+    private static HiveBloomFilter bloomFilter(long bits)
+    {
+        return new HiveBloomFilter(ImmutableList.of(bits), 64, 3);
+    }
+
+    private static Qualifier qualifier(int operator, long value, boolean negate)
+            throws Exception
+    {
+        DataValueDescriptor orderable = new SQLLongint(value);
+        Qualifier qualifier = mock(Qualifier.class);
+        when(qualifier.getStoragePosition()).thenReturn(0);
+        when(qualifier.getOperator()).thenReturn(operator);
+        when(qualifier.getOrderable()).thenReturn(orderable);
+        when(qualifier.negateCompareResult()).thenReturn(negate);
+        when(qualifier.getOrderedNulls()).thenReturn(false);
+        when(qualifier.getUnknownRV()).thenReturn(false);
+        when(qualifier.getVariantType()).thenReturn(Qualifier.CONSTANT);
+        return qualifier;
+    }
+}
@@ -37,6 +37,7 @@ import java.util.concurrent.*;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 /**
  * Created by dgomezferro on 6/1/16.
@@ -411,6 +412,146 @@ public class StreamableRDDTest extends BaseStreamTest implements Serializable {
         assertEquals(100000-60000, count);
     }
 
+    @Test
+    public void testUnordered() throws StandardException {
+        StreamListener<ExecRow> sl = new StreamListener<>(-1, 0, 2, 512, false);
+        HostAndPort hostAndPort = server.getHostAndPort();
+        server.register(sl);
+
+        List<Tuple2<ExecRow,ExecRow>> manyRows = new ArrayList<>();
+        for(int i = 0; i < 100000; ++i) {
+            manyRows.add(new Tuple2<ExecRow, ExecRow>(getExecRow(i, 1), getExecRow(i, 2)));
+        }
+
+        JavaPairRDD<ExecRow, ExecRow> rdd = SpliceSpark.getContextUnsafe().parallelizePairs(manyRows, 13);
+        final StreamableRDD srdd = new StreamableRDD(rdd.values(), sl.getUuid(), hostAndPort.getHostText(), hostAndPort.getPort());
+        new Thread() {
+            @Override
+            public void run() {
+                try {
+                    srdd.submit();
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+
+            }
+        }.start();
+        Iterator<ExecRow> it = sl.getIterator();
+        Set<Integer> seen = new HashSet<>();
+        while (it.hasNext()) {
+            ExecRow execRow = it.next();
+            assertNotNull(execRow);
+            assertTrue("Duplicated row", seen.add(execRow.getColumn(1).getInt()));
+        }
+        assertEquals(100000, seen.size());
+    }
+
+    @Test
+    public void testUnorderedFailure() throws StandardException {
+        FailsFunction.reset();
+        StreamListener<ExecRow> sl = new StreamListener<>(-1, 0, 2, 512, false);
+        HostAndPort hostAndPort = server.getHostAndPort();
+        server.register(sl);
+
+        List<Tuple2<ExecRow,ExecRow>> manyRows = new ArrayList<>();
+        for(int i = 0; i < 100000; ++i) {
+            manyRows.add(new Tuple2<ExecRow, ExecRow>(getExecRow(i, 1), getExecRow(i, 2)));
+        }
+
+        JavaPairRDD<ExecRow, ExecRow> rdd = SpliceSpark.getContextUnsafe().parallelizePairs(manyRows, 13).mapToPair(new FailsFunction(14000));
+        final StreamableRDD srdd = new StreamableRDD(rdd.values(), sl.getUuid(), hostAndPort.getHostText(), hostAndPort.getPort());
+        new Thread() {
+            @Override
+            public void run() {
+                try {
+                    srdd.submit();
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+
+            }
+        }.start();
+        Iterator<ExecRow> it = sl.getIterator();
+        Set<Integer> seen = new HashSet<>();
+        while (it.hasNext()) {
+            ExecRow execRow = it.next();
+            assertNotNull(execRow);
+            assertTrue("Duplicated row", seen.add(execRow.getColumn(1).getInt()));
+        }
+        assertEquals(100000, seen.size());
+    }
+
+    @Test
+    public void testUnorderedPersistentFailure() throws StandardException {
+        final StreamListener<ExecRow> sl = new StreamListener<>(-1, 0, 2, 512, false);
+        HostAndPort hostAndPort = server.getHostAndPort();
+        server.register(sl);
+
+        List<Tuple2<ExecRow,ExecRow>> manyRows = new ArrayList<>();
+        for(int i = 0; i < 100000; ++i) {
+            manyRows.add(new Tuple2<ExecRow, ExecRow>(getExecRow(i, 1), getExecRow(i, 2)));
+        }
+
+        JavaPairRDD<ExecRow, ExecRow> rdd = SpliceSpark.getContextUnsafe().parallelizePairs(manyRows, 13).mapToPair(new FailsForeverFunction(14000));
+        final StreamableRDD srdd = new StreamableRDD(rdd.values(), sl.getUuid(), hostAndPort.getHostText(), hostAndPort.getPort());
+        new Thread() {
+            @Override
+            public void run() {
+                try {
+                    srdd.submit();
+                } catch (Exception e) {
+                    sl.failed(e);
+                    throw new RuntimeException(e);
+                }
+
+            }
+        }.start();
+        // Other partitions may have streamed some rows before the job fails, the failure is raised after them
+        Iterator<ExecRow> it = sl.getIterator();
+        try {
+            while (it.hasNext()) {
+                assertNotNull(it.next());
+            }
+            fail("Should have raised exception");
+        } catch (Exception e) {
+            //expected exception
+        }
+    }
+
+    @Test
+    public void testUnorderedOffsetLimit() throws StandardException {
+        StreamListener<ExecRow> sl = new StreamListener<>(400, 30000, 2, 512, false);
+        HostAndPort hostAndPort = server.getHostAndPort();
+        server.register(sl);
+
+        List<Tuple2<ExecRow,ExecRow>> manyRows = new ArrayList<>();
+        for(int i = 0; i < 100000; ++i) {
+            manyRows.add(new Tuple2<ExecRow, ExecRow>(getExecRow(i, 1), getExecRow(i, 2)));
+        }
+
+        JavaPairRDD<ExecRow, ExecRow> rdd = SpliceSpark.getContextUnsafe().parallelizePairs(manyRows, 13);
+        final StreamableRDD srdd = new StreamableRDD(rdd.values(), sl.getUuid(), hostAndPort.getHostText(), hostAndPort.getPort());
+        new Thread() {
+            @Override
+            public void run() {
+                try {
+                    srdd.submit();
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+
+            }
+        }.start();
+        Iterator<ExecRow> it = sl.getIterator();
+        Set<Integer> seen = new HashSet<>();
+        while (it.hasNext()) {
+            ExecRow execRow = it.next();
+            assertNotNull(execRow);
+            assertTrue("Duplicated row", seen.add(execRow.getColumn(1).getInt()));
+        }
+        assertEquals(400, seen.size());
+    }
+
 
     @Test
     public void testConcurrentQueries() throws StandardException, ExecutionException, InterruptedException {
@@ -104,6 +104,7 @@ public class SIObserver extends BaseRegionObserver{
     private TxnOperationFactory txnOperationFactory;
     private OperationStatusFactory operationStatusFactory;
     private TransactionalRegion region;
+    private Partition regionPartition;
     private TableAuthManager authManager = null;
     private boolean authTokenEnabled;
 
@@ -127,13 +128,14 @@ public class SIObserver extends BaseRegionObserver{
                 //noinspection unchecked
                 txnOperationFactory = new SimpleTxnOperationFactory(driver.getExceptionFactory(), HOperationFactory.INSTANCE);
                 //noinspection unchecked
-                Partition regionPartition = new RegionPartition((HRegion) rce.getRegion());
+                regionPartition = new RegionPartition((HRegion) rce.getRegion());
                 region = new TxnRegion(regionPartition,
                         driver.getRollForward(),
                         driver.getReadResolver(regionPartition),
                         driver.getTxnSupplier(),
                         driver.getTransactor(),
-                        driver.getOperationFactory()
+                        driver.getOperationFactory(),
+                        driver.getActiveTxnCache(regionPartition)
                 );
                 Tracer.traceRegion(region.getTableName(), rce.getRegion());
             }
@@ -151,6 +153,9 @@ public class SIObserver extends BaseRegionObserver{
     public void stop(CoprocessorEnvironment e) throws IOException{
         try {
             SpliceLogUtils.trace(LOG,"stopping %s",SIObserver.class);
+            SIDriver driver=SIDriver.driver();
+            if(regionPartition!=null && driver!=null)
+                driver.releaseActiveTxnCache(regionPartition);
             super.stop(e);
         } catch (Throwable t) {
             throw CoprocessorUtils.getIOException(t);
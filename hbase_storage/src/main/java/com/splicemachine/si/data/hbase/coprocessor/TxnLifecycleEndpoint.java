@@ -39,6 +39,7 @@ import com.splicemachine.hbase.ZkUtils;
 import com.splicemachine.si.api.txn.lifecycle.TxnLifecycleStore;
 import com.splicemachine.si.api.txn.lifecycle.TxnPartition;
 import com.splicemachine.si.coprocessor.TxnMessage;
+import com.splicemachine.si.impl.TxnUtils;
 import com.splicemachine.si.impl.data.StripedTxnLifecycleStore;
 import com.splicemachine.si.impl.driver.SIDriver;
 import com.splicemachine.si.impl.region.RegionServerControl;
@@ -58,6 +59,7 @@ public class TxnLifecycleEndpoint extends TxnMessage.TxnLifecycleService impleme
 
     private TxnLifecycleStore lifecycleStore;
     private volatile boolean isTxnTable=false;
+    private HRegion region;
 
     public static final CountedReference<TransactionResolver> resolverRef=new CountedReference<>(new Supplier<TransactionResolver>(){
         @Override
@@ -75,7 +77,7 @@ public class TxnLifecycleEndpoint extends TxnMessage.TxnLifecycleService impleme
     public void start(CoprocessorEnvironment env) throws IOException{
         try {
             RegionCoprocessorEnvironment rce=(RegionCoprocessorEnvironment)env;
-            HRegion region=(HRegion)rce.getRegion();
+            region=(HRegion)rce.getRegion();
             HBaseSIEnvironment siEnv = HBaseSIEnvironment.loadEnvironment(new SystemClock(),ZkUtils.getRecoverableZooKeeper());
             SConfiguration configuration=siEnv.configuration();
             TableType table=EnvUtils.getTableType(configuration,rce);
@@ -194,6 +196,28 @@ public class TxnLifecycleEndpoint extends TxnMessage.TxnLifecycleService impleme
         }
     }
 
+    @Override
+    public void getTransactions(RpcController controller,TxnMessage.TxnBatchRequest request,RpcCallback<TxnMessage.TxnBatchResponse> done){
+        try (RpcUtils.RootEnv env = RpcUtils.getRootEnv()) {
+            TxnMessage.TxnBatchResponse.Builder response=TxnMessage.TxnBatchResponse.newBuilder();
+            int txnCount=request.getTxnIdsCount();
+            for(int i=0;i<txnCount;i++){
+                long txnId=request.getTxnIds(i);
+                /*
+                 * The caller groups ids by bucket, but a bucket may have split since; leave out anything
+                 * that isn't ours, and the caller will look it up on its own
+                 */
+                if(!HRegion.rowIsInRange(region.getRegionInfo(),TxnUtils.getRowKey(txnId))) continue;
+                TxnMessage.Txn transaction=lifecycleStore.getTransaction(txnId);
+                if(transaction!=null)
+                    response.addTxns(transaction);
+            }
+            done.run(response.build());
+        }catch(IOException ioe){
+            ResponseConverter.setControllerException(controller,ioe);
+        }
+    }
+
     @Override
     public void getTaskId(RpcController controller,TxnMessage.TxnRequest request,RpcCallback<TxnMessage.TaskId> done){
         try (RpcUtils.RootEnv env = RpcUtils.getRootEnv()) {
@@ -14,7 +14,9 @@
 
 package com.splicemachine.si.impl;
 
+import com.carrotsearch.hppc.LongArrayList;
 import com.carrotsearch.hppc.LongHashSet;
+import com.carrotsearch.hppc.LongObjectHashMap;
 import com.splicemachine.access.HConfiguration;
 import com.splicemachine.si.api.txn.ActiveTxnTracker;
 import com.splicemachine.si.api.txn.TaskId;
@@ -34,6 +36,7 @@ import com.splicemachine.si.api.txn.Txn;
 import com.splicemachine.si.api.txn.TxnStore;
 import com.splicemachine.si.api.txn.TxnSupplier;
 import com.splicemachine.si.api.txn.TxnView;
+import com.splicemachine.si.constants.SIConstants;
 import com.splicemachine.si.coprocessor.TxnMessage;
 import com.splicemachine.si.impl.txn.InheritingTxnView;
 import com.splicemachine.timestamp.api.TimestampSource;
@@ -292,6 +295,61 @@ public class CoprocessorTxnStore implements TxnStore {
         }
     }
 
+    @Override
+    public TxnView[] getTransactions(long[] txnIds) throws IOException{
+        /*
+         * Group the ids by the transaction table bucket which holds them, so that we make one
+         * call per bucket rather than one per transaction. Old transactions use a different row key,
+         * so those (rare) ones are left to be looked up individually.
+         */
+        LongArrayList[] buckets=new LongArrayList[SIConstants.TRANSACTION_TABLE_BUCKET_COUNT];
+        byte[][] bucketKeys=new byte[SIConstants.TRANSACTION_TABLE_BUCKET_COUNT][];
+        for(long txnId:txnIds){
+            if(txnId<oldTransactions) continue;
+            byte[] rowKey=getTransactionRowKey(txnId);
+            int bucket=rowKey[0]&0xff;
+            if(buckets[bucket]==null){
+                buckets[bucket]=new LongArrayList();
+                bucketKeys[bucket]=rowKey;
+            }
+            buckets[bucket].add(txnId);
+        }
+
+        LongObjectHashMap<TxnView> found=new LongObjectHashMap<>(txnIds.length);
+        try (TxnNetworkLayer table = tableFactory.accessTxnNetwork()) {
+            for(int i=0;i<buckets.length;i++){
+                LongArrayList bucket=buckets[i];
+                if(bucket==null) continue;
+                lookups.incrementAndGet();
+                TxnMessage.TxnBatchRequest.Builder request=TxnMessage.TxnBatchRequest.newBuilder();
+                for(int j=0;j<bucket.size();j++){
+                    request.addTxnIds(bucket.get(j));
+                }
+                TxnMessage.TxnBatchResponse response=table.getTxns(bucketKeys[i],request.build());
+                for(TxnMessage.Txn messageTxn:response.getTxnsList()){
+                    long txnId=messageTxn.getInfo().getTxnId();
+                    found.put(txnId,decode(txnId,messageTxn));
+                }
+            }
+        } catch (IOException e) {
+            throw e;
+        } catch(Throwable throwable){
+            throw new IOException(throwable);
+        }
+
+        /*
+         * Anything which didn't come back (an old transaction, a bucket which has split since we
+         * grouped it, or a missing transaction) goes through the single lookup path, which knows how to
+         * deal with each of those cases
+         */
+        TxnView[] txns=new TxnView[txnIds.length];
+        for(int i=0;i<txnIds.length;i++){
+            TxnView txn=found.get(txnIds[i]);
+            txns[i]=txn!=null?txn:getTransaction(txnIds[i]);
+        }
+        return txns;
+    }
+
     public TxnView getOldTransaction(long txnId, boolean getDestinationTables) throws IOException {
         byte[] rowKey = getOldTransactionRowKey(txnId);
         TxnMessage.TxnRequest request = TxnMessage.TxnRequest.newBuilder().setTxnId(txnId).setIsOld(true).build();
@@ -37,6 +37,8 @@ public interface TxnNetworkLayer extends AutoCloseable{
 
     TxnMessage.Txn getTxn(byte[] rowKey,TxnMessage.TxnRequest request) throws IOException;
 
+    TxnMessage.TxnBatchResponse getTxns(byte[] rowKey,TxnMessage.TxnBatchRequest request) throws IOException;
+
     TxnMessage.TaskId getTaskId(byte[] rowKey,TxnMessage.TxnRequest request) throws IOException;
 
     void close() throws IOException;
@@ -26,16 +26,22 @@ import com.splicemachine.storage.Partition;
 import com.splicemachine.storage.RegionPartition;
 import com.splicemachine.utils.ByteSlice;
 import com.splicemachine.utils.TrafficControl;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.HTableDescriptor;
 import org.apache.hadoop.hbase.NotServingRegionException;
 import org.apache.hadoop.hbase.RegionTooBusyException;
 import org.apache.hadoop.hbase.client.Delete;
 import org.apache.hadoop.hbase.client.Durability;
+import org.apache.hadoop.hbase.client.Mutation;
 import org.apache.hadoop.hbase.client.Put;
 import org.apache.hadoop.hbase.exceptions.ConnectionClosingException;
+import org.apache.hadoop.hbase.regionserver.HBasePlatformUtils;
+import org.apache.hadoop.hbase.regionserver.HRegion;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.log4j.Logger;
 
 import java.io.IOException;
+import java.util.Arrays;
 
 /**
  * Read-Resolver which resolves elements synchronously on the calling thread.
@@ -134,18 +140,11 @@ public class SynchronousReadResolver implements KeyedReadResolver{
         if(DISABLED_ROLLFORWARD || region.isClosed() || region.isClosing())
             return; //do nothing if we are closing or rollforward is disabled
 
-        Put put=new Put(rowKey.getByteCopy());
-        put.addColumn(SIConstants.DEFAULT_FAMILY_BYTES,
-                SIConstants.SNAPSHOT_ISOLATION_COMMIT_TIMESTAMP_COLUMN_BYTES,txnId,
-                Bytes.toBytes(commitTimestamp));
-        put.setAttribute(SIConstants.SI_EXEMPT,SIConstants.TRUE_BYTES);
-        put.setAttribute(SIConstants.SUPPRESS_INDEXING_ATTRIBUTE_NAME,SIConstants.SUPPRESS_INDEXING_ATTRIBUTE_VALUE);
-        put.setDurability(Durability.SKIP_WAL);
+        Put put=committedPut(rowKey.getByteCopy(),txnId,commitTimestamp);
         try{
             ((RegionPartition)region).unwrapDelegate().put(put);
         }catch(IOException e){
-            if(!(e instanceof RegionTooBusyException) && !(e instanceof NotServingRegionException)
-                    &&  !(e instanceof ConnectionClosingException)){
+            if(!isIgnorable(e)){
                 LOG.info("Exception encountered when attempting to resolve a row as committed",e);
                 if(failOnError)
                     throw new RuntimeException(e);
@@ -163,12 +162,7 @@ public class SynchronousReadResolver implements KeyedReadResolver{
         if(DISABLED_ROLLFORWARD || region.isClosed() || region.isClosing())
             return; //do nothing if we are closing
 
-        Delete delete=new Delete(rowKey.getByteCopy(),txnId)
-                .addColumn(SIConstants.DEFAULT_FAMILY_BYTES,SIConstants.PACKED_COLUMN_BYTES,txnId) //delete all the columns for our family only
-                .addColumn(SIConstants.DEFAULT_FAMILY_BYTES,SIConstants.SNAPSHOT_ISOLATION_TOMBSTONE_COLUMN_BYTES,txnId) //delete all the columns for our family only
-                .addColumn(SIConstants.DEFAULT_FAMILY_BYTES,SIConstants.SNAPSHOT_ISOLATION_ANTI_TOMBSTONE_VALUE_BYTES,txnId); //delete all the columns for our family only
-        delete.setDurability(Durability.SKIP_WAL);
-        delete.setAttribute(SIConstants.SUPPRESS_INDEXING_ATTRIBUTE_NAME,SIConstants.SUPPRESS_INDEXING_ATTRIBUTE_VALUE);
+        Delete delete=rolledBackDelete(rowKey.getByteCopy(),txnId);
         try{
             ((RegionPartition)region).unwrapDelegate().delete(delete);
         }catch(IOException ioe){
@@ -177,4 +171,110 @@ public class SynchronousReadResolver implements KeyedReadResolver{
                 throw new RuntimeException(ioe);
         }
     }
+
+    @Override
+    public int resolveAll(Partition region,byte[][] rowKeys,long[] txnIds,int size,
+                          TxnSupplier supplier,RollForwardStatus status,boolean failOnError,TrafficControl trafficControl){
+        assert region instanceof RegionPartition: "Not on a region!";
+        if(size<=0 || DISABLED_ROLLFORWARD || region.isClosed() || region.isClosing())
+            return 0; //do nothing if we are closing or rollforward is disabled
+
+        TxnView[] transactions;
+        try{
+            transactions=supplier.getTransactions(Arrays.copyOf(txnIds,size));
+        }catch(IOException e){
+            LOG.info("Unable to fetch transactions, will not resolve",e);
+            if(failOnError)
+                throw new RuntimeException(e);
+            return 0;
+        }
+
+        Mutation[] mutations=new Mutation[size];
+        int count=0;
+        for(int i=0;i<size;i++){
+            TxnView transaction=transactions[i];
+            status.rowResolved();
+            if(transaction==null) continue;
+            if(transaction.getEffectiveState()==Txn.State.ROLLEDBACK){
+                mutations[count++]=rolledBackDelete(rowKeys[i],txnIds[i]);
+            }else{
+                TxnView t=transaction;
+                while(t.getState()==Txn.State.COMMITTED){
+                    t=t.getParentTxnView();
+                }
+                if(t==Txn.ROOT_TRANSACTION)
+                    mutations[count++]=committedPut(rowKeys[i],txnIds[i],transaction.getEffectiveCommitTimestamp());
+            }
+        }
+        if(count==0) return 0;
+        if(count<size)
+            mutations=Arrays.copyOf(mutations,count);
+
+        try{
+            trafficControl.acquire(count);
+            try{
+                ((RegionPartition)region).unwrapDelegate().batchMutate(mutations);
+            }finally{
+                trafficControl.release(count);
+            }
+            return count;
+        }catch(IOException e){
+            if(!isIgnorable(e)){
+                LOG.info("Exception encountered when attempting to resolve rows",e);
+                if(failOnError)
+                    throw new RuntimeException(e);
+            }
+            return 0;
+        }catch(InterruptedException e){
+            LOG.debug("Interrupted which performing read resolution, will not resolve");
+            Thread.currentThread().interrupt();
+            return 0;
+        }
+    }
+
+    @Override
+    public double writePressure(Partition region){
+        assert region instanceof RegionPartition: "Not on a region!";
+        HRegion r=((RegionPartition)region).unwrapDelegate();
+        /*
+         * The region blocks updates once its memstore reaches the flush size times the block multiplier,
+         * so we measure how close we are to that point
+         */
+        long flushSize=r.getTableDesc().getMemStoreFlushSize();
+        if(flushSize<=0)
+            flushSize=r.getBaseConf().getLong(HConstants.HREGION_MEMSTORE_FLUSH_SIZE,HTableDescriptor.DEFAULT_MEMSTORE_FLUSH_SIZE);
+        long blockingSize=flushSize*r.getBaseConf().getLong("hbase.hregion.memstore.block.multiplier",4);
+        if(blockingSize<=0) return 0d;
+        double pressure=(double)HBasePlatformUtils.getMemstoreSize(r)/blockingSize;
+        return Math.max(0d,Math.min(1d,pressure));
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private static Put committedPut(byte[] rowKey,long txnId,long commitTimestamp){
+        Put put=new Put(rowKey);
+        put.addColumn(SIConstants.DEFAULT_FAMILY_BYTES,
+                SIConstants.SNAPSHOT_ISOLATION_COMMIT_TIMESTAMP_COLUMN_BYTES,txnId,
+                Bytes.toBytes(commitTimestamp));
+        put.setAttribute(SIConstants.SI_EXEMPT,SIConstants.TRUE_BYTES);
+        put.setAttribute(SIConstants.SUPPRESS_INDEXING_ATTRIBUTE_NAME,SIConstants.SUPPRESS_INDEXING_ATTRIBUTE_VALUE);
+        put.setDurability(Durability.SKIP_WAL);
+        return put;
+    }
+
+    private static Delete rolledBackDelete(byte[] rowKey,long txnId){
+        Delete delete=new Delete(rowKey,txnId)
+                .addColumn(SIConstants.DEFAULT_FAMILY_BYTES,SIConstants.PACKED_COLUMN_BYTES,txnId) //delete all the columns for our family only
+                .addColumn(SIConstants.DEFAULT_FAMILY_BYTES,SIConstants.SNAPSHOT_ISOLATION_TOMBSTONE_COLUMN_BYTES,txnId) //delete all the columns for our family only
+                .addColumn(SIConstants.DEFAULT_FAMILY_BYTES,SIConstants.SNAPSHOT_ISOLATION_ANTI_TOMBSTONE_VALUE_BYTES,txnId); //delete all the columns for our family only
+        delete.setDurability(Durability.SKIP_WAL);
+        delete.setAttribute(SIConstants.SUPPRESS_INDEXING_ATTRIBUTE_NAME,SIConstants.SUPPRESS_INDEXING_ATTRIBUTE_VALUE);
+        return delete;
+    }
+
+    private static boolean isIgnorable(IOException e){
+        return e instanceof RegionTooBusyException
+                || e instanceof NotServingRegionException
+                || e instanceof ConnectionClosingException;
+    }
 }
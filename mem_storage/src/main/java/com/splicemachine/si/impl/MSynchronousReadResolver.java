@@ -117,6 +117,23 @@ public class MSynchronousReadResolver implements KeyedReadResolver{
         }
     }
 
+    @Override
+    public int resolveAll(Partition region,byte[][] rowKeys,long[] txnIds,int size,
+                          TxnSupplier supplier,RollForwardStatus status,boolean failOnError,TrafficControl trafficControl){
+        int count=0;
+        for(int i=0;i<size;i++){
+            if(resolve(region,ByteSlice.wrap(rowKeys[i]),txnIds[i],supplier,status,failOnError,trafficControl))
+                count++;
+        }
+        return count;
+    }
+
+    @Override
+    public double writePressure(Partition region){
+        //the in-memory store never blocks writes
+        return 0d;
+    }
+
     /******************************************************************************************************************/
     /*private helper methods */
     private void resolveCommitted(Partition region,ByteSlice rowKey,long txnId,long commitTimestamp,boolean failOnError){
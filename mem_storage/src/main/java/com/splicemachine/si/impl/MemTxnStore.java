@@ -102,6 +102,16 @@ public class MemTxnStore implements TxnStore{
     }
 
 
+    @Override
+    public TxnView[] getTransactions(long[] txnIds) throws IOException{
+        //everything is local, so there is nothing to gain by batching
+        TxnView[] txns=new TxnView[txnIds.length];
+        for(int i=0;i<txnIds.length;i++){
+            txns[i]=getTransaction(txnIds[i]);
+        }
+        return txns;
+    }
+
     @Override
     public boolean transactionCached(long txnId){
         return false;
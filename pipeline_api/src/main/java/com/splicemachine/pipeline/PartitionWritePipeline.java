@@ -74,6 +74,10 @@ public class PartitionWritePipeline{
         return rce;
     }
 
+    public String getTableName(){
+        return region.getTableName();
+    }
+
     public void close(){
         ctxFactory.close();
         txnRegion.close();
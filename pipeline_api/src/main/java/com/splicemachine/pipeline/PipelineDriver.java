@@ -26,6 +26,7 @@ import java.util.concurrent.atomic.AtomicBoolean;
 
 import com.splicemachine.access.api.PartitionFactory;
 import com.splicemachine.access.api.SConfiguration;
+import com.splicemachine.access.configuration.PipelineConfiguration;
 import com.splicemachine.concurrent.Clock;
 import com.splicemachine.pipeline.api.BulkWriterFactory;
 import com.splicemachine.pipeline.api.PipelineExceptionFactory;
@@ -35,9 +36,11 @@ import com.splicemachine.pipeline.client.WriteCoordinator;
 import com.splicemachine.pipeline.contextfactory.ContextFactoryDriver;
 import com.splicemachine.pipeline.contextfactory.ContextFactoryLoader;
 import com.splicemachine.pipeline.security.AclChecker;
+import com.splicemachine.pipeline.telemetry.PipelineTelemetry;
 import com.splicemachine.pipeline.traffic.AtomicSpliceWriteControl;
 import com.splicemachine.pipeline.traffic.SpliceWriteControl;
 import com.splicemachine.pipeline.traffic.SynchronousWriteControl;
+import com.splicemachine.pipeline.traffic.WriteAdmissionControl;
 import com.splicemachine.pipeline.utils.PipelineCompressor;
 
 /**
@@ -49,11 +52,13 @@ public class PipelineDriver{
     private static volatile PipelineDriver INSTANCE;
 
     private final SpliceWriteControl writeControl;
+    private final WriteAdmissionControl admissionControl;
     private final WritePipelineFactory writePipelineFactory;
     private final PipelineMeter pipelineMeter;
     private final PipelineWriter pipelineWriter;
     private final PipelineCompressor compressor;
     private final ActiveWriteHandlers handlerMeter = new ActiveWriteHandlers();
+    private final PipelineTelemetry telemetry = new PipelineTelemetry();
     private final WriteCoordinator writeCoordinator;
     private final PipelineExceptionFactory pef;
     private final ContextFactoryDriver ctxFactoryDriver;
@@ -94,11 +99,15 @@ public class PipelineDriver{
                 config.getMaxIndependentWriteThreads(),
                 config.getMaxIndependentWrites(),
                 config.getMaxDependentWrites());
-        this.pipelineWriter = new PipelineWriter(pef, writePipelineFactory,writeControl,pipelineMeter);
+        this.admissionControl = new WriteAdmissionControl(writeControl,
+                config.getWriteAdmissionMaxWait(),
+                config.getWriteAdmissionTargetLatency(),
+                config.getClientPause());
+        this.pipelineWriter = new PipelineWriter(pef, writePipelineFactory,admissionControl,pipelineMeter,telemetry);
         channelFactory.setWriter(pipelineWriter);
         channelFactory.setPipeline(writePipelineFactory);
         try{
-            this.writeCoordinator=WriteCoordinator.create(config,channelFactory,pef,partitionFactory,clock);
+            this.writeCoordinator=WriteCoordinator.create(config,channelFactory,pef,partitionFactory,clock,telemetry);
             pipelineWriter.setWriteCoordinator(writeCoordinator);
         }catch(IOException e){
             throw new RuntimeException(e);
@@ -117,6 +126,10 @@ public class PipelineDriver{
         return pipelineMeter;
     }
 
+    public PipelineTelemetry telemetry(){
+        return telemetry;
+    }
+
     public WriteCoordinator writeCoordinator(){
         return writeCoordinator;
     }
@@ -133,6 +146,7 @@ public class PipelineDriver{
         if(jmxRegistered.compareAndSet(false,true)){
             ObjectName coordinatorName=new ObjectName("com.splicemachine.derby.hbase:type=ActiveWriteHandlers");
             mbs.registerMBean(handlerMeter,coordinatorName);
+            mbs.registerMBean(telemetry,new ObjectName(PipelineConfiguration.PIPELINE_TELEMETRY_LOCATION));
         }
     }
 
@@ -142,6 +156,7 @@ public class PipelineDriver{
 
     public void deregisterPipeline(String partitionName){
         writePipelineFactory.deregisterPipeline(partitionName);
+        telemetry.removeRegion(partitionName);
     }
 
     @MXBean
@@ -165,6 +180,8 @@ public class PipelineDriver{
         double get5MThroughput();
         double get15MThroughput();
         long getTotalRejected();
+        int getWaitingWrites();
+        double getAverageWriteLatency();
     }
 
 
@@ -182,6 +199,8 @@ public class PipelineDriver{
         @Override public double get5MThroughput(){ return pipelineMeter.fiveMThroughput(); }
         @Override public double get15MThroughput(){ return pipelineMeter.fifteenMThroughput(); }
         @Override public long getTotalRejected(){ return pipelineMeter.rejectedCount(); }
+        @Override public int getWaitingWrites(){ return admissionControl.getWaitingWrites(); }
+        @Override public double getAverageWriteLatency(){ return admissionControl.getAverageLatency(); }
 
         @Override
         public void setMaxIndependentWriteThreads(int newMaxIndependentWriteThreads){
@@ -195,12 +214,12 @@ public class PipelineDriver{
 
         @Override
         public void setMaxIndependentWriteCount(int newMaxIndependentWriteCount){
-            writeControl.setMaxIndependentWriteCount(newMaxIndependentWriteCount);
+            admissionControl.setMaxIndependentWriteCount(newMaxIndependentWriteCount);
         }
 
         @Override
         public void setMaxDependentWriteCount(int newMaxDependentWriteCount){
-            writeControl.setMaxDependentWriteCount(newMaxDependentWriteCount);
+            admissionControl.setMaxDependentWriteCount(newMaxDependentWriteCount);
         }
 
         @Override
@@ -23,7 +23,10 @@ import com.splicemachine.pipeline.api.PipelineMeter;
 import com.splicemachine.pipeline.api.WritePipelineFactory;
 import com.splicemachine.pipeline.client.*;
 import com.splicemachine.pipeline.exception.IndexNotSetUpException;
+import com.splicemachine.pipeline.telemetry.PipelineTelemetry;
+import com.splicemachine.pipeline.telemetry.WriteTelemetry;
 import com.splicemachine.pipeline.traffic.SpliceWriteControl;
+import com.splicemachine.pipeline.traffic.WriteAdmissionControl;
 import com.splicemachine.pipeline.writehandler.SharedCallBufferFactory;
 import com.splicemachine.utils.Pair;
 import org.apache.log4j.Logger;
@@ -42,22 +45,33 @@ import java.util.concurrent.atomic.AtomicLong;
 @ThreadSafe
 public class PipelineWriter{
     private static final Logger LOG =Logger.getLogger(PipelineWriter.class);
-    private final SpliceWriteControl writeControl;
+    private final WriteAdmissionControl admissionControl;
     private final AtomicLong rejectedCount = new AtomicLong(0l);
 
     private volatile WriteCoordinator writeCoordinator;
     private final PipelineExceptionFactory exceptionFactory;
     private final WritePipelineFactory writePipelineFactory;
     private final PipelineMeter pipelineMeter;
+    private final PipelineTelemetry telemetry;
 
     public PipelineWriter(PipelineExceptionFactory pipelineExceptionFactory,
                           WritePipelineFactory writePipelineFactory,
                           SpliceWriteControl writeControl,
                           PipelineMeter pipelineMeter){
-        this.writeControl = writeControl;
+        //reject writes as soon as the pipeline is full, with fixed limits
+        this(pipelineExceptionFactory,writePipelineFactory,new WriteAdmissionControl(writeControl,0l,0l,1l),pipelineMeter,new PipelineTelemetry());
+    }
+
+    public PipelineWriter(PipelineExceptionFactory pipelineExceptionFactory,
+                          WritePipelineFactory writePipelineFactory,
+                          WriteAdmissionControl admissionControl,
+                          PipelineMeter pipelineMeter,
+                          PipelineTelemetry telemetry){
+        this.admissionControl = admissionControl;
         this.exceptionFactory = pipelineExceptionFactory;
         this.writePipelineFactory = writePipelineFactory;
         this.pipelineMeter = pipelineMeter;
+        this.telemetry = telemetry;
     }
 
 
@@ -107,7 +121,12 @@ public class PipelineWriter{
         int numKVPairs = bulkWrites.numEntries();  // KVPairs are just Splice mutations.  You can think of this count as rows modified (written to).
         // Get the "permit" to write.  WriteControl does not perform the writes.  It just controls whether or not the write is allowed to proceed.
 
-        status = (dependent) ? writeControl.performDependentWrite(numKVPairs) : writeControl.performIndependentWrite(numKVPairs);
+        try{
+            status = admissionControl.performWrite(dependent,numKVPairs,bulkWrites.getTxn());
+        }catch(InterruptedException ie){
+            Thread.currentThread().interrupt();
+            throw new IOException(ie);
+        }
         if (status.equals(SpliceWriteControl.Status.REJECTED)) {
             if(LOG.isTraceEnabled())
                 LOG.trace("Rejecting "+numBulkWrites+" rows in "+ bws.size()+"writes because the pipeline is too busy");
@@ -115,6 +134,7 @@ public class PipelineWriter{
             rejectedCount.addAndGet(numBulkWrites);
             return new BulkWritesResult(result);
         }
+        long start = System.nanoTime();
         try {
             if (conglomId != -1) {
                 // We have to check privileges
@@ -125,31 +145,28 @@ public class PipelineWriter{
         } catch (StandardException e) {
             throw new IOException(e);
         } finally {
-            switch (status) {
-                case REJECTED:
-                    break;
-                case DEPENDENT:
-                    writeControl.finishDependentWrite(numKVPairs);
-                    break;
-                case INDEPENDENT:
-                    writeControl.finishIndependentWrite(numKVPairs);
-                    break;
-            }
+            admissionControl.finishWrite(status,numKVPairs,System.nanoTime()-start);
         }
     }
 
     protected BulkWritesResult performWrite(@Nonnull BulkWrites bulkWrites,Collection<BulkWrite> bws,List<BulkWriteResult> result,SharedCallBufferFactory indexWriteBufferFactory) throws IOException{
-        // Add the writes to the writePairMap, which helps link the BulkWrites to their result and write pipeline objects.
-        Map<BulkWrite, Pair<BulkWriteResult, PartitionWritePipeline>> writePairMap = getBulkWritePairMap(bws);
+        // The writePairMap helps link the BulkWrites to their result and write pipeline objects.
+        Map<BulkWrite, Pair<BulkWriteResult, PartitionWritePipeline>> writePairMap = new IdentityHashMap<>();
+
+        // The time spent on each BulkWrite, in iteration order
+        long[] writeTimes = new long[bws.size()];
+        int i = 0;
 
         //
-        // Submit the bulk writes for which we found a PartitionWritePipeline.
+        // Submit the bulk writes for which we found a PartitionWritePipeline. We submit each one as soon as
+        // we reach it, so that a region's writes are under way before we decode the writes for the next one.
         //
-        for (Map.Entry<BulkWrite, Pair<BulkWriteResult, PartitionWritePipeline>> entry : writePairMap.entrySet()) {
-            Pair<BulkWriteResult, PartitionWritePipeline> pair = entry.getValue();
+        for (BulkWrite bulkWrite : bws) {
+            long start = System.nanoTime();
+            Pair<BulkWriteResult, PartitionWritePipeline> pair = newWritePair(bulkWrite);
+            writePairMap.put(bulkWrite, pair);
             PartitionWritePipeline writePipeline = pair.getSecond();
             if (writePipeline != null) {
-                BulkWrite bulkWrite = entry.getKey();
                 BulkWriteResult submitResult = writePipeline.submitBulkWrite(bulkWrites.getTxn(), bulkWrites.getToken(), bulkWrite,indexWriteBufferFactory, writePipeline.getRegionCoprocessorEnvironment());
                 if(LOG.isTraceEnabled()){
                     LOG.trace("Submission of "+bulkWrite.getSize()+" rows to region "+ bulkWrite.getEncodedStringName()+" has submission result "+ submitResult.getGlobalResult());
@@ -162,16 +179,20 @@ public class PipelineWriter{
                 }
                 pair.setFirst(submitResult);
             }
+            writeTimes[i++] = System.nanoTime()-start;
         }
+        // all of the index (and other routed) writes have been buffered by now
+        int indexFanOut = indexWriteBufferFactory.numDestinations();
 
         //
         // Same iteration, now calling finishWrite() for each BulkWrite
         //
-        for (Map.Entry<BulkWrite, Pair<BulkWriteResult, PartitionWritePipeline>> entry : writePairMap.entrySet()) {
-            Pair<BulkWriteResult, PartitionWritePipeline> pair = entry.getValue();
+        i = 0;
+        for (BulkWrite bulkWrite : bws) {
+            Pair<BulkWriteResult, PartitionWritePipeline> pair = writePairMap.get(bulkWrite);
             PartitionWritePipeline writePipeline = pair.getSecond();
             if (writePipeline != null) {
-                BulkWrite bulkWrite = entry.getKey();
+                long start = System.nanoTime();
                 BulkWriteResult writeResult = pair.getFirst();
                 BulkWriteResult finishResult = writePipeline.finishWrite(writeResult, bulkWrite);
                 if(LOG.isTraceEnabled()){
@@ -185,7 +206,9 @@ public class PipelineWriter{
                 }
                 pair.setFirst(finishResult);
                 pipelineMeter.mark(bulkWrite.getSize()-finishResult.getFailedRows().size(),finishResult.getFailedRows().size());
+                recordWrite(writePipeline,bulkWrite,finishResult,writeTimes[i]+System.nanoTime()-start,indexFanOut);
             }
+            i++;
         }
 
             /*
@@ -231,7 +254,10 @@ public class PipelineWriter{
                     result.add(new BulkWriteResult(WriteResult.notServingRegion(msg)));
                     break;
                 case PIPELINE_TOO_BUSY:
-                    result.add(new BulkWriteResult(WriteResult.pipelineTooBusy(write.getEncodedStringName())));
+                    PartitionWritePipeline writePipeline = writePipelineFactory.getPipeline(write.getEncodedStringName());
+                    if(writePipeline!=null)
+                        telemetry.server(writePipeline.getTableName(),write.getEncodedStringName()).recordRejected(write.getSize());
+                    result.add(new BulkWriteResult(WriteResult.pipelineTooBusy(write.getEncodedStringName(),admissionControl.suggestedBackoff())));
                     break;
                 case INDEX_NOT_SETUP_EXCEPTION:
                     if(LOG.isTraceEnabled())
@@ -245,27 +271,37 @@ public class PipelineWriter{
         }
     }
 
+    private void recordWrite(PartitionWritePipeline writePipeline,BulkWrite bulkWrite,BulkWriteResult writeResult,long latencyNanos,int indexFanOut){
+        WriteTelemetry regionTelemetry = telemetry.server(writePipeline.getTableName(),bulkWrite.getEncodedStringName());
+        WriteResult globalResult = writeResult.getGlobalResult();
+        if(globalResult!=null && globalResult.getCode()==Code.REGION_TOO_BUSY){
+            regionTelemetry.recordRejected(bulkWrite.getSize());
+            return;
+        }
+        regionTelemetry.recordWrite(bulkWrite.getSize(),latencyNanos);
+        regionTelemetry.recordIndexFanOut(indexFanOut);
+        int failed = writeResult.getFailedRows().size();
+        if(failed>0)
+            regionTelemetry.recordPartialFailure(failed);
+    }
+
     /**
-     * Just builds this map:  BulkWrite -> (BulkWriteResult, PartitionWritePipeline) where the PartitionWritePipeline may
+     * Just builds this pair:  (BulkWriteResult, PartitionWritePipeline) where the PartitionWritePipeline may
      * be null for some BulkWrites.
      */
-    private Map<BulkWrite, Pair<BulkWriteResult, PartitionWritePipeline>> getBulkWritePairMap(Collection<BulkWrite> buffer) {
-        Map<BulkWrite, Pair<BulkWriteResult, PartitionWritePipeline>> writePairMap = new IdentityHashMap<>();
-        for(BulkWrite bw:buffer){
-            PartitionWritePipeline writePipeline = writePipelineFactory.getPipeline(bw.getEncodedStringName());
-            BulkWriteResult writeResult;
-            if (writePipeline != null) {
-                //we might be able to write this one
-                writeResult = new BulkWriteResult();
-            } else {
-                if(LOG.isTraceEnabled())
-                    LOG.trace("Rejecting "+bw.getSize()+" rows because region "+ bw.getEncodedStringName()+" is not being served");
-                writeResult = new BulkWriteResult(WriteResult.notServingRegion());
-                pipelineMeter.rejected(bw.getSize());
-            }
-            writePairMap.put(bw, Pair.newPair(writeResult, writePipeline));
+    private Pair<BulkWriteResult, PartitionWritePipeline> newWritePair(BulkWrite bw) {
+        PartitionWritePipeline writePipeline = writePipelineFactory.getPipeline(bw.getEncodedStringName());
+        BulkWriteResult writeResult;
+        if (writePipeline != null) {
+            //we might be able to write this one
+            writeResult = new BulkWriteResult();
+        } else {
+            if(LOG.isTraceEnabled())
+                LOG.trace("Rejecting "+bw.getSize()+" rows because region "+ bw.getEncodedStringName()+" is not being served");
+            writeResult = new BulkWriteResult(WriteResult.notServingRegion());
+            pipelineMeter.rejected(bw.getSize());
         }
-        return writePairMap;
+        return Pair.newPair(writeResult, writePipeline);
     }
 
     private int[] typesToPrivileges(Set<KVPair.Type> types) {
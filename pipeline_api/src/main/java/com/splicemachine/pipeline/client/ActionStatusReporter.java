@@ -14,6 +14,8 @@
 
 package com.splicemachine.pipeline.client;
 
+import com.splicemachine.pipeline.telemetry.PipelineTelemetry;
+
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -42,6 +44,16 @@ public class ActionStatusReporter{
     public final AtomicLong maxFlushRegions = new AtomicLong(0l);
     public final AtomicLong minFlushRegions = new AtomicLong(0l);
 
+    public final PipelineTelemetry telemetry;
+
+    public ActionStatusReporter(){
+        this(new PipelineTelemetry());
+    }
+
+    public ActionStatusReporter(PipelineTelemetry telemetry){
+        this.telemetry = telemetry;
+    }
+
     public void reset(){
         totalFlushesSubmitted.set(0);
         failedBufferFlushes.set(0);
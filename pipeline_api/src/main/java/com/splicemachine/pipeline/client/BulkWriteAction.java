@@ -25,6 +25,7 @@ import com.splicemachine.metrics.Metrics;
 import com.splicemachine.metrics.Timer;
 import com.splicemachine.pipeline.api.*;
 import com.splicemachine.pipeline.callbuffer.PipingCallBuffer;
+import com.splicemachine.pipeline.telemetry.WriteTelemetry;
 import com.splicemachine.pipeline.utils.PipelineUtils;
 import com.splicemachine.pipeline.config.WriteConfiguration;
 import com.splicemachine.primitives.Bytes;
@@ -226,7 +227,7 @@ public class BulkWriteAction implements Callable<WriteStats>{
              * simply because we were told to wait a bit by the write pipeline (i.e. we were rejected).
              */
             if(ctx.shouldSleep()){
-                clock.sleep(PipelineUtils.getPauseTime(ctx.attemptCount,10),TimeUnit.MILLISECONDS);
+                clock.sleep(ctx.pauseTime(),TimeUnit.MILLISECONDS);
             }if(ctx.directRetry)
                 writesToPerform.add(nextWrite);
             else if(ctx.nextWriteSet!=null && !ctx.nextWriteSet.isEmpty()){
@@ -251,10 +252,14 @@ public class BulkWriteAction implements Callable<WriteStats>{
 
         //used to indicate that the exception was thrown inside the try{} block explicitly, and should just be re-thrown
         boolean thrown = false;
+        WriteTelemetry telemetry=statusReporter.telemetry.client(Bytes.toString(tableName),
+                nextWrite.getServer()==null?"unknown":nextWrite.getServer());
         try{
             BulkWriter writer=writerFactory.newWriter(tableName);
             writeTimer.startTiming();
+            long start=System.nanoTime();
             BulkWritesResult bulkWritesResult=writer.write(nextWrite,ctx.refreshCache);
+            telemetry.recordWrite(nextWrite.numEntries(),System.nanoTime()-start);
             writeTimer.stopTiming();
             Iterator<BulkWrite> bws=nextWrite.getBulkWrites().iterator();
             Collection<BulkWriteResult> results=bulkWritesResult.getBulkWriteResults();
@@ -271,6 +276,10 @@ public class BulkWriteAction implements Callable<WriteStats>{
                         throw parseIntoException(bulkWriteResult);
                     case RETRY:
                         retriedRows.add(currentBulkWrite.getSize());
+                        telemetry.recordRetry(currentBulkWrite.getSize());
+                        Code code=bulkWriteResult.getGlobalResult().getCode();
+                        if(code==Code.PIPELINE_TOO_BUSY || code==Code.REGION_TOO_BUSY)
+                            telemetry.recordRejected(currentBulkWrite.getSize());
                         /*
                          * The entire BulkWrite needs to be retried--either because it was rejected outright,
 		    			 * or because the region moved/split/something else.
@@ -289,11 +298,13 @@ public class BulkWriteAction implements Callable<WriteStats>{
 
                         ctx.addBulkWrites(currentBulkWrite.getMutations());
                         ctx.refreshCache = ctx.refreshCache || bulkWriteResult.getGlobalResult().refreshCache();
+                        ctx.retryAfter(bulkWriteResult.getGlobalResult().getRetryAfterMillis());
                         ctx.sleep=true; //always sleep due to rejection, even if we don't need to refresh the cache
                         break;
                     case PARTIAL:
                         partialRows.add(currentBulkWrite.getSize());
                         partialFailureCounter.increment();
+                        telemetry.recordPartialFailure(bulkWriteResult.getFailedRows().size());
                         WriteResponse writeResponse=writeConfiguration.partialFailure(bulkWriteResult,currentBulkWrite);
                         switch(writeResponse){
                             case THROW_ERROR:
@@ -366,6 +377,8 @@ public class BulkWriteAction implements Callable<WriteStats>{
                     SpliceLogUtils.debug(RETRY_LOG,"Retrying write after receiving RegionTooBusyException: id=%d",id);
 
                 regionTooBusy.increment();
+                telemetry.recordRejected(nextWrite.numEntries());
+                telemetry.recordRetry(nextWrite.numEntries());
                 ctx.sleep = true;
                 ctx.directRetry();
                 return;
@@ -391,6 +404,7 @@ public class BulkWriteAction implements Callable<WriteStats>{
                     }
                     ctx.sleep=true;
                     ctx.refreshCache = true;
+                    telemetry.recordRetry(nextWrite.numEntries());
                     for(BulkWrite bw : nextWrite.getBulkWrites()){
                         ctx.addBulkWrites(bw.getMutations());
                         catchRetriedRows.add(bw.getSize());
@@ -491,6 +505,8 @@ public class BulkWriteAction implements Callable<WriteStats>{
         Collection<KVPair> nextWriteSet;
         boolean directRetry;
         int attemptCount = 0;
+        /*the longest pause which a server suggested for this attempt, or 0 if none did*/
+        long retryAfterMillis;
 
         int rejectedCount;
         int failedCount;
@@ -500,12 +516,28 @@ public class BulkWriteAction implements Callable<WriteStats>{
             return sleep || refreshCache;
         }
 
+        long pauseTime(){
+            /*
+             * If the server told us how long to wait (because its pipeline was full), then that is a better
+             * guess than backing off blindly. But if we have to refresh our cache, the region may have moved,
+             * so we still back off exponentially.
+             */
+            if(retryAfterMillis>0 && !refreshCache)
+                return PipelineUtils.getSuggestedPauseTime(retryAfterMillis);
+            return PipelineUtils.getPauseTime(attemptCount,10);
+        }
+
+        void retryAfter(long millis){
+            retryAfterMillis = Math.max(retryAfterMillis,millis);
+        }
+
         void reset(){
             refreshCache = false;
             sleep = false;
             nextWriteSet = null;
             directRetry = false;
             rejected=false;
+            retryAfterMillis = 0;
         }
 
         void addBulkWrites(Collection<KVPair> writes){
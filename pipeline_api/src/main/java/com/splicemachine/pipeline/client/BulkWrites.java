@@ -39,6 +39,12 @@ public class BulkWrites{
      */
     private transient byte[] regionKey;
     private byte[] token;
+    /*the number of rows, if it is known without going through the BulkWrite entities*/
+    private transient int numEntries=-1;
+    /*the types of the rows, if they are known without going through the BulkWrite entities*/
+    private transient Set<KVPair.Type> types;
+    /*the region server which the writes are being sent to, if it is known*/
+    private transient String server;
 
     public BulkWrites(){
         bulkWrites=new ArrayList<>(0);
@@ -56,6 +62,16 @@ public class BulkWrites{
         this.token=token;
     }
 
+    public BulkWrites(Collection<BulkWrite> bulkWrites,TxnView txn,byte[] regionKey,byte[] token,int numEntries){
+        this(bulkWrites,txn,regionKey,token);
+        this.numEntries=numEntries;
+    }
+
+    public BulkWrites(Collection<BulkWrite> bulkWrites,TxnView txn,byte[] regionKey,byte[] token,int numEntries,Set<KVPair.Type> types){
+        this(bulkWrites,txn,regionKey,token,numEntries);
+        this.types=types;
+    }
+
     @SuppressFBWarnings(value="EI_EXPOSE_REP", justification="Intentional")
     public byte[] getRegionKey(){
         return regionKey;
@@ -81,6 +97,7 @@ public class BulkWrites{
      * @return the number of rows in the bulk write
      */
     public int numEntries(){
+        if(numEntries>=0) return numEntries;
         int size=0;
         for(BulkWrite bw : bulkWrites){
             size+=bw.getSize();
@@ -134,7 +151,20 @@ public class BulkWrites{
         this.token = token;
     }
 
+    public String getServer(){
+        return server;
+    }
+
+    public void setServer(String server){
+        this.server=server;
+    }
+
+    /**
+     * @return the types of the rows in the bulk write. Unless they came with the encoded write, this
+     * decodes every BulkWrite
+     */
     public Set<KVPair.Type> getTypes() {
+        if (types != null) return types;
         Set<KVPair.Type> result = new HashSet<>();
         for (BulkWrite bw : bulkWrites) {
             bw.addTypes(result);
@@ -14,15 +14,19 @@
 
 package com.splicemachine.pipeline.client;
 
+import com.splicemachine.compression.SpliceSnappy;
+import com.splicemachine.encoding.Encoding;
 import com.splicemachine.encoding.ExpandedDecoder;
 import com.splicemachine.encoding.ExpandingEncoder;
 import com.splicemachine.kvpair.KVPair;
+import com.splicemachine.primitives.Bytes;
 import com.splicemachine.si.api.data.TxnOperationFactory;
 import com.splicemachine.si.api.txn.TxnView;
 import com.splicemachine.utils.ByteSlice;
 import org.spark_project.guava.collect.Iterators;
 
 import javax.annotation.Nonnull;
+import java.io.IOException;
 import java.util.*;
 
 /**
@@ -32,6 +36,12 @@ import java.util.*;
  *         Date: 1/19/15
  */
 public class PipelineEncoding {
+    /*
+     * Chunks are built in a per-thread scratch buffer before they are compressed. We hold on
+     * to the buffer between writes unless a chunk made it grow past this size.
+     */
+    private static final int MAX_POOLED_CHUNK_SIZE=1<<22;
+    private static final ThreadLocal<byte[]> CHUNK_BUFFER=new ThreadLocal<>();
 
     public static byte[] encode(TxnOperationFactory operationFactory,BulkWrites bulkWrites){
         /*
@@ -51,13 +61,103 @@ public class PipelineEncoding {
          * but deserialize the KVPairs on an as-needed basis.
          *
          */
+        ExpandingEncoder buffer = encodeHeader(operationFactory,bulkWrites,bulkWrites.getBufferHeapSize());
+
+        for(BulkWrite bw:bulkWrites.getBulkWrites()){
+            Collection<KVPair> mutations = bw.getMutations();
+            buffer.encode(mutations.size());
+            for(KVPair kvPair:mutations){
+                //TODO -sf- use a run-length encoding for type information here?
+                buffer.rawEncode(kvPair.getType().asByte());
+                buffer.rawEncode(kvPair.rowKeySlice());
+                buffer.rawEncode(kvPair.valueSlice());
+            }
+        }
+        return buffer.getBuffer();
+    }
+
+    /**
+     * Encode a BulkWrites so that the KVPairs for each region are compressed separately.
+     *
+     * The header is the same as that of {@link #encode(TxnOperationFactory, BulkWrites)}, followed by the
+     * number of KVPairs in each BulkWrite, and a bit mask of the KVPair types in the whole write (so that the
+     * receiver can check privileges without decompressing anything). The body is one chunk per BulkWrite:
+     * <pre>
+     *  uncompressed length (4 bytes)
+     *  compressed length (4 bytes)
+     *  compressed KVPairs
+     * </pre>
+     * Each chunk is compressed straight from a reused scratch buffer into the message, so we don't
+     * build (and then compress) an uncompressed copy of the whole message. On the receiving side,
+     * a chunk isn't decompressed until its BulkWrite is reached, so the first region's writes can be
+     * applied before the later chunks have been touched.
+     */
+    public static byte[] encodeChunked(TxnOperationFactory operationFactory,BulkWrites bulkWrites) throws IOException{
+        Collection<BulkWrite> bws = bulkWrites.getBulkWrites();
+        ExpandingEncoder header = encodeHeader(operationFactory,bulkWrites,10*bws.size());
+        int[] chunkLengths = new int[bws.size()];
+        int maxChunkLength = 0;
+        int typeMask = 0;
+        int i=0;
+        for(BulkWrite bw:bws){
+            header.encode(bw.getMutations().size());
+            int chunkLength = 0;
+            for(KVPair kvPair:bw.getMutations()){
+                chunkLength+=encodedLength(kvPair);
+                typeMask|=typeBit(kvPair.getType());
+            }
+            chunkLengths[i++] = chunkLength;
+            maxChunkLength = Math.max(maxChunkLength,chunkLength);
+        }
+        header.encode(typeMask);
+        byte[] headerBytes = header.getBuffer();
+        int maxLength = headerBytes.length;
+        for(int chunkLength:chunkLengths){
+            maxLength+=8+SpliceSnappy.maxCompressedLength(chunkLength);
+        }
+
+        byte[] data = new byte[maxLength];
+        System.arraycopy(headerBytes,0,data,0,headerBytes.length);
+        int offset = headerBytes.length;
+        byte[] chunk = chunkBuffer(maxChunkLength);
+        i=0;
+        for(BulkWrite bw:bws){
+            int chunkLength = encodeChunk(bw,chunk);
+            assert chunkLength==chunkLengths[i]: "Incorrect chunk length estimate!";
+            int compressedLength = SpliceSnappy.compress(chunk,0,chunkLength,data,offset+8);
+            Bytes.toBytes(chunkLength,data,offset);
+            Bytes.toBytes(compressedLength,data,offset+4);
+            offset+=8+compressedLength;
+            i++;
+        }
+        if(chunk.length>MAX_POOLED_CHUNK_SIZE)
+            CHUNK_BUFFER.remove();
+        return offset<data.length? Arrays.copyOf(data,offset): data;
+    }
+
+    public static BulkWrites decode(TxnOperationFactory operationFactory,byte[] data){
+        return decode(operationFactory,data,false);
+    }
+
+    /**
+     * Decode a BulkWrites which was encoded with {@link #encodeChunked(TxnOperationFactory, BulkWrites)}.
+     *
+     * The KVPairs of each BulkWrite are slices of its decompressed chunk, and chunks are only
+     * decompressed as the BulkWrites are iterated over.
+     */
+    public static BulkWrites decodeChunked(TxnOperationFactory operationFactory,byte[] data){
+        return decode(operationFactory,data,true);
+    }
+
+    /***********************************************************************************************************/
+    /*private helper methods*/
+    private static ExpandingEncoder encodeHeader(TxnOperationFactory operationFactory,BulkWrites bulkWrites,int bodySize){
         byte[] txnBytes = operationFactory.encode(bulkWrites.getTxn());
         byte[] token = bulkWrites.getToken();
         if (token == null)
             token = new byte[0];
 
-        int heapSize = bulkWrites.getBufferHeapSize();
-        ExpandingEncoder buffer = new ExpandingEncoder(heapSize+txnBytes.length+token.length);
+        ExpandingEncoder buffer = new ExpandingEncoder(bodySize+txnBytes.length+token.length);
         buffer.rawEncode(txnBytes);
         buffer.rawEncode(token);
 
@@ -71,22 +171,10 @@ public class PipelineEncoding {
         for(BulkWrite bw:bws){
             buffer.encode(bw.getFlags());
         }
-
-        for(BulkWrite bw:bws){
-            Collection<KVPair> mutations = bw.getMutations();
-            buffer.encode(mutations.size());
-            for(KVPair kvPair:mutations){
-                //TODO -sf- use a run-length encoding for type information here?
-                buffer.rawEncode(kvPair.getType().asByte());
-                buffer.rawEncode(kvPair.rowKeySlice());
-                buffer.rawEncode(kvPair.valueSlice());
-            }
-        }
-        return buffer.getBuffer();
+        return buffer;
     }
 
-
-    public static BulkWrites decode(TxnOperationFactory operationFactory,byte[] data){
+    private static BulkWrites decode(TxnOperationFactory operationFactory,byte[] data,boolean chunked){
         ExpandedDecoder decoder = new ExpandedDecoder(data);
         byte[] txnBytes = decoder.rawBytes();
         byte[] token = decoder.rawBytes();
@@ -100,10 +188,60 @@ public class PipelineEncoding {
         for (int i=0; i<bwSize; i++) {
             flags[i] = decoder.decodeByte();
         }
+        if(!chunked)
+            return new BulkWrites(new BulkWriteCol(flags,data,decoder.currentOffset(),stringNames,null),txn,null,token);
+
+        int[] sizes = new int[bwSize];
+        int numEntries = 0;
+        for(int i=0;i<bwSize;i++){
+            sizes[i] = decoder.decodeInt();
+            numEntries+=sizes[i];
+        }
+        int typeMask = decoder.decodeInt();
+        Set<KVPair.Type> types = EnumSet.noneOf(KVPair.Type.class);
+        for(KVPair.Type type:KVPair.Type.values()){
+            if((typeMask & typeBit(type))!=0)
+                types.add(type);
+        }
+        return new BulkWrites(new BulkWriteCol(flags,data,decoder.currentOffset(),stringNames,sizes),txn,null,token,numEntries,types);
+    }
+
+    private static int typeBit(KVPair.Type type){
+        return 1<<type.asByte();
+    }
 
-        return new BulkWrites(new BulkWriteCol(flags,data,decoder.currentOffset(),stringNames),txn,null,token);
+    private static int encodedLength(KVPair kvPair){
+        int rowLength = kvPair.rowKeySlice().length();
+        int valueLength = kvPair.valueSlice().length();
+        return 1+Encoding.encodedLength(rowLength)+rowLength+Encoding.encodedLength(valueLength)+valueLength;
     }
 
+    private static int encodeChunk(BulkWrite bw,byte[] chunk){
+        int offset = 0;
+        for(KVPair kvPair:bw.getMutations()){
+            chunk[offset++] = kvPair.getType().asByte();
+            offset = encodeSlice(kvPair.rowKeySlice(),chunk,offset);
+            offset = encodeSlice(kvPair.valueSlice(),chunk,offset);
+        }
+        return offset;
+    }
+
+    private static int encodeSlice(ByteSlice slice,byte[] chunk,int offset){
+        int length = slice.length();
+        offset+=Encoding.encode(length,chunk,offset);
+        if(length>0)
+            System.arraycopy(slice.array(),slice.offset(),chunk,offset,length);
+        return offset+length;
+    }
+
+    private static byte[] chunkBuffer(int minSize){
+        byte[] buffer = CHUNK_BUFFER.get();
+        if(buffer==null || buffer.length<minSize){
+            buffer = new byte[Math.max(minSize,buffer==null?1024:2*buffer.length)];
+            CHUNK_BUFFER.set(buffer);
+        }
+        return buffer;
+    }
 
     /***********************************************************************************************************/
     /*private helper classes*/
@@ -112,6 +250,8 @@ public class PipelineEncoding {
         private final List<String> encodedStringNames;
         private final byte[] flags;
         private final byte[] buffer;
+        /*the number of KVPairs in each chunk, or null if the KVPairs are not chunked*/
+        private final int[] chunkSizes;
         /*
          * we keep a cache of previously created BulkWrites, so that we can have
          * deterministic iteration (i.e. returning the same objects instead of
@@ -119,13 +259,15 @@ public class PipelineEncoding {
          */
         private transient Collection<BulkWrite> cache;
         private transient ExpandedDecoder decoder;
+        private transient int chunkOffset;
         private transient int lastIndex = 0;
 
-        public BulkWriteCol(byte[] flags, byte[] buffer,int kvOffset, List<String> encodedStringNames) {
+        public BulkWriteCol(byte[] flags, byte[] buffer,int kvOffset, List<String> encodedStringNames,int[] chunkSizes) {
             this.kvOffset = kvOffset;
             this.encodedStringNames = encodedStringNames;
             this.buffer = buffer;
             this.flags = flags;
+            this.chunkSizes = chunkSizes;
         }
 
         @Override
@@ -143,12 +285,28 @@ public class PipelineEncoding {
                 }
             }
             cache = new ArrayList<>(encodedStringNames.size());
-            decoder = new ExpandedDecoder(buffer,kvOffset);
+            if(chunkSizes==null)
+                decoder = new ExpandedDecoder(buffer,kvOffset);
+            else
+                chunkOffset = kvOffset;
             return new BulkIter(0);
         }
 
         @Override public int size() { return encodedStringNames.size(); }
 
+        private ExpandedDecoder nextChunk(){
+            int chunkLength = Bytes.toInt(buffer,chunkOffset);
+            int compressedLength = Bytes.toInt(buffer,chunkOffset+4);
+            byte[] chunk = new byte[chunkLength];
+            try{
+                SpliceSnappy.uncompress(buffer,chunkOffset+8,compressedLength,chunk,0);
+            }catch(IOException e){
+                throw new RuntimeException(e);
+            }
+            chunkOffset+=8+compressedLength;
+            return new ExpandedDecoder(chunk);
+        }
+
         private class BulkIter implements Iterator<BulkWrite> {
             final Iterator<String> encodedStrings;
             int index;
@@ -167,16 +325,24 @@ public class PipelineEncoding {
             @Override
             public BulkWrite next() {
                 String esN = encodedStrings.next();
+                ExpandedDecoder kvDecoder;
+                int size;
+                if(chunkSizes==null){
+                    kvDecoder = decoder;
+                    size = kvDecoder.decodeInt();
+                }else{
+                    kvDecoder = nextChunk();
+                    size = chunkSizes[index];
+                }
                 byte elementFlags = flags[index++];
-                int size = decoder.decodeInt();
                 Collection<KVPair> kvPairs = new ArrayList<>(size);
                 KVPair template = new KVPair();
                 ByteSlice rowKeySlice = template.rowKeySlice();
                 ByteSlice valueSlice = template.valueSlice();
                 for(int i=0;i<size;i++){
-                    template.setType(KVPair.Type.decode(decoder.rawByte()));
-                    decoder.sliceNext(rowKeySlice);
-                    decoder.sliceNext(valueSlice);
+                    template.setType(KVPair.Type.decode(kvDecoder.rawByte()));
+                    kvDecoder.sliceNext(rowKeySlice);
+                    kvDecoder.sliceNext(valueSlice);
                     kvPairs.add(template.shallowClone());
                 }
 
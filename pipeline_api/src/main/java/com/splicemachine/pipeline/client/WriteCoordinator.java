@@ -39,6 +39,7 @@ import com.splicemachine.pipeline.callbuffer.RecordingCallBuffer;
 import com.splicemachine.pipeline.config.DefaultWriteConfiguration;
 import com.splicemachine.pipeline.config.ForwardingWriteConfiguration;
 import com.splicemachine.pipeline.config.WriteConfiguration;
+import com.splicemachine.pipeline.telemetry.PipelineTelemetry;
 import com.splicemachine.pipeline.threadpool.MonitoredThreadPool;
 import com.splicemachine.pipeline.utils.PipelineUtils;
 import com.splicemachine.pipeline.writer.AsyncBucketingWriter;
@@ -66,15 +67,16 @@ public class WriteCoordinator {
                                           BulkWriterFactory writerFactory,
                                           PipelineExceptionFactory exceptionFactory,
                                           PartitionFactory partitionFactory,
-                                          Clock clock) throws IOException {
+                                          Clock clock,
+                                          PipelineTelemetry telemetry) throws IOException {
         assert config != null;
         MonitoredThreadPool writerPool = MonitoredThreadPool.create(config);
         int maxEntries = config.getMaxBufferEntries();//SpliceConstants.maxBufferEntries;
         Writer writer = new AsyncBucketingWriter(writerPool,
                 writerFactory,
                 exceptionFactory,
-                partitionFactory,clock);
-        Writer syncWriter = new SynchronousBucketingWriter(writerFactory,exceptionFactory,partitionFactory,clock);
+                partitionFactory,clock,telemetry);
+        Writer syncWriter = new SynchronousBucketingWriter(writerFactory,exceptionFactory,partitionFactory,clock,telemetry);
         long maxBufferHeapSize = config.getMaxBufferHeapSize();
         int numRetries = config.getMaxRetries();
         long pause = config.getClientPause();
@@ -45,6 +45,8 @@ public class WriteResult implements Externalizable {
     private Code code;
     private String errorMessage;
     private ConstraintContext constraintContext;
+    /*how long the server suggests that the client wait before retrying, or 0 if it has no suggestion*/
+    private long retryAfterMillis;
 
     public WriteResult() {
     }
@@ -81,6 +83,10 @@ public class WriteResult implements Externalizable {
         return constraintContext;
     }
 
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+
     public boolean shouldCancel() {
         return code.shouldCancel();
     }
@@ -118,6 +124,12 @@ public class WriteResult implements Externalizable {
         return new WriteResult(Code.PIPELINE_TOO_BUSY, "pipeline for regionserver owning region " + regionNameAsString + " is too busy");
     }
 
+    public static WriteResult pipelineTooBusy(String regionNameAsString, long retryAfterMillis) {
+        WriteResult result = pipelineTooBusy(regionNameAsString);
+        result.retryAfterMillis = retryAfterMillis;
+        return result;
+    }
+
     public static WriteResult notRun() {
         return NOT_RUN_RESULT;
     }
@@ -175,6 +187,7 @@ public class WriteResult implements Externalizable {
         return "WriteResult{ " +
                 "code=" + code +
                 ", errorMessage=" + errorMessage +
+                (retryAfterMillis > 0 ? ", retryAfterMillis=" + retryAfterMillis : "") +
                 " }";
     }
 
@@ -189,6 +202,7 @@ public class WriteResult implements Externalizable {
         if (constraintContext != null) {
             out.writeObject(constraintContext);
         }
+        out.writeLong(retryAfterMillis);
     }
 
     @Override
@@ -198,6 +212,7 @@ public class WriteResult implements Externalizable {
             errorMessage = in.readUTF();
         if (in.readBoolean())
             constraintContext = (ConstraintContext) in.readObject();
+        retryAfterMillis = in.readLong();
     }
 
 }
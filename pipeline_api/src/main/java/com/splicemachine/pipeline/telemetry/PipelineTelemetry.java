@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2012 - 2018 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.splicemachine.pipeline.telemetry;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Write latency, retry and failure statistics for both sides of the write pipeline, broken down by table
+ * and by region server (for the writes which this JVM sends) or region (for the writes which it receives).
+ *
+ * To bound the memory used when there are a great many tables or regions, we track at most
+ * {@link #MAX_ENTRIES} of each; writes to any more than that are lumped together under a table and
+ * location of {@code *}.
+ */
+@ThreadSafe
+public class PipelineTelemetry implements PipelineTelemetryManagement{
+    public static final String CLIENT="CLIENT";
+    public static final String SERVER="SERVER";
+    static final int MAX_ENTRIES=10000;
+    private static final String OVERFLOW="*";
+
+    private final ConcurrentMap<String,WriteTelemetry> clientWrites=new ConcurrentHashMap<>();
+    private final ConcurrentMap<String,WriteTelemetry> serverWrites=new ConcurrentHashMap<>();
+    private final WriteTelemetry clientOverflow=new WriteTelemetry(CLIENT,OVERFLOW,OVERFLOW);
+    private final WriteTelemetry serverOverflow=new WriteTelemetry(SERVER,OVERFLOW,OVERFLOW);
+
+    /**
+     * @return the telemetry for writes sent from this JVM to {@code tableName} through {@code server}
+     */
+    public WriteTelemetry client(String tableName,String server){
+        String key=tableName+'@'+server;
+        WriteTelemetry telemetry=clientWrites.get(key);
+        if(telemetry!=null) return telemetry;
+        if(clientWrites.size()>=MAX_ENTRIES) return clientOverflow;
+        telemetry=new WriteTelemetry(CLIENT,tableName,server);
+        WriteTelemetry old=clientWrites.putIfAbsent(key,telemetry);
+        return old!=null? old: telemetry;
+    }
+
+    /**
+     * @return the telemetry for writes received by {@code region} (of table {@code tableName})
+     */
+    public WriteTelemetry server(String tableName,String region){
+        WriteTelemetry telemetry=serverWrites.get(region);
+        if(telemetry!=null) return telemetry;
+        if(serverWrites.size()>=MAX_ENTRIES) return serverOverflow;
+        telemetry=new WriteTelemetry(SERVER,tableName,region);
+        WriteTelemetry old=serverWrites.putIfAbsent(region,telemetry);
+        return old!=null? old: telemetry;
+    }
+
+    /**
+     * Forget about a region, once it is no longer served here.
+     */
+    public void removeRegion(String region){
+        serverWrites.remove(region);
+    }
+
+    @Override
+    public List<WriteTelemetryView> getClientWrites(){
+        return views(clientWrites,clientOverflow);
+    }
+
+    @Override
+    public List<WriteTelemetryView> getServerWrites(){
+        return views(serverWrites,serverOverflow);
+    }
+
+    @Override
+    public void reset(){
+        clientWrites.clear();
+        serverWrites.clear();
+        clientOverflow.reset();
+        serverOverflow.reset();
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private static List<WriteTelemetryView> views(ConcurrentMap<String,WriteTelemetry> writes,WriteTelemetry overflow){
+        List<WriteTelemetryView> views=new ArrayList<>(writes.size()+1);
+        views.addAll(writes.values());
+        if(overflow.getBulkWrites()>0 || overflow.getRejectedRows()>0)
+            views.add(overflow);
+        return views;
+    }
+}
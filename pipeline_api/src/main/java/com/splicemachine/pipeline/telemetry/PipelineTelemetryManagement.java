@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2012 - 2018 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.splicemachine.pipeline.telemetry;
+
+import javax.management.MXBean;
+import java.util.List;
+
+/**
+ * JMX view of the write pipeline's per-table telemetry.
+ */
+@MXBean
+@SuppressWarnings("UnusedDeclaration")
+public interface PipelineTelemetryManagement{
+
+    /**
+     * @return the writes sent from this JVM, by table and region server
+     */
+    List<WriteTelemetryView> getClientWrites();
+
+    /**
+     * @return the writes received by this JVM, by table and region
+     */
+    List<WriteTelemetryView> getServerWrites();
+
+    void reset();
+}
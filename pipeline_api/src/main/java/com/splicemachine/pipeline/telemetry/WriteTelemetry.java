@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2012 - 2018 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.splicemachine.pipeline.telemetry;
+
+import com.splicemachine.metrics.LatencyHistogram;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records the writes made to one table through one location; see {@link WriteTelemetryView}.
+ */
+@ThreadSafe
+public class WriteTelemetry implements WriteTelemetryView{
+    private final String scope;
+    private final String tableName;
+    private final String location;
+
+    private final LatencyHistogram latencies=new LatencyHistogram();
+    private final LongAdder rows=new LongAdder();
+    private final LongAdder retriedRows=new LongAdder();
+    private final LongAdder rejectedRows=new LongAdder();
+    private final LongAdder partialFailures=new LongAdder();
+    private final LongAdder failedRows=new LongAdder();
+    private final LongAdder indexTargets=new LongAdder();
+
+    WriteTelemetry(String scope,String tableName,String location){
+        this.scope=scope;
+        this.tableName=tableName;
+        this.location=location;
+    }
+
+    /**
+     * Record a bulk write which was performed (whether or not every row in it succeeded).
+     */
+    public void recordWrite(int numRows,long latencyNanos){
+        latencies.record(TimeUnit.NANOSECONDS.toMicros(latencyNanos));
+        rows.add(numRows);
+    }
+
+    public void recordRetry(int numRows){
+        retriedRows.add(numRows);
+    }
+
+    public void recordRejected(int numRows){
+        rejectedRows.add(numRows);
+    }
+
+    public void recordPartialFailure(int numFailedRows){
+        partialFailures.increment();
+        failedRows.add(numFailedRows);
+    }
+
+    /**
+     * @param numTargets the number of other tables which a bulk write was routed to
+     */
+    public void recordIndexFanOut(int numTargets){
+        indexTargets.add(numTargets);
+    }
+
+    public void reset(){
+        latencies.reset();
+        rows.reset();
+        retriedRows.reset();
+        rejectedRows.reset();
+        partialFailures.reset();
+        failedRows.reset();
+        indexTargets.reset();
+    }
+
+    @Override public String getScope(){ return scope; }
+    @Override public String getTableName(){ return tableName; }
+    @Override public String getLocation(){ return location; }
+    @Override public long getBulkWrites(){ return latencies.count(); }
+    @Override public long getRows(){ return rows.sum(); }
+    @Override public long getRetriedRows(){ return retriedRows.sum(); }
+    @Override public long getRejectedRows(){ return rejectedRows.sum(); }
+    @Override public long getPartialFailures(){ return partialFailures.sum(); }
+    @Override public long getFailedRows(){ return failedRows.sum(); }
+    @Override public double getMeanLatency(){ return latencies.mean(); }
+    @Override public long getP50Latency(){ return latencies.percentile(50d); }
+    @Override public long getP95Latency(){ return latencies.percentile(95d); }
+    @Override public long getP99Latency(){ return latencies.percentile(99d); }
+    @Override public long getMaxLatency(){ return latencies.max(); }
+
+    @Override
+    public double getIndexFanOut(){
+        long bulkWrites=latencies.count();
+        return bulkWrites==0? 0d: (double)indexTargets.sum()/bulkWrites;
+    }
+}
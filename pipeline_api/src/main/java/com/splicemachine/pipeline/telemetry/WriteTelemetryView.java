@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2012 - 2018 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.splicemachine.pipeline.telemetry;
+
+/**
+ * A view of the writes which one side of the write pipeline has made to one table, through one
+ * region server (on the client side) or to one region (on the server side).
+ *
+ * Latencies are in microseconds.
+ */
+public interface WriteTelemetryView{
+
+    /**
+     * @return {@code CLIENT} for writes sent from this JVM, or {@code SERVER} for writes received by it
+     */
+    String getScope();
+
+    /**
+     * @return the name of the table (conglomerate) which was written to
+     */
+    String getTableName();
+
+    /**
+     * @return the region server which the writes were sent to (for client writes), or
+     * the region which the writes were received by (for server writes)
+     */
+    String getLocation();
+
+    long getBulkWrites();
+
+    long getRows();
+
+    /**
+     * @return the number of rows which had to be sent again
+     */
+    long getRetriedRows();
+
+    /**
+     * @return the number of rows which were turned away because the pipeline or region was too busy
+     */
+    long getRejectedRows();
+
+    /**
+     * @return the number of bulk writes which only partially succeeded
+     */
+    long getPartialFailures();
+
+    long getFailedRows();
+
+    /**
+     * @return the average number of other tables (i.e. indexes) which each bulk write was routed to
+     */
+    double getIndexFanOut();
+
+    double getMeanLatency();
+
+    long getP50Latency();
+
+    long getP95Latency();
+
+    long getP99Latency();
+
+    long getMaxLatency();
+}
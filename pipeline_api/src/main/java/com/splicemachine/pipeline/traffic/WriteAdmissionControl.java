@@ -0,0 +1,268 @@
+/*
+ * Copyright (c) 2012 - 2018 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.pipeline.traffic;
+
+import com.splicemachine.si.api.txn.Txn;
+import com.splicemachine.si.api.txn.TxnView;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Admits writes into a {@link SpliceWriteControl}, rather than rejecting them outright when it is full.
+ *
+ * A write which doesn't fit waits (for a short, configurable, time) in a queue. Waiting writes are grouped
+ * by their top-level transaction, and the transactions take turns; so a bulk load which floods the region
+ * server with writes only gets one turn in every few, and can't keep a small OLTP write from getting in.
+ *
+ * The write control's row limits are adjusted to the measured write latency, in the manner of AIMD: while
+ * writes take longer than the target latency, we cut the limits back by a fraction; while they are quicker
+ * than that and writes are queueing up, we raise them by a small step, up to the configured maximums.
+ *
+ * When a write has to be rejected anyway, {@link #suggestedBackoff()} gives the client an estimate
+ * of how long it should wait before sending it again.
+ */
+public class WriteAdmissionControl{
+    /*we never cut the row limits to less than this fraction of the configured limits*/
+    private static final double MIN_LIMIT_FRACTION=0.1d;
+    private static final double DECREASE_FACTOR=0.8d;
+    private static final double INCREASE_STEP=0.05d;
+    private static final long ADJUST_INTERVAL=TimeUnit.MILLISECONDS.toNanos(100);
+    /*the weight of the newest sample in the latency average*/
+    private static final double LATENCY_WEIGHT=0.1d;
+
+    private final SpliceWriteControl writeControl;
+    private final long maxWait;
+    private final long targetLatency;
+    private final long maxBackoffMillis;
+    private volatile int maxDependentWriteCount;
+    private volatile int maxIndependentWriteCount;
+
+    /*waiting writes, grouped by transaction in the order in which the transactions take their turn*/
+    private final Map<Long,ArrayDeque<Waiter>> waiters=new LinkedHashMap<>();
+    private volatile int numWaiting;
+
+    private double limitFraction=1d;
+    private long lastAdjustment=System.nanoTime();
+    private volatile double averageLatency;
+
+    /**
+     * @param maxWaitMillis the longest that a write waits to be admitted, or 0 to never wait
+     * @param targetLatencyMillis the write latency that we aim for, or 0 to never adjust the limits
+     * @param maxBackoffMillis the longest backoff that we suggest to clients
+     */
+    public WriteAdmissionControl(SpliceWriteControl writeControl,
+                                 long maxWaitMillis,
+                                 long targetLatencyMillis,
+                                 long maxBackoffMillis){
+        this.writeControl=writeControl;
+        this.maxWait=TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+        this.targetLatency=TimeUnit.MILLISECONDS.toNanos(targetLatencyMillis);
+        this.maxBackoffMillis=Math.max(1,maxBackoffMillis);
+        this.maxDependentWriteCount=writeControl.maxDependentWriteCount();
+        this.maxIndependentWriteCount=writeControl.maxIndependentWriteCount();
+    }
+
+    /**
+     * Get permission to perform a write, waiting for room if necessary.
+     *
+     * @param dependent whether the write needs to update other tables (e.g. indexes) as well
+     * @param writes the number of rows in the write
+     * @param txn the transaction performing the write
+     * @return the status of the write. If this is not {@link SpliceWriteControl.Status#REJECTED}, then
+     * {@link #finishWrite(SpliceWriteControl.Status, int, long)} must be called once the write is done.
+     * @throws InterruptedException if we are interrupted while waiting
+     */
+    public SpliceWriteControl.Status performWrite(boolean dependent,int writes,TxnView txn) throws InterruptedException{
+        //if others are already waiting, don't jump ahead of them
+        if(numWaiting==0){
+            SpliceWriteControl.Status status=tryWrite(dependent,writes);
+            if(status!=SpliceWriteControl.Status.REJECTED || maxWait<=0) return status;
+        }else if(maxWait<=0)
+            return tryWrite(dependent,writes);
+
+        Waiter waiter=new Waiter(Thread.currentThread(),topLevelTxnId(txn));
+        enqueue(waiter);
+        long deadline=System.nanoTime()+maxWait;
+        SpliceWriteControl.Status status=SpliceWriteControl.Status.REJECTED;
+        try{
+            while(true){
+                if(isNext(waiter)){
+                    status=tryWrite(dependent,writes);
+                    if(status!=SpliceWriteControl.Status.REJECTED) return status;
+                }
+                long remaining=deadline-System.nanoTime();
+                if(remaining<=0) return status;
+                LockSupport.parkNanos(this,remaining);
+                if(Thread.interrupted())
+                    throw new InterruptedException();
+            }
+        }finally{
+            dequeue(waiter,status!=SpliceWriteControl.Status.REJECTED);
+            wakeNext();
+        }
+    }
+
+    /**
+     * Finish a write which was admitted by {@link #performWrite(boolean, int, TxnView)}.
+     *
+     * @param status the status returned when the write was admitted
+     * @param writes the number of rows in the write
+     * @param latencyNanos how long the write took
+     */
+    public void finishWrite(SpliceWriteControl.Status status,int writes,long latencyNanos){
+        switch(status){
+            case DEPENDENT:
+                writeControl.finishDependentWrite(writes);
+                break;
+            case INDEPENDENT:
+                writeControl.finishIndependentWrite(writes);
+                break;
+            default:
+                return;
+        }
+        recordLatency(latencyNanos);
+        wakeNext();
+    }
+
+    /**
+     * @return how long (in milliseconds) a client should wait before resending a rejected write
+     */
+    public long suggestedBackoff(){
+        /*
+         * Assume that each write ahead of a resent one takes about the average latency, and that the
+         * writes in flight are about half done
+         */
+        double latencyMillis=averageLatency/TimeUnit.MILLISECONDS.toNanos(1);
+        long backoff=(long)(latencyMillis*(numWaiting+0.5d));
+        return Math.max(1,Math.min(maxBackoffMillis,backoff));
+    }
+
+    /**
+     * Change the maximum number of dependent rows in flight; the limit that is in force is scaled down from this
+     * while writes are slow.
+     */
+    public synchronized void setMaxDependentWriteCount(int newMaxDependentWriteCount){
+        this.maxDependentWriteCount=newMaxDependentWriteCount;
+        writeControl.setMaxDependentWriteCount(Math.max(1,(int)(newMaxDependentWriteCount*limitFraction)));
+    }
+
+    public synchronized void setMaxIndependentWriteCount(int newMaxIndependentWriteCount){
+        this.maxIndependentWriteCount=newMaxIndependentWriteCount;
+        writeControl.setMaxIndependentWriteCount(Math.max(1,(int)(newMaxIndependentWriteCount*limitFraction)));
+    }
+
+    public int getWaitingWrites(){
+        return numWaiting;
+    }
+
+    public double getAverageLatency(){
+        return averageLatency/TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods and classes*/
+    private SpliceWriteControl.Status tryWrite(boolean dependent,int writes){
+        return dependent? writeControl.performDependentWrite(writes): writeControl.performIndependentWrite(writes);
+    }
+
+    private static long topLevelTxnId(TxnView txn){
+        if(txn==null) return -1l;
+        TxnView parent=txn.getParentTxnView();
+        while(parent!=null && !Txn.ROOT_TRANSACTION.equals(parent)){
+            txn=parent;
+            parent=txn.getParentTxnView();
+        }
+        return txn.getTxnId();
+    }
+
+    private synchronized void enqueue(Waiter waiter){
+        ArrayDeque<Waiter> queue=waiters.get(waiter.txnId);
+        if(queue==null){
+            queue=new ArrayDeque<>();
+            waiters.put(waiter.txnId,queue);
+        }
+        queue.add(waiter);
+        numWaiting++;
+    }
+
+    private synchronized void dequeue(Waiter waiter,boolean admitted){
+        ArrayDeque<Waiter> queue=waiters.get(waiter.txnId);
+        if(queue==null || !queue.remove(waiter)) return;
+        numWaiting--;
+        if(queue.isEmpty())
+            waiters.remove(waiter.txnId);
+        else if(admitted){
+            //this transaction has had its turn, so move it to the back of the line
+            waiters.remove(waiter.txnId);
+            waiters.put(waiter.txnId,queue);
+        }
+    }
+
+    private synchronized boolean isNext(Waiter waiter){
+        return waiter==nextWaiter();
+    }
+
+    private Waiter nextWaiter(){
+        Iterator<ArrayDeque<Waiter>> queues=waiters.values().iterator();
+        return queues.hasNext()? queues.next().peekFirst(): null;
+    }
+
+    private void wakeNext(){
+        if(numWaiting==0) return;
+        Waiter next;
+        synchronized(this){
+            next=nextWaiter();
+        }
+        if(next!=null)
+            LockSupport.unpark(next.thread);
+    }
+
+    private void recordLatency(long latencyNanos){
+        synchronized(this){
+            double average=averageLatency;
+            average=average==0d? latencyNanos: average+LATENCY_WEIGHT*(latencyNanos-average);
+            averageLatency=average;
+            if(targetLatency<=0) return;
+
+            long now=System.nanoTime();
+            if(now-lastAdjustment<ADJUST_INTERVAL) return;
+            double fraction=limitFraction;
+            if(average>targetLatency)
+                fraction=Math.max(MIN_LIMIT_FRACTION,fraction*DECREASE_FACTOR);
+            else if(numWaiting>0)
+                fraction=Math.min(1d,fraction+INCREASE_STEP);
+            if(fraction==limitFraction) return;
+            lastAdjustment=now;
+            limitFraction=fraction;
+            writeControl.setMaxDependentWriteCount(Math.max(1,(int)(maxDependentWriteCount*fraction)));
+            writeControl.setMaxIndependentWriteCount(Math.max(1,(int)(maxIndependentWriteCount*fraction)));
+        }
+    }
+
+    private static final class Waiter{
+        private final Thread thread;
+        private final long txnId;
+
+        Waiter(Thread thread,long txnId){
+            this.thread=thread;
+            this.txnId=txnId;
+        }
+    }
+}
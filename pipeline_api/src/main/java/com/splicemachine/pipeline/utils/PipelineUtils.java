@@ -95,4 +95,14 @@ public class PipelineUtils{
         return normalPause + jitter;
     }
 
+    /**
+     * @param retryAfter the pause (in milliseconds) which the server suggested
+     * @return the suggested pause, give or take a quarter, so that clients which were rejected
+     * together don't all come back together
+     */
+    public static long getSuggestedPauseTime(final long retryAfter) {
+        long jitter = (long)(retryAfter * (RANDOM.nextFloat() - 0.5) / 2);
+        return Math.max(1, retryAfter + jitter);
+    }
+
 }
@@ -66,6 +66,13 @@ public class SharedCallBufferFactory{
         return writeBuffer;
     }
 
+    /**
+     * @return the number of other tables (usually indexes) which writes have been routed to
+     */
+    public int numDestinations(){
+        return sharedCallBufferMap.size();
+    }
+
     private CallBuffer<KVPair> createKvPairCallBuffer(byte[] conglomBytes,
                                                       WriteContext context,
                                                       ObjectObjectHashMap<KVPair, KVPair> indexToMainMutationMap,
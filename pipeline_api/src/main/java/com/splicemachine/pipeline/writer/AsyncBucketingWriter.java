@@ -35,6 +35,7 @@ import com.splicemachine.pipeline.client.BulkWriteAction;
 import com.splicemachine.pipeline.client.BulkWrites;
 import com.splicemachine.pipeline.config.CountingWriteConfiguration;
 import com.splicemachine.pipeline.config.WriteConfiguration;
+import com.splicemachine.pipeline.telemetry.PipelineTelemetry;
 import com.splicemachine.pipeline.threadpool.MonitoredThreadPool;
 import com.splicemachine.pipeline.writerstatus.ActionStatusMonitor;
 
@@ -57,8 +58,17 @@ public class AsyncBucketingWriter implements Writer {
                                 PipelineExceptionFactory exceptionFactory,
                                 PartitionFactory partitionFactory,
                                 Clock clock) {
+        this(writerPool,writerFactory,exceptionFactory,partitionFactory,clock,new PipelineTelemetry());
+    }
+
+    public AsyncBucketingWriter(MonitoredThreadPool writerPool,
+                                BulkWriterFactory writerFactory,
+                                PipelineExceptionFactory exceptionFactory,
+                                PartitionFactory partitionFactory,
+                                Clock clock,
+                                PipelineTelemetry telemetry) {
         this.writerPool = writerPool;
-        this.statusMonitor = new ActionStatusReporter();
+        this.statusMonitor = new ActionStatusReporter(telemetry);
         this.monitor = new ActionStatusMonitor(statusMonitor);
         this.exceptionFactory = exceptionFactory;
         this.writerFactory = writerFactory;
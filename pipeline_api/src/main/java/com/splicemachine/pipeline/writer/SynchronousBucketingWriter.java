@@ -25,6 +25,7 @@ import com.splicemachine.pipeline.client.BulkWriteAction;
 import com.splicemachine.pipeline.client.BulkWrites;
 import com.splicemachine.pipeline.config.CountingWriteConfiguration;
 import com.splicemachine.pipeline.config.WriteConfiguration;
+import com.splicemachine.pipeline.telemetry.PipelineTelemetry;
 import com.splicemachine.pipeline.writerstatus.ActionStatusMonitor;
 
 import javax.annotation.Nonnull;
@@ -50,10 +51,18 @@ public class SynchronousBucketingWriter implements Writer{
                                       PipelineExceptionFactory exceptionFactory,
                                       PartitionFactory partitionFactory,
                                       Clock clock){
+        this(writerFactory,exceptionFactory,partitionFactory,clock,new PipelineTelemetry());
+    }
+
+    public SynchronousBucketingWriter(BulkWriterFactory writerFactory,
+                                      PipelineExceptionFactory exceptionFactory,
+                                      PartitionFactory partitionFactory,
+                                      Clock clock,
+                                      PipelineTelemetry telemetry){
         this.writerFactory=writerFactory;
         this.exceptionFactory=exceptionFactory;
         this.partitionFactory=partitionFactory;
-        this.statusMonitor=new ActionStatusReporter();
+        this.statusMonitor=new ActionStatusReporter(telemetry);
         this.monitor=new ActionStatusMonitor(statusMonitor);
         this.clock = clock;
 
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2012 - 2018 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.pipeline.client;
+
+import com.splicemachine.kvpair.KVPair;
+import com.splicemachine.primitives.Bytes;
+import com.splicemachine.si.api.data.TxnOperationFactory;
+import com.splicemachine.si.api.txn.TxnView;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.Iterator;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for the chunked encoding of BulkWrites.
+ */
+@Category(ArchitectureIndependent.class)
+public class ChunkedPipelineEncodingTest{
+
+    @Test
+    public void testCanEncodeAndDecodeMultipleBulkWrites() throws Exception{
+        TxnView txn=mock(TxnView.class);
+        TxnOperationFactory operationFactory=mockOperationFactory(txn);
+        BulkWrites toEncode=new BulkWrites(generateBulkWrites(10),txn,null,new byte[]{1,2,3});
+
+        byte[] bytes=PipelineEncoding.encodeChunked(operationFactory,toEncode);
+        BulkWrites decoded=PipelineEncoding.decodeChunked(operationFactory,bytes);
+        Assert.assertEquals("Incorrect entry count!",toEncode.numEntries(),decoded.numEntries());
+        Assert.assertArrayEquals("Incorrect token!",toEncode.getToken(),decoded.getToken());
+        assertMatches("Incorrect BulkWrites",toEncode,decoded);
+        //iterating a second time should return the same data
+        assertMatches("Incorrect BulkWrites on second iteration",toEncode,decoded);
+    }
+
+    @Test
+    public void testCanEncodeAndDecodeEmptyBulkWrite() throws Exception{
+        TxnView txn=mock(TxnView.class);
+        TxnOperationFactory operationFactory=mockOperationFactory(txn);
+        Collection<BulkWrite> bws=generateBulkWrites(2);
+        bws.add(new BulkWrite(new ArrayList<KVPair>(),"empty"));
+        BulkWrites toEncode=new BulkWrites(bws,txn);
+
+        BulkWrites decoded=PipelineEncoding.decodeChunked(operationFactory,PipelineEncoding.encodeChunked(operationFactory,toEncode));
+        assertMatches("Incorrect BulkWrites",toEncode,decoded);
+    }
+
+    @Test
+    public void testTypesAreDecodedFromTheHeader() throws Exception{
+        TxnView txn=mock(TxnView.class);
+        TxnOperationFactory operationFactory=mockOperationFactory(txn);
+        BulkWrites toEncode=new BulkWrites(generateBulkWrites(3),txn);
+        BulkWrites decoded=PipelineEncoding.decodeChunked(operationFactory,PipelineEncoding.encodeChunked(operationFactory,toEncode));
+        Assert.assertEquals("Incorrect types!",EnumSet.of(KVPair.Type.INSERT,KVPair.Type.DELETE,KVPair.Type.UPDATE),decoded.getTypes());
+
+        Collection<BulkWrite> inserts=new ArrayList<>();
+        inserts.add(new BulkWrite(new ArrayList<>(Arrays.asList(new KVPair(Bytes.toBytes(1),Bytes.toBytes(2),KVPair.Type.INSERT))),"inserts"));
+        decoded=PipelineEncoding.decodeChunked(operationFactory,PipelineEncoding.encodeChunked(operationFactory,new BulkWrites(inserts,txn)));
+        Assert.assertEquals("Incorrect types!",EnumSet.of(KVPair.Type.INSERT),decoded.getTypes());
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private static TxnOperationFactory mockOperationFactory(TxnView txn){
+        TxnOperationFactory operationFactory=mock(TxnOperationFactory.class);
+        when(operationFactory.encode(any(TxnView.class))).thenReturn(new byte[]{1});
+        when(operationFactory.decode(any(byte[].class),anyInt(),anyInt())).thenReturn(txn);
+        return operationFactory;
+    }
+
+    private static void assertMatches(String errorMsgPrefix,BulkWrites correct,BulkWrites actual){
+        Collection<BulkWrite> correctBws=correct.getBulkWrites();
+        Collection<BulkWrite> actualBws=actual.getBulkWrites();
+        Assert.assertEquals(errorMsgPrefix+": bulk write size does not match!",correctBws.size(),actualBws.size());
+        Iterator<BulkWrite> correctIter=correctBws.iterator();
+        Iterator<BulkWrite> actualIter=actualBws.iterator();
+        int pos=0;
+        while(correctIter.hasNext()){
+            BulkWrite cbw=correctIter.next();
+            BulkWrite abw=actualIter.next();
+            Assert.assertEquals(errorMsgPrefix+": Incorrect encodedStringName at pos "+pos,cbw.getEncodedStringName(),abw.getEncodedStringName());
+            Assert.assertEquals(errorMsgPrefix+": Incorrect flags at pos "+pos,cbw.getFlags(),abw.getFlags());
+
+            Collection<KVPair> cKvs=cbw.getMutations();
+            Collection<KVPair> aKvs=abw.getMutations();
+            Assert.assertEquals(errorMsgPrefix+": Incorrect kvPair size at pos "+pos,cKvs.size(),aKvs.size());
+            Iterator<KVPair> cKvIter=cKvs.iterator();
+            Iterator<KVPair> aKvIter=aKvs.iterator();
+            while(cKvIter.hasNext()){
+                KVPair cKv=cKvIter.next();
+                KVPair aKv=aKvIter.next();
+                Assert.assertEquals(errorMsgPrefix+": KVPair row not correct",cKv.rowKeySlice(),aKv.rowKeySlice());
+                Assert.assertEquals(errorMsgPrefix+": KVPair value not correct",cKv.valueSlice(),aKv.valueSlice());
+                Assert.assertEquals(errorMsgPrefix+": KVPair type not correct",cKv.getType(),aKv.getType());
+            }
+            pos++;
+        }
+    }
+
+    private static Collection<BulkWrite> generateBulkWrites(int size){
+        Collection<BulkWrite> bws=new ArrayList<>(size);
+        for(int i=0;i<size;i++){
+            Collection<KVPair> kvPairs=new ArrayList<>(Arrays.asList(
+                    new KVPair(Bytes.toBytes(i),Bytes.toBytes(i+2),KVPair.Type.INSERT),
+                    new KVPair(Bytes.toBytes(i+1),Bytes.toBytes(Integer.toString(2*i)),KVPair.Type.DELETE),
+                    new KVPair(Bytes.toBytes(i+2),Bytes.toBytes(i/.2f),KVPair.Type.UPDATE)
+            ));
+            bws.add(new BulkWrite(kvPairs,Integer.toString(i)));
+        }
+        return bws;
+    }
+}
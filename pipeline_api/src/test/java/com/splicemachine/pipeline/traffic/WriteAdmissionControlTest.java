@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2012 - 2018 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.splicemachine.pipeline.traffic;
+
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for the queueing and limit adjustment of {@link WriteAdmissionControl}.
+ */
+@Category(ArchitectureIndependent.class)
+public class WriteAdmissionControlTest{
+
+    @Test
+    public void rejectsWithoutWaitingWhenMaxWaitIsZero() throws Exception{
+        SpliceWriteControl writeControl=new AtomicSpliceWriteControl(1,1,100,100);
+        WriteAdmissionControl admission=new WriteAdmissionControl(writeControl,0l,0l,1000l);
+
+        Assert.assertEquals(SpliceWriteControl.Status.DEPENDENT,admission.performWrite(true,100,null));
+        Assert.assertEquals(SpliceWriteControl.Status.REJECTED,admission.performWrite(true,10,null));
+        Assert.assertEquals("Nothing should be waiting!",0,admission.getWaitingWrites());
+    }
+
+    @Test
+    public void rejectsAfterMaxWait() throws Exception{
+        SpliceWriteControl writeControl=new AtomicSpliceWriteControl(1,1,100,100);
+        WriteAdmissionControl admission=new WriteAdmissionControl(writeControl,20l,0l,1000l);
+
+        Assert.assertEquals(SpliceWriteControl.Status.DEPENDENT,admission.performWrite(true,100,null));
+        long start=System.nanoTime();
+        Assert.assertEquals(SpliceWriteControl.Status.REJECTED,admission.performWrite(true,10,null));
+        Assert.assertTrue("Did not wait before rejecting!",System.nanoTime()-start>=TimeUnit.MILLISECONDS.toNanos(20));
+        Assert.assertEquals("Nothing should be waiting!",0,admission.getWaitingWrites());
+    }
+
+    @Test
+    public void admitsWaitingWriteWhenRoomIsMade() throws Exception{
+        SpliceWriteControl writeControl=new AtomicSpliceWriteControl(1,1,100,100);
+        final WriteAdmissionControl admission=new WriteAdmissionControl(writeControl,10000l,0l,1000l);
+
+        Assert.assertEquals(SpliceWriteControl.Status.DEPENDENT,admission.performWrite(true,100,null));
+        ExecutorService executor=Executors.newSingleThreadExecutor();
+        try{
+            Future<SpliceWriteControl.Status> waiting=executor.submit(new Callable<SpliceWriteControl.Status>(){
+                @Override
+                public SpliceWriteControl.Status call() throws Exception{
+                    return admission.performWrite(true,10,null);
+                }
+            });
+            while(admission.getWaitingWrites()==0){
+                Thread.sleep(1);
+            }
+            Assert.assertFalse("Write should still be waiting!",waiting.isDone());
+            admission.finishWrite(SpliceWriteControl.Status.DEPENDENT,100,TimeUnit.MILLISECONDS.toNanos(1));
+            Assert.assertEquals(SpliceWriteControl.Status.DEPENDENT,waiting.get(5,TimeUnit.SECONDS));
+            Assert.assertEquals("Nothing should be waiting!",0,admission.getWaitingWrites());
+        }finally{
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void cutsLimitsWhenWritesAreSlow() throws Exception{
+        SpliceWriteControl writeControl=new AtomicSpliceWriteControl(10,10,1000,1000);
+        WriteAdmissionControl admission=new WriteAdmissionControl(writeControl,0l,10l,1000l);
+
+        Thread.sleep(150);
+        SpliceWriteControl.Status status=admission.performWrite(false,10,null);
+        admission.finishWrite(status,10,TimeUnit.MILLISECONDS.toNanos(50));
+        Assert.assertEquals("Independent limit was not cut!",800,writeControl.maxIndependentWriteCount());
+        Assert.assertEquals("Dependent limit was not cut!",800,writeControl.maxDependentWriteCount());
+
+        //a new ceiling is scaled down in the same way
+        admission.setMaxIndependentWriteCount(500);
+        Assert.assertEquals("Independent limit was not scaled!",400,writeControl.maxIndependentWriteCount());
+    }
+
+    @Test
+    public void suggestedBackoffIsBounded() throws Exception{
+        SpliceWriteControl writeControl=new AtomicSpliceWriteControl(10,10,1000,1000);
+        WriteAdmissionControl admission=new WriteAdmissionControl(writeControl,0l,0l,100l);
+
+        Assert.assertEquals("Should suggest a minimal backoff with no history!",1l,admission.suggestedBackoff());
+        SpliceWriteControl.Status status=admission.performWrite(false,10,null);
+        admission.finishWrite(status,10,TimeUnit.SECONDS.toNanos(10));
+        Assert.assertEquals("Should not suggest more than the maximum backoff!",100l,admission.suggestedBackoff());
+    }
+}
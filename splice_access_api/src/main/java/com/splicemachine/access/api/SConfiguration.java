@@ -147,6 +147,10 @@ public interface SConfiguration {
 
     long getClientPause();
 
+    long getWriteAdmissionMaxWait();
+
+    long getWriteAdmissionTargetLatency();
+
     long getMaxBufferHeapSize();
 
     long getStartupLockWaitPeriod();
@@ -159,6 +163,8 @@ public interface SConfiguration {
 
     int getSparkResultStreamingBatchSize();
 
+    boolean getSparkResultStreamingUnordered();
+
     double getBulkImportSampleFraction();
 
     String getAuthorizationScheme();
@@ -182,6 +188,10 @@ public interface SConfiguration {
 
     int getReadResolverThreads();
 
+    int getReadResolverBatchSize();
+
+    double getReadResolverMaxWritePressure();
+
     int getRollforwardQueueSize();
     int getRollforwardFirstWait();
     int getRollforwardSecondWait();
@@ -281,6 +291,20 @@ public interface SConfiguration {
 
     int getNestedLoopJoinBatchSize();
 
+    long getBroadcastJoinCacheMaxMemory();
+
+    long getBroadcastJoinCacheExpiration();
+
+    String getControlSpillDirectory();
+
+    long getControlSortMemoryThreshold();
+
+    long getControlAggregateMemoryThreshold();
+
+    int getControlScanBatchSize();
+
+    int getZoneMapBlockRows();
+
     // StatsConfiguration
     double getFallbackNullFraction();
 
@@ -344,6 +368,10 @@ public interface SConfiguration {
 
     int getOlapServerTickLimit();
 
+    long getOlapServerJobAgingTime();
+
+    int getOlapServerReservedInteractiveThreads();
+
     long getControlExecutionRowLimit();
 
     String getOlapLog4jConfig();
@@ -30,6 +30,8 @@ public class ConfigurationBuilder {
     public int completedTxnConcurrency;
     public int readResolverQueueSize;
     public int readResolverThreads;
+    public int readResolverBatchSize;
+    public double readResolverMaxWritePressure;
     public int timestampClientWaitTime;
     public int timestampServerBindPort;
     public int transactionKeepAliveThreads;
@@ -130,6 +132,8 @@ public class ConfigurationBuilder {
     public boolean olapServerExternal;
     public int olapServerThreads;
     public int olapServerTickLimit;
+    public long olapServerJobAgingTime;
+    public int olapServerReservedInteractiveThreads;
     public int olapServerSubmitAttempts;
     public int olapServerMemory;
     public int olapServerMemoryOverhead;
@@ -149,6 +153,13 @@ public class ConfigurationBuilder {
     public String storageFactoryHome;
     public int nestedLoopJoinBatchSize;
     public int maxCheckTableErrors;
+    public long broadcastJoinCacheMaxMemory;
+    public long broadcastJoinCacheExpiration;
+    public String controlSpillDirectory;
+    public long controlSortMemoryThreshold;
+    public long controlAggregateMemoryThreshold;
+    public int controlScanBatchSize;
+    public int zoneMapBlockRows;
     public int rollForwardQueueSize;
     public int rollForwardFirstWait;
     public int rollForwardSecondWait;
@@ -169,10 +180,13 @@ public class ConfigurationBuilder {
     public long clientPause;
     public long maxBufferHeapSize;
     public long startupLockWaitPeriod;
+    public long writeAdmissionMaxWait;
+    public long writeAdmissionTargetLatency;
     public long threadKeepaliveTime;
     public String sparkIoCompressionCodec;
     public int sparkResultStreamingBatchSize;
     public int sparkResultStreamingBatches;
+    public boolean sparkResultStreamingUnordered;
     public int compactionReservedSlots;
     public int reservedSlotsTimeout;
     public int olapCompactionMaximumWait;
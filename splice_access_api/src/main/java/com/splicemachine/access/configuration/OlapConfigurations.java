@@ -54,6 +54,25 @@ public class OlapConfigurations implements ConfigurationDefault {
     public static final String OLAP_SERVER_THREADS = "splice.olap_server.threads";
     private static final int DEFAULT_OLAP_SERVER_THREADS = 16;
 
+    /**
+     * Number of milliseconds an Olap job waits in the queue before it is scheduled as if it belonged to the
+     * next higher priority class (and again after each further period), so that compactions and statistics
+     * are never starved
+     *
+     * Defaults to 60000 (1 min)
+     */
+    public static final String OLAP_SERVER_JOB_AGING_TIME = "splice.olap_server.jobAgingTime";
+    private static final long DEFAULT_OLAP_SERVER_JOB_AGING_TIME = 60000L;
+
+    /**
+     * Number of Olap server threads which only interactive jobs may use, so that background work
+     * (imports, statistics, compactions) can never take every slot
+     *
+     * Defaults to 4
+     */
+    public static final String OLAP_SERVER_RESERVED_INTERACTIVE_THREADS = "splice.olap_server.reservedInteractiveThreads";
+    private static final int DEFAULT_OLAP_SERVER_RESERVED_INTERACTIVE_THREADS = 4;
+
     public static final String OLAP_SERVER_TICK_LIMIT = "splice.olap_server.tickLimit";
     private static final int DEFAULT_OLAP_SERVER_TICK_LIMIT = 120;
 
@@ -127,6 +146,8 @@ public class OlapConfigurations implements ConfigurationDefault {
         builder.olapClientTickTime  = configurationSource.getInt(OLAP_CLIENT_TICK_TIME, DEFAULT_OLAP_CLIENT_TICK_TIME);
         builder.olapServerThreads = configurationSource.getInt(OLAP_SERVER_THREADS, DEFAULT_OLAP_SERVER_THREADS);
         builder.olapServerTickLimit = configurationSource.getInt(OLAP_SERVER_TICK_LIMIT,DEFAULT_OLAP_SERVER_TICK_LIMIT);
+        builder.olapServerJobAgingTime = configurationSource.getLong(OLAP_SERVER_JOB_AGING_TIME, DEFAULT_OLAP_SERVER_JOB_AGING_TIME);
+        builder.olapServerReservedInteractiveThreads = configurationSource.getInt(OLAP_SERVER_RESERVED_INTERACTIVE_THREADS, DEFAULT_OLAP_SERVER_RESERVED_INTERACTIVE_THREADS);
         builder.olapClientRetries = configurationSource.getInt(OLAP_CLIENT_RETRIES,DEFAULT_OLAP_CLIENT_RETRIES);
         builder.olapServerSubmitAttempts = configurationSource.getInt(OLAP_SERVER_SUBMIT_ATTEMPTS, DEFAULT_OLAP_SERVER_SUBMIT_ATTEMPTS);
         builder.olapServerMemory = configurationSource.getInt(OLAP_SERVER_MEMORY, DEFAULT_OLAP_SERVER_MEMORY);
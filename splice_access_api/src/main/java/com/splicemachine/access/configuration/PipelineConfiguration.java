@@ -22,6 +22,7 @@ public class PipelineConfiguration implements ConfigurationDefault {
     public static final String WRITE_COORDINATOR_OBJECT_LOCATION = "com.splicemachine.writer:type=WriteCoordinatorStatus";
     public static final String WRITER_STATUS_OBJECT_LOCATION = "com.splicemachine.writer.async:type=WriterStatus";
     public static final String THREAD_POOL_STATUS_LOCATION = "com.splicemachine.writer.async:type=ThreadPoolStatus";
+    public static final String PIPELINE_TELEMETRY_LOCATION = "com.splicemachine.writer:type=PipelineTelemetry";
 
     public static final String MAX_BUFFER_ENTRIES= "splice.client.write.buffer.maxentries";
     public static final int DEFAULT_MAX_BUFFER_ENTRIES = 1000;
@@ -38,6 +39,14 @@ public class PipelineConfiguration implements ConfigurationDefault {
     public static final String SPARK_RESULT_STREAMING_BATCH_SIZE = "spark.result.streaming.batch.size";
     public static final int DEFAULT_SPARK_RESULT_STREAMING_BATCH_SIZE = 1024;
 
+    /**
+     * Whether results of queries without an ORDER BY are read from whichever Spark partition has data available,
+     * rather than one partition after another.
+     * Defaults to true
+     */
+    public static final String SPARK_RESULT_STREAMING_UNORDERED = "spark.result.streaming.unordered";
+    public static final boolean DEFAULT_SPARK_RESULT_STREAMING_UNORDERED = true;
+
     public static final String SPARK_COMPACTION_RESERVED_SLOTS = "spark.compaction.reserved.slots";
     public static final int DEFAULT_SPARK_COMPACTION_RESERVED_SLOTS = 1;
 
@@ -152,6 +161,32 @@ public class PipelineConfiguration implements ConfigurationDefault {
     public static final String MAX_DEPENDENT_WRITE_THREADS="splice.dependent.write.threads";
     public static final int DEFAULT_MAX_DEPENDENT_WRITE_THREADS = 50;
 
+    /**
+     * The maximum length of time (in milliseconds) that a write may wait on the region server for
+     * the pipeline to have room for it, before it is rejected (and the client has to resend it).
+     * Waiting writes are admitted one transaction at a time, in turn, so that a large write can't
+     * starve smaller ones.
+     *
+     * Set to 0 to reject writes as soon as the pipeline is full.
+     *
+     * Defaults to 50 ms
+     */
+    public static final String WRITE_ADMISSION_MAX_WAIT="splice.writer.admission.maxWait";
+    public static final long DEFAULT_WRITE_ADMISSION_MAX_WAIT=50;
+
+    /**
+     * The target latency (in milliseconds) for a single bulk write on the region server. While writes take
+     * longer than this, the number of rows allowed in flight is cut back; while they are faster and writes
+     * are waiting, it is allowed to grow again, up to splice.client.write.maxDependentWrites and
+     * splice.client.write.maxIndependentWrites.
+     *
+     * Set to 0 to always allow the configured number of rows in flight.
+     *
+     * Defaults to 500 ms
+     */
+    public static final String WRITE_ADMISSION_TARGET_LATENCY="splice.writer.admission.targetLatency";
+    public static final long DEFAULT_WRITE_ADMISSION_TARGET_LATENCY=500;
+
     public static final String PIPELINE_KRYO_POOL_SIZE= "splice.writer.kryoPoolSize";
     private static final int DEFAULT_PIPELINE_KRYO_POOL_SIZE=1024;
 
@@ -183,10 +218,13 @@ public class PipelineConfiguration implements ConfigurationDefault {
         builder.clientPause = configurationSource.getLong(CLIENT_PAUSE, DEFAULT_CLIENT_PAUSE);
         builder.maxBufferHeapSize = configurationSource.getLong(MAX_BUFFER_HEAP_SIZE, DEFAULT_WRITE_BUFFER_SIZE);
         builder.startupLockWaitPeriod = configurationSource.getLong(STARTUP_LOCK_WAIT_PERIOD, DEFAULT_STARTUP_LOCK_PERIOD);
+        builder.writeAdmissionMaxWait = configurationSource.getLong(WRITE_ADMISSION_MAX_WAIT, DEFAULT_WRITE_ADMISSION_MAX_WAIT);
+        builder.writeAdmissionTargetLatency = configurationSource.getLong(WRITE_ADMISSION_TARGET_LATENCY, DEFAULT_WRITE_ADMISSION_TARGET_LATENCY);
 
         builder.sparkIoCompressionCodec = configurationSource.getString(SPARK_IO_COMPRESSION_CODEC, DEFAULT_SPARK_IO_COMPRESSION_CODEC);
         builder.sparkResultStreamingBatches = configurationSource.getInt(SPARK_RESULT_STREAMING_BATCHES, DEFAULT_SPARK_RESULT_STREAMING_BATCHES);
         builder.sparkResultStreamingBatchSize = configurationSource.getInt(SPARK_RESULT_STREAMING_BATCH_SIZE, DEFAULT_SPARK_RESULT_STREAMING_BATCH_SIZE);
+        builder.sparkResultStreamingUnordered = configurationSource.getBoolean(SPARK_RESULT_STREAMING_UNORDERED, DEFAULT_SPARK_RESULT_STREAMING_UNORDERED);
         builder.compactionReservedSlots = configurationSource.getInt(SPARK_COMPACTION_RESERVED_SLOTS, DEFAULT_SPARK_COMPACTION_RESERVED_SLOTS);
 
         builder.reservedSlotsTimeout = configurationSource.getInt(SPARK_RESERVED_SLOTS_TIMEOUT, DEFAULT_SPARK_RESERVED_SLOTS_TIMEOUT);
@@ -113,10 +113,13 @@ public final class SConfigurationImpl implements SConfiguration {
     private final  long clientPause;
     private final  long maxBufferHeapSize;
     private final  long startupLockWaitPeriod;
+    private final  long writeAdmissionMaxWait;
+    private final  long writeAdmissionTargetLatency;
     private final  long threadKeepaliveTime;
     private final  String sparkIoCompressionCodec;
     private final int sparkResultStreamingBatches;
     private final int sparkResultStreamingBatchSize;
+    private final boolean sparkResultStreamingUnordered;
     private final int compactionReservedSlots;
     private final int olapCompactionMaximumWait;
     private final int olapCompactionMaximumConcurrent;
@@ -143,6 +146,8 @@ public final class SConfigurationImpl implements SConfiguration {
     private final boolean olapServerExternal;
     private final int olapServerThreads;
     private final int olapServerTickLimit;
+    private final long olapServerJobAgingTime;
+    private final int olapServerReservedInteractiveThreads;
     private final int olapClientRetries;
     private final int olapShufflePartitions;
     private final int olapServerSubmitAttempts;
@@ -157,6 +162,8 @@ public final class SConfigurationImpl implements SConfiguration {
     private final  int completedTxnConcurrency;
     private final  int readResolverQueueSize;
     private final  int readResolverThreads;
+    private final  int readResolverBatchSize;
+    private final  double readResolverMaxWritePressure;
     private final  int timestampClientWaitTime;
     private final  int timestampServerBindPort;
     private final  int transactionKeepAliveThreads;
@@ -194,6 +201,13 @@ public final class SConfigurationImpl implements SConfiguration {
     private final int nestedLoopJoinBatchSize;
     private final long controlExecutionRowLimit;
     private final int maxCheckTableErrors;
+    private final long broadcastJoinCacheMaxMemory;
+    private final long broadcastJoinCacheExpiration;
+    private final String controlSpillDirectory;
+    private final long controlSortMemoryThreshold;
+    private final long controlAggregateMemoryThreshold;
+    private final int controlScanBatchSize;
+    private final int zoneMapBlockRows;
 
     // StatsConfiguration
     private final  double fallbackNullFraction;
@@ -447,6 +461,14 @@ public final class SConfigurationImpl implements SConfiguration {
         return clientPause;
     }
     @Override
+    public long getWriteAdmissionMaxWait() {
+        return writeAdmissionMaxWait;
+    }
+    @Override
+    public long getWriteAdmissionTargetLatency() {
+        return writeAdmissionTargetLatency;
+    }
+    @Override
     public long getMaxBufferHeapSize() {
         return maxBufferHeapSize;
     }
@@ -488,6 +510,11 @@ public final class SConfigurationImpl implements SConfiguration {
         return sparkResultStreamingBatchSize;
     }
 
+    @Override
+    public boolean getSparkResultStreamingUnordered() {
+        return sparkResultStreamingUnordered;
+    }
+
     // SIConfigurations
     @Override
     public int getActiveTransactionCacheSize() {
@@ -509,6 +536,14 @@ public final class SConfigurationImpl implements SConfiguration {
     public int getReadResolverThreads() {
         return readResolverThreads;
     }
+    @Override
+    public int getReadResolverBatchSize() {
+        return readResolverBatchSize;
+    }
+    @Override
+    public double getReadResolverMaxWritePressure() {
+        return readResolverMaxWritePressure;
+    }
 
     @Override
     public int getRollforwardQueueSize() {
@@ -724,6 +759,34 @@ public final class SConfigurationImpl implements SConfiguration {
     public int getNestedLoopJoinBatchSize() {
         return nestedLoopJoinBatchSize;
     }
+    @Override
+    public long getBroadcastJoinCacheMaxMemory() {
+        return broadcastJoinCacheMaxMemory;
+    }
+    @Override
+    public long getBroadcastJoinCacheExpiration() {
+        return broadcastJoinCacheExpiration;
+    }
+    @Override
+    public String getControlSpillDirectory() {
+        return controlSpillDirectory;
+    }
+    @Override
+    public long getControlSortMemoryThreshold() {
+        return controlSortMemoryThreshold;
+    }
+    @Override
+    public long getControlAggregateMemoryThreshold() {
+        return controlAggregateMemoryThreshold;
+    }
+    @Override
+    public int getControlScanBatchSize() {
+        return controlScanBatchSize;
+    }
+    @Override
+    public int getZoneMapBlockRows() {
+        return zoneMapBlockRows;
+    }
 
     // StatsConfiguration
     @Override
@@ -812,6 +875,8 @@ public final class SConfigurationImpl implements SConfiguration {
         completedTxnConcurrency = builder.completedTxnConcurrency;
         readResolverQueueSize = builder.readResolverQueueSize;
         readResolverThreads = builder.readResolverThreads;
+        readResolverBatchSize = builder.readResolverBatchSize;
+        readResolverMaxWritePressure = builder.readResolverMaxWritePressure;
         timestampClientWaitTime = builder.timestampClientWaitTime;
         timestampServerBindPort = builder.timestampServerBindPort;
         transactionKeepAliveThreads = builder.transactionKeepAliveThreads;
@@ -911,6 +976,8 @@ public final class SConfigurationImpl implements SConfiguration {
         clientPause = builder.clientPause;
         maxBufferHeapSize = builder.maxBufferHeapSize;
         startupLockWaitPeriod = builder.startupLockWaitPeriod;
+        writeAdmissionMaxWait = builder.writeAdmissionMaxWait;
+        writeAdmissionTargetLatency = builder.writeAdmissionTargetLatency;
         threadKeepaliveTime = builder.threadKeepaliveTime;
         indexFetchSampleSize = builder.indexFetchSampleSize;
         batchOnceBatchSize = builder.batchOnceBatchSize;
@@ -922,6 +989,8 @@ public final class SConfigurationImpl implements SConfiguration {
         olapServerExternal = builder.olapServerExternal;
         olapServerThreads = builder.olapServerThreads;
         olapServerTickLimit = builder.olapServerTickLimit;
+        olapServerJobAgingTime = builder.olapServerJobAgingTime;
+        olapServerReservedInteractiveThreads = builder.olapServerReservedInteractiveThreads;
         olapServerSubmitAttempts = builder.olapServerSubmitAttempts;
         olapServerMemory = builder.olapServerMemory;
         olapServerMemoryOverhead = builder.olapServerMemoryOverhead;
@@ -930,6 +999,7 @@ public final class SConfigurationImpl implements SConfiguration {
         olapShufflePartitions = builder.olapShufflePartitions;
         sparkResultStreamingBatches = builder.sparkResultStreamingBatches;
         sparkResultStreamingBatchSize = builder.sparkResultStreamingBatchSize;
+        sparkResultStreamingUnordered = builder.sparkResultStreamingUnordered;
         compactionReservedSlots = builder.compactionReservedSlots;
         olapCompactionMaximumWait = builder.olapCompactionMaximumWait;
         olapCompactionMaximumConcurrent = builder.olapCompactionMaximumConcurrent;
@@ -948,6 +1018,13 @@ public final class SConfigurationImpl implements SConfiguration {
         regionToLoadPerTask = builder.regionToLoadPerTask;
         ignoreMissingTxns = builder.ignoreMissingTxns;
         maxCheckTableErrors = builder.maxCheckTableErrors;
+        broadcastJoinCacheMaxMemory = builder.broadcastJoinCacheMaxMemory;
+        broadcastJoinCacheExpiration = builder.broadcastJoinCacheExpiration;
+        controlSpillDirectory = builder.controlSpillDirectory;
+        controlSortMemoryThreshold = builder.controlSortMemoryThreshold;
+        controlAggregateMemoryThreshold = builder.controlAggregateMemoryThreshold;
+        controlScanBatchSize = builder.controlScanBatchSize;
+        zoneMapBlockRows = builder.zoneMapBlockRows;
         rollForwardQueueSize = builder.rollForwardQueueSize;
         rollForwardFirstWait = builder.rollForwardFirstWait;
         rollForwardSecondWait = builder.rollForwardSecondWait;
@@ -1041,6 +1118,16 @@ public final class SConfigurationImpl implements SConfiguration {
         return olapServerTickLimit;
     }
 
+    @Override
+    public long getOlapServerJobAgingTime(){
+        return olapServerJobAgingTime;
+    }
+
+    @Override
+    public int getOlapServerReservedInteractiveThreads(){
+        return olapServerReservedInteractiveThreads;
+    }
+
     @Override
     public long getControlExecutionRowLimit() {
         return controlExecutionRowLimit;
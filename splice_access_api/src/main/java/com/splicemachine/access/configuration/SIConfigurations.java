@@ -50,6 +50,21 @@ public class SIConfigurations implements ConfigurationDefault {
     public static final String READ_RESOLVER_QUEUE_SIZE = "splice.txn.readresolver.queueSize";
     private static final int DEFAULT_READ_RESOLVER_QUEUE_SIZE=1<<16;
 
+    /*
+     * The maximum number of rows which are read-resolved in a single bulk write to a region
+     */
+    public static final String READ_RESOLVER_BATCH_SIZE = "splice.txn.readresolver.batchSize";
+    private static final int DEFAULT_READ_RESOLVER_BATCH_SIZE=256;
+
+    /*
+     * How much write pressure a region may be under before read resolution backs off from it, as a fraction
+     * of the memstore size at which HBase blocks writes. Above half of this value, read resolution writes
+     * progressively less, and at this value it stops entirely (the rows will be resolved by a later read or
+     * by compaction instead).
+     */
+    public static final String READ_RESOLVER_MAX_WRITE_PRESSURE = "splice.txn.readresolver.maxWritePressure";
+    private static final double DEFAULT_READ_RESOLVER_MAX_WRITE_PRESSURE=0.5d;
+
     public static final String IGNORE_MISSING_TXN = "splice.ignore.missing.transactions";
     private static final boolean DEFAULT_IGNORE_MISSING_TXN=false;
 
@@ -171,6 +186,12 @@ public class SIConfigurations implements ConfigurationDefault {
         builder.readResolverThreads  = configurationSource.getInt(READ_RESOLVER_THREADS, DEFAULT_READ_RESOLVER_THREADS);
         builder.readResolverQueueSize  = configurationSource.getInt(READ_RESOLVER_QUEUE_SIZE, -1); //TODO -sf- reset to DEFAULT once ReadResolution works
 //        builder.readResolverQueueSize  = configurationSource.getInt(READ_RESOLVER_QUEUE_SIZE, DEFAULT_READ_RESOLVER_QUEUE_SIZE);
+        builder.readResolverBatchSize  = configurationSource.getInt(READ_RESOLVER_BATCH_SIZE, DEFAULT_READ_RESOLVER_BATCH_SIZE);
+        builder.readResolverMaxWritePressure = configurationSource.getDouble(READ_RESOLVER_MAX_WRITE_PRESSURE, DEFAULT_READ_RESOLVER_MAX_WRITE_PRESSURE);
+        if (builder.readResolverMaxWritePressure < 0)
+            builder.readResolverMaxWritePressure = 0;
+        if (builder.readResolverMaxWritePressure > 1)
+            builder.readResolverMaxWritePressure = 1;
         builder.timestampClientWaitTime  = configurationSource.getInt(TIMESTAMP_CLIENT_WAIT_TIME, DEFAULT_TIMESTAMP_CLIENT_WAIT_TIME);
         builder.timestampServerBindPort  = configurationSource.getInt(TIMESTAMP_SERVER_BIND_PORT, DEFAULT_TIMESTAMP_SERVER_BIND_PORT);
         builder.activeTransactionCacheSize  = configurationSource.getInt(ACTIVE_TRANSACTION_CACHE_SIZE, DEFAULT_ACTIVE_TRANSACTION_CACHE_SIZE);
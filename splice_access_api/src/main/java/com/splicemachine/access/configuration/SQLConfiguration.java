@@ -228,6 +228,71 @@ public class SQLConfiguration implements ConfigurationDefault {
     public static final String MAX_CHECK_TABLE_ERRORS="splice.max.checktable.error";
     private static final int DEFAULT_MAX_CHECK_TABLE_ERRORS = 1000;
 
+    /**
+     * The total number of bytes that the tables held by the broadcast join cache may occupy. Once
+     * this is exceeded, the least recently used tables which are not in use by any task are evicted.
+     * Tables which are in use are never evicted, so the cache may temporarily exceed this limit.
+     *
+     * Defaults to 1 GB
+     */
+    public static final String BROADCAST_JOIN_CACHE_MAX_MEMORY = "splice.execution.broadcastJoinCache.maxMemory";
+    private static final long DEFAULT_BROADCAST_JOIN_CACHE_MAX_MEMORY = 1024*1024*1024L;
+
+    /**
+     * The length of time (in milliseconds) that a broadcast join table which is no longer in use
+     * is kept in the cache, so that later tasks of the same query can share it.
+     *
+     * Defaults to 10000 (10 seconds)
+     */
+    public static final String BROADCAST_JOIN_CACHE_EXPIRATION = "splice.execution.broadcastJoinCache.expiration";
+    private static final long DEFAULT_BROADCAST_JOIN_CACHE_EXPIRATION = 10000L;
+
+    /**
+     * The local directory in which control side operations (sorts, aggregations) write
+     * their temporary files once they exceed their memory budget.
+     *
+     * Defaults to the value of java.io.tmpdir
+     */
+    public static final String CONTROL_SPILL_DIRECTORY = "splice.execution.control.spillDirectory";
+
+    /**
+     * The estimated number of bytes which a single control side sort may hold in memory before
+     * it begins writing sorted runs to the spill directory.
+     *
+     * Defaults to 64 MB
+     */
+    public static final String CONTROL_SORT_MEMORY_THRESHOLD = "splice.execution.control.sortMemoryThreshold";
+    private static final long DEFAULT_CONTROL_SORT_MEMORY_THRESHOLD = 64*1024*1024L;
+
+    /**
+     * The estimated number of bytes which a single control side aggregation (or grouping) may hold
+     * in memory before it begins writing hash partitions to the spill directory.
+     *
+     * Defaults to 64 MB
+     */
+    public static final String CONTROL_AGGREGATE_MEMORY_THRESHOLD = "splice.execution.control.aggregateMemoryThreshold";
+    private static final long DEFAULT_CONTROL_AGGREGATE_MEMORY_THRESHOLD = 64*1024*1024L;
+
+    /**
+     * The number of rows which a control side table scan decodes at a time into column vectors, before
+     * applying the scan's qualifiers to the whole batch. Set to 0 to decode (and qualify) one row at a time.
+     *
+     * Defaults to 0 (disabled)
+     */
+    public static final String CONTROL_SCAN_BATCH_SIZE = "splice.execution.control.scanBatchSize";
+    private static final int DEFAULT_CONTROL_SCAN_BATCH_SIZE = 0;
+
+    /**
+     * The number of rows in each block of a store file's zone map (the per block min/max values of each
+     * scalar column, which region servers keep for the files they flush and compact, so that control side
+     * scans can skip blocks which cannot satisfy the scan's qualifiers). Set to 0 to keep no zone maps.
+     * A table can override this with the same key in its table descriptor.
+     *
+     * Defaults to 0 (disabled)
+     */
+    public static final String ZONE_MAP_BLOCK_ROWS = "splice.execution.zoneMap.blockRows";
+    private static final int DEFAULT_ZONE_MAP_BLOCK_ROWS = 0;
+
     @Override
     public void setDefaults(ConfigurationBuilder builder, ConfigurationSource configurationSource) {
         // FIXME: JC - some of these are not referenced anywhere outside. Do we need them?
@@ -273,5 +338,12 @@ public class SQLConfiguration implements ConfigurationDefault {
 
         builder.networkBindAddress = configurationSource.getString(NETWORK_BIND_ADDRESS, DEFAULT_NETWORK_BIND_ADDRESS);
         builder.maxCheckTableErrors = configurationSource.getInt(MAX_CHECK_TABLE_ERRORS, DEFAULT_MAX_CHECK_TABLE_ERRORS);
+        builder.broadcastJoinCacheMaxMemory = configurationSource.getLong(BROADCAST_JOIN_CACHE_MAX_MEMORY, DEFAULT_BROADCAST_JOIN_CACHE_MAX_MEMORY);
+        builder.broadcastJoinCacheExpiration = configurationSource.getLong(BROADCAST_JOIN_CACHE_EXPIRATION, DEFAULT_BROADCAST_JOIN_CACHE_EXPIRATION);
+        builder.controlSpillDirectory = configurationSource.getString(CONTROL_SPILL_DIRECTORY, System.getProperty("java.io.tmpdir"));
+        builder.controlSortMemoryThreshold = configurationSource.getLong(CONTROL_SORT_MEMORY_THRESHOLD, DEFAULT_CONTROL_SORT_MEMORY_THRESHOLD);
+        builder.controlAggregateMemoryThreshold = configurationSource.getLong(CONTROL_AGGREGATE_MEMORY_THRESHOLD, DEFAULT_CONTROL_AGGREGATE_MEMORY_THRESHOLD);
+        builder.controlScanBatchSize = configurationSource.getInt(CONTROL_SCAN_BATCH_SIZE, DEFAULT_CONTROL_SCAN_BATCH_SIZE);
+        builder.zoneMapBlockRows = configurationSource.getInt(ZONE_MAP_BLOCK_ROWS, DEFAULT_ZONE_MAP_BLOCK_ROWS);
     }
 }
@@ -41,6 +41,21 @@ public abstract class DistributedJob implements Serializable{
 
     public abstract String getName();
 
+    /**
+     * @return the scheduling class of this job
+     */
+    public OlapJobPriority getPriority() {
+        return OlapJobPriority.INTERACTIVE;
+    }
+
+    /**
+     * @return the user this job runs for, or {@code null} for system work. The Olap server shares the
+     * jobs it runs out evenly between the owners of each scheduling class.
+     */
+    public String getOwner() {
+        return null;
+    }
+
     public final String getUniqueName() {
         return getName() + "-" + uuid.toString();
     }
@@ -0,0 +1,30 @@
+/*
+ * Copyright (c) 2012 - 2018 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.iapi.sql.olap;
+
+/**
+ * The scheduling class of a {@link DistributedJob}. When the Olap server is running as many jobs as it
+ * is allowed to, it starts the waiting jobs of a class before those of any class declared after it.
+ */
+public enum OlapJobPriority{
+    /** Queries and DDL which a user is waiting on */
+    INTERACTIVE,
+    /** Bulk data loads */
+    IMPORT,
+    /** Statistics collection */
+    STATISTICS,
+    /** Background compactions */
+    COMPACTION
+}
@@ -28,6 +28,12 @@ public interface JoinTable extends AutoCloseable{
 
     interface Factory{
         JoinTable newTable();
+
+        /**
+         * @return an estimate of the number of bytes (on or off heap) held by the tables
+         * created from this factory
+         */
+        long estimatedSizeInBytes();
     }
 
     Iterator<ExecRow> fetchInner(ExecRow outer) throws IOException, StandardException;
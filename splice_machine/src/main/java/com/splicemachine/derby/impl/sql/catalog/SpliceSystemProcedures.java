@@ -266,6 +266,16 @@ public class SpliceSystemProcedures extends DefaultSystemProcedureGenerator {
                             .build();
                     procedures.add(getWriteIntakeInfo);
 
+                    /*
+                     * Procedure get write pipeline latency, retry and failure statistics, by table and region
+                     */
+                    Procedure getWritePipelineTelemetry = Procedure.newBuilder().name("SYSCS_GET_WRITE_PIPELINE_TELEMETRY")
+                            .numOutputParams(0)
+                            .numResultSets(1)
+                            .ownerClass(SpliceAdmin.class.getCanonicalName())
+                            .build();
+                    procedures.add(getWritePipelineTelemetry);
+
                     /*
         			 * Procedure get exec service info
         			 */
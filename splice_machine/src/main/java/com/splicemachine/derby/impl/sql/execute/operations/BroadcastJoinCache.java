@@ -15,29 +15,66 @@
 package com.splicemachine.derby.impl.sql.execute.operations;
 
 import com.splicemachine.db.iapi.sql.conn.ResubmitDistributedException;
-import org.spark_project.guava.cache.Cache;
-import org.spark_project.guava.cache.CacheBuilder;
 import com.splicemachine.db.iapi.error.StandardException;
 import com.splicemachine.db.iapi.sql.execute.ExecRow;
 import com.splicemachine.derby.impl.sql.JoinTable;
 import com.splicemachine.pipeline.Exceptions;
 import com.splicemachine.stream.Stream;
+import com.splicemachine.utils.SpliceLogUtils;
+import org.apache.log4j.Logger;
+import org.spark_project.guava.util.concurrent.ThreadFactoryBuilder;
 
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
 import java.util.Iterator;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Represents a Cache of records for use in a Broadcast Join.
  *
+ * Each table is built exactly once; concurrent requests for the same operation wait for the
+ * in-flight build instead of starting their own. A table is pinned in the cache for as long as
+ * any task holds a reference to it. Once it is no longer referenced, it is retained until it
+ * has been idle for longer than the expiration time, or until the estimated size of all cached
+ * tables exceeds the memory budget, at which point the least recently used unreferenced
+ * tables are evicted first. Idle tables are expired whenever a table is requested, and by a background
+ * sweep once {@link #startExpirationSweep()} has been called, so that they are freed even if no other
+ * broadcast join runs.
+ *
  * @author Scott Fines
  *         Date: 10/27/15
  */
-public class BroadcastJoinCache{
-    private final Cache<Long,ReferenceCountingFactory> cache;
+public class BroadcastJoinCache implements BroadcastJoinCacheStatistics{
+    private static final Logger LOG=Logger.getLogger(BroadcastJoinCache.class);
+    private static final long DEFAULT_MAX_MEMORY=1024*1024*1024L;
+    private static final long DEFAULT_EXPIRATION_MILLIS=10000L;
+    private static final long MIN_SWEEP_MILLIS=1000L;
+    private static final ScheduledExecutorService SWEEPER=Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("broadcastJoinCacheSweeper").setDaemon(true).build());
+
+    private final ConcurrentMap<Long,ReferenceCountingFactory> cache=new ConcurrentHashMap<>();
     private final JoinTableLoader tableLoader;
+    private final long maxMemory;
+    private final long expirationNanos;
+    private final Object evictionLock=new Object();
+    private ScheduledFuture<?> sweep;
+
+    private final AtomicLong currentMemory=new AtomicLong(0L);
+    private final AtomicLong hits=new AtomicLong(0L);
+    private final AtomicLong builds=new AtomicLong(0L);
+    private final AtomicLong evictions=new AtomicLong(0L);
 
     interface JoinTableLoader{
         JoinTable.Factory load(Callable<Stream<ExecRow>> streamLoader,
@@ -47,16 +84,21 @@ public class BroadcastJoinCache{
     }
 
     public BroadcastJoinCache(){
-       this(ByteBufferMapTableLoader.INSTANCE);
+       this(DEFAULT_MAX_MEMORY,DEFAULT_EXPIRATION_MILLIS);
+    }
+
+    public BroadcastJoinCache(long maxMemory,long expirationMillis){
+       this(OffHeapJoinTableLoader.INSTANCE,maxMemory,expirationMillis);
     }
 
     public BroadcastJoinCache(JoinTableLoader tableLoader){
+        this(tableLoader,DEFAULT_MAX_MEMORY,DEFAULT_EXPIRATION_MILLIS);
+    }
+
+    public BroadcastJoinCache(JoinTableLoader tableLoader,long maxMemory,long expirationMillis){
         this.tableLoader = tableLoader;
-        this.cache =CacheBuilder.newBuilder()
-                .maximumSize(1000)
-                .expireAfterAccess(2,TimeUnit.SECONDS)
-                .softValues()
-                .build();
+        this.maxMemory=maxMemory;
+        this.expirationNanos=TimeUnit.MILLISECONDS.toNanos(expirationMillis);
     }
 
     public JoinTable.Factory get(Long operationId,
@@ -64,40 +106,154 @@ public class BroadcastJoinCache{
                          int[] rightHashKeys,
                          int[] leftHashKeys,
                          ExecRow leftTemplateRow) throws IOException, StandardException{
+        expireIdleTables();
+        while(true){
+            boolean build=false;
+            ReferenceCountingFactory joinTable=cache.get(operationId);
+            if(joinTable==null){
+                Loader callable=new Loader(tableLoader,rightHashKeys,leftHashKeys,leftTemplateRow,loader);
+                ReferenceCountingFactory newTable=new ReferenceCountingFactory(callable,operationId);
+                joinTable=cache.putIfAbsent(operationId,newTable);
+                if(joinTable==null){
+                    joinTable=newTable;
+                    build=true;
+                }
+            }
+            if(!joinTable.acquire()){
+                //the table was evicted between when we looked it up and when we tried to use it
+                continue;
+            }
+
+            try{
+                if(build){
+                    builds.incrementAndGet();
+                    joinTable.build();
+                    currentMemory.addAndGet(joinTable.sizeInBytes());
+                    evictIfNecessary();
+                }else
+                    hits.incrementAndGet();
+                joinTable.awaitBuild();
+                return joinTable;
+            }catch(Exception e){
+                joinTable.release();
+                cache.remove(operationId,joinTable);
+                Throwable c = e.getCause();
+                if(c instanceof StandardException)
+                    throw (StandardException)c;
+                else if (c instanceof ResubmitDistributedException)
+                    throw (ResubmitDistributedException)c;
+                else if(c instanceof IOException)
+                    throw (IOException)c;
+                else throw Exceptions.getIOException(c);
+            }
+        }
+    }
+
+    /**
+     * Expire idle tables in the background, checking as often as tables expire (but no more than once a second).
+     */
+    public void startExpirationSweep(){
+        startExpirationSweep(Math.max(TimeUnit.NANOSECONDS.toMillis(expirationNanos),MIN_SWEEP_MILLIS));
+    }
+
+    synchronized void startExpirationSweep(long periodMillis){
+        if(sweep!=null) return;
+        sweep=SWEEPER.scheduleWithFixedDelay(new Runnable(){
+            @Override
+            public void run(){
+                try{
+                    expireIdleTables();
+                }catch(Exception e){
+                    SpliceLogUtils.warn(LOG,"Unable to expire idle broadcast join tables: %s",e.getMessage());
+                }
+            }
+        },periodMillis,periodMillis,TimeUnit.MILLISECONDS);
+    }
+
+    synchronized void stopExpirationSweep(){
+        if(sweep!=null){
+            sweep.cancel(false);
+            sweep=null;
+        }
+    }
+
+    public void registerJMX(){
         try{
-            Loader callable=new Loader(operationId,tableLoader,rightHashKeys,leftHashKeys,leftTemplateRow,loader);
-            ReferenceCountingFactory joinTable=cache.get(operationId,callable);
-            joinTable.refCount.incrementAndGet();
-            return joinTable;
+            MBeanServer mbs=ManagementFactory.getPlatformMBeanServer();
+            ObjectName name=new ObjectName("com.splicemachine.derby.impl.sql.execute.operations:type=BroadcastJoinCacheStatistics");
+            mbs.registerMBean(this,name);
+        }catch(InstanceAlreadyExistsException ignored){
+            //another cache in this JVM got there first
         }catch(Exception e){
-            Throwable c = e.getCause();
-            if(c instanceof StandardException)
-                throw (StandardException)c;
-            else if (c instanceof ResubmitDistributedException)
-                throw (ResubmitDistributedException)c;
-            else if(c instanceof IOException)
-                throw (IOException)c;
-            else throw Exceptions.getIOException(c);
+            SpliceLogUtils.warn(LOG,"Unable to register broadcast join cache with JMX: %s",e.getMessage());
         }
     }
 
-    private class Loader implements Callable<ReferenceCountingFactory>{
+    @Override public long getHits(){ return hits.get(); }
+    @Override public long getBuilds(){ return builds.get(); }
+    @Override public long getEvictions(){ return evictions.get(); }
+    @Override public long getCurrentBytes(){ return currentMemory.get(); }
+    @Override public long getMaxBytes(){ return maxMemory; }
+    @Override public int getTableCount(){ return cache.size(); }
+
+    @Override
+    public int getPinnedTableCount(){
+        int pinned=0;
+        for(ReferenceCountingFactory factory:cache.values()){
+            if(factory.refCount.get()>0)
+                pinned++;
+        }
+        return pinned;
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods and classes*/
+    private void evictIfNecessary(){
+        if(currentMemory.get()<=maxMemory) return;
+        synchronized(evictionLock){
+            while(currentMemory.get()>maxMemory){
+                ReferenceCountingFactory victim=null;
+                for(ReferenceCountingFactory factory:cache.values()){
+                    if(factory.isEvictable() && (victim==null || factory.lastAccess<victim.lastAccess))
+                        victim=factory;
+                }
+                if(victim==null){
+                    //everything that's left is in use, so we have to wait for a task to release its table
+                    return;
+                }
+                evict(victim);
+            }
+        }
+    }
+
+    private void expireIdleTables(){
+        long now=System.nanoTime();
+        for(ReferenceCountingFactory factory:cache.values()){
+            if(factory.isEvictable() && now-factory.lastAccess>expirationNanos)
+                evict(factory);
+        }
+    }
+
+    private void evict(ReferenceCountingFactory factory){
+        if(!factory.refCount.compareAndSet(0,-1)) return; //someone started using it again
+        cache.remove(factory.id,factory);
+        currentMemory.addAndGet(-factory.sizeInBytes());
+        evictions.incrementAndGet();
+    }
+
+    private class Loader implements Callable<JoinTable.Factory>{
         private final JoinTableLoader loader;
         private final int[] innerHashKeys;
         private final int[] outerHashKeys;
         private final ExecRow outerTemplateRow;
         private final Callable<Stream<ExecRow>> streamLoader;
 
-        private final Long operationId;
-
-        public Loader(Long operationId,
-                      JoinTableLoader loader,
+        public Loader(JoinTableLoader loader,
                       int[] innerHashKeys,
                       int[] outerHashKeys,
                       ExecRow outerTemplateRow,
                       Callable<Stream<ExecRow>> streamLoader){
             this.loader=loader;
-            this.operationId=operationId;
             this.innerHashKeys=innerHashKeys;
             this.outerHashKeys=outerHashKeys;
             this.outerTemplateRow=outerTemplateRow;
@@ -105,9 +261,8 @@ public class BroadcastJoinCache{
         }
 
         @Override
-        public ReferenceCountingFactory call() throws Exception {
-            JoinTable.Factory load=loader.load(streamLoader,innerHashKeys,outerHashKeys,outerTemplateRow);
-            return new ReferenceCountingFactory(load,operationId);
+        public JoinTable.Factory call() throws Exception {
+            return loader.load(streamLoader,innerHashKeys,outerHashKeys,outerTemplateRow);
         }
     }
 
@@ -138,12 +293,18 @@ public class BroadcastJoinCache{
     }
 
     private class ReferenceCountingFactory implements JoinTable.Factory{
-        private final JoinTable.Factory delegate;
+        private final FutureTask<JoinTable.Factory> buildTask;
         private final Long id;
-        private AtomicInteger refCount = new AtomicInteger(0);
+        /*
+         * The number of outstanding references. A value of -1 means that the table has been evicted, and
+         * can no longer be acquired.
+         */
+        private final AtomicInteger refCount = new AtomicInteger(0);
+        private volatile JoinTable.Factory delegate;
+        private volatile long lastAccess=System.nanoTime();
 
-        public ReferenceCountingFactory(JoinTable.Factory delegate,Long id){
-            this.delegate=delegate;
+        public ReferenceCountingFactory(Callable<JoinTable.Factory> loader,Long id){
+            this.buildTask=new FutureTask<>(loader);
             this.id=id;
         }
 
@@ -152,10 +313,53 @@ public class BroadcastJoinCache{
             return new ReferenceCountedJoinTable(delegate.newTable(),this);
         }
 
+        @Override
+        public long estimatedSizeInBytes(){
+            return sizeInBytes();
+        }
+
         public void markClosed(){
-            int refC=refCount.decrementAndGet();
-            if(refC<=0)
-                cache.invalidate(id);
+            release();
+            evictIfNecessary();
+        }
+
+        boolean acquire(){
+            int refC;
+            do{
+                refC=refCount.get();
+                if(refC<0) return false;
+            }while(!refCount.compareAndSet(refC,refC+1));
+            lastAccess=System.nanoTime();
+            return true;
+        }
+
+        void release(){
+            lastAccess=System.nanoTime();
+            refCount.decrementAndGet();
+        }
+
+        void build(){
+            buildTask.run();
+        }
+
+        void awaitBuild() throws Exception{
+            delegate=buildTask.get();
+        }
+
+        boolean isEvictable(){
+            return refCount.get()==0 && delegate!=null;
+        }
+
+        long sizeInBytes(){
+            JoinTable.Factory d=delegate;
+            if(d==null && buildTask.isDone()){
+                try{
+                    d=buildTask.get();
+                }catch(Exception e){
+                    return 0L;
+                }
+            }
+            return d==null?0L:d.estimatedSizeInBytes();
         }
     }
 }
@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2012 - 2017 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.operations;
+
+import javax.management.MXBean;
+
+/**
+ * Interface for exposing the behavior of the Broadcast Join table cache via JMX.
+ */
+@MXBean
+public interface BroadcastJoinCacheStatistics{
+
+    /**
+     * @return the number of requests which were served by a table that was already built (or
+     * was being built by another task)
+     */
+    long getHits();
+
+    /**
+     * @return the number of tables which were built
+     */
+    long getBuilds();
+
+    /**
+     * @return the number of tables which were evicted, either because they expired or
+     * because the cache exceeded its memory budget
+     */
+    long getEvictions();
+
+    /**
+     * @return the estimated number of bytes held by all tables in the cache
+     */
+    long getCurrentBytes();
+
+    /**
+     * @return the maximum number of bytes which the cache will retain for unused tables
+     */
+    long getMaxBytes();
+
+    /**
+     * @return the number of tables currently in the cache
+     */
+    int getTableCount();
+
+    /**
+     * @return the number of tables which are currently in use, and therefore cannot be evicted
+     */
+    int getPinnedTableCount();
+}
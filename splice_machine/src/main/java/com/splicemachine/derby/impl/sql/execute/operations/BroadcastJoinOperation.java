@@ -182,6 +182,8 @@ public class BroadcastJoinOperation extends JoinOperation{
         if (!isOpen)
             throw new IllegalStateException("Operation is not open");
 
+        // Cached broadcast tables are shared by sequence id, so make sure that a re-execution never sees a stale one
+        sequenceId = Bytes.toLong(operationInformation.getUUIDGenerator().nextBytes());
         OperationContext operationContext = dsp.createOperationContext(this);
         DataSet<ExecRow> leftDataSet = leftResultSet.getDataSet(dsp);
 
@@ -15,6 +15,7 @@
 package com.splicemachine.derby.impl.sql.execute.operations;
 
 import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
 import com.splicemachine.derby.impl.sql.JoinTable;
 import com.splicemachine.derby.utils.marshall.BareKeyHash;
 import com.splicemachine.derby.utils.marshall.KeyEncoder;
@@ -40,6 +41,8 @@ import java.util.concurrent.ExecutionException;
 @ThreadSafe
 class ByteBufferMapTableLoader implements BroadcastJoinCache.JoinTableLoader{
     public static BroadcastJoinCache.JoinTableLoader INSTANCE = new ByteBufferMapTableLoader();
+    /*rough heap overhead of a HashMap entry, its ByteBuffer key and the row list*/
+    private static final int ENTRY_OVERHEAD=128;
 
     private ByteBufferMapTableLoader(){} //singleton class
 
@@ -49,6 +52,7 @@ class ByteBufferMapTableLoader implements BroadcastJoinCache.JoinTableLoader{
 
         DescriptorSerializer[] innerSerializers=null;
         KeyEncoder innerKeyEncoder=null;
+        long estimatedSize=0L;
 
         try(Stream<ExecRow> innerRows=streamLoader.call()){
             ExecRow right;
@@ -64,14 +68,20 @@ class ByteBufferMapTableLoader implements BroadcastJoinCache.JoinTableLoader{
                 if(rows==null){
                     rows=new ArrayList<>(1);
                     table.put(key,rows);
+                    estimatedSize+=ENTRY_OVERHEAD+key.capacity();
                 }
-                rows.add(right.getClone());
+                ExecRow clone=right.getClone();
+                for(DataValueDescriptor dvd:clone.getRowArray()){
+                    if(dvd!=null)
+                        estimatedSize+=dvd.estimateMemoryUsage();
+                }
+                rows.add(clone);
             }
         }catch(Exception e){
             throw getException(e);
         }
 
-        return new ByteBufferMappedJoinTable.Factory(table,outerHashKeys,outerTemplateRow);
+        return new ByteBufferMappedJoinTable.Factory(table,outerHashKeys,outerTemplateRow,estimatedSize);
     }
 
     private Exception getException(Throwable parent) {
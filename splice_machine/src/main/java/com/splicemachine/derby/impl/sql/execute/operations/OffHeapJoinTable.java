@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2012 - 2017 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.operations;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.derby.impl.sql.JoinTable;
+import com.splicemachine.derby.utils.marshall.BareKeyHash;
+import com.splicemachine.derby.utils.marshall.KeyEncoder;
+import com.splicemachine.derby.utils.marshall.KeyHashDecoder;
+import com.splicemachine.derby.utils.marshall.NoOpPostfix;
+import com.splicemachine.derby.utils.marshall.NoOpPrefix;
+import com.splicemachine.derby.utils.marshall.dvd.DescriptorSerializer;
+import com.splicemachine.derby.utils.marshall.dvd.VersionedSerializers;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * A JoinTable which is backed by an {@link OffHeapRowArena}.
+ *
+ * Inner rows are held in their encoded form outside of the heap, and are only decoded
+ * when an outer row matches their key.
+ */
+class OffHeapJoinTable implements JoinTable{
+    private final OffHeapRowArena arena;
+    private final OffHeapRowArena.Reader reader;
+    private final ExecRow innerTemplateRow;
+    private final KeyHashDecoder innerRowDecoder;
+    private final KeyEncoder outerKeyEncoder;
+
+    OffHeapJoinTable(OffHeapRowArena arena,ExecRow innerTemplateRow,int[] outerHashKeys,ExecRow outerTemplateRow){
+        this.arena=arena;
+        this.innerTemplateRow=innerTemplateRow;
+        if(innerTemplateRow!=null){
+            this.reader=arena.newReader();
+            DescriptorSerializer[] innerSerializers=VersionedSerializers.latestVersion(false).getSerializers(innerTemplateRow);
+            this.innerRowDecoder=BareKeyHash.decoder(null,null,innerSerializers);
+        }else{
+            //the inner side was empty, so we will never have to decode anything
+            this.reader=null;
+            this.innerRowDecoder=null;
+        }
+        DescriptorSerializer[] serializers=VersionedSerializers.latestVersion(false).getSerializers(outerTemplateRow);
+        this.outerKeyEncoder=new KeyEncoder(NoOpPrefix.INSTANCE,
+                BareKeyHash.encoder(outerHashKeys,null,serializers),NoOpPostfix.INSTANCE);
+    }
+
+    @Override
+    public Iterator<ExecRow> fetchInner(ExecRow outer) throws IOException, StandardException{
+        if(innerTemplateRow==null)
+            return Collections.emptyIterator();
+        byte[] outerKey=outerKeyEncoder.getKey(outer);
+        assert outerKey!=null: "Programmer error: outer row does not have row key";
+        long address=arena.find(outerKey);
+        if(address==0L)
+            return Collections.emptyIterator();
+
+        List<ExecRow> rows=new ArrayList<>(1);
+        do{
+            address=reader.readRow(address);
+            ExecRow inner=innerTemplateRow.getNewNullRow();
+            innerRowDecoder.set(reader.buffer(),0,reader.length());
+            innerRowDecoder.decode(inner);
+            rows.add(inner);
+        }while(address!=0L);
+        return rows.iterator();
+    }
+
+    @Override
+    public void close(){
+        if(innerRowDecoder!=null){
+            try{
+                innerRowDecoder.close();
+            }catch(IOException ignored){ }
+        }
+    }
+
+    static class Factory implements JoinTable.Factory{
+        private final OffHeapRowArena arena;
+        private final ExecRow innerTemplateRow;
+        private final int[] outerHashKeys;
+        private final ExecRow outerTemplateRow;
+
+        Factory(OffHeapRowArena arena,ExecRow innerTemplateRow,int[] outerHashKeys,ExecRow outerTemplateRow){
+            this.arena=arena;
+            this.innerTemplateRow=innerTemplateRow;
+            this.outerHashKeys=outerHashKeys;
+            this.outerTemplateRow=outerTemplateRow;
+        }
+
+        @Override
+        public JoinTable newTable(){
+            return new OffHeapJoinTable(arena,innerTemplateRow,outerHashKeys,outerTemplateRow);
+        }
+
+        @Override
+        public long estimatedSizeInBytes(){
+            return arena.sizeInBytes();
+        }
+    }
+}
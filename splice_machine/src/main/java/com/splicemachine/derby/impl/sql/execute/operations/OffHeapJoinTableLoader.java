@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2012 - 2017 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.operations;
+
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.derby.impl.sql.JoinTable;
+import com.splicemachine.derby.utils.marshall.BareKeyHash;
+import com.splicemachine.derby.utils.marshall.DataHash;
+import com.splicemachine.derby.utils.marshall.KeyEncoder;
+import com.splicemachine.derby.utils.marshall.NoOpPostfix;
+import com.splicemachine.derby.utils.marshall.NoOpPrefix;
+import com.splicemachine.derby.utils.marshall.dvd.DescriptorSerializer;
+import com.splicemachine.derby.utils.marshall.dvd.VersionedSerializers;
+import com.splicemachine.stream.Stream;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Loads the inner side of a Broadcast join into an {@link OffHeapRowArena}.
+ *
+ * Unlike {@link ByteBufferMapTableLoader}, inner rows are never cloned onto the heap; both
+ * the hash key and the full row are encoded and copied into direct memory, so heap usage
+ * remains roughly constant regardless of the size of the inner side.
+ */
+@ThreadSafe
+class OffHeapJoinTableLoader implements BroadcastJoinCache.JoinTableLoader{
+    public static BroadcastJoinCache.JoinTableLoader INSTANCE = new OffHeapJoinTableLoader();
+
+    private OffHeapJoinTableLoader(){} //singleton class
+
+    @Override
+    public JoinTable.Factory load(Callable<Stream<ExecRow>> streamLoader,int[] innerHashKeys,int[] outerHashKeys,ExecRow outerTemplateRow) throws Exception{
+        OffHeapRowArena arena=new OffHeapRowArena();
+
+        ExecRow innerTemplateRow=null;
+        KeyEncoder innerKeyEncoder=null;
+        DataHash<ExecRow> innerRowEncoder=null;
+
+        try(Stream<ExecRow> innerRows=streamLoader.call()){
+            ExecRow right;
+            while((right=innerRows.next())!=null){
+                if(innerTemplateRow==null){
+                    innerTemplateRow=right.getNewNullRow();
+                    DescriptorSerializer[] innerSerializers=VersionedSerializers.latestVersion(false).getSerializers(right);
+                    innerKeyEncoder=new KeyEncoder(NoOpPrefix.INSTANCE,
+                            BareKeyHash.encoder(innerHashKeys,null,innerSerializers),NoOpPostfix.INSTANCE);
+                    innerRowEncoder=BareKeyHash.encoder(null,null,innerSerializers);
+                }
+
+                byte[] key=innerKeyEncoder.getKey(right);
+                innerRowEncoder.setRow(right);
+                arena.put(key,innerRowEncoder.encode());
+            }
+        }catch(Exception e){
+            throw getException(e);
+        }
+        arena.seal();
+
+        return new OffHeapJoinTable.Factory(arena,innerTemplateRow,outerHashKeys,outerTemplateRow);
+    }
+
+    private Exception getException(Throwable parent) {
+        if (parent.getCause() instanceof Exception)
+            return (Exception)parent.getCause();
+        if (parent instanceof Exception)
+            return (Exception)parent;
+        return new ExecutionException(parent);
+    }
+}
@@ -0,0 +1,274 @@
+/*
+ * Copyright (c) 2012 - 2017 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.operations;
+
+import com.splicemachine.hash.Hash32;
+import com.splicemachine.hash.HashFunctions;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An append-only, off-heap multimap from encoded keys to encoded rows.
+ *
+ * Records are appended into a list of direct "arena" chunks. Each record has the layout
+ *
+ * <pre>
+ *     [long next][int keyLength][int rowLength][key bytes][row bytes]
+ * </pre>
+ *
+ * where {@code next} is the address of the next record with the same key (or 0 at the end of
+ * the chain). Only the first record for a given key stores the key bytes; every following record
+ * in the chain has a {@code keyLength} of 0.
+ *
+ * Keys are located through an open-addressing (linear probing) slot table which is also held
+ * in direct memory. Each slot is 16 bytes wide: the address of the head record followed by the
+ * 32-bit hash of the key, so that most probe mismatches never have to touch the arena.
+ *
+ * An address packs the chunk index (plus one) into the upper 32 bits and the offset within
+ * the chunk into the lower 32 bits, so that 0 is never a valid address and can represent an
+ * empty slot.
+ *
+ * The arena is populated by a single thread. Once {@link #seal()} is called, the arena is
+ * immutable, and concurrent readers may use {@link #find(byte[])} and a {@link Reader} each.
+ * The direct memory is reclaimed by the garbage collector once the arena is no longer referenced.
+ */
+@NotThreadSafe
+class OffHeapRowArena{
+    private static final int DEFAULT_CHUNK_SIZE=1<<22; //4 MB
+    private static final int RECORD_HEADER_SIZE=16;
+    private static final int SLOT_SIZE=16;
+    private static final int MAX_SLOTS=1<<26; //keeps the slot table under 1 GB
+    private static final float LOAD_FACTOR=0.75f;
+
+    private final Hash32 hashFunction=HashFunctions.murmur3(0);
+    private final int chunkSize;
+    private final List<ByteBuffer> chunkList=new ArrayList<>();
+    private ByteBuffer currentChunk;
+    private ByteBuffer[] chunks;
+
+    private ByteBuffer slots;
+    private int slotMask;
+    private int resizeThreshold;
+
+    private int keyCount;
+    private long rowCount;
+    private long allocatedBytes;
+
+    OffHeapRowArena(){
+        this(DEFAULT_CHUNK_SIZE,1024);
+    }
+
+    OffHeapRowArena(int chunkSize,int initialSlots){
+        this.chunkSize=chunkSize;
+        int s=16;
+        while(s<initialSlots && s<MAX_SLOTS)
+            s<<=1;
+        allocateSlots(s);
+    }
+
+    /**
+     * Add a single row to the arena.
+     *
+     * @param key the encoded key
+     * @param row the encoded row
+     */
+    void put(byte[] key,byte[] row){
+        assert chunks==null: "Programmer error: cannot add to a sealed arena";
+        int hash=hashFunction.hash(key,0,key.length);
+        int pos=hash&slotMask;
+        while(true){
+            int slotOffset=pos*SLOT_SIZE;
+            long head=slots.getLong(slotOffset);
+            if(head==0L){
+                if(keyCount+1>resizeThreshold){
+                    resize();
+                    put(key,row);
+                    return;
+                }
+                long address=append(0L,key,row);
+                slots.putLong(slotOffset,address);
+                slots.putInt(slotOffset+8,hash);
+                keyCount++;
+                break;
+            }else if(slots.getInt(slotOffset+8)==hash && keyEquals(head,key)){
+                /*
+                 * Splice the new record in directly behind the head, so that the head
+                 * remains the only record in the chain which has to carry the key bytes
+                 */
+                ByteBuffer headChunk=chunkList.get(chunkIndex(head));
+                int headOffset=chunkOffset(head);
+                long address=append(headChunk.getLong(headOffset),null,row);
+                headChunk.putLong(headOffset,address);
+                break;
+            }
+            pos=(pos+1)&slotMask;
+        }
+        rowCount++;
+    }
+
+    /**
+     * Make the arena immutable, and available for concurrent reads.
+     */
+    void seal(){
+        chunks=chunkList.toArray(new ByteBuffer[chunkList.size()]);
+        currentChunk=null;
+    }
+
+    /**
+     * @param key the encoded key to look for
+     * @return the address of the first record with the key, or 0 if the key is not present
+     */
+    long find(byte[] key){
+        int hash=hashFunction.hash(key,0,key.length);
+        int pos=hash&slotMask;
+        while(true){
+            int slotOffset=pos*SLOT_SIZE;
+            long head=slots.getLong(slotOffset);
+            if(head==0L)
+                return 0L;
+            if(slots.getInt(slotOffset+8)==hash && keyEquals(head,key))
+                return head;
+            pos=(pos+1)&slotMask;
+        }
+    }
+
+    /**
+     * @return a reader over this arena. Readers hold their own view of the underlying memory, and
+     * therefore must not be shared between threads.
+     */
+    Reader newReader(){
+        assert chunks!=null: "Programmer error: cannot read from an unsealed arena";
+        return new Reader(chunks);
+    }
+
+    int keyCount(){ return keyCount; }
+
+    long rowCount(){ return rowCount; }
+
+    /**
+     * @return the number of bytes of direct memory held by this arena
+     */
+    long sizeInBytes(){
+        return allocatedBytes+slots.capacity();
+    }
+
+    static final class Reader{
+        private final ByteBuffer[] views;
+        private byte[] buffer=new byte[128];
+        private int length;
+
+        private Reader(ByteBuffer[] chunks){
+            this.views=new ByteBuffer[chunks.length];
+            for(int i=0;i<chunks.length;i++){
+                views[i]=chunks[i].duplicate();
+            }
+        }
+
+        /**
+         * Copy the row stored at {@code address} into this reader's buffer.
+         *
+         * @param address the address of the record
+         * @return the address of the next record with the same key, or 0 if there are no more.
+         */
+        long readRow(long address){
+            ByteBuffer view=views[chunkIndex(address)];
+            int offset=chunkOffset(address);
+            long next=view.getLong(offset);
+            int keyLength=view.getInt(offset+8);
+            length=view.getInt(offset+12);
+            if(buffer.length<length)
+                buffer=new byte[Math.max(length,2*buffer.length)];
+            view.position(offset+RECORD_HEADER_SIZE+keyLength);
+            view.get(buffer,0,length);
+            return next;
+        }
+
+        byte[] buffer(){ return buffer; }
+
+        int length(){ return length; }
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private static int chunkIndex(long address){
+        return (int)(address>>>32)-1;
+    }
+
+    private static int chunkOffset(long address){
+        return (int)address;
+    }
+
+    private ByteBuffer chunkFor(long address){
+        return chunks!=null? chunks[chunkIndex(address)] : chunkList.get(chunkIndex(address));
+    }
+
+    private boolean keyEquals(long address,byte[] key){
+        ByteBuffer chunk=chunkFor(address);
+        int offset=chunkOffset(address);
+        if(chunk.getInt(offset+8)!=key.length) return false;
+        int keyStart=offset+RECORD_HEADER_SIZE;
+        for(int i=0;i<key.length;i++){
+            if(chunk.get(keyStart+i)!=key[i]) return false;
+        }
+        return true;
+    }
+
+    private long append(long next,byte[] key,byte[] row){
+        int keyLength=key==null?0:key.length;
+        int recordSize=RECORD_HEADER_SIZE+keyLength+row.length;
+        if(currentChunk==null || currentChunk.remaining()<recordSize){
+            currentChunk=ByteBuffer.allocateDirect(Math.max(chunkSize,recordSize));
+            chunkList.add(currentChunk);
+            allocatedBytes+=currentChunk.capacity();
+        }
+        long address=((long)chunkList.size()<<32)|currentChunk.position();
+        currentChunk.putLong(next);
+        currentChunk.putInt(keyLength);
+        currentChunk.putInt(row.length);
+        if(key!=null)
+            currentChunk.put(key);
+        currentChunk.put(row);
+        return address;
+    }
+
+    private void allocateSlots(int numSlots){
+        slots=ByteBuffer.allocateDirect(numSlots*SLOT_SIZE);
+        slotMask=numSlots-1;
+        resizeThreshold=(int)(numSlots*LOAD_FACTOR);
+    }
+
+    private void resize(){
+        ByteBuffer oldSlots=slots;
+        int oldNumSlots=oldSlots.capacity()/SLOT_SIZE;
+        if(oldNumSlots>=MAX_SLOTS)
+            throw new IllegalStateException("Unable to hold more than "+keyCount+" distinct keys in a broadcast join table");
+        allocateSlots(oldNumSlots<<1);
+        for(int i=0;i<oldNumSlots;i++){
+            int oldOffset=i*SLOT_SIZE;
+            long head=oldSlots.getLong(oldOffset);
+            if(head==0L) continue;
+            int hash=oldSlots.getInt(oldOffset+8);
+            int pos=hash&slotMask;
+            while(slots.getLong(pos*SLOT_SIZE)!=0L){
+                pos=(pos+1)&slotMask;
+            }
+            slots.putLong(pos*SLOT_SIZE,head);
+            slots.putInt(pos*SLOT_SIZE+8,hash);
+        }
+    }
+}
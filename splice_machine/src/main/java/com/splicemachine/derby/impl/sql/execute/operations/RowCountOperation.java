@@ -198,6 +198,8 @@ public class RowCountOperation extends SpliceBaseOperation {
         }
         final long fetchLimit = getFetchLimit();
         long offset = getTotalOffset();
+        if (fetchLimit > 0)
+            pushRowLimit(offset + fetchLimit);
         OperationContext operationContext = dsp.createOperationContext(this);
         DataSet<ExecRow> sourceSet = source.getDataSet(dsp).map(new CloneFunction<>(operationContext));
         return sourceSet.zipWithIndex().mapPartitions(new OffsetFunction<SpliceOperation, ExecRow>(operationContext, offset, fetchLimit));
@@ -208,4 +210,16 @@ public class RowCountOperation extends SpliceBaseOperation {
         return "Row Limit";
     }
 
+    /**
+     * If our source is a scan (possibly beneath projections which don't filter rows), tell it how many
+     * rows we will read from it, so that it doesn't read ahead past them.
+     */
+    private void pushRowLimit(long rowLimit) {
+        SpliceOperation op = source;
+        while (op instanceof ProjectRestrictOperation && ((ProjectRestrictOperation) op).getRestrictionMethodName() == null)
+            op = ((ProjectRestrictOperation) op).getSource();
+        if (op instanceof ScanOperation)
+            ((ScanOperation) op).setRowLimit(rowLimit);
+    }
+
 }
@@ -69,6 +69,8 @@ public abstract class ScanOperation extends SpliceBaseOperation{
     int partitionRefItem;
     protected int[] partitionColumnMap;
     protected ExecRow defaultRow;
+    /*the most rows our consumer will read, or -1 if unknown; only used while building the scan*/
+    protected transient long rowLimit=-1;
 
     public ScanOperation(){
         super();
@@ -210,6 +212,16 @@ public abstract class ScanOperation extends SpliceBaseOperation{
         SpliceLogUtils.trace(LOG, "initIsolationLevel");
     }
 
+    /**
+     * Tell the scan the most rows its consumer will read, so that its scanners don't read ahead
+     * past them. This must be set before the data set is built.
+     *
+     * @param rowLimit the most rows which will be read, or a negative number if there is no limit
+     */
+    public void setRowLimit(long rowLimit){
+        this.rowLimit=rowLimit;
+    }
+
     public DataScan getNonSIScan() throws StandardException{
         /*
 		 * Intended to get a scan which does NOT set up SI underneath us (since
@@ -366,6 +366,7 @@ public class TableScanOperation extends ScanOperation{
                 .partitionByColumns(getPartitionColumnMap())
                 .defaultRow(defaultRow,scanInformation.getDefaultValueMap())
                 .ignoreRecentTransactions(isReadOnly(txn))
+                .rowLimit(rowLimit)
                 .buildDataSet(this).map(new SetCurrentLocatedRowAndRowKeyFunction<>(operationContext));
     }
 
@@ -0,0 +1,447 @@
+/*
+ * Copyright (c) 2012 - 2018 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.splicemachine.derby.impl.sql.execute.operations.scanner;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.services.io.StoredFormatIds;
+import com.splicemachine.db.iapi.store.access.Qualifier;
+import com.splicemachine.db.iapi.types.DataType;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.derby.utils.marshall.dvd.DescriptorSerializer;
+import com.splicemachine.encoding.Encoding;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.Arrays;
+
+/**
+ * A batch of rows read by an {@link SITableScanner}, held column by column rather than as a row of
+ * {@link DataValueDescriptor}s.
+ *
+ * Integral columns (TINYINT through BIGINT) are decoded into a {@code long[]} and DOUBLE columns into a
+ * {@code double[]}, each with a null bitmap. Every other column is kept in its encoded form, and is only
+ * decoded when one of the batch's rows is materialized (see {@link SITableScanner#materialize(ColumnBatch, int)}).
+ * Key columns which are not numeric are decoded from the row key on materialization.
+ *
+ * The batch carries a selection vector of the rows which are still live. {@link #filter(Qualifier[][], int[], DataValueDescriptor)}
+ * narrows the selection by evaluating the scan's qualifiers against whole columns, so that rows which fail them
+ * are never materialized.
+ */
+@NotThreadSafe
+public class ColumnBatch{
+    static final byte NOT_READ=0;
+    static final byte LONG=1;
+    static final byte DOUBLE=2;
+    static final byte ENCODED=3;
+    static final byte KEY=4;
+
+    private final int capacity;
+    private final byte[] types;
+    private final boolean[] keyColumns;
+    private final DescriptorSerializer[] serializers;
+
+    private final long[][] longs;
+    private final double[][] doubles;
+    private final long[][] nulls;
+    private final byte[][] encoded;
+    private final int[][] encodedOffsets;
+    private final int[][] encodedLengths;
+    private final int[] encodedSizes;
+    private final int[] committedEncodedSizes;
+
+    private byte[] rowKeys;
+    private int rowKeysSize;
+    private final int[] rowKeyOffsets;
+    private final int[] rowKeyLengths;
+
+    private final int[] selected;
+    private int numSelected;
+    private int size;
+
+    ColumnBatch(int capacity,byte[] types,boolean[] keyColumns,DescriptorSerializer[] serializers){
+        assert capacity>0: "Cannot create an empty batch";
+        this.capacity=capacity;
+        this.types=types;
+        this.keyColumns=keyColumns;
+        this.serializers=serializers;
+        int numColumns=types.length;
+        this.longs=new long[numColumns][];
+        this.doubles=new double[numColumns][];
+        this.nulls=new long[numColumns][];
+        this.encoded=new byte[numColumns][];
+        this.encodedOffsets=new int[numColumns][];
+        this.encodedLengths=new int[numColumns][];
+        this.encodedSizes=new int[numColumns];
+        this.committedEncodedSizes=new int[numColumns];
+        for(int c=0;c<numColumns;c++){
+            switch(types[c]){
+                case LONG:
+                    longs[c]=new long[capacity];
+                    break;
+                case DOUBLE:
+                    doubles[c]=new double[capacity];
+                    break;
+                case ENCODED:
+                    encoded[c]=new byte[capacity*8];
+                    encodedOffsets[c]=new int[capacity];
+                    encodedLengths[c]=new int[capacity];
+                    break;
+                default:
+                    continue;
+            }
+            nulls[c]=new long[(capacity+63)>>>6];
+        }
+        this.rowKeys=new byte[capacity*16];
+        this.rowKeyOffsets=new int[capacity];
+        this.rowKeyLengths=new int[capacity];
+        this.selected=new int[capacity];
+    }
+
+    /**
+     * @return the type of vector which holds values of {@code dvd}'s type
+     */
+    static byte typeOf(DataValueDescriptor dvd,boolean keyColumn){
+        switch(dvd.getTypeFormatId()){
+            case StoredFormatIds.SQL_TINYINT_ID:
+            case StoredFormatIds.SQL_SMALLINT_ID:
+            case StoredFormatIds.SQL_INTEGER_ID:
+            case StoredFormatIds.SQL_LONGINT_ID:
+                return LONG;
+            case StoredFormatIds.SQL_DOUBLE_ID:
+                return DOUBLE;
+            default:
+                return keyColumn?KEY:ENCODED;
+        }
+    }
+
+    public int size(){
+        return size;
+    }
+
+    public int capacity(){
+        return capacity;
+    }
+
+    public boolean isFull(){
+        return size>=capacity;
+    }
+
+    /**
+     * @return the number of rows in the selection vector
+     */
+    public int numSelected(){
+        return numSelected;
+    }
+
+    /**
+     * @param i the position in the selection vector
+     * @return the row at position {@code i} of the selection vector
+     */
+    public int selected(int i){
+        return selected[i];
+    }
+
+    public boolean isNull(int column,int row){
+        return (nulls[column][row>>>6]&(1l<<row))!=0;
+    }
+
+    public long getLong(int column,int row){
+        return longs[column][row];
+    }
+
+    public double getDouble(int column,int row){
+        return doubles[column][row];
+    }
+
+    /**
+     * Narrow the selection vector to the rows which satisfy {@code qualifiers}, with the same semantics as
+     * {@link com.splicemachine.derby.utils.Scans#qualifyRecordFromRow(Object[], Qualifier[][], int[], DataValueDescriptor)}.
+     *
+     * Only comparisons between a numeric column and a non-null numeric constant can be evaluated over the
+     * column vectors. If any of the qualifiers is of another kind, the selection is left alone, and the caller
+     * must qualify each row after it is materialized.
+     *
+     * @return true if the qualifiers were applied, false if they must be applied row by row
+     */
+    public boolean filter(Qualifier[][] qualifiers,int[] baseColumnMap,DataValueDescriptor probeValue) throws StandardException{
+        VectorQualifier[][] compiled=new VectorQualifier[qualifiers.length][];
+        for(int i=0;i<qualifiers.length;i++){
+            compiled[i]=new VectorQualifier[qualifiers[i].length];
+            for(int j=0;j<qualifiers[i].length;j++){
+                Qualifier q=qualifiers[i][j];
+                int column=baseColumnMap!=null?baseColumnMap[q.getStoragePosition()]:q.getStoragePosition();
+                if(column<0 || column>=types.length || q.getVariantType()==Qualifier.VARIANT) return false;
+                byte type=types[column];
+                if(type!=LONG && type!=DOUBLE) return false;
+                q.clearOrderableCache();
+                DataValueDescriptor orderable=probeValue!=null && i==0 && j==0?probeValue:q.getOrderable();
+                if(orderable==null || orderable.isNull()) return false;
+                boolean integral;
+                switch(orderable.getTypeFormatId()){
+                    case StoredFormatIds.SQL_TINYINT_ID:
+                    case StoredFormatIds.SQL_SMALLINT_ID:
+                    case StoredFormatIds.SQL_INTEGER_ID:
+                    case StoredFormatIds.SQL_LONGINT_ID:
+                        integral=true;
+                        break;
+                    case StoredFormatIds.SQL_DOUBLE_ID:
+                        integral=false;
+                        break;
+                    default:
+                        return false;
+                }
+                boolean asLong=integral && type==LONG;
+                compiled[i][j]=new VectorQualifier(column,q.getOperator(),asLong,
+                        asLong?orderable.getLong():0l,asLong?0d:orderable.getDouble(),
+                        q.getOrderedNulls(),q.getUnknownRV(),q.negateCompareResult());
+            }
+        }
+
+        int n=numSelected;
+        if(compiled.length>0){
+            for(VectorQualifier q:compiled[0]){
+                n=retain(q,n);
+            }
+        }
+        for(int i=1;i<compiled.length && n>0;i++){
+            VectorQualifier[] orClause=compiled[i];
+            int kept=0;
+            for(int s=0;s<n;s++){
+                int row=selected[s];
+                for(VectorQualifier q:orClause){
+                    if(matches(q,row)){
+                        selected[kept++]=row;
+                        break;
+                    }
+                }
+            }
+            n=kept;
+        }
+        numSelected=n;
+        return true;
+    }
+
+    /* ****************************************************************************************************************/
+    /*package-local methods, used by the scanner to fill and materialize the batch*/
+
+    void clear(){
+        size=0;
+        numSelected=0;
+        rowKeysSize=0;
+        Arrays.fill(encodedSizes,0);
+        Arrays.fill(committedEncodedSizes,0);
+    }
+
+    /**
+     * Begin filling the next row of the batch. Every column starts out as null.
+     */
+    void startRow(){
+        int row=size;
+        long bit=1l<<row;
+        for(int c=0;c<types.length;c++){
+            if(nulls[c]!=null)
+                nulls[c][row>>>6]|=bit;
+            //discard whatever a rejected row left behind
+            encodedSizes[c]=committedEncodedSizes[c];
+        }
+    }
+
+    /**
+     * Decode a stored field of the row being filled.
+     */
+    void decode(int column,byte[] data,int offset,int length){
+        int row=size;
+        switch(types[column]){
+            case LONG:
+                if(length<=0) return;
+                longs[column][row]=Encoding.decodeLong(data,offset,false);
+                break;
+            case DOUBLE:
+                if(length<=0 || Encoding.isNullDOuble(data,offset,length)) return;
+                doubles[column][row]=Encoding.decodeDouble(data,offset,false);
+                break;
+            case ENCODED:
+                if(length<=0) return;
+                int start=encodedSizes[column];
+                byte[] buffer=encoded[column];
+                if(start+length>buffer.length)
+                    encoded[column]=buffer=Arrays.copyOf(buffer,Math.max(buffer.length*2,start+length));
+                System.arraycopy(data,offset,buffer,start,length);
+                encodedOffsets[column][row]=start;
+                encodedLengths[column][row]=length;
+                encodedSizes[column]=start+length;
+                break;
+            default:
+                return;
+        }
+        nulls[column][row>>>6]&=~(1l<<row);
+    }
+
+    /**
+     * Copy the numeric key columns of the row being filled out of {@code dvds}, once the row key has been
+     * decoded into them.
+     */
+    void copyKeyColumns(DataValueDescriptor[] dvds) throws StandardException{
+        for(int c=0;c<types.length;c++){
+            if(!keyColumns[c]) continue;
+            DataValueDescriptor dvd=dvds[c];
+            if(dvd.isNull()) continue;
+            if(types[c]==LONG)
+                setLong(c,dvd.getLong());
+            else if(types[c]==DOUBLE)
+                setDouble(c,dvd.getDouble());
+        }
+    }
+
+    /**
+     * Fill the null numeric columns of the row being filled with their default values.
+     */
+    void fillDefault(int column,DataValueDescriptor defaultValue) throws StandardException{
+        int row=size;
+        if(nulls[column]==null || !isNull(column,row) || defaultValue==null || defaultValue.isNull()) return;
+        if(types[column]==LONG)
+            setLong(column,defaultValue.getLong());
+        else if(types[column]==DOUBLE)
+            setDouble(column,defaultValue.getDouble());
+    }
+
+    /**
+     * Add the row being filled to the batch.
+     */
+    void commitRow(byte[] key,int offset,int length){
+        int row=size;
+        if(rowKeysSize+length>rowKeys.length)
+            rowKeys=Arrays.copyOf(rowKeys,Math.max(rowKeys.length*2,rowKeysSize+length));
+        System.arraycopy(key,offset,rowKeys,rowKeysSize,length);
+        rowKeyOffsets[row]=rowKeysSize;
+        rowKeyLengths[row]=length;
+        rowKeysSize+=length;
+        System.arraycopy(encodedSizes,0,committedEncodedSizes,0,encodedSizes.length);
+        selected[numSelected++]=row;
+        size++;
+    }
+
+    byte[] rowKeys(){
+        return rowKeys;
+    }
+
+    int rowKeyOffset(int row){
+        return rowKeyOffsets[row];
+    }
+
+    int rowKeyLength(int row){
+        return rowKeyLengths[row];
+    }
+
+    /**
+     * Set the non-key columns of {@code row} into {@code dvds}. Null columns are left alone, so {@code dvds}
+     * should have been reset beforehand.
+     */
+    void materialize(int row,DataValueDescriptor[] dvds) throws StandardException{
+        for(int c=0;c<types.length;c++){
+            byte type=types[c];
+            if(type==NOT_READ || type==KEY || keyColumns[c] || isNull(c,row)) continue;
+            DataValueDescriptor dvd=dvds[c];
+            switch(type){
+                case LONG:
+                    dvd.setValue(longs[c][row]);
+                    break;
+                case DOUBLE:
+                    dvd.setValue(doubles[c][row]);
+                    break;
+                default:
+                    serializers[c].decodeDirect(dvd,encoded[c],encodedOffsets[c][row],encodedLengths[c][row],false);
+            }
+        }
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods and classes*/
+    private void setLong(int column,long value){
+        longs[column][size]=value;
+        nulls[column][size>>>6]&=~(1l<<size);
+    }
+
+    private void setDouble(int column,double value){
+        doubles[column][size]=value;
+        nulls[column][size>>>6]&=~(1l<<size);
+    }
+
+    private int retain(VectorQualifier q,int n){
+        int kept=0;
+        for(int s=0;s<n;s++){
+            int row=selected[s];
+            if(matches(q,row))
+                selected[kept++]=row;
+        }
+        return kept;
+    }
+
+    private boolean matches(VectorQualifier q,int row){
+        int column=q.column;
+        boolean result;
+        if(isNull(column,row)){
+            //numeric types sort nulls high
+            result=q.orderedNulls?test(q.operator,1):q.unknownRV;
+        }else if(q.asLong){
+            long value=longs[column][row];
+            result=test(q.operator,value==q.longValue?0:(value>q.longValue?1:-1));
+        }else{
+            double value=types[column]==LONG?longs[column][row]:doubles[column][row];
+            result=test(q.operator,value==q.doubleValue?0:(value>q.doubleValue?1:-1));
+        }
+        return result!=q.negate;
+    }
+
+    private static boolean test(int operator,int comparison){
+        switch(operator){
+            case DataType.ORDER_OP_LESSTHAN:
+                return comparison<0;
+            case DataType.ORDER_OP_EQUALS:
+                return comparison==0;
+            case DataType.ORDER_OP_LESSOREQUALS:
+                return comparison<=0;
+            case DataType.ORDER_OP_GREATERTHAN:
+                return comparison>0;
+            case DataType.ORDER_OP_GREATEROREQUALS:
+                return comparison>=0;
+            default:
+                throw new IllegalArgumentException("Unexpected operator "+operator);
+        }
+    }
+
+    private static final class VectorQualifier{
+        private final int column;
+        private final int operator;
+        private final boolean asLong;
+        private final long longValue;
+        private final double doubleValue;
+        private final boolean orderedNulls;
+        private final boolean unknownRV;
+        private final boolean negate;
+
+        VectorQualifier(int column,int operator,boolean asLong,long longValue,double doubleValue,
+                        boolean orderedNulls,boolean unknownRV,boolean negate){
+            this.column=column;
+            this.operator=operator;
+            this.asLong=asLong;
+            this.longValue=longValue;
+            this.doubleValue=doubleValue;
+            this.orderedNulls=orderedNulls;
+            this.unknownRV=unknownRV;
+            this.negate=negate;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2012 - 2018 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.splicemachine.derby.impl.sql.execute.operations.scanner;
+
+import com.carrotsearch.hppc.BitSet;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.derby.impl.store.ExecRowAccumulator;
+import com.splicemachine.derby.utils.marshall.dvd.DescriptorSerializer;
+import com.splicemachine.derby.utils.marshall.dvd.VersionedSerializers;
+import com.splicemachine.storage.EntryPredicateFilter;
+
+/**
+ * Accumulates the stored fields of a row into the row of a {@link ColumnBatch} which is being filled,
+ * instead of into the scanner's template row.
+ */
+class ColumnBatchAccumulator extends ExecRowAccumulator{
+    private final ColumnBatch batch;
+
+    private ColumnBatchAccumulator(EntryPredicateFilter predicateFilter,
+                                   BitSet fieldsToCollect,
+                                   DataValueDescriptor[] dvds,
+                                   int[] columnMap,
+                                   DescriptorSerializer[] serializers,
+                                   ColumnBatch batch){
+        super(predicateFilter,false,fieldsToCollect,dvds,columnMap,serializers);
+        this.batch=batch;
+    }
+
+    static ExecRowAccumulator newAccumulator(EntryPredicateFilter predicateFilter,
+                                             ExecRow row,
+                                             int[] columnMap,
+                                             String tableVersion,
+                                             ColumnBatch batch){
+        DataValueDescriptor[] dvds=row.getRowArray();
+        BitSet fieldsToCollect=fieldsToCollect(dvds,columnMap,null);
+        if(fieldsToCollect==null) return NOOP_ACCUMULATOR;
+
+        DescriptorSerializer[] serializers=VersionedSerializers.forVersion(tableVersion,false).getSerializers(row);
+        return new ColumnBatchAccumulator(predicateFilter,fieldsToCollect,dvds,columnMap,serializers,batch);
+    }
+
+    @Override
+    protected void decode(int position,byte[] data,int offset,int length){
+        int colPos=columnMap[position];
+        batch.decode(colPos,data,offset,length);
+        columnLengths[colPos]=length;
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2012 - 2018 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.splicemachine.derby.impl.sql.execute.operations.scanner;
+
+/**
+ * Decides how many rows {@link SITableScanner} reads ahead of its caller in order to fetch their missing
+ * transactions together.
+ *
+ * Reading ahead means cloning every cell, so it only pays off when the transaction filter is actually
+ * missing its cache. The block starts at a single row (no read-ahead at all), doubles each time the filter
+ * missed the cache since the last block, and halves each time it didn't. It is never larger than the number
+ * of rows the caller has left to read.
+ */
+class PrefetchBlockSizer{
+    private final int maxRows;
+    private int blockRows=1;
+    private long lastTxnCacheMisses;
+
+    PrefetchBlockSizer(int maxRows){
+        this.maxRows=maxRows;
+    }
+
+    /**
+     * @param txnCacheMisses the total number of transaction cache misses the filter has seen so far
+     * @param remainingRows the most rows the caller has left to read, or a negative number if unknown
+     * @return the number of rows to read for the next block; 1 means the scanner should not read ahead
+     */
+    int nextBlockRows(long txnCacheMisses,long remainingRows){
+        if(txnCacheMisses>lastTxnCacheMisses)
+            blockRows=Math.min(blockRows<<1,maxRows);
+        else
+            blockRows=Math.max(blockRows>>1,1);
+        lastTxnCacheMisses=txnCacheMisses;
+        if(remainingRows>=0)
+            return (int)Math.max(1L,Math.min(blockRows,remainingRows));
+        return blockRows;
+    }
+}
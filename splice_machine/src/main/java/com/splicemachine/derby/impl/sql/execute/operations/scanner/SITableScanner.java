@@ -34,6 +34,7 @@ import com.splicemachine.si.api.filter.SIFilter;
 import com.splicemachine.si.api.server.TransactionalRegion;
 import com.splicemachine.si.api.txn.TxnView;
 import com.splicemachine.si.constants.SIConstants;
+import com.splicemachine.si.impl.SimpleTxnFilter;
 import com.splicemachine.si.impl.filter.HRowAccumulator;
 import com.splicemachine.si.impl.txn.DDLTxnView;
 import com.splicemachine.si.impl.filter.PackedTxnFilter;
@@ -44,7 +45,9 @@ import com.splicemachine.utils.SpliceLogUtils;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import org.apache.log4j.Logger;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 
@@ -61,6 +64,8 @@ public class SITableScanner<Data> implements StandardIterator<ExecRow>,AutoClose
         }
     };
     private static Logger LOG = Logger.getLogger(SITableScanner.class);
+    /*the most rows read ahead of the caller, so that their missing transactions are fetched together*/
+    private static final int PREFETCH_BLOCK_ROWS = 128;
     private final Counter filterCounter;
     private DataScanner regionScanner;
     private final TransactionalRegion region;
@@ -70,6 +75,15 @@ public class SITableScanner<Data> implements StandardIterator<ExecRow>,AutoClose
     private final String tableVersion;
     protected final int[] rowDecodingMap;
     private SIFilter siFilter;
+    /*when set, used to look up all the missing transactions of a block of rows in one call before they are filtered*/
+    private SimpleTxnFilter prefetchFilter;
+    private final List<List<DataCell>> prefetchedRows = new ArrayList<>();
+    private final List<DataCell> prefetchedCells = new ArrayList<>();
+    private int prefetchPosition;
+    private final PrefetchBlockSizer prefetchBlockSizer = new PrefetchBlockSizer(PREFETCH_BLOCK_ROWS);
+    /*the most rows the caller will read, or -1 if unknown*/
+    private long rowLimit = -1;
+    private long rowsReturned;
     private EntryPredicateFilter predicateFilter;
     protected RowLocation currentRowLocation;
     private final boolean[] keyColumnSortOrder;
@@ -90,6 +104,11 @@ public class SITableScanner<Data> implements StandardIterator<ExecRow>,AutoClose
     private DataValueDescriptor optionalProbeValue;
     private ExecRow defaultRow;
     private FormatableBitSet defaultValueMap;
+    private ColumnBatch batch;
+    private SIFilter batchFilter;
+    private boolean exhausted;
+    /*template columns which next() leaves for materializeRow() to decode*/
+    private boolean[] deferredColumns;
 
     protected SITableScanner(DataScanner scanner,
                              final TransactionalRegion region,
@@ -195,12 +214,51 @@ public class SITableScanner<Data> implements StandardIterator<ExecRow>,AutoClose
 
     }
 
+    /**
+     * Have {@link #next()} decode only the key columns and the columns in {@code qualifierColumns}, and leave
+     * the rest of each row to be decoded by {@link #materializeRow()}.
+     *
+     * This lets a caller which qualifies each row avoid decoding the columns it projects, for the rows which
+     * fail its qualifiers.
+     *
+     * @param qualifierColumns the template positions which are needed to qualify a row
+     */
+    public void setQualifierColumns(boolean[] qualifierColumns){
+        DataValueDescriptor[] dvds = template.getRowArray();
+        boolean[] deferred = new boolean[dvds.length];
+        boolean anyDeferred = false;
+        if(rowDecodingMap!=null){
+            for(int pos:rowDecodingMap){
+                if(pos<0 || dvds[pos]==null || (pos<qualifierColumns.length && qualifierColumns[pos])) continue;
+                //the row location of an index row is needed by next()
+                if(indexName!=null && pos==dvds.length-1 && dvds[pos].getTypeFormatId()==StoredFormatIds.ACCESS_HEAP_ROW_LOCATION_V1_ID) continue;
+                deferred[pos] = true;
+                anyDeferred = true;
+            }
+        }
+        this.deferredColumns = anyDeferred?deferred:null;
+        if(accumulator!=null)
+            accumulator.deferColumns(deferredColumns);
+    }
+
+    /**
+     * Decode the columns of the current row which {@link #next()} left undecoded (see
+     * {@link #setQualifierColumns(boolean[])}). This must be called before the next call to {@link #next()}.
+     */
+    public void materializeRow() throws StandardException {
+        if(deferredColumns==null) return;
+        accumulator.decodeDeferred();
+        fillDefaults(null);
+    }
+
     @Override
     public ExecRow next() throws StandardException, IOException {
         SIFilter filter = getSIFilter();
         do{
             template.resetRowArray(); //necessary to deal with null entries--maybe make the underlying call faster?
-            List<DataCell> keyValues=regionScanner.next(-1);
+            if(deferredColumns!=null)
+                accumulator.discardDeferred();
+            List<DataCell> keyValues=nextRawRow();
             if(keyValues.size()<=0){
                 currentRowLocation = null;
                 return null;
@@ -220,22 +278,90 @@ public class SITableScanner<Data> implements StandardIterator<ExecRow>,AutoClose
                     if (LOG.isTraceEnabled())
                         SpliceLogUtils.trace(LOG,"miss columns=%d",template.nColumns());
                 }
-                //fill the unpopulated non-null columns with default values
-                if (defaultRow != null && defaultValueMap != null) {
-                    for (int i=defaultValueMap.anySetBit(); i>=0; i=defaultValueMap.anySetBit(i)) {
-                        if (template.getColumn(i+1).isNull())
-                            template.setColumn(i+1, defaultRow.getColumn(i+1).cloneValue(false));
-                    }
-                }
+                fillDefaults(deferredColumns);
                 measureOutputSize(keyValues);
                 currentKeyValue = keyValues.get(0);
                 setRowLocation(currentKeyValue);
                 template.setKey(currentRowLocation.getBytes());
+                rowsReturned++;
                 return template;
             }
         }while(true); //TODO -sf- this doesn't seem quite right
     }
 
+    /**
+     * Read the next batch of visible rows into column vectors, rather than decoding each row into the
+     * template.
+     *
+     * The rows of the batch are only decoded into the template by {@link #materialize(ColumnBatch, int)},
+     * which lets the caller skip rows that fail the scan's qualifiers without materializing them
+     * (see {@link ColumnBatch#filter}). The batch is reused by the next call, so it should not be held on to.
+     *
+     * @param maxRows the largest number of rows to read into the batch
+     * @return the next batch of rows, or {@code null} if the scan is exhausted
+     */
+    public ColumnBatch nextBatch(int maxRows) throws StandardException, IOException {
+        if(exhausted) return null;
+        SIFilter filter = getBatchFilter(maxRows);
+        batch.clear();
+        while(!batch.isFull()){
+            List<DataCell> keyValues=nextRawRow();
+            if(keyValues.size()<=0){
+                exhausted = true;
+                break;
+            }
+            batch.startRow();
+            DataCell currentKeyValue = keyValues.get(0);
+            if(template.nColumns()>0){
+                if(!filterRowKey(currentKeyValue)||!filterRow(filter,keyValues)){
+                    filterCounter.increment();
+                    continue;
+                }
+                if(isKeyed)
+                    batch.copyKeyColumns(template.getRowArray());
+            }else if(!filterRow(filter,keyValues)){
+                filterCounter.increment();
+                continue;
+            }
+            if (defaultRow != null && defaultValueMap != null) {
+                for (int i=defaultValueMap.anySetBit(); i>=0; i=defaultValueMap.anySetBit(i)) {
+                    batch.fillDefault(i,defaultRow.getColumn(i+1));
+                }
+            }
+            measureOutputSize(keyValues);
+            batch.commitRow(currentKeyValue.keyArray(),currentKeyValue.keyOffset(),currentKeyValue.keyLength());
+            rowsReturned++;
+        }
+        if(batch.size()<=0){
+            currentRowLocation = null;
+            return null;
+        }
+        return batch;
+    }
+
+    /**
+     * Decode a row of a batch returned by {@link #nextBatch(int)} into the template, and make it the
+     * current row.
+     *
+     * @param batch the batch returned by the last call to {@link #nextBatch(int)}
+     * @param row the row of the batch to materialize
+     * @return the template, holding the row
+     */
+    public ExecRow materialize(ColumnBatch batch,int row) throws StandardException, IOException {
+        assert batch==this.batch: "Cannot materialize a batch from another scanner";
+        template.resetRowArray();
+        batch.materialize(row,template.getRowArray());
+        byte[] rowKeys = batch.rowKeys();
+        int keyOffset = batch.rowKeyOffset(row);
+        int keyLength = batch.rowKeyLength(row);
+        if(template.nColumns()>0)
+            filterRowKey(rowKeys,keyOffset,keyLength); //the row already passed, so this only decodes the key columns
+        fillDefaults(null);
+        setRowLocation(rowKeys,keyOffset,keyLength);
+        template.setKey(currentRowLocation.getBytes());
+        return template;
+    }
+
     public long getBytesOutput(){
         return outputBytesCounter.getTotal();
     }
@@ -260,6 +386,8 @@ public class SITableScanner<Data> implements StandardIterator<ExecRow>,AutoClose
             keyAccumulator.close();
         if(siFilter!=null)
             siFilter.getAccumulator().close();
+        if(batchFilter!=null)
+            batchFilter.getAccumulator().close();
         if (regionScanner != null) {
             try {
                 regionScanner.close();
@@ -281,8 +409,21 @@ public class SITableScanner<Data> implements StandardIterator<ExecRow>,AutoClose
         return regionScanner.getRowsVisited();
     }
 
+    /**
+     * Tell the scanner the most rows its caller will read (for example because of a LIMIT), so that it
+     * does not read ahead past them.
+     *
+     * @param rowLimit the most rows the caller will read, or a negative number if there is no limit
+     */
+    public void setRowLimit(long rowLimit){
+        this.rowLimit = rowLimit;
+    }
+
     public void setRegionScanner(DataScanner scanner){
         this.regionScanner = scanner;
+        prefetchedRows.clear();
+        prefetchedCells.clear();
+        prefetchPosition = 0;
     }
 
     public long getBytesVisited() {
@@ -305,6 +446,8 @@ public class SITableScanner<Data> implements StandardIterator<ExecRow>,AutoClose
         SIFilterFactory siFilterFactory;
         try {
             final TxnFilter txnFilter = region.unpackedFilter(txnView, ignoreRecentTransactions);
+            if (txnFilter instanceof SimpleTxnFilter)
+                prefetchFilter = (SimpleTxnFilter) txnFilter;
 
             siFilterFactory = new SIFilterFactory<Data>() {
                 @Override
@@ -384,11 +527,46 @@ public class SITableScanner<Data> implements StandardIterator<ExecRow>,AutoClose
             boolean isCountStar = scan.getAttribute(SIConstants.SI_COUNT_STAR)!=null;
             predicateFilter= buildInitialPredicateFilter();
             accumulator = ExecRowAccumulator.newAccumulator(predicateFilter, false, template, rowDecodingMap, tableVersion);
+            accumulator.deferColumns(deferredColumns);
             siFilter = filterFactory.newFilter(predicateFilter,getRowEntryDecoder(),accumulator,isCountStar);
         }
         return siFilter;
     }
 
+    @SuppressWarnings("unchecked")
+    private SIFilter getBatchFilter(int maxRows) throws IOException {
+        if(batch==null || batch.capacity()!=maxRows) {
+            DataValueDescriptor[] dvds = template.getRowArray();
+            byte[] types = new byte[dvds.length];
+            boolean[] keyColumns = new boolean[dvds.length];
+            if(rowDecodingMap!=null){
+                for(int pos:rowDecodingMap){
+                    if(pos>=0 && dvds[pos]!=null)
+                        types[pos] = ColumnBatch.typeOf(dvds[pos],false);
+                }
+            }
+            if(isKeyed && keyDecodingMap!=null){
+                for(int i=0;i<keyDecodingMap.length;i++){
+                    int pos = keyDecodingMap[i];
+                    if(pos<0 || dvds[pos]==null || (accessedKeys!=null && (i>=accessedKeys.getLength() || !accessedKeys.isSet(i)))) continue;
+                    types[pos] = ColumnBatch.typeOf(dvds[pos],true);
+                    keyColumns[pos] = true;
+                }
+            }
+            batch = new ColumnBatch(maxRows,types,keyColumns,
+                    VersionedSerializers.forVersion(tableVersion,false).getSerializers(template));
+
+            boolean isCountStar = scan.getAttribute(SIConstants.SI_COUNT_STAR)!=null;
+            if(predicateFilter==null)
+                predicateFilter = buildInitialPredicateFilter();
+            if(batchFilter!=null)
+                batchFilter.getAccumulator().close();
+            ExecRowAccumulator batchAccumulator = ColumnBatchAccumulator.newAccumulator(predicateFilter,template,rowDecodingMap,tableVersion,batch);
+            batchFilter = filterFactory.newFilter(predicateFilter,getRowEntryDecoder(),batchAccumulator,isCountStar);
+        }
+        return batchFilter;
+    }
+
     protected EntryDecoder getRowEntryDecoder() {
         return new EntryDecoder();
     }
@@ -441,6 +619,35 @@ public class SITableScanner<Data> implements StandardIterator<ExecRow>,AutoClose
         }
     }
 
+    private void setRowLocation(byte[] key,int offset,int length) throws StandardException {
+        if(indexName!=null && template.nColumns() > 0 && template.getColumn(template.nColumns()).getTypeFormatId() == StoredFormatIds.ACCESS_HEAP_ROW_LOCATION_V1_ID){
+            //the row location of the main table row was stored in the index row, and was materialized with it
+            currentRowLocation = (RowLocation) template.getColumn(template.nColumns());
+            return;
+        }
+        if (reuseRowLocation) {
+            slice.set(key,offset,length);
+        } else {
+            //the batch's key buffer is overwritten by the next batch
+            slice = ByteSlice.wrap(Arrays.copyOfRange(key,offset,offset+length));
+        }
+        if(currentRowLocation==null || !reuseRowLocation)
+            currentRowLocation = new HBaseRowLocation(slice);
+        else
+            currentRowLocation.setValue(slice);
+    }
+
+    private void fillDefaults(boolean[] skippedColumns) throws StandardException {
+        //fill the unpopulated non-null columns with default values
+        if (defaultRow != null && defaultValueMap != null) {
+            for (int i=defaultValueMap.anySetBit(); i>=0; i=defaultValueMap.anySetBit(i)) {
+                if (skippedColumns!=null && i<skippedColumns.length && skippedColumns[i]) continue;
+                if (template.getColumn(i+1).isNull())
+                    template.setColumn(i+1, defaultRow.getColumn(i+1).cloneValue(false));
+            }
+        }
+    }
+
     @SuppressFBWarnings(value = "SF_SWITCH_NO_DEFAULT",justification = "Intentional")
     private boolean filterRow(SIFilter filter,List<DataCell> keyValues) throws IOException {
         filter.nextRow();
@@ -463,9 +670,53 @@ public class SITableScanner<Data> implements StandardIterator<ExecRow>,AutoClose
         return numCells > 0 && filter.getAccumulator().result() != null;
     }
 
+    /**
+     * Read the next row from the region scanner.
+     *
+     * When transactions can be prefetched, the scanner reads rows ahead of the caller, and fetches the
+     * missing transactions of the whole block in one call before its first row is returned. The scanner
+     * re-uses its cells, so buffered rows are cloned. To keep that cost off scans which don't need it
+     * (such as scans of read-resolved data), {@link PrefetchBlockSizer} only reads ahead while the filter
+     * is missing the transaction cache, and never past the rows the caller has left to read.
+     *
+     * @return the cells of the next row, or an empty list if the scan is exhausted
+     */
+    private List<DataCell> nextRawRow() throws IOException {
+        if(prefetchFilter==null)
+            return regionScanner.next(-1);
+        if(prefetchPosition<prefetchedRows.size())
+            return prefetchedRows.get(prefetchPosition++);
+
+        prefetchedRows.clear();
+        prefetchedCells.clear();
+        prefetchPosition = 0;
+        int blockRows = prefetchBlockSizer.nextBlockRows(prefetchFilter.getTxnCacheMisses(),
+                rowLimit<0?-1L:Math.max(rowLimit-rowsReturned,0L));
+        if(blockRows<=1)
+            return regionScanner.next(-1);
+        while(prefetchedRows.size()<blockRows){
+            List<DataCell> row=regionScanner.next(-1);
+            if(row.size()<=0) break;
+            List<DataCell> copy=new ArrayList<>(row.size());
+            for(DataCell cell:row){
+                copy.add(cell.getClone());
+            }
+            prefetchedRows.add(copy);
+            prefetchedCells.addAll(copy);
+        }
+        if(prefetchedRows.isEmpty())
+            return Collections.emptyList();
+        prefetchFilter.prefetchTransactions(prefetchedCells);
+        return prefetchedRows.get(prefetchPosition++);
+    }
+
     private boolean filterRowKey(DataCell data) throws IOException {
+        return filterRowKey(data.keyArray(), data.keyOffset(), data.keyLength());
+    }
+
+    private boolean filterRowKey(byte[] key,int offset,int length) throws IOException {
         if(!isKeyed) return true;
-        keyDecoder.set(data.keyArray(), data.keyOffset(), data.keyLength());
+        keyDecoder.set(key, offset, length);
         if(keyAccumulator==null)
             keyAccumulator = ExecRowAccumulator.newAccumulator(predicateFilter,false,template,
                     keyDecodingMap, keyColumnSortOrder, accessedKeys, tableVersion);
@@ -20,12 +20,15 @@ import com.splicemachine.db.iapi.services.io.ArrayUtil;
 import com.splicemachine.db.iapi.services.io.FormatableBitSet;
 import com.splicemachine.db.iapi.sql.Activation;
 import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.store.access.Qualifier;
 import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.derby.impl.storage.ZoneMapPredicate;
 import com.splicemachine.derby.stream.iapi.DataSet;
 import com.splicemachine.derby.stream.iapi.ScanSetBuilder;
 import com.splicemachine.derby.stream.iapi.OperationContext;
 import com.splicemachine.metrics.MetricFactory;
 import com.splicemachine.metrics.Metrics;
+import com.splicemachine.pipeline.Exceptions;
 import com.splicemachine.si.api.server.TransactionalRegion;
 import com.splicemachine.si.api.txn.TxnView;
 import com.splicemachine.si.impl.driver.SIDriver;
@@ -90,6 +93,7 @@ public abstract class TableScannerBuilder<V> implements Externalizable, ScanSetB
     protected byte[] token = SpliceClient.token;
 
     protected boolean ignoreRecentTransactions = false;
+    protected long rowLimit = -1;
 
     @Override
     public ScanSetBuilder<V> metricFactory(MetricFactory metricFactory){
@@ -393,8 +397,30 @@ public abstract class TableScannerBuilder<V> implements Externalizable, ScanSetB
         return this;
     }
 
+    /**
+     * Attach the part of the scan's qualifiers which region servers can check against their zone maps
+     * (see {@link ZoneMapPredicate}) to the scan, so that blocks of rows which cannot qualify are not read.
+     * Index scans are left alone.
+     *
+     * @param qualifiers the qualifiers which are applied to every row which the scan returns
+     * @param baseColumnMap the map from a column's storage position to its position in the template
+     */
+    public ScanSetBuilder<V> zoneMapQualifiers(Qualifier[][] qualifiers,int[] baseColumnMap) throws StandardException{
+        if(scan==null || indexName!=null) return this;
+        ZoneMapPredicate predicate=ZoneMapPredicate.fromQualifiers(qualifiers,baseColumnMap,template,
+                keyColumnEncodingOrder,defaultValueMap,optionalProbeValue,tableVersion);
+        if(predicate!=null){
+            try{
+                scan.addAttribute(ZoneMapPredicate.SCAN_ATTRIBUTE,predicate.toBytes());
+            }catch(IOException e){
+                throw Exceptions.parseException(e);
+            }
+        }
+        return this;
+    }
+
     public SITableScanner build(){
-            return new SITableScanner(
+            SITableScanner tableScanner = new SITableScanner(
                     scanner,
                     region,
                     template,
@@ -415,6 +441,8 @@ public abstract class TableScannerBuilder<V> implements Externalizable, ScanSetB
                     defaultRow,
                     defaultValueMap,
                     ignoreRecentTransactions);
+            tableScanner.setRowLimit(rowLimit);
+            return tableScanner;
     }
 
     @Override
@@ -490,6 +518,7 @@ public abstract class TableScannerBuilder<V> implements Externalizable, ScanSetB
             if (defaultValueMap != null)
                 out.writeObject(defaultValueMap);
             out.writeBoolean(ignoreRecentTransactions);
+            out.writeLong(rowLimit);
     }
     private void writeNullableString (String nullableString,ObjectOutput out) throws IOException {
         out.writeBoolean(nullableString!=null);
@@ -571,6 +600,7 @@ public abstract class TableScannerBuilder<V> implements Externalizable, ScanSetB
             if (in.readBoolean())
                 defaultValueMap = (FormatableBitSet) in.readObject();
             ignoreRecentTransactions = in.readBoolean();
+            rowLimit = in.readLong();
     }
 
     protected TxnView readTxn(ObjectInput in) throws IOException{
@@ -728,6 +758,12 @@ public abstract class TableScannerBuilder<V> implements Externalizable, ScanSetB
         return this;
     }
 
+    @Override
+    public ScanSetBuilder<V> rowLimit(long rowLimit) {
+        this.rowLimit = rowLimit;
+        return this;
+    }
+
     @Override
     public boolean getIgnoreRecentTransactions() {
         return ignoreRecentTransactions;
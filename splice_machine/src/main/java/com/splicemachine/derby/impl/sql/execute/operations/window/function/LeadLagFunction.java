@@ -87,6 +87,12 @@ public class LeadLagFunction extends SpliceGenericWindowFunction {
         return leadLag;
     }
 
+    @Override
+    public boolean isStreamable() {
+        // lead values are not known until we've read past them
+        return false;
+    }
+
     @Override
     public DataValueDescriptor getResult() throws StandardException {
         return chunks.get(0).getResult();
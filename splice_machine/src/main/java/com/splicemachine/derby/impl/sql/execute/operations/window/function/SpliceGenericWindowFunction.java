@@ -249,6 +249,15 @@ public abstract class SpliceGenericWindowFunction implements WindowFunction {
         return null;
     }
 
+    /**
+     * @return true if the result for a row is final as soon as the frame has moved past it, false if
+     * the function can only produce its results once the entire partition has been seen
+     * (see {@link #finishFrame()})
+     */
+    public boolean isStreamable() {
+        return true;
+    }
+
     @Override
     public boolean isUserDefinedAggregator() {
         return false;
@@ -0,0 +1,244 @@
+/*
+ * Copyright (c) 2012 - 2018 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.impl.storage;
+
+import com.splicemachine.encoding.MultiFieldDecoder;
+import com.splicemachine.primitives.Bytes;
+import com.splicemachine.storage.EntryDecoder;
+import com.splicemachine.storage.index.BitIndex;
+import org.spark_project.guava.base.Preconditions;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The min and max value of each scalar column, for each block of consecutive rows in a store file.
+ *
+ * A block covers every row key from its first to its last key (inclusive), and its statistics are taken
+ * over every packed row cell of those rows which is in the file, whichever version or transaction wrote
+ * it. Values are compared in their encoded form, which for scalar (integer, date, time and timestamp)
+ * columns is ordered the same way as the values themselves. A cell without a value of a column holds
+ * either a null or an update which did not change it, so a column only bounds a block's rows when every
+ * cell of the block has a value of it.
+ *
+ * A zone map says nothing about rows which are not in its file, so it can only be used to skip rows when
+ * every file of a region has one, and the rows of the memstore must be kept alongside the ranges it
+ * allows (see {@link #addMatchingRanges(ZoneMapPredicate, List)}).
+ */
+public class ZoneMap{
+    private final List<Block> blocks;
+
+    private ZoneMap(List<Block> blocks){
+        this.blocks=blocks;
+    }
+
+    public int numBlocks(){
+        return blocks.size();
+    }
+
+    public byte[] getFirstKey(int block){
+        return blocks.get(block).firstKey;
+    }
+
+    public byte[] getLastKey(int block){
+        return blocks.get(block).lastKey;
+    }
+
+    public int getRowCount(int block){
+        return blocks.get(block).rows;
+    }
+
+    /**
+     * @return the encoded minimum of the column in the block, or {@code null} if the block has no
+     * (non-null) value of it
+     */
+    public byte[] getMin(int block,int column){
+        Block b=blocks.get(block);
+        return column<b.min.length?b.min[column]:null;
+    }
+
+    public byte[] getMax(int block,int column){
+        Block b=blocks.get(block);
+        return column<b.max.length?b.max[column]:null;
+    }
+
+    /**
+     * @return the number of packed row cells in the block which do not hold a value of the column. This
+     * is an upper bound on the number of null values, since an update only writes the columns it changes.
+     */
+    public int getNullCount(int block,int column){
+        Block b=blocks.get(block);
+        return b.cells-(column<b.present.length?b.present[column]:0);
+    }
+
+    /**
+     * Add the key range {@code [firstKey,lastKey]} of each block which may hold a row satisfying
+     * {@code predicate}. Adjacent matching blocks are merged into one range.
+     *
+     * @param predicate the predicate to check
+     * @param ranges the list to add inclusive {@code {firstKey,lastKey}} pairs to
+     */
+    public void addMatchingRanges(ZoneMapPredicate predicate,List<byte[][]> ranges){
+        byte[][] current=null;
+        for(Block block:blocks){
+            if(!predicate.mayMatch(block)){
+                current=null;
+            }else if(current!=null){
+                current[1]=block.lastKey;
+            }else{
+                current=new byte[][]{block.firstKey,block.lastKey};
+                ranges.add(current);
+            }
+        }
+    }
+
+    @Override
+    public String toString(){
+        return "ZoneMap{blocks="+blocks.size()+"}";
+    }
+
+    /**
+     * Builds a zone map from the cells of a store file, which must be fed in key order.
+     */
+    public static class Builder{
+        private final int blockRows;
+        private final List<Block> blocks=new ArrayList<>();
+        private final EntryDecoder entryDecoder=new EntryDecoder();
+
+        private BlockBuilder current;
+        private byte[] lastRow;
+
+        public Builder(int blockRows){
+            Preconditions.checkArgument(blockRows>0,"Blocks must hold at least one row");
+            this.blockRows=blockRows;
+        }
+
+        /**
+         * Record the row key of a cell. Every cell of the file must be recorded, whatever it holds, so that
+         * the block ranges cover every row in the file.
+         */
+        public void row(byte[] buffer,int offset,int length){
+            if(lastRow!=null && Bytes.BASE_COMPARATOR.compare(lastRow,0,lastRow.length,buffer,offset,length)==0)
+                return;
+            lastRow=Arrays.copyOfRange(buffer,offset,offset+length);
+            if(current==null){
+                current=new BlockBuilder(lastRow);
+            }else if(current.rows>=blockRows){
+                blocks.add(current.build());
+                current=new BlockBuilder(lastRow);
+            }
+            current.lastKey=lastRow;
+            current.rows++;
+        }
+
+        /**
+         * Record the packed row value of a cell, whose row key has just been passed to
+         * {@link #row(byte[], int, int)}.
+         */
+        public void values(byte[] buffer,int offset,int length) throws IOException{
+            assert current!=null: "No row for these values";
+            current.cells++;
+            if(length<=0) return;
+            entryDecoder.set(buffer,offset,length);
+            BitIndex index=entryDecoder.getCurrentIndex();
+            MultiFieldDecoder decoder=entryDecoder.getEntryDecoder();
+            for(int pos=index.nextSetBit(0);pos>=0;pos=index.nextSetBit(pos+1)){
+                int fieldOffset=decoder.offset();
+                entryDecoder.seekForward(decoder,pos);
+                int fieldLength=decoder.offset()-1-fieldOffset;
+                current.add(pos,index.isScalarType(pos),decoder.array(),fieldOffset,fieldLength);
+            }
+        }
+
+        public ZoneMap build(){
+            if(current!=null){
+                blocks.add(current.build());
+                current=null;
+            }
+            return new ZoneMap(Collections.unmodifiableList(new ArrayList<>(blocks)));
+        }
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods and classes*/
+
+    static final class Block{
+        final byte[] firstKey;
+        final byte[] lastKey;
+        final int rows;
+        final int cells;
+        final byte[][] min;
+        final byte[][] max;
+        final int[] present;
+        /*columns which hold values that are not ordered by their encoding*/
+        final BitSet opaque;
+
+        Block(byte[] firstKey,byte[] lastKey,int rows,int cells,byte[][] min,byte[][] max,int[] present,BitSet opaque){
+            this.firstKey=firstKey;
+            this.lastKey=lastKey;
+            this.rows=rows;
+            this.cells=cells;
+            this.min=min;
+            this.max=max;
+            this.present=present;
+            this.opaque=opaque;
+        }
+    }
+
+    private static final class BlockBuilder{
+        private final byte[] firstKey;
+        private byte[] lastKey;
+        private int rows;
+        private int cells;
+        private byte[][] min=new byte[0][];
+        private byte[][] max=new byte[0][];
+        private int[] present=new int[0];
+        private final BitSet opaque=new BitSet();
+
+        BlockBuilder(byte[] firstKey){
+            this.firstKey=firstKey;
+            this.lastKey=firstKey;
+        }
+
+        void add(int column,boolean scalar,byte[] buffer,int offset,int length){
+            if(length<=0) return; //a null
+            if(column>=present.length){
+                int size=Math.max(column+1,present.length*2);
+                min=Arrays.copyOf(min,size);
+                max=Arrays.copyOf(max,size);
+                present=Arrays.copyOf(present,size);
+            }
+            present[column]++;
+            if(!scalar){
+                opaque.set(column);
+                return;
+            }
+            byte[] m=min[column];
+            if(m==null || Bytes.BASE_COMPARATOR.compare(buffer,offset,length,m,0,m.length)<0)
+                min[column]=Arrays.copyOfRange(buffer,offset,offset+length);
+            m=max[column];
+            if(m==null || Bytes.BASE_COMPARATOR.compare(buffer,offset,length,m,0,m.length)>0)
+                max[column]=Arrays.copyOfRange(buffer,offset,offset+length);
+        }
+
+        Block build(){
+            return new Block(firstKey,lastKey,rows,cells,min,max,present,opaque);
+        }
+    }
+}
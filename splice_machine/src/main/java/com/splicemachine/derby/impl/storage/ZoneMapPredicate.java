@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2012 - 2018 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.impl.storage;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.services.io.FormatableBitSet;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.store.access.Qualifier;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.db.iapi.types.Orderable;
+import com.splicemachine.derby.utils.marshall.dvd.DescriptorSerializer;
+import com.splicemachine.derby.utils.marshall.dvd.SerializerMap;
+import com.splicemachine.derby.utils.marshall.dvd.VersionedSerializers;
+import com.splicemachine.primitives.Bytes;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The part of a scan's qualifiers which can be checked against a {@link ZoneMap}: a conjunction of
+ * comparisons between a scalar, non-key column and an encoded constant.
+ *
+ * Comparisons are made against the encoded values, and the scalar encodings may truncate (a V1 timestamp
+ * keeps only milliseconds, for instance), so strict comparisons are widened: {@code x<v} is checked as
+ * {@code enc(x)<=enc(v)}. A block which fails this check has no row which the qualifiers accept, while a
+ * block which passes it still has to be read and qualified as usual.
+ */
+public class ZoneMapPredicate{
+    /**
+     * The scan attribute which carries a serialized predicate to the region servers.
+     */
+    public static final String SCAN_ATTRIBUTE="splice.zoneMap.predicate";
+
+    private static final byte LE=0;
+    private static final byte GE=1;
+    private static final byte EQ=2;
+
+    private final int[] columns;
+    private final byte[] operators;
+    private final byte[][] values;
+
+    ZoneMapPredicate(int[] columns,byte[] operators,byte[][] values){
+        this.columns=columns;
+        this.operators=operators;
+        this.values=values;
+    }
+
+    /**
+     * Build the predicate which is implied by the AND clause of {@code qualifiers}. Qualifiers which cannot be
+     * checked against a zone map (OR clauses, key columns, non-scalar columns, columns with default values,
+     * comparisons which accept nulls, and so on) are left out.
+     *
+     * @return the predicate, or {@code null} if none of the qualifiers can be used
+     */
+    public static ZoneMapPredicate fromQualifiers(Qualifier[][] qualifiers,
+                                                  int[] baseColumnMap,
+                                                  ExecRow template,
+                                                  int[] keyColumnEncodingOrder,
+                                                  FormatableBitSet defaultValueMap,
+                                                  DataValueDescriptor probeValue,
+                                                  String tableVersion) throws StandardException{
+        if(qualifiers==null || qualifiers.length==0 || qualifiers[0]==null || template==null) return null;
+        SerializerMap serializers=VersionedSerializers.forVersion(tableVersion,true);
+        List<Integer> columns=new ArrayList<>();
+        List<Byte> operators=new ArrayList<>();
+        List<byte[]> values=new ArrayList<>();
+        for(int i=0;i<qualifiers[0].length;i++){
+            Qualifier q=qualifiers[0][i];
+            if(i==0 && probeValue!=null) continue; //the value changes for each probe
+            if(q.getVariantType()==Qualifier.VARIANT || q.getOrderedNulls()) continue;
+            int column=q.getStoragePosition();
+            if(isKeyColumn(column,keyColumnEncodingOrder)) continue;
+            int templatePos=baseColumnMap!=null?baseColumnMap[column]:column;
+            if(templatePos<0 || templatePos>=template.nColumns()) continue;
+            if(defaultValueMap!=null && templatePos<defaultValueMap.getLength() && defaultValueMap.isSet(templatePos)) continue;
+            //a row with a null in this column must fail the comparison
+            if(q.getUnknownRV()!=q.negateCompareResult()) continue;
+
+            byte op=normalize(q.getOperator(),q.negateCompareResult());
+            if(op<0) continue;
+            DataValueDescriptor orderable=q.getOrderable();
+            if(orderable==null || orderable.isNull()) continue;
+            DataValueDescriptor columnTemplate=template.getColumn(templatePos+1);
+            if(columnTemplate==null || columnTemplate.getTypeFormatId()!=orderable.getTypeFormatId()) continue;
+            DescriptorSerializer serializer=serializers.getSerializer(orderable);
+            if(!serializer.isScalarType()) continue;
+
+            columns.add(column);
+            operators.add(op);
+            values.add(serializer.encodeDirect(orderable,false));
+        }
+        if(columns.isEmpty()) return null;
+        int[] c=new int[columns.size()];
+        byte[] o=new byte[columns.size()];
+        for(int i=0;i<c.length;i++){
+            c[i]=columns.get(i);
+            o[i]=operators.get(i);
+        }
+        return new ZoneMapPredicate(c,o,values.toArray(new byte[values.size()][]));
+    }
+
+    public byte[] toBytes() throws IOException{
+        ByteArrayOutputStream baos=new ByteArrayOutputStream();
+        try(DataOutputStream out=new DataOutputStream(baos)){
+            out.writeInt(columns.length);
+            for(int i=0;i<columns.length;i++){
+                out.writeInt(columns[i]);
+                out.writeByte(operators[i]);
+                out.writeInt(values[i].length);
+                out.write(values[i]);
+            }
+        }
+        return baos.toByteArray();
+    }
+
+    public static ZoneMapPredicate parseFrom(byte[] bytes) throws IOException{
+        try(DataInputStream in=new DataInputStream(new ByteArrayInputStream(bytes))){
+            int size=in.readInt();
+            int[] columns=new int[size];
+            byte[] operators=new byte[size];
+            byte[][] values=new byte[size][];
+            for(int i=0;i<size;i++){
+                columns[i]=in.readInt();
+                operators[i]=in.readByte();
+                values[i]=new byte[in.readInt()];
+                in.readFully(values[i]);
+            }
+            return new ZoneMapPredicate(columns,operators,values);
+        }
+    }
+
+    /**
+     * @return false if no row of the block can satisfy this predicate
+     */
+    boolean mayMatch(ZoneMap.Block block){
+        for(int i=0;i<columns.length;i++){
+            int column=columns[i];
+            if(block.opaque.get(column)) continue;
+            /*
+             * An update only writes the columns it changes, and the rest of the row is merged in from older
+             * cells, possibly in other files. So a cell without the column says nothing about the row's value,
+             * and the column can only rule the block out when every cell of the block has a value of it.
+             */
+            if(column>=block.present.length || block.present[column]<block.cells) continue;
+            byte[] min=block.min[column];
+            if(min==null) continue; //no packed row cells at all
+            byte[] max=block.max[column];
+            byte[] value=values[i];
+            switch(operators[i]){
+                case LE:
+                    if(Bytes.BASE_COMPARATOR.compare(min,value)>0) return false;
+                    break;
+                case GE:
+                    if(Bytes.BASE_COMPARATOR.compare(max,value)<0) return false;
+                    break;
+                default:
+                    if(Bytes.BASE_COMPARATOR.compare(min,value)>0 || Bytes.BASE_COMPARATOR.compare(max,value)<0) return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString(){
+        return "ZoneMapPredicate{terms="+columns.length+"}";
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private static boolean isKeyColumn(int column,int[] keyColumnEncodingOrder){
+        if(keyColumnEncodingOrder==null) return false;
+        for(int keyColumn:keyColumnEncodingOrder){
+            if(keyColumn==column) return true;
+        }
+        return false;
+    }
+
+    private static byte normalize(int operator,boolean negate){
+        switch(operator){
+            case Orderable.ORDER_OP_LESSTHAN:
+            case Orderable.ORDER_OP_LESSOREQUALS:
+                return negate?GE:LE;
+            case Orderable.ORDER_OP_GREATERTHAN:
+            case Orderable.ORDER_OP_GREATEROREQUALS:
+                return negate?LE:GE;
+            case Orderable.ORDER_OP_EQUALS:
+                return negate?-1:EQ;
+            default:
+                return -1;
+        }
+    }
+}
@@ -25,6 +25,7 @@ import com.splicemachine.storage.ByteEntryAccumulator;
 import com.splicemachine.storage.EntryPredicateFilter;
 import com.carrotsearch.hppc.BitSet;
 import java.io.IOException;
+import java.util.Arrays;
 
 /**
  * @author Scott Fines
@@ -35,6 +36,13 @@ public class ExecRowAccumulator extends ByteEntryAccumulator {
     protected final DescriptorSerializer[] serializers;
     protected final int[] columnMap;
     protected final int[] columnLengths;
+    /*columns whose decoding is put off until decodeDeferred() is called, indexed by row position*/
+    private boolean[] deferredColumns;
+    private int numDeferred;
+    private int[] deferredPositions;
+    private byte[][] deferredData;
+    private int[] deferredOffsets;
+    private int[] deferredLengths;
 
     private ExecRowAccumulator(){
         super(null,false,null);
@@ -44,12 +52,12 @@ public class ExecRowAccumulator extends ByteEntryAccumulator {
         this.columnLengths = null;
     }
 
-    private ExecRowAccumulator(EntryPredicateFilter predicateFilter,
-                               boolean returnIndex,
-                               BitSet fieldsToCollect,
-                               DataValueDescriptor[] dvds,
-                               int[] columnMap,
-                               DescriptorSerializer[] serializers) {
+    protected ExecRowAccumulator(EntryPredicateFilter predicateFilter,
+                                 boolean returnIndex,
+                                 BitSet fieldsToCollect,
+                                 DataValueDescriptor[] dvds,
+                                 int[] columnMap,
+                                 DescriptorSerializer[] serializers) {
         super(predicateFilter, returnIndex, fieldsToCollect);
         this.dvds = dvds;
         this.columnMap = columnMap;
@@ -65,6 +73,21 @@ public class ExecRowAccumulator extends ByteEntryAccumulator {
                                                     FormatableBitSet cols,
                                                     String tableVersion){
         DataValueDescriptor[] dvds = row.getRowArray();
+        BitSet fieldsToCollect = fieldsToCollect(dvds,columnMap,cols);
+        if(fieldsToCollect==null) return NOOP_ACCUMULATOR;
+
+        DescriptorSerializer[] serializers = VersionedSerializers.forVersion(tableVersion,false).getSerializers(row);
+        if(columnSortOrder!=null)
+            return new Ordered(predicateFilter,returnIndex,fieldsToCollect,dvds,columnMap,serializers,columnSortOrder);
+        else
+            return new ExecRowAccumulator(predicateFilter,returnIndex,fieldsToCollect,dvds,columnMap,serializers);
+    }
+
+    /**
+     * @return the fields of the stored row which should be collected into {@code dvds}, or {@code null}
+     * if there are none (in which case nothing needs to be accumulated)
+     */
+    protected static BitSet fieldsToCollect(DataValueDescriptor[] dvds,int[] columnMap,FormatableBitSet cols){
         BitSet fieldsToCollect = new BitSet(dvds.length);
         boolean hasColumns = false;
         if(cols!=null){
@@ -88,13 +111,7 @@ public class ExecRowAccumulator extends ByteEntryAccumulator {
                 }
             }
         }
-        if(!hasColumns) return NOOP_ACCUMULATOR;
-
-        DescriptorSerializer[] serializers = VersionedSerializers.forVersion(tableVersion,false).getSerializers(row);
-        if(columnSortOrder!=null)
-            return new Ordered(predicateFilter,returnIndex,fieldsToCollect,dvds,columnMap,serializers,columnSortOrder);
-        else
-            return new ExecRowAccumulator(predicateFilter,returnIndex,fieldsToCollect,dvds,columnMap,serializers);
+        return hasColumns?fieldsToCollect:null;
     }
 
     public static ExecRowAccumulator newAccumulator(EntryPredicateFilter predicateFilter,
@@ -138,6 +155,53 @@ public class ExecRowAccumulator extends ByteEntryAccumulator {
         super.occupyScalar(position, data, offset, length);
     }
 
+    /**
+     * Record, rather than decode, the fields of the columns in {@code columns}, until
+     * {@link #decodeDeferred()} is called.
+     *
+     * This lets a scan decode the columns which its qualifiers need, and only decode the rest of the row
+     * once the row has passed them. The recorded fields refer to the data which was accumulated, so the
+     * deferred columns must be decoded before that data is released.
+     *
+     * @param columns the row positions which should be decoded late, or {@code null} to decode every column
+     *                as it is accumulated
+     */
+    public void deferColumns(boolean[] columns){
+        if(dvds==null) return;
+        this.deferredColumns = columns;
+        this.numDeferred = 0;
+        if(columns!=null && deferredPositions==null){
+            int size = Math.max(dvds.length,1);
+            deferredPositions = new int[size];
+            deferredData = new byte[size][];
+            deferredOffsets = new int[size];
+            deferredLengths = new int[size];
+        }
+    }
+
+    /**
+     * Decode the fields which were deferred (see {@link #deferColumns(boolean[])}) since the last call to
+     * this method or to {@link #discardDeferred()}.
+     */
+    public void decodeDeferred(){
+        for(int i=0;i<numDeferred;i++){
+            decodeField(deferredPositions[i],deferredData[i],deferredOffsets[i],deferredLengths[i]);
+            deferredData[i] = null;
+        }
+        numDeferred = 0;
+    }
+
+    /**
+     * Forget the fields which were deferred, without decoding them. This is separate from {@link #reset()},
+     * which is called once a row has been accumulated, but before its deferred columns are decoded.
+     */
+    public void discardDeferred(){
+        for(int i=0;i<numDeferred;i++){
+            deferredData[i] = null;
+        }
+        numDeferred = 0;
+    }
+
     @Override
     public byte[] finish() {
         return SIConstants.EMPTY_BYTE_ARRAY;
@@ -150,6 +214,26 @@ public class ExecRowAccumulator extends ByteEntryAccumulator {
     }
 
     protected void decode(int position, byte[] data, int offset, int length) {
+        if(deferredColumns!=null && deferredColumns[columnMap[position]]){
+            columnLengths[columnMap[position]] = length;
+            if(numDeferred==deferredPositions.length){
+                int size = numDeferred*2;
+                deferredPositions = Arrays.copyOf(deferredPositions,size);
+                deferredData = Arrays.copyOf(deferredData,size);
+                deferredOffsets = Arrays.copyOf(deferredOffsets,size);
+                deferredLengths = Arrays.copyOf(deferredLengths,size);
+            }
+            deferredPositions[numDeferred] = position;
+            deferredData[numDeferred] = data;
+            deferredOffsets[numDeferred] = offset;
+            deferredLengths[numDeferred] = length;
+            numDeferred++;
+            return;
+        }
+        decodeField(position, data, offset, length);
+    }
+
+    private void decodeField(int position, byte[] data, int offset, int length) {
         int colPos=columnMap[position];
         DataValueDescriptor dvd = dvds[colPos];
         DescriptorSerializer serializer = serializers[colPos];
@@ -196,7 +280,7 @@ public class ExecRowAccumulator extends ByteEntryAccumulator {
         }
     }
 
-    private static final ExecRowAccumulator NOOP_ACCUMULATOR = new ExecRowAccumulator(){
+    protected static final ExecRowAccumulator NOOP_ACCUMULATOR = new ExecRowAccumulator(){
         @Override protected void decode(int position, byte[] data, int offset, int length) { }
         @Override protected void occupy(int position, byte[] data, int offset, int length) { }
         @Override protected void occupyDouble(int position, byte[] data, int offset, int length) { }
@@ -39,6 +39,7 @@ import com.splicemachine.pipeline.PipelineDriver;
 import com.splicemachine.pipeline.contextfactory.ContextFactoryDriver;
 import com.splicemachine.pipeline.contextfactory.ContextFactoryLoader;
 import com.splicemachine.pipeline.contextfactory.ReferenceCountingFactoryDriver;
+import com.splicemachine.si.api.readresolve.ReadResolverManagement;
 import com.splicemachine.si.impl.driver.SIDriver;
 import com.splicemachine.tools.EmbedConnectionMaker;
 import com.splicemachine.tools.version.ManifestReader;
@@ -137,6 +138,11 @@ public class EngineLifecycleService implements DatabaseLifecycleService{
 
             ObjectName rollforward = new ObjectName("com.splicemachine.si.api.rollforward:type=RollForward");
             mbs.registerMBean(SIDriver.driver().getRollForward(),rollforward);
+            ReadResolverManagement readResolver=SIDriver.driver().getReadResolverManagement();
+            if(readResolver!=null){
+                ObjectName readResolve=new ObjectName("com.splicemachine.si.api.readresolve:type=ReadResolver");
+                mbs.registerMBean(readResolver,readResolve);
+            }
             db.getDataDictionary().getDataDictionaryCache().registerJMX(mbs);
 
 
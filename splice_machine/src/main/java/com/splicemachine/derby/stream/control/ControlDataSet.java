@@ -30,8 +30,8 @@ import com.splicemachine.derby.impl.sql.execute.operations.export.ExportOperatio
 import com.splicemachine.derby.impl.sql.execute.operations.window.WindowContext;
 import com.splicemachine.derby.stream.control.output.ControlExportDataSetWriter;
 import com.splicemachine.derby.stream.control.output.ParquetWriterService;
+import com.splicemachine.derby.stream.function.ColumnComparator;
 import com.splicemachine.derby.stream.function.KeyerFunction;
-import com.splicemachine.derby.stream.function.MergeWindowFunction;
 import com.splicemachine.derby.stream.function.SpliceFlatMapFunction;
 import com.splicemachine.derby.stream.function.SpliceFunction;
 import com.splicemachine.derby.stream.function.SpliceFunction2;
@@ -46,6 +46,7 @@ import com.splicemachine.derby.stream.output.insert.InsertPipelineWriter;
 import com.splicemachine.derby.stream.output.insert.InsertTableWriterBuilder;
 import com.splicemachine.derby.stream.output.update.UpdatePipelineWriter;
 import com.splicemachine.derby.stream.output.update.UpdateTableWriterBuilder;
+import com.splicemachine.derby.stream.window.StreamingWindowIterator;
 import com.splicemachine.pipeline.Exceptions;
 import com.splicemachine.primitives.Bytes;
 import com.splicemachine.si.impl.driver.SIDriver;
@@ -448,27 +449,40 @@ public class ControlDataSet<V> implements DataSet<V> {
 
     /**
      * Window Function. Take a WindowContext that define the partition, the order, and the frame boundary.
-     * Currently only run on top of Spark.
+     *
+     * On the control side, the rows are sorted by partition and order columns (spilling to disk if need be), and
+     * the window functions are then evaluated in a single streaming pass over the sorted rows, holding only the
+     * current frame in memory.
+     *
      * @param windowContext
      * @param pushScope
      * @param scopeDetail
      * @return
      */
     @Override
+    @SuppressWarnings("unchecked")
     public DataSet<V> windows(WindowContext windowContext, OperationContext operationContext, boolean pushScope, String scopeDetail) {
 
         operationContext.pushScopeForOp(OperationContext.Scope.SORT_KEYER);
-        KeyerFunction f = new KeyerFunction(operationContext, windowContext.getPartitionColumns());
+        KeyerFunction f = new KeyerFunction(operationContext, windowContext.getKeyColumns());
         PairDataSet pair = keyBy(f);
         operationContext.popScope();
 
-        operationContext.pushScopeForOp(OperationContext.Scope.GROUP_AGGREGATE_KEYER);
-        pair = pair.groupByKey("Group Values For Each Key", operationContext);
+        operationContext.pushScopeForOp(OperationContext.Scope.SORT);
+        int[] keyColumns = new int[windowContext.getKeyColumns().length];
+        for (int i = 0; i < keyColumns.length; i++) {
+            keyColumns[i] = i;
+        }
+        pair = pair.sortByKey(new ColumnComparator(keyColumns, windowContext.getKeyOrders(), windowContext.getNullOrderings()), operationContext);
         operationContext.popScope();
 
-        operationContext.pushScopeForOp(OperationContext.Scope.EXECUTE);
+        operationContext.pushScopeForOp(OperationContext.Scope.WINDOW);
         try {
-            return pair.flatmap(new MergeWindowFunction(operationContext, windowContext.getWindowFunctions()), true);
+            ExecRow templateRow = operationContext.getOperation().getExecRowDefinition();
+            Iterator<ExecRow> sorted = ((ControlPairDataSet<ExecRow, ExecRow>) pair).values().toLocalIterator();
+            return new ControlDataSet(new StreamingWindowIterator(windowContext, sorted, templateRow));
+        } catch (StandardException se) {
+            throw new RuntimeException(se);
         } finally {
             operationContext.popScope();
         }
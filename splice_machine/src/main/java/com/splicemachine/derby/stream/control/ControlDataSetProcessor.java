@@ -22,6 +22,7 @@ import com.splicemachine.db.iapi.sql.execute.ExecRow;
 import com.splicemachine.db.iapi.store.access.Qualifier;
 import com.splicemachine.db.iapi.types.DataValueDescriptor;
 import com.splicemachine.derby.iapi.sql.execute.SpliceOperation;
+import com.splicemachine.derby.impl.sql.execute.operations.ScanOperation;
 import com.splicemachine.derby.impl.sql.execute.operations.scanner.TableScannerBuilder;
 import com.splicemachine.derby.stream.function.Partitioner;
 import com.splicemachine.derby.stream.iapi.*;
@@ -114,8 +115,13 @@ public class ControlDataSetProcessor implements DataSetProcessor{
                 try{
                     p =SIDriver.driver().getTableFactory().getTable(tableName);
                     TxnRegion localRegion=new TxnRegion(p,NoopRollForward.INSTANCE,NoOpReadResolver.INSTANCE,
-                            txnSupplier,transactory,txnOperationFactory);
+                            txnSupplier,transactory,txnOperationFactory,SIDriver.driver().getActiveTxnCache(p));
 
+                    if(spliceOperation instanceof ScanOperation && !((ScanOperation)spliceOperation).getRowIdKey()){
+                        ScanOperation scanOperation=(ScanOperation)spliceOperation;
+                        zoneMapQualifiers(scanOperation.getScanInformation().getScanQualifiers(),
+                                scanOperation.getOperationInformation().getBaseColumnMap());
+                    }
                     this.region(localRegion).scanner(p.openScanner(getScan(),metricFactory)); //set the scanner
                     TableScannerIterator tableScannerIterator=new TableScannerIterator(this,spliceOperation);
                     if(spliceOperation!=null){
@@ -14,10 +14,10 @@
 
 package com.splicemachine.derby.stream.control;
 
+import com.splicemachine.SpliceKryoRegistry;
 import com.splicemachine.derby.impl.sql.execute.operations.JoinOperation;
 import org.spark_project.guava.base.Function;
 import com.splicemachine.db.iapi.error.StandardException;
-import com.splicemachine.db.iapi.sql.execute.ExecRow;
 import com.splicemachine.derby.iapi.sql.execute.SpliceOperation;
 import com.splicemachine.derby.stream.function.*;
 import com.splicemachine.derby.stream.iapi.DataSet;
@@ -34,6 +34,7 @@ import org.spark_project.guava.base.Predicate;
 import org.spark_project.guava.collect.*;
 import scala.Tuple2;
 import javax.annotation.Nullable;
+import java.io.IOException;
 import java.util.*;
 import java.util.function.Consumer;
 
@@ -91,22 +92,34 @@ public class ControlPairDataSet<K,V> implements PairDataSet<K,V> {
     @Override
     public <Op extends SpliceOperation> PairDataSet<K, V> reduceByKey(final SpliceFunction2<Op,V, V, V> function2) {
         final Iterator<Tuple2<K,V>> limitIterator = limit(checkCancellation(source,function2), function2.operationContext);
+        final SpillingHashAggregator<K,V,V> aggregator = newAggregator(new SpillingHashAggregator.Combiner<V, V>() {
+            @Override
+            public V createCombiner(V value) throws Exception {
+                return function2.call(null,value);
+            }
+
+            @Override
+            public V mergeValue(V combiner, V value) throws Exception {
+                return function2.call(combiner,value);
+            }
+
+            @Override
+            public V mergeCombiners(V first, V second) throws Exception {
+                return function2.call(first,second);
+            }
+
+            @Override
+            public boolean retainsValues() {
+                return false;
+            }
+        }, function2.operationContext);
         return new ControlPairDataSet(new Iterator<Tuple2<K,V>>(){
-            private Iterator<Map.Entry<K,V>> set;
+            private Iterator<Tuple2<K,V>> set;
             @Override
             public boolean hasNext() {
                 if (set == null) {
                     try {
-                        HashMap<K, V> map = Maps.newHashMap();
-                        while (limitIterator.hasNext()) {
-                            Tuple2<K, V> t = limitIterator.next();
-                            if (map.containsKey(t._1())) {
-                                function2.call( map.get(t._1()),t._2());
-                            } else {
-                                map.put((K)((ExecRow)t._1).getClone(), function2.call(null,t._2()));
-                            }
-                        }
-                        set = map.entrySet().iterator();
+                        set = aggregator.aggregate(limitIterator);
                     } catch (Exception e) {
                         throw new RuntimeException(e);
                     }
@@ -116,8 +129,7 @@ public class ControlPairDataSet<K,V> implements PairDataSet<K,V> {
 
             @Override
             public Tuple2<K,V> next() {
-                Map.Entry<K,V> entry = set.next();
-                return Tuple2.apply(entry.getKey(),entry.getValue());
+                return set.next();
             }
 
             @Override
@@ -145,17 +157,19 @@ public class ControlPairDataSet<K,V> implements PairDataSet<K,V> {
     @Override
     public PairDataSet<K, V> sortByKey(final Comparator<K> comparator, OperationContext operationContext) {
         /*
-         * -sf- this is done a bit goofily, so that we can support multiple versions of guava.
-         *
-         * This is essentially copying out FluentIterable.from(source).toSortedList(comparator) logic
-         * directly into the method, so that we can support the same code line from 12.0.1 on.
+         * Sort within the control side's memory budget, spilling sorted runs to local disk
+         * when the input is larger than expected.
          */
-        return new ControlPairDataSet<>(Ordering.from(new Comparator<Tuple2<K, V>>() {
-            @Override
-            public int compare(Tuple2<K, V> o1, Tuple2<K, V> o2) {
-                return comparator.compare(o1._1(), o2._1());
-            }
-        }).immutableSortedCopy(() -> limit(ControlUtils.checkCancellation(source,operationContext), operationContext)).iterator());
+        ExternalSorter<K,V> sorter = new ExternalSorter<>(comparator,
+                ControlUtils.sortMemoryThreshold(),
+                ControlUtils.spillDirectory(),
+                SpliceKryoRegistry.getInstance(),
+                operationContext);
+        try {
+            return new ControlPairDataSet<>(sorter.sort(limit(ControlUtils.checkCancellation(source,operationContext), operationContext)));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
     }
 
     @Override
@@ -172,15 +186,47 @@ public class ControlPairDataSet<K,V> implements PairDataSet<K,V> {
 
     @Override
     public PairDataSet<K, Iterable<V>> groupByKey(OperationContext context) {
-        Multimap<K,V> newMap = multimapFromIterator(limit(ControlUtils.checkCancellation(source,context), context));
-        return new ControlPairDataSet<>(FluentIterable.from(newMap.asMap().entrySet()).transform(new Function<Map.Entry<K, Collection<V>>, Tuple2<K, Iterable<V>>>() {
+        SpillingHashAggregator<K,V,List<V>> aggregator = newAggregator(new SpillingHashAggregator.Combiner<V, List<V>>() {
+            @Override
+            public List<V> createCombiner(V value) {
+                List<V> values = new ArrayList<>();
+                values.add(value);
+                return values;
+            }
+
+            @Override
+            public List<V> mergeValue(List<V> combiner, V value) {
+                combiner.add(value);
+                return combiner;
+            }
+
+            @Override
+            public List<V> mergeCombiners(List<V> first, List<V> second) {
+                first.addAll(second);
+                return first;
+            }
+
+            @Override
+            public boolean retainsValues() {
+                return true;
+            }
+        }, context);
+        Iterator<Tuple2<K,List<V>>> groups;
+        try {
+            groups = aggregator.aggregate(limit(ControlUtils.checkCancellation(source,context), context));
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+        return new ControlPairDataSet<>(Iterators.transform(groups, new Function<Tuple2<K, List<V>>, Tuple2<K, Iterable<V>>>() {
             @Nullable
             @Override
-            public Tuple2<K, Iterable<V>> apply(@Nullable Map.Entry<K, Collection<V>> e) {
+            public Tuple2<K, Iterable<V>> apply(@Nullable Tuple2<K, List<V>> e) {
                 assert e!=null: "E cannot be null";
-                return new Tuple2<K, Iterable<V>>(e.getKey(), e.getValue());
+                return new Tuple2<K, Iterable<V>>(e._1(), e._2());
             }
-        }).iterator());
+        }));
     }
 
     @Override
@@ -317,5 +363,11 @@ public class ControlPairDataSet<K,V> implements PairDataSet<K,V> {
         };
     }
 
-
+    private <C> SpillingHashAggregator<K,V,C> newAggregator(SpillingHashAggregator.Combiner<V,C> combiner, OperationContext context) {
+        return new SpillingHashAggregator<>(combiner,
+                ControlUtils.aggregateMemoryThreshold(),
+                ControlUtils.spillDirectory(),
+                SpliceKryoRegistry.getInstance(),
+                context);
+    }
 }
@@ -14,6 +14,8 @@
 
 package com.splicemachine.derby.stream.control;
 
+import com.splicemachine.EngineDriver;
+import com.splicemachine.db.iapi.error.StandardException;
 import com.splicemachine.db.iapi.sql.conn.ControlExecutionLimiter;
 import com.splicemachine.db.iapi.sql.conn.StatementContext;
 import com.splicemachine.derby.stream.function.AbstractSpliceFunction;
@@ -22,6 +24,7 @@ import org.spark_project.guava.base.Function;
 import org.spark_project.guava.collect.*;
 import scala.Tuple2;
 import javax.annotation.Nullable;
+import java.io.File;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.Map;
@@ -32,6 +35,9 @@ import java.util.concurrent.CancellationException;
  * Created by dgomezferro on 7/31/15.
  */
 public class ControlUtils {
+    private static final long DEFAULT_SORT_MEMORY_THRESHOLD = 64*1024*1024L;
+    private static final long DEFAULT_AGGREGATE_MEMORY_THRESHOLD = 64*1024*1024L;
+
     public static <K, V> Iterator<Tuple2<K, V>> entryToTuple(Collection<Map.Entry<K, V>> collection) {
         return Iterators.transform(collection.iterator(),new Function<Map.Entry<K, V>, Tuple2<K, V>>() {
 
@@ -84,6 +90,47 @@ public class ControlUtils {
         }
     }
 
+    /**
+     * @return the number of bytes a control side sort may buffer before spilling to disk
+     */
+    public static long sortMemoryThreshold() {
+        EngineDriver driver = EngineDriver.driver();
+        if (driver == null)
+            return DEFAULT_SORT_MEMORY_THRESHOLD;
+        return driver.getConfiguration().getControlSortMemoryThreshold();
+    }
+
+    /**
+     * @return the number of bytes a control side aggregation may buffer before spilling to disk
+     */
+    public static long aggregateMemoryThreshold() {
+        EngineDriver driver = EngineDriver.driver();
+        if (driver == null)
+            return DEFAULT_AGGREGATE_MEMORY_THRESHOLD;
+        return driver.getConfiguration().getControlAggregateMemoryThreshold();
+    }
+
+    /**
+     * @return the directory in which control side operations write their spill files
+     */
+    public static File spillDirectory() {
+        EngineDriver driver = EngineDriver.driver();
+        String dir = driver == null ? null : driver.getConfiguration().getControlSpillDirectory();
+        if (dir == null)
+            dir = System.getProperty("java.io.tmpdir");
+        return new File(dir);
+    }
+
+    /**
+     * Close {@code closeable} when the operation behind {@code context} is closed, so that spill files are
+     * removed even when the consumer stops reading early.
+     */
+    public static void registerCloseable(OperationContext context, AutoCloseable closeable) throws StandardException {
+        if (context == null || context.getOperation() == null)
+            return;
+        context.getOperation().registerCloseable(closeable);
+    }
+
     public static <E> Iterator<E> checkCancellation(Iterator<E> iterator, AbstractSpliceFunction f) {
         return checkCancellation(iterator, f.operationContext);
     }
@@ -0,0 +1,388 @@
+/*
+ * Copyright (c) 2012 - 2017 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.stream.control;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.splicemachine.collections.CloseableIterator;
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.derby.stream.iapi.OperationContext;
+import com.splicemachine.utils.SpliceLogUtils;
+import com.splicemachine.utils.kryo.KryoPool;
+import org.apache.log4j.Logger;
+import scala.Tuple2;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * A bounded-memory sort of key-value pairs for the control side.
+ *
+ * Pairs are buffered in memory until their estimated size exceeds the memory threshold. At that point,
+ * the buffer is sorted and written to a temporary file as a sorted "run" of Kryo-encoded pairs. Once the
+ * input is exhausted, all runs (plus whatever remains in memory) are k-way merged to produce the
+ * final sorted output. If there are more runs than can be merged at once, the oldest runs are
+ * merged into larger runs first.
+ *
+ * When the input fits within the memory threshold, nothing is written to disk, and this behaves
+ * exactly like an in-memory sort.
+ *
+ * The sort is stable: pairs with equal keys are returned in the order in which they were read.
+ */
+public class ExternalSorter<K,V>{
+    private static final Logger LOG=Logger.getLogger(ExternalSorter.class);
+    private static final int MAX_MERGE_WIDTH=64;
+    private static final int IO_BUFFER_SIZE=1<<16;
+    /*rough heap overhead of a Tuple2 plus the row objects which hold the columns*/
+    private static final int TUPLE_OVERHEAD=64;
+    private static final int ROW_OVERHEAD=48;
+
+    private final Comparator<K> comparator;
+    private final long memoryThreshold;
+    private final File spillDirectory;
+    private final KryoPool kryoPool;
+    private final OperationContext operationContext;
+
+    private final List<SpilledRun> runs=new ArrayList<>();
+    private long spilledBytes;
+
+    public ExternalSorter(Comparator<K> comparator,
+                          long memoryThreshold,
+                          File spillDirectory,
+                          KryoPool kryoPool,
+                          OperationContext operationContext){
+        this.comparator=comparator;
+        this.memoryThreshold=memoryThreshold;
+        this.spillDirectory=spillDirectory;
+        this.kryoPool=kryoPool;
+        this.operationContext=operationContext;
+    }
+
+    /**
+     * Sort the source.
+     *
+     * The source is consumed entirely before this method returns. If anything fails while the source
+     * is consumed, every run which has already been spilled is deleted before the failure is rethrown.
+     *
+     * The caller must close the returned iterator if it stops reading before the end, so that any
+     * remaining run files are deleted and their streams are closed.
+     *
+     * @param source the pairs to sort
+     * @return the pairs in sorted order by key
+     * @throws IOException if something goes wrong spilling to disk
+     */
+    public CloseableIterator<Tuple2<K,V>> sort(Iterator<Tuple2<K,V>> source) throws IOException{
+        List<Tuple2<K,V>> buffer=new ArrayList<>();
+        try{
+            long bufferSize=0L;
+            while(source.hasNext()){
+                Tuple2<K,V> next=source.next();
+                buffer.add(next);
+                bufferSize+=estimateSize(next);
+                if(bufferSize>memoryThreshold){
+                    sortBuffer(buffer);
+                    runs.add(spill(buffer.iterator()));
+                    buffer.clear();
+                    bufferSize=0L;
+                }
+            }
+            sortBuffer(buffer);
+            if(runs.isEmpty())
+                return new InMemoryIterator(buffer.iterator());
+
+            while(runs.size()>=MAX_MERGE_WIDTH){
+                List<SpilledRun> toMerge=new ArrayList<>(runs.subList(0,MAX_MERGE_WIDTH));
+                runs.subList(0,MAX_MERGE_WIDTH).clear();
+                //closing the merge deletes the runs it was given, whether or not the spill succeeds
+                try(MergeIterator merged=new MergeIterator(toMerge,null)){
+                    //the merged run holds the oldest rows, so it goes first to keep the sort stable
+                    runs.add(0,spill(merged));
+                }
+            }
+        }catch(IOException|RuntimeException|Error e){
+            deleteRuns();
+            throw e;
+        }
+        if(LOG.isDebugEnabled())
+            SpliceLogUtils.debug(LOG,"Merging %d spilled runs (%d bytes) and %d in-memory rows",runs.size(),spilledBytes,buffer.size());
+        List<SpilledRun> toMerge=new ArrayList<>(runs);
+        runs.clear();
+        MergeIterator merged=new MergeIterator(toMerge,buffer.isEmpty()?null:buffer.iterator());
+        try{
+            ControlUtils.registerCloseable(operationContext,merged);
+        }catch(StandardException e){
+            merged.close();
+            throw new IOException(e);
+        }
+        return merged;
+    }
+
+    public long getSpilledBytes(){
+        return spilledBytes;
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private void deleteRuns(){
+        for(SpilledRun run:runs){
+            run.delete();
+        }
+        runs.clear();
+    }
+
+    private void sortBuffer(List<Tuple2<K,V>> buffer){
+        buffer.sort(new Comparator<Tuple2<K,V>>(){
+            @Override
+            public int compare(Tuple2<K,V> o1,Tuple2<K,V> o2){
+                return comparator.compare(o1._1(),o2._1());
+            }
+        });
+    }
+
+    private SpilledRun spill(Iterator<Tuple2<K,V>> sortedPairs) throws IOException{
+        File runFile=File.createTempFile("splice-sort-",".run",spillDirectory);
+        long count=0L;
+        long bytes;
+        Kryo kryo=kryoPool.get();
+        try(Output output=new Output(new FileOutputStream(runFile),IO_BUFFER_SIZE)){
+            while(sortedPairs.hasNext()){
+                Tuple2<K,V> pair=sortedPairs.next();
+                kryo.writeClassAndObject(output,pair._1());
+                kryo.writeClassAndObject(output,pair._2());
+                count++;
+            }
+            output.flush();
+            bytes=output.total();
+        }catch(IOException|RuntimeException e){
+            if(!runFile.delete())
+                LOG.warn("Unable to delete spill file "+runFile);
+            throw e;
+        }finally{
+            kryoPool.returnInstance(kryo);
+        }
+        spilledBytes+=bytes;
+        if(LOG.isTraceEnabled())
+            SpliceLogUtils.trace(LOG,"Spilled run of %d rows (%d bytes) to %s",count,bytes,runFile);
+        return new SpilledRun(runFile,count);
+    }
+
+    @SuppressWarnings("unchecked")
+    static long estimateSize(Object o){
+        if(o instanceof Tuple2){
+            Tuple2 t=(Tuple2)o;
+            return TUPLE_OVERHEAD+estimateSize(t._1())+estimateSize(t._2());
+        }else if(o instanceof ExecRow){
+            long size=ROW_OVERHEAD;
+            for(DataValueDescriptor dvd:((ExecRow)o).getRowArray()){
+                if(dvd!=null)
+                    size+=dvd.estimateMemoryUsage();
+            }
+            return size;
+        }else if(o instanceof Collection){
+            long size=TUPLE_OVERHEAD;
+            for(Object element:(Collection)o){
+                size+=estimateSize(element);
+            }
+            return size;
+        }else
+            return o==null?0:TUPLE_OVERHEAD;
+    }
+
+    private class SpilledRun{
+        private final File file;
+        private final long count;
+
+        SpilledRun(File file,long count){
+            this.file=file;
+            this.count=count;
+        }
+
+        RunCursor open(int index) throws IOException{
+            Input input=new Input(new FileInputStream(file),IO_BUFFER_SIZE);
+            /*
+             * Unlink the file now that it is open, so that the space is reclaimed as soon as
+             * the input is closed.
+             */
+            delete();
+            return new RunCursor(index,input,count);
+        }
+
+        void delete(){
+            if(file.exists() && !file.delete())
+                LOG.warn("Unable to delete spill file "+file);
+        }
+    }
+
+    private class RunCursor{
+        private final int index;
+        private final Input input;
+        private final Iterator<Tuple2<K,V>> memory;
+        private long remaining;
+        private Tuple2<K,V> head;
+
+        RunCursor(int index,Input input,long count){
+            this.index=index;
+            this.input=input;
+            this.memory=null;
+            this.remaining=count;
+        }
+
+        RunCursor(int index,Iterator<Tuple2<K,V>> memory){
+            this.index=index;
+            this.input=null;
+            this.memory=memory;
+        }
+
+        @SuppressWarnings("unchecked")
+        boolean advance(Kryo kryo){
+            if(memory!=null){
+                head=memory.hasNext()?memory.next():null;
+            }else if(remaining>0){
+                K key=(K)kryo.readClassAndObject(input);
+                V value=(V)kryo.readClassAndObject(input);
+                head=new Tuple2<>(key,value);
+                remaining--;
+            }else{
+                head=null;
+                close();
+            }
+            return head!=null;
+        }
+
+        void close(){
+            if(input!=null)
+                input.close();
+        }
+    }
+
+    private class InMemoryIterator implements CloseableIterator<Tuple2<K,V>>{
+        private final Iterator<Tuple2<K,V>> delegate;
+
+        InMemoryIterator(Iterator<Tuple2<K,V>> delegate){
+            this.delegate=delegate;
+        }
+
+        @Override
+        public boolean hasNext(){
+            return delegate.hasNext();
+        }
+
+        @Override
+        public Tuple2<K,V> next(){
+            return delegate.next();
+        }
+
+        @Override
+        public void close(){
+            //nothing was spilled, so there is nothing to clean up
+        }
+    }
+
+    private class MergeIterator implements CloseableIterator<Tuple2<K,V>>{
+        private final List<SpilledRun> spilledRuns;
+        private final List<RunCursor> cursors;
+        private final PriorityQueue<RunCursor> queue;
+        private Kryo kryo;
+
+        MergeIterator(List<SpilledRun> spilledRuns,Iterator<Tuple2<K,V>> inMemory) throws IOException{
+            this.spilledRuns=spilledRuns;
+            this.cursors=new ArrayList<>(spilledRuns.size());
+            this.queue=new PriorityQueue<>(spilledRuns.size()+1,new Comparator<RunCursor>(){
+                @Override
+                public int compare(RunCursor o1,RunCursor o2){
+                    int c=comparator.compare(o1.head._1(),o2.head._1());
+                    if(c!=0) return c;
+                    //keep the sort stable by favoring the older run
+                    return Integer.compare(o1.index,o2.index);
+                }
+            });
+            this.kryo=kryoPool.get();
+            try{
+                int index=0;
+                for(SpilledRun run:spilledRuns){
+                    RunCursor cursor=run.open(index++);
+                    cursors.add(cursor);
+                    if(cursor.advance(kryo))
+                        queue.add(cursor);
+                }
+                if(inMemory!=null){
+                    RunCursor cursor=new RunCursor(index,inMemory);
+                    if(cursor.advance(kryo))
+                        queue.add(cursor);
+                }
+            }catch(IOException|RuntimeException|Error e){
+                close();
+                throw e;
+            }
+        }
+
+        @Override
+        public boolean hasNext(){
+            if(queue.isEmpty()){
+                close();
+                return false;
+            }
+            return true;
+        }
+
+        @Override
+        public Tuple2<K,V> next(){
+            RunCursor cursor=queue.poll();
+            if(cursor==null)
+                throw new NoSuchElementException();
+            Tuple2<K,V> next=cursor.head;
+            try{
+                if(cursor.advance(kryo))
+                    queue.add(cursor);
+            }catch(RuntimeException|Error e){
+                close();
+                throw e;
+            }
+            return next;
+        }
+
+        /**
+         * Close every run's stream and delete every run's file, including those which were never opened.
+         * This is safe to call more than once.
+         */
+        @Override
+        public void close(){
+            for(RunCursor cursor:cursors){
+                cursor.close();
+            }
+            cursors.clear();
+            for(SpilledRun run:spilledRuns){
+                run.delete();
+            }
+            queue.clear();
+            if(kryo!=null){
+                kryoPool.returnInstance(kryo);
+                kryo=null;
+            }
+        }
+    }
+}
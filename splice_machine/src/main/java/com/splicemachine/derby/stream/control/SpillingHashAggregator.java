@@ -0,0 +1,401 @@
+/*
+ * Copyright (c) 2012 - 2017 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.stream.control;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.splicemachine.collections.CloseableIterator;
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.derby.stream.iapi.OperationContext;
+import com.splicemachine.utils.SpliceLogUtils;
+import com.splicemachine.utils.kryo.KryoPool;
+import org.apache.log4j.Logger;
+import org.spark_project.guava.collect.Iterators;
+import scala.Tuple2;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * A bounded-memory hash aggregation of key-value pairs for the control side.
+ *
+ * Keys are hashed into a fixed number of partitions, each of which aggregates its values into an in-memory
+ * map of combiners. When the estimated size of all partitions exceeds the memory threshold, the largest
+ * partition writes its combiners to a temporary file and starts over with an empty map. Values which arrive
+ * for a spilled partition continue to be aggregated in memory, so that each spill holds partial aggregates
+ * rather than raw input.
+ *
+ * Once the input is exhausted, partitions that never spilled are returned directly from memory. Each
+ * spilled partition is then read back and re-aggregated on its own, using a different set of hash bits to
+ * split it further if it still does not fit. Past a fixed depth (which can only be reached when a handful
+ * of keys are extremely large) the remaining data is aggregated in memory regardless of the threshold.
+ *
+ * When the input fits within the memory threshold, nothing is written to disk, and this behaves
+ * exactly like aggregating into a single HashMap.
+ */
+public class SpillingHashAggregator<K,V,C>{
+    private static final Logger LOG=Logger.getLogger(SpillingHashAggregator.class);
+    private static final int PARTITION_BITS=4;
+    private static final int NUM_PARTITIONS=1<<PARTITION_BITS;
+    /*each depth consumes a different PARTITION_BITS of the hash code, so we run out after this many levels*/
+    private static final int MAX_DEPTH=Integer.SIZE/PARTITION_BITS-1;
+    private static final int IO_BUFFER_SIZE=1<<16;
+    /*rough heap overhead of a HashMap entry and its slot in the table*/
+    private static final int ENTRY_OVERHEAD=48;
+
+    /**
+     * Defines how values are folded into a combiner.
+     *
+     * @param <V> the type of the input values
+     * @param <C> the type of the aggregated values
+     */
+    public interface Combiner<V,C>{
+        C createCombiner(V value) throws Exception;
+
+        C mergeValue(C combiner,V value) throws Exception;
+
+        C mergeCombiners(C first,C second) throws Exception;
+
+        /**
+         * @return true if a combiner grows with every value that is merged into it (as with grouping),
+         * false if it stays the same size (as with reductions)
+         */
+        boolean retainsValues();
+    }
+
+    private final Combiner<V,C> combiner;
+    private final long memoryThreshold;
+    private final File spillDirectory;
+    private final KryoPool kryoPool;
+    private final OperationContext operationContext;
+
+    /*every partition which has spilled at any depth, so that its file can be removed if we stop early*/
+    private final List<Partition> spilledPartitions=new ArrayList<>();
+    private long spilledBytes;
+
+    public SpillingHashAggregator(Combiner<V,C> combiner,
+                                  long memoryThreshold,
+                                  File spillDirectory,
+                                  KryoPool kryoPool,
+                                  OperationContext operationContext){
+        this.combiner=combiner;
+        this.memoryThreshold=memoryThreshold;
+        this.spillDirectory=spillDirectory;
+        this.kryoPool=kryoPool;
+        this.operationContext=operationContext;
+    }
+
+    /**
+     * Aggregate the source.
+     *
+     * The source is consumed entirely before this method returns. Spilled partitions are re-aggregated
+     * lazily as the returned iterator reaches them. If anything fails, every partition file is deleted
+     * before the failure is rethrown.
+     *
+     * The caller must close the returned iterator if it stops reading before the end, so that the
+     * remaining partition files are deleted.
+     *
+     * @param source the pairs to aggregate
+     * @return one combiner for each distinct key in the source, in no particular order
+     * @throws Exception if the combiner fails, or if something goes wrong spilling to disk
+     */
+    public CloseableIterator<Tuple2<K,C>> aggregate(Iterator<Tuple2<K,V>> source) throws Exception{
+        Iterator<Tuple2<K,C>> result;
+        try{
+            Pass pass=new Pass(0);
+            while(source.hasNext()){
+                Tuple2<K,V> next=source.next();
+                pass.addValue(next._1(),next._2());
+            }
+            result=pass.finish();
+        }catch(Exception|Error e){
+            deleteSpills();
+            throw e;
+        }
+        ResultIterator results=new ResultIterator(result);
+        if(!spilledPartitions.isEmpty()){
+            try{
+                ControlUtils.registerCloseable(operationContext,results);
+            }catch(StandardException e){
+                results.close();
+                throw e;
+            }
+        }
+        return results;
+    }
+
+    public long getSpilledBytes(){
+        return spilledBytes;
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods and classes*/
+    private void deleteSpills(){
+        for(Partition p:spilledPartitions){
+            if(p.output!=null){
+                p.output.close();
+                p.output=null;
+            }
+            if(p.file.exists() && !p.file.delete())
+                LOG.warn("Unable to delete spill file "+p.file);
+        }
+        spilledPartitions.clear();
+    }
+
+    @SuppressWarnings("unchecked")
+    private K copyKey(K key){
+        //the source is free to re-use its key rows, so we must hold our own copy
+        if(key instanceof ExecRow)
+            return (K)((ExecRow)key).getClone();
+        return key;
+    }
+
+    private class Partition{
+        private Map<K,C> map=new HashMap<>();
+        private long memory;
+        private File file;
+        private Output output;
+        private long count;
+
+        boolean isSpilled(){
+            return file!=null;
+        }
+    }
+
+    private class Pass{
+        private final int depth;
+        private final List<Partition> partitions=new ArrayList<>(NUM_PARTITIONS);
+        private long memoryUsed;
+
+        Pass(int depth){
+            this.depth=depth;
+            for(int i=0;i<NUM_PARTITIONS;i++){
+                partitions.add(new Partition());
+            }
+        }
+
+        void addValue(K key,V value) throws Exception{
+            Partition p=partitions.get(partition(key));
+            C existing=p.map.get(key);
+            long growth;
+            if(existing==null){
+                p.map.put(copyKey(key),combiner.createCombiner(value));
+                growth=ENTRY_OVERHEAD+ExternalSorter.estimateSize(key)+ExternalSorter.estimateSize(value);
+            }else{
+                p.map.put(key,combiner.mergeValue(existing,value));
+                growth=combiner.retainsValues()?ExternalSorter.estimateSize(value):0L;
+            }
+            grow(p,growth);
+        }
+
+        void addCombiner(K key,C value) throws Exception{
+            Partition p=partitions.get(partition(key));
+            C existing=p.map.get(key);
+            long growth;
+            if(existing==null){
+                //keys which are read back from disk are not shared with anyone, so there is no need to copy them
+                p.map.put(key,value);
+                growth=ENTRY_OVERHEAD+ExternalSorter.estimateSize(key)+ExternalSorter.estimateSize(value);
+            }else{
+                p.map.put(key,combiner.mergeCombiners(existing,value));
+                growth=combiner.retainsValues()?ExternalSorter.estimateSize(value):0L;
+            }
+            grow(p,growth);
+        }
+
+        Iterator<Tuple2<K,C>> finish() throws IOException{
+            for(Partition p:partitions){
+                if(p.isSpilled()){
+                    if(!p.map.isEmpty())
+                        spill(p);
+                    closeSpill(p);
+                }
+            }
+            return Iterators.concat(new Iterator<Iterator<Tuple2<K,C>>>(){
+                private int next=0;
+
+                @Override
+                public boolean hasNext(){
+                    return next<partitions.size();
+                }
+
+                @Override
+                public Iterator<Tuple2<K,C>> next(){
+                    if(!hasNext()) throw new NoSuchElementException();
+                    Partition p=partitions.set(next++,null); //release the memory as soon as the caller is done with it
+                    if(!p.isSpilled())
+                        return entries(p.map);
+                    try{
+                        return reaggregate(p);
+                    }catch(RuntimeException e){
+                        throw e;
+                    }catch(Exception e){
+                        throw new RuntimeException(e);
+                    }
+                }
+
+                @Override
+                public void remove(){
+                    throw new UnsupportedOperationException();
+                }
+            });
+        }
+
+        private int partition(K key){
+            //Fibonacci hashing spreads the bits of weak hash codes before we select the bits for this depth
+            int h=key.hashCode()*0x9E3779B9;
+            return (h>>>(Integer.SIZE-PARTITION_BITS*(depth+1)))&(NUM_PARTITIONS-1);
+        }
+
+        private void grow(Partition p,long bytes) throws IOException{
+            p.memory+=bytes;
+            memoryUsed+=bytes;
+            if(memoryUsed<=memoryThreshold || depth>=MAX_DEPTH) return;
+            while(memoryUsed>memoryThreshold){
+                Partition largest=null;
+                for(Partition candidate:partitions){
+                    if(candidate.memory>0 && (largest==null || candidate.memory>largest.memory))
+                        largest=candidate;
+                }
+                if(largest==null) return;
+                spill(largest);
+            }
+        }
+
+        private void spill(Partition p) throws IOException{
+            if(p.output==null){
+                p.file=File.createTempFile("splice-agg-",".part",spillDirectory);
+                spilledPartitions.add(p);
+                p.output=new Output(new FileOutputStream(p.file),IO_BUFFER_SIZE);
+            }
+            Kryo kryo=kryoPool.get();
+            try{
+                for(Map.Entry<K,C> entry:p.map.entrySet()){
+                    kryo.writeClassAndObject(p.output,entry.getKey());
+                    kryo.writeClassAndObject(p.output,entry.getValue());
+                    p.count++;
+                }
+            }finally{
+                kryoPool.returnInstance(kryo);
+            }
+            if(LOG.isTraceEnabled())
+                SpliceLogUtils.trace(LOG,"Spilled %d entries (%d bytes) from partition at depth %d",p.map.size(),p.memory,depth);
+            p.map=new HashMap<>();
+            memoryUsed-=p.memory;
+            p.memory=0L;
+        }
+
+        private void closeSpill(Partition p){
+            p.output.flush();
+            long bytes=p.output.total();
+            p.output.close();
+            p.output=null;
+            spilledBytes+=bytes;
+        }
+
+        @SuppressWarnings("unchecked")
+        private Iterator<Tuple2<K,C>> reaggregate(Partition p) throws Exception{
+            if(LOG.isDebugEnabled())
+                SpliceLogUtils.debug(LOG,"Re-aggregating %d spilled entries at depth %d",p.count,depth+1);
+            Pass child=new Pass(depth+1);
+            Kryo kryo=kryoPool.get();
+            try(Input input=new Input(new FileInputStream(p.file),IO_BUFFER_SIZE)){
+                //unlink the file now that it is open, so the space is reclaimed even if we fail part-way through
+                if(!p.file.delete())
+                    LOG.warn("Unable to delete spill file "+p.file);
+                for(long i=0;i<p.count;i++){
+                    K key=(K)kryo.readClassAndObject(input);
+                    C value=(C)kryo.readClassAndObject(input);
+                    child.addCombiner(key,value);
+                }
+            }finally{
+                kryoPool.returnInstance(kryo);
+            }
+            return child.finish();
+        }
+    }
+
+    private class ResultIterator implements CloseableIterator<Tuple2<K,C>>{
+        private final Iterator<Tuple2<K,C>> delegate;
+
+        ResultIterator(Iterator<Tuple2<K,C>> delegate){
+            this.delegate=delegate;
+        }
+
+        @Override
+        public boolean hasNext(){
+            try{
+                if(delegate.hasNext())
+                    return true;
+            }catch(RuntimeException|Error e){
+                close();
+                throw e;
+            }
+            close();
+            return false;
+        }
+
+        @Override
+        public Tuple2<K,C> next(){
+            try{
+                return delegate.next();
+            }catch(RuntimeException|Error e){
+                close();
+                throw e;
+            }
+        }
+
+        /**
+         * Delete every partition file which has not yet been re-aggregated. This is safe to call more than once.
+         */
+        @Override
+        public void close(){
+            deleteSpills();
+        }
+    }
+
+    private Iterator<Tuple2<K,C>> entries(Map<K,C> map){
+        if(map.isEmpty()) return Collections.emptyIterator();
+        final Iterator<Map.Entry<K,C>> entries=map.entrySet().iterator();
+        return new Iterator<Tuple2<K,C>>(){
+            @Override
+            public boolean hasNext(){
+                return entries.hasNext();
+            }
+
+            @Override
+            public Tuple2<K,C> next(){
+                Map.Entry<K,C> entry=entries.next();
+                return new Tuple2<>(entry.getKey(),entry.getValue());
+            }
+
+            @Override
+            public void remove(){
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+}
@@ -35,6 +35,13 @@ import java.util.List;
 import static java.util.Collections.sort;
 
 /**
+ * Evaluates the window functions over the rows of one partition, on Spark.
+ *
+ * The partition is still collected and sorted in memory here, but the frame buffer returns each row as soon as
+ * it has been evaluated (a copy of it, since the frame keeps the original) rather than buffering the results of
+ * the whole partition, unless a function such as LEAD/LAG needs the whole partition first. This is the same
+ * frame buffer which the control side streams over sorted input.
+ *
  * Created by jleach on 4/24/15.
  */
 
@@ -15,6 +15,7 @@
 package com.splicemachine.derby.stream.function.broadcast;
 
 import com.splicemachine.EngineDriver;
+import com.splicemachine.access.api.SConfiguration;
 import com.splicemachine.db.iapi.error.StandardException;
 import com.splicemachine.db.iapi.sql.conn.ControlExecutionLimiter;
 import com.splicemachine.db.iapi.sql.conn.ResubmitDistributedException;
@@ -46,7 +47,7 @@ import java.util.concurrent.Future;
  * Created by dgomezferro on 11/4/15.
  */
 public abstract class AbstractBroadcastJoinFlatMapFunction<In, Out> extends SpliceFlatMapFunction<JoinOperation, Iterator<In>, Out> {
-    private static final BroadcastJoinCache broadcastJoinCache = new BroadcastJoinCache();
+    private static volatile BroadcastJoinCache broadcastJoinCache;
     private JoinOperation operation;
     private Future<JoinTable> joinTable ;
     private boolean init = false;
@@ -92,6 +93,24 @@ public abstract class AbstractBroadcastJoinFlatMapFunction<In, Out> extends Spli
 
     protected abstract Iterable<Out> call(Iterator<In> locatedRows, JoinTable joinTable);
 
+    private static BroadcastJoinCache broadcastJoinCache() {
+        BroadcastJoinCache cache = broadcastJoinCache;
+        if (cache == null) {
+            synchronized (AbstractBroadcastJoinFlatMapFunction.class) {
+                cache = broadcastJoinCache;
+                if (cache == null) {
+                    SConfiguration configuration = EngineDriver.driver().getConfiguration();
+                    cache = new BroadcastJoinCache(configuration.getBroadcastJoinCacheMaxMemory(),
+                            configuration.getBroadcastJoinCacheExpiration());
+                    cache.registerJMX();
+                    cache.startExpirationSweep();
+                    broadcastJoinCache = cache;
+                }
+            }
+        }
+        return cache;
+    }
+
     private synchronized void init() {
         if (init)
             return;
@@ -132,7 +151,7 @@ public abstract class AbstractBroadcastJoinFlatMapFunction<In, Out> extends Spli
                 }));
             };
             ExecRow leftTemplate = operation.getLeftOperation().getExecRowDefinition();
-            return broadcastJoinCache.get(operation.getSequenceId(), rhsLoader, operation.getRightHashKeys(), operation.getLeftHashKeys(), leftTemplate).newTable();
+            return broadcastJoinCache().get(operation.getSequenceId(), rhsLoader, operation.getRightHashKeys(), operation.getLeftHashKeys(), leftTemplate).newTable();
         });
     }
 }
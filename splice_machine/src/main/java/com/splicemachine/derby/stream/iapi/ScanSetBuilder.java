@@ -112,6 +112,12 @@ public interface ScanSetBuilder<V>{
 
     ScanSetBuilder<V> ignoreRecentTransactions(boolean ignoreRecentTransactions);
 
+    /**
+     * The most rows the consumer of this scan will read (for example because of a LIMIT), so that scanners
+     * don't read ahead past them. This is only a hint; a negative value means there is no limit.
+     */
+    ScanSetBuilder<V> rowLimit(long rowLimit);
+
     DataSet<V> buildDataSet() throws StandardException;
 
     DataSet<V> buildDataSet(Object caller) throws StandardException;
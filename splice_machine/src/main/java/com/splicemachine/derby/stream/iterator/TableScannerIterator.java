@@ -14,6 +14,7 @@
 
 package com.splicemachine.derby.stream.iterator;
 
+import com.splicemachine.EngineDriver;
 import com.splicemachine.db.iapi.error.StandardException;
 import com.splicemachine.db.iapi.sql.conn.ControlExecutionLimiter;
 import com.splicemachine.db.iapi.sql.execute.ExecRow;
@@ -21,6 +22,7 @@ import com.splicemachine.db.iapi.store.access.Qualifier;
 import com.splicemachine.db.iapi.types.HBaseRowLocation;
 import com.splicemachine.derby.iapi.sql.execute.SpliceOperation;
 import com.splicemachine.derby.impl.sql.execute.operations.ScanOperation;
+import com.splicemachine.derby.impl.sql.execute.operations.scanner.ColumnBatch;
 import com.splicemachine.derby.impl.sql.execute.operations.scanner.SITableScanner;
 import com.splicemachine.derby.impl.sql.execute.operations.scanner.TableScannerBuilder;
 import com.splicemachine.derby.stream.function.IteratorUtils;
@@ -48,6 +50,11 @@ public class TableScannerIterator implements Iterable<ExecRow>, Iterator<ExecRow
     protected int[] baseColumnMap;
     protected boolean rowIdKey; // HACK Row ID Qualifiers point to the projection above them ?  TODO JL
     protected HBaseRowLocation hBaseRowLocation;
+    /*when positive, rows are read (and qualified) a batch at a time*/
+    protected int batchSize;
+    private ColumnBatch batch;
+    private int batchPosition;
+    private boolean batchQualified;
 
     public TableScannerIterator(TableScannerBuilder siTableBuilder, SpliceOperation operation) throws StandardException {
         this.siTableBuilder = siTableBuilder;
@@ -58,6 +65,9 @@ public class TableScannerIterator implements Iterable<ExecRow>, Iterator<ExecRow
             this.baseColumnMap = ((ScanOperation) operation).getOperationInformation().getBaseColumnMap();
             this.rowIdKey = ((ScanOperation) operation).getRowIdKey();
         }
+        EngineDriver driver = EngineDriver.driver();
+        if (driver != null && !rowIdKey)
+            this.batchSize = driver.getConfiguration().getControlScanBatchSize();
     }
 
     @Override
@@ -75,6 +85,8 @@ public class TableScannerIterator implements Iterable<ExecRow>, Iterator<ExecRow
                 initialized = true;
                 tableScanner = siTableBuilder.build();
                 tableScanner.open();
+                if (qualifiers != null && !rowIdKey && batchSize <= 0)
+                    tableScanner.setQualifierColumns(qualifierColumns());
                 if (operation!= null) {
                     operation.registerCloseable(new Closeable() {
                         @Override
@@ -89,6 +101,8 @@ public class TableScannerIterator implements Iterable<ExecRow>, Iterator<ExecRow
                     });
                 }
             }
+            if (batchSize > 0)
+                return hasNextInBatch();
             while (true) {
                 execRow = tableScanner.next();
                 if (execRow == null) {
@@ -98,8 +112,13 @@ public class TableScannerIterator implements Iterable<ExecRow>, Iterator<ExecRow
                     return hasNext;
                 } else {
                     hasNext = true;
-                    if (qualifiers == null || rowIdKey || Scans.qualifyRecordFromRow(execRow.getRowArray(), qualifiers,baseColumnMap,siTableBuilder.getOptionalProbeValue() ))
+                    if (qualifiers == null || rowIdKey)
                         break;
+                    if (Scans.qualifyRecordFromRow(execRow.getRowArray(), qualifiers,baseColumnMap,siTableBuilder.getOptionalProbeValue() )) {
+                        //decode the columns which the qualifiers did not need
+                        tableScanner.materializeRow();
+                        break;
+                    }
                 }
             }
             return hasNext;
@@ -108,6 +127,46 @@ public class TableScannerIterator implements Iterable<ExecRow>, Iterator<ExecRow
         }
     }
 
+    private boolean[] qualifierColumns() {
+        int numColumns = 0;
+        for (Qualifier[] clause : qualifiers) {
+            for (Qualifier q : clause) {
+                int column = baseColumnMap != null ? baseColumnMap[q.getStoragePosition()] : q.getStoragePosition();
+                numColumns = Math.max(numColumns, column + 1);
+            }
+        }
+        boolean[] columns = new boolean[numColumns];
+        for (Qualifier[] clause : qualifiers) {
+            for (Qualifier q : clause) {
+                int column = baseColumnMap != null ? baseColumnMap[q.getStoragePosition()] : q.getStoragePosition();
+                if (column >= 0)
+                    columns[column] = true;
+            }
+        }
+        return columns;
+    }
+
+    private boolean hasNextInBatch() throws StandardException, IOException {
+        while (true) {
+            if (batch == null || batchPosition >= batch.numSelected()) {
+                batch = tableScanner.nextBatch(batchSize);
+                batchPosition = 0;
+                if (batch == null) {
+                    tableScanner.close();
+                    initialized = false;
+                    hasNext = false;
+                    return hasNext;
+                }
+                batchQualified = qualifiers == null || batch.filter(qualifiers, baseColumnMap, siTableBuilder.getOptionalProbeValue());
+                continue;
+            }
+            execRow = tableScanner.materialize(batch, batch.selected(batchPosition++));
+            hasNext = true;
+            if (batchQualified || Scans.qualifyRecordFromRow(execRow.getRowArray(), qualifiers, baseColumnMap, siTableBuilder.getOptionalProbeValue()))
+                return hasNext;
+        }
+    }
+
     @Override
     public ExecRow next() {
         slotted = false;
@@ -47,6 +47,9 @@ abstract public class BaseFrameBuffer implements WindowFrameBuffer{
     protected byte[] partition;
     protected int[] sortColumns;
     private boolean initialized;
+    private boolean streaming;
+    private boolean exhausted;
+    private ExecRow pending;
 
     @SuppressFBWarnings(value="EI_EXPOSE_REP2", justification="Intentional")
     public static WindowFrameBuffer createFrameBuffer(
@@ -92,6 +95,14 @@ abstract public class BaseFrameBuffer implements WindowFrameBuffer{
     }
 
     public ExecRow next() {
+        if (streaming) {
+            if (!hasNext()) {
+                return null;
+            }
+            ExecRow row = pending;
+            pending = null;
+            return row;
+        }
         return resultBuffer.next();
     }
 
@@ -108,7 +119,9 @@ abstract public class BaseFrameBuffer implements WindowFrameBuffer{
             SpliceGenericWindowFunction function = (SpliceGenericWindowFunction) templateRow.getColumn(aggregatorColumnId).getObject();
             row.setColumn(resultColumnId, function.getResult().cloneValue(false));
         }
-        this.resultBuffer.bufferResult(row);
+        if (!streaming) {
+            this.resultBuffer.bufferResult(row);
+        }
         return row;
     }
 
@@ -128,21 +141,52 @@ abstract public class BaseFrameBuffer implements WindowFrameBuffer{
 
 
     public boolean hasNext() {
-        if (!initialized) {
-            initialized = true;
-            try {
+        try {
+            if (!initialized) {
+                initialized = true;
                 reset();
-                while (nextInternal() != null) {
-                    move();
+                streaming = isStreamable();
+                if (!streaming) {
+                    while (nextInternal() != null) {
+                        move();
+                    }
+                    finishFrame();
+                }
+            }
+            if (streaming) {
+                if (pending == null && !exhausted) {
+                    ExecRow row = nextInternal();
+                    if (row == null) {
+                        exhausted = true;
+                    } else {
+                        // the frame still references this row's columns, so hand out a copy
+                        pending = row.getClone();
+                        move();
+                    }
                 }
-                finishFrame();
-            } catch (Exception se) {
-                throw new RuntimeException(se);
+                return pending != null;
             }
+        } catch (Exception se) {
+            throw new RuntimeException(se);
         }
         return resultBuffer.hasNext();
     }
 
+    /**
+     * When every function can compute its result from the current frame alone, rows are returned as soon as
+     * they are evaluated, so that only the rows in the frame are held in memory. Otherwise, the results for
+     * the whole partition are buffered until the last row has been seen.
+     */
+    private boolean isStreamable() {
+        for (WindowAggregator aggregator : aggregators) {
+            SpliceGenericWindowFunction cachedAggregator = aggregator.getCachedAggregator();
+            if (cachedAggregator != null && !cachedAggregator.isStreamable()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     @Override
     public void remove() {
         throw new UnsupportedOperationException();
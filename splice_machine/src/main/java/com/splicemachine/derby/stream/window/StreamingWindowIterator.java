@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2012 - 2017 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.stream.window;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.derby.impl.sql.execute.operations.window.WindowContext;
+import org.spark_project.guava.collect.Iterators;
+import org.spark_project.guava.collect.PeekingIterator;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Evaluates window functions over rows which are already sorted by the window's key columns
+ * (the partition columns, followed by the order by columns).
+ *
+ * Each partition is handed to a {@link WindowFrameBuffer} as a bounded view of the sorted source, so
+ * partitions are never collected in memory; only the rows in the current frame are held, and the
+ * window functions are updated incrementally as the frame slides.
+ */
+public class StreamingWindowIterator implements Iterator<ExecRow>{
+    private final WindowContext windowContext;
+    private final PeekingIterator<ExecRow> source;
+    private final ExecRow templateRow;
+    private final int[] partitionColumns;
+
+    private PartitionIterator currentPartition;
+    private WindowFrameBuffer frameBuffer;
+
+    public StreamingWindowIterator(WindowContext windowContext,Iterator<ExecRow> sortedSource,ExecRow templateRow){
+        this.windowContext=windowContext;
+        this.source=Iterators.peekingIterator(sortedSource);
+        this.templateRow=templateRow;
+        this.partitionColumns=windowContext.getPartitionColumns();
+    }
+
+    @Override
+    public boolean hasNext(){
+        while(frameBuffer==null || !frameBuffer.hasNext()){
+            if(currentPartition!=null){
+                //skip anything the frame buffer did not need, so that we start cleanly on the next partition
+                while(currentPartition.hasNext())
+                    currentPartition.next();
+            }
+            if(!source.hasNext()){
+                frameBuffer=null;
+                return false;
+            }
+            try{
+                currentPartition=new PartitionIterator(source.peek());
+                frameBuffer=BaseFrameBuffer.createFrameBuffer(
+                        windowContext.getWindowFunctions(),
+                        currentPartition,
+                        windowContext.getFrameDefinition(),
+                        windowContext.getSortColumns(),
+                        templateRow.getClone());
+            }catch(StandardException se){
+                throw new RuntimeException(se);
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public ExecRow next(){
+        if(!hasNext()) throw new NoSuchElementException();
+        return frameBuffer.next();
+    }
+
+    @Override
+    public void remove(){
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * A view of the sorted source which ends at the first row that belongs to a different partition.
+     */
+    private class PartitionIterator implements Iterator<ExecRow>{
+        private final DataValueDescriptor[] partitionKey;
+
+        PartitionIterator(ExecRow firstRow){
+            DataValueDescriptor[] columns=firstRow.getRowArray();
+            this.partitionKey=new DataValueDescriptor[partitionColumns.length];
+            for(int i=0;i<partitionColumns.length;i++){
+                partitionKey[i]=columns[partitionColumns[i]].cloneValue(false);
+            }
+        }
+
+        @Override
+        public boolean hasNext(){
+            if(!source.hasNext()) return false;
+            DataValueDescriptor[] columns=source.peek().getRowArray();
+            try{
+                for(int i=0;i<partitionColumns.length;i++){
+                    //nulls sort together, so they belong to the same partition
+                    if(partitionKey[i].compare(columns[partitionColumns[i]],true)!=0)
+                        return false;
+                }
+            }catch(StandardException se){
+                throw new RuntimeException(se);
+            }
+            return true;
+        }
+
+        @Override
+        public ExecRow next(){
+            if(!hasNext()) throw new NoSuchElementException();
+            return source.next();
+        }
+
+        @Override
+        public void remove(){
+            throw new UnsupportedOperationException();
+        }
+    }
+}
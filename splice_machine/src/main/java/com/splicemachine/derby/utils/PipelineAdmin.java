@@ -17,6 +17,8 @@ package com.splicemachine.derby.utils;
 import org.spark_project.guava.collect.Lists;
 import com.splicemachine.hbase.jmx.JMXUtils;
 import com.splicemachine.pipeline.PipelineDriver;
+import com.splicemachine.pipeline.telemetry.PipelineTelemetryManagement;
+import com.splicemachine.pipeline.telemetry.WriteTelemetryView;
 import com.splicemachine.db.iapi.error.PublicAPI;
 import com.splicemachine.db.iapi.error.StandardException;
 import com.splicemachine.db.iapi.sql.Activation;
@@ -51,6 +53,26 @@ public class PipelineAdmin extends BaseAdminProcedures{
             new GenericColumnDescriptor("indCount",DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.INTEGER)),            
             new GenericColumnDescriptor("totalRejected", DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.BIGINT)),
     };
+
+    /*latencies are in microseconds*/
+    private static final ResultColumnDescriptor[] WRITE_TELEMETRY_COLUMNS = {
+            new GenericColumnDescriptor("host",DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.VARCHAR)),
+            new GenericColumnDescriptor("scope",DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.VARCHAR)),
+            new GenericColumnDescriptor("tableName",DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.VARCHAR)),
+            new GenericColumnDescriptor("location",DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.VARCHAR)),
+            new GenericColumnDescriptor("bulkWrites",DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.BIGINT)),
+            new GenericColumnDescriptor("numRows",DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.BIGINT)),
+            new GenericColumnDescriptor("retriedRows",DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.BIGINT)),
+            new GenericColumnDescriptor("rejectedRows",DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.BIGINT)),
+            new GenericColumnDescriptor("partialFailures",DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.BIGINT)),
+            new GenericColumnDescriptor("failedRows",DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.BIGINT)),
+            new GenericColumnDescriptor("indexFanOut",DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.DOUBLE)),
+            new GenericColumnDescriptor("meanLatency",DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.DOUBLE)),
+            new GenericColumnDescriptor("p50Latency",DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.BIGINT)),
+            new GenericColumnDescriptor("p95Latency",DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.BIGINT)),
+            new GenericColumnDescriptor("p99Latency",DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.BIGINT)),
+            new GenericColumnDescriptor("maxLatency",DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.BIGINT)),
+    };
     public static void SYSCS_GET_WRITE_INTAKE_INFO(final ResultSet[] resultSet) throws SQLException {
         operate(new BaseAdminProcedures.JMXServerOperation() {
             @Override
@@ -90,4 +112,60 @@ public class PipelineAdmin extends BaseAdminProcedures{
         });
     }
 
+    public static void SYSCS_GET_WRITE_PIPELINE_TELEMETRY(final ResultSet[] resultSet) throws SQLException {
+        operate(new BaseAdminProcedures.JMXServerOperation() {
+            @Override
+            public void operate(List<Pair<String, JMXConnector>> connections) throws MalformedObjectNameException, IOException, SQLException {
+                List<PipelineTelemetryManagement> telemetry = JMXUtils.getPipelineTelemetry(connections);
+                ExecRow template = buildExecRow(WRITE_TELEMETRY_COLUMNS);
+                List<ExecRow> rows = Lists.newArrayList();
+                for (int i=0;i<telemetry.size();i++) {
+                    String host = connections.get(i).getFirst();
+                    PipelineTelemetryManagement serverTelemetry = telemetry.get(i);
+                    addTelemetryRows(host,serverTelemetry.getClientWrites(),template,rows);
+                    addTelemetryRows(host,serverTelemetry.getServerWrites(),template,rows);
+                }
+
+                EmbedConnection defaultConn = (EmbedConnection) getDefaultConn();
+                Activation lastActivation = defaultConn.getLanguageConnection().getLastActivation();
+                IteratorNoPutResultSet resultsToWrap = new IteratorNoPutResultSet(rows, WRITE_TELEMETRY_COLUMNS,lastActivation);
+                try {
+                    resultsToWrap.openCore();
+                } catch (StandardException e) {
+                    throw PublicAPI.wrapStandardException(e);
+                }
+                EmbedResultSet ers = new EmbedResultSet40(defaultConn, resultsToWrap,false,null,true);
+                resultSet[0] = ers;
+            }
+        });
+    }
+
+    private static void addTelemetryRows(String host,List<WriteTelemetryView> views,ExecRow template,List<ExecRow> rows) throws SQLException{
+        for(WriteTelemetryView view:views){
+            template.resetRowArray();
+            DataValueDescriptor[] dvds = template.getRowArray();
+            try{
+                dvds[0].setValue(host);
+                dvds[1].setValue(view.getScope());
+                dvds[2].setValue(view.getTableName());
+                dvds[3].setValue(view.getLocation());
+                dvds[4].setValue(view.getBulkWrites());
+                dvds[5].setValue(view.getRows());
+                dvds[6].setValue(view.getRetriedRows());
+                dvds[7].setValue(view.getRejectedRows());
+                dvds[8].setValue(view.getPartialFailures());
+                dvds[9].setValue(view.getFailedRows());
+                dvds[10].setValue(view.getIndexFanOut());
+                dvds[11].setValue(view.getMeanLatency());
+                dvds[12].setValue(view.getP50Latency());
+                dvds[13].setValue(view.getP95Latency());
+                dvds[14].setValue(view.getP99Latency());
+                dvds[15].setValue(view.getMaxLatency());
+            }catch(StandardException se){
+                throw PublicAPI.wrapStandardException(se);
+            }
+            rows.add(template.getClone());
+        }
+    }
+
 }
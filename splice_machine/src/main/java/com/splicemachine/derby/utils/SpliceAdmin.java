@@ -358,6 +358,10 @@ public class SpliceAdmin extends BaseAdminProcedures{
         PipelineAdmin.SYSCS_GET_WRITE_INTAKE_INFO(resultSets);
     }
 
+    public static void SYSCS_GET_WRITE_PIPELINE_TELEMETRY(ResultSet[] resultSets) throws SQLException{
+        PipelineAdmin.SYSCS_GET_WRITE_PIPELINE_TELEMETRY(resultSets);
+    }
+
     private static final ResultColumnDescriptor[] EXEC_SERVICE_COLUMNS= {
             new GenericColumnDescriptor("Host",DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.VARCHAR)),
             new GenericColumnDescriptor("CurrentPoolSize",DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.INTEGER)),
@@ -29,6 +29,7 @@ import java.util.List;
 import java.util.Map;
 
 import com.splicemachine.access.api.SConfiguration;
+import com.splicemachine.access.configuration.PipelineConfiguration;
 import com.splicemachine.db.impl.sql.catalog.ManagedCache;
 import com.splicemachine.db.impl.sql.catalog.ManagedCacheMBean;
 import com.splicemachine.db.impl.sql.catalog.TotalManagedCache;
@@ -40,6 +41,7 @@ import com.splicemachine.access.api.DatabaseVersion;
 import com.splicemachine.derby.management.StatementManagement;
 import com.splicemachine.derby.utils.DatabasePropertyManagement;
 import com.splicemachine.pipeline.PipelineDriver;
+import com.splicemachine.pipeline.telemetry.PipelineTelemetryManagement;
 import com.splicemachine.pipeline.threadpool.ThreadPoolStatus;
 import com.splicemachine.timestamp.api.TimestampClientStatistics;
 import com.splicemachine.timestamp.api.TimestampOracleStatistics;
@@ -105,6 +107,13 @@ public class JMXUtils {
         }
         return activeWrites;
     }
+    public static List<PipelineTelemetryManagement> getPipelineTelemetry(List<Pair<String,JMXConnector>> mbscArray) throws MalformedObjectNameException, IOException {
+        List<PipelineTelemetryManagement> telemetry =new ArrayList<>();
+        for (Pair<String,JMXConnector> mbsc: mbscArray) {
+            telemetry.add(getNewMXBeanProxy(mbsc.getSecond(),PipelineConfiguration.PIPELINE_TELEMETRY_LOCATION,PipelineTelemetryManagement.class));
+        }
+        return telemetry;
+    }
     public static List<JMXThreadPool> getExecutorService(List<Pair<String,JMXConnector>> mbscArray) throws MalformedObjectNameException, IOException {
         List<JMXThreadPool> jmxThreadList =new ArrayList<>();
         for (Pair<String,JMXConnector> mbsc: mbscArray) {
@@ -33,8 +33,6 @@ import com.splicemachine.si.impl.driver.SIDriver;
 import com.splicemachine.si.impl.readresolve.NoOpReadResolver;
 import com.splicemachine.si.impl.txn.ActiveWriteTxn;
 import com.splicemachine.si.impl.txn.WritableTxn;
-import com.splicemachine.storage.DataCell;
-import com.splicemachine.storage.DataFilter;
 import com.splicemachine.storage.DataResult;
 import com.splicemachine.storage.Partition;
 import com.splicemachine.storage.util.MapAttributes;
@@ -126,8 +124,6 @@ public class ForeignKeyChildInterceptWriteHandler implements WriteHandler{
             int i = 0;
             while (iterator.hasNext()) {
                 DataResult result = iterator.next();
-                readCommittedFilter.reset();
-                readUncommittedFilter.reset();
                 if (!hasData(result,readCommittedFilter) || !hasData(result,readUncommittedFilter))
                     misses.set(i);
                 i++;
@@ -160,27 +156,7 @@ public class ForeignKeyChildInterceptWriteHandler implements WriteHandler{
     }
 
     private boolean hasData(DataResult result,SimpleTxnFilter filter) throws IOException {
-        if(result!=null && result.size()>0) {
-            int cellCount = result.size();
-            for (DataCell dc : result) {
-                DataFilter.ReturnCode returnCode = filter.filterCell(dc);
-                switch (returnCode) {
-                    case NEXT_ROW:
-                        return false; //the entire row is filtered
-                    case SKIP:
-                    case NEXT_COL:
-                    case SEEK:
-                        cellCount--; //the cell is filtered
-                        break;
-                    case INCLUDE:
-                    case INCLUDE_AND_NEXT_COL: //the cell is included, so we have some data
-                    default: //do nothing
-                        break;
-                }
-            }
-            if(cellCount>0) return true; // Has Data...
-        }
-        return false; // No data returned, fail
+        return result!=null && result.size()>0 && filter.filterCells(result,null)>0;
     }
 
     /* Only need to create the CallBuffer once, but not until we have a WriteContext */
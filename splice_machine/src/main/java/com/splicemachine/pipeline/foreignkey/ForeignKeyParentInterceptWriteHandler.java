@@ -164,8 +164,6 @@ public class ForeignKeyParentInterceptWriteHandler implements WriteHandler{
         try(DataScanner scanner = table.openScanner(scan)) {
             List<DataCell> next;
             while ((next = scanner.next(-1)) != null && !next.isEmpty()) {
-                readCommittedFilter.reset();
-                readUncommittedFilter.reset();
                 if (hasData(next, readCommittedFilter) || hasData(next, readUncommittedFilter))
                     return true;
             }
@@ -176,24 +174,7 @@ public class ForeignKeyParentInterceptWriteHandler implements WriteHandler{
     }
 
     private boolean hasData(List<DataCell> next, SimpleTxnFilter txnFilter) throws IOException {
-        int cellCount = next.size();
-        for(DataCell dc:next){
-            DataFilter.ReturnCode rC = txnFilter.filterCell(dc);
-            switch(rC){
-                case NEXT_ROW:
-                    return false; //the entire row is filtered
-                case SKIP:
-                case NEXT_COL:
-                case SEEK:
-                    cellCount--; //the cell is filtered
-                    break;
-                case INCLUDE:
-                case INCLUDE_AND_NEXT_COL: //the cell is included
-                default:
-                    break;
-            }
-        }
-        return cellCount>0;
+        return txnFilter.filterCells(next,null)>0;
     }
 
     /**
@@ -0,0 +1,220 @@
+/*
+ * Copyright (c) 2012 - 2017 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.operations;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.derby.impl.sql.JoinTable;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import com.splicemachine.stream.Stream;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests for the sharing and eviction behavior of {@link BroadcastJoinCache}.
+ */
+@Category(ArchitectureIndependent.class)
+public class BroadcastJoinCacheTest{
+
+    @Test
+    public void testTableIsSharedWhileInUse() throws Exception{
+        CountingLoader loader=new CountingLoader(100L);
+        BroadcastJoinCache cache=new BroadcastJoinCache(loader,1000L,Long.MAX_VALUE);
+
+        JoinTable first=get(cache,1L).newTable();
+        JoinTable second=get(cache,1L).newTable();
+        Assert.assertEquals("Should only build once!",1,loader.loads.get());
+        Assert.assertEquals("Incorrect hit count!",1L,cache.getHits());
+        Assert.assertEquals("Incorrect pinned count!",1,cache.getPinnedTableCount());
+        first.close();
+        second.close();
+        Assert.assertEquals("Table should be unpinned!",0,cache.getPinnedTableCount());
+        Assert.assertEquals("Unused table should be retained!",1,cache.getTableCount());
+
+        get(cache,1L).newTable().close();
+        Assert.assertEquals("Should have reused the retained table!",1,loader.loads.get());
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsedOverBudget() throws Exception{
+        CountingLoader loader=new CountingLoader(400L);
+        BroadcastJoinCache cache=new BroadcastJoinCache(loader,1000L,Long.MAX_VALUE);
+
+        get(cache,1L).newTable().close();
+        get(cache,2L).newTable().close();
+        Assert.assertEquals("Incorrect memory usage!",800L,cache.getCurrentBytes());
+
+        get(cache,3L).newTable().close();
+        Assert.assertEquals("Should have evicted a table!",1L,cache.getEvictions());
+        Assert.assertEquals("Incorrect memory usage!",800L,cache.getCurrentBytes());
+
+        get(cache,2L).newTable().close();
+        Assert.assertEquals("Table 2 should still be cached!",3,loader.loads.get());
+        get(cache,1L).newTable().close();
+        Assert.assertEquals("Table 1 should have been evicted!",4,loader.loads.get());
+    }
+
+    @Test
+    public void testPinnedTablesAreNotEvicted() throws Exception{
+        CountingLoader loader=new CountingLoader(600L);
+        BroadcastJoinCache cache=new BroadcastJoinCache(loader,1000L,Long.MAX_VALUE);
+
+        JoinTable pinned=get(cache,1L).newTable();
+        get(cache,2L).newTable().close();
+        Assert.assertEquals("Should have evicted the unused table!",1L,cache.getEvictions());
+        Assert.assertEquals("Pinned table was evicted!",1,cache.getTableCount());
+
+        get(cache,1L).newTable().close();
+        Assert.assertEquals("Pinned table should have been reused!",2,loader.loads.get());
+        pinned.close();
+    }
+
+    @Test
+    public void testIdleTablesExpire() throws Exception{
+        CountingLoader loader=new CountingLoader(10L);
+        BroadcastJoinCache cache=new BroadcastJoinCache(loader,1000L,0L);
+
+        get(cache,1L).newTable().close();
+        Thread.sleep(5);
+        get(cache,2L).newTable().close();
+        Assert.assertEquals("Idle table should have expired!",1L,cache.getEvictions());
+        Assert.assertEquals("Incorrect memory usage!",10L,cache.getCurrentBytes());
+    }
+
+    @Test
+    public void testIdleTablesExpireInTheBackground() throws Exception{
+        CountingLoader loader=new CountingLoader(10L);
+        BroadcastJoinCache cache=new BroadcastJoinCache(loader,1000L,0L);
+        cache.startExpirationSweep(10L);
+        try{
+            get(cache,1L).newTable().close();
+            for(int i=0;i<500 && cache.getTableCount()>0;i++){
+                Thread.sleep(10);
+            }
+            Assert.assertEquals("Idle table should have expired without another request!",1L,cache.getEvictions());
+            Assert.assertEquals("Incorrect memory usage!",0L,cache.getCurrentBytes());
+        }finally{
+            cache.stopExpirationSweep();
+        }
+    }
+
+    @Test
+    public void testConcurrentRequestsShareOneBuild() throws Exception{
+        final CountDownLatch buildStarted=new CountDownLatch(1);
+        final CountDownLatch finishBuild=new CountDownLatch(1);
+        final CountingLoader loader=new CountingLoader(10L){
+            @Override
+            public JoinTable.Factory load(Callable<Stream<ExecRow>> streamLoader,int[] innerHashKeys,int[] outerHashKeys,ExecRow outerTemplateRow) throws Exception{
+                buildStarted.countDown();
+                finishBuild.await();
+                return super.load(streamLoader,innerHashKeys,outerHashKeys,outerTemplateRow);
+            }
+        };
+        final BroadcastJoinCache cache=new BroadcastJoinCache(loader,1000L,Long.MAX_VALUE);
+        ExecutorService executor=Executors.newFixedThreadPool(4);
+        try{
+            Callable<JoinTable> task=new Callable<JoinTable>(){
+                @Override
+                public JoinTable call() throws Exception{
+                    return get(cache,1L).newTable();
+                }
+            };
+            Future<JoinTable> builder=executor.submit(task);
+            buildStarted.await();
+            Future<JoinTable> waiter1=executor.submit(task);
+            Future<JoinTable> waiter2=executor.submit(task);
+            finishBuild.countDown();
+            builder.get().close();
+            waiter1.get().close();
+            waiter2.get().close();
+        }finally{
+            executor.shutdownNow();
+        }
+        Assert.assertEquals("Should only build once!",1,loader.loads.get());
+        Assert.assertEquals("Incorrect hit count!",2L,cache.getHits());
+    }
+
+    @Test
+    public void testFailedBuildIsNotCached() throws Exception{
+        final AtomicInteger attempts=new AtomicInteger(0);
+        BroadcastJoinCache cache=new BroadcastJoinCache(new CountingLoader(10L){
+            @Override
+            public JoinTable.Factory load(Callable<Stream<ExecRow>> streamLoader,int[] innerHashKeys,int[] outerHashKeys,ExecRow outerTemplateRow) throws Exception{
+                if(attempts.getAndIncrement()==0)
+                    throw new IOException("failed build");
+                return super.load(streamLoader,innerHashKeys,outerHashKeys,outerTemplateRow);
+            }
+        },1000L,Long.MAX_VALUE);
+
+        try{
+            get(cache,1L);
+            Assert.fail("Expected the build to fail");
+        }catch(IOException expected){
+            Assert.assertEquals("Incorrect error!","failed build",expected.getMessage());
+        }
+        Assert.assertEquals("Failed table should not be cached!",0,cache.getTableCount());
+        get(cache,1L).newTable().close();
+        Assert.assertEquals("Incorrect build count!",2L,cache.getBuilds());
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private static JoinTable.Factory get(BroadcastJoinCache cache,long id) throws IOException, StandardException{
+        return cache.get(id,null,new int[]{0},new int[]{0},null);
+    }
+
+    private static class CountingLoader implements BroadcastJoinCache.JoinTableLoader{
+        final AtomicInteger loads=new AtomicInteger(0);
+        private final long tableSize;
+
+        CountingLoader(long tableSize){
+            this.tableSize=tableSize;
+        }
+
+        @Override
+        public JoinTable.Factory load(Callable<Stream<ExecRow>> streamLoader,int[] innerHashKeys,int[] outerHashKeys,ExecRow outerTemplateRow) throws Exception{
+            loads.incrementAndGet();
+            return new JoinTable.Factory(){
+                @Override
+                public JoinTable newTable(){
+                    return new JoinTable(){
+                        @Override
+                        public Iterator<ExecRow> fetchInner(ExecRow outer){
+                            return Collections.emptyIterator();
+                        }
+
+                        @Override public void close(){ }
+                    };
+                }
+
+                @Override
+                public long estimatedSizeInBytes(){
+                    return tableSize;
+                }
+            };
+        }
+    }
+}
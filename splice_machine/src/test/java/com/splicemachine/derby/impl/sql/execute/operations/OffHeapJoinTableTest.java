@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2012 - 2017 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.operations;
+
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.db.iapi.types.SQLInteger;
+import com.splicemachine.db.iapi.types.SQLVarchar;
+import com.splicemachine.db.impl.sql.execute.ValueRow;
+import com.splicemachine.derby.impl.sql.JoinTable;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import com.splicemachine.stream.Stream;
+import com.splicemachine.stream.Streams;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+/**
+ * Tests for {@link OffHeapRowArena} and {@link OffHeapJoinTable}.
+ */
+@Category(ArchitectureIndependent.class)
+public class OffHeapJoinTableTest{
+
+    @Test
+    public void testArenaChainsDuplicateKeys() throws Exception{
+        OffHeapRowArena arena=new OffHeapRowArena(64,16);
+        for(int i=0;i<1000;i++){
+            arena.put(new byte[]{(byte)(i%10)},new byte[]{(byte)i,(byte)(i>>8)});
+        }
+        arena.seal();
+        Assert.assertEquals("Incorrect key count!",10,arena.keyCount());
+        Assert.assertEquals("Incorrect row count!",1000,arena.rowCount());
+
+        OffHeapRowArena.Reader reader=arena.newReader();
+        for(int k=0;k<10;k++){
+            long address=arena.find(new byte[]{(byte)k});
+            Assert.assertNotEquals("Missing key "+k,0L,address);
+            int found=0;
+            while(address!=0L){
+                address=reader.readRow(address);
+                Assert.assertEquals("Incorrect row length!",2,reader.length());
+                int value=(reader.buffer()[0]&0xFF)|((reader.buffer()[1]&0xFF)<<8);
+                Assert.assertEquals("Row stored under the wrong key!",k,value%10);
+                found++;
+            }
+            Assert.assertEquals("Incorrect number of rows for key "+k,100,found);
+        }
+        Assert.assertEquals("Found a missing key!",0L,arena.find(new byte[]{(byte)11}));
+    }
+
+    @Test
+    public void testArenaResizesAndSpansChunks() throws Exception{
+        OffHeapRowArena arena=new OffHeapRowArena(128,16);
+        byte[] largeRow=new byte[1024];
+        for(int i=0;i<10000;i++){
+            arena.put(Integer.toString(i).getBytes(),i%100==0?largeRow:new byte[]{(byte)i});
+        }
+        arena.seal();
+        Assert.assertEquals("Incorrect key count!",10000,arena.keyCount());
+        OffHeapRowArena.Reader reader=arena.newReader();
+        for(int i=0;i<10000;i++){
+            long address=arena.find(Integer.toString(i).getBytes());
+            Assert.assertNotEquals("Missing key "+i,0L,address);
+            Assert.assertEquals("Unexpected duplicate!",0L,reader.readRow(address));
+            Assert.assertEquals("Incorrect row length!",i%100==0?largeRow.length:1,reader.length());
+        }
+    }
+
+    @Test
+    public void testJoinTableFetchesMatchingRows() throws Exception{
+        final List<ExecRow> inner=new ArrayList<>();
+        for(int i=0;i<100;i++){
+            ValueRow row=new ValueRow(2);
+            row.setRowArray(new DataValueDescriptor[]{new SQLInteger(i%7),new SQLVarchar("row"+i)});
+            inner.add(row);
+        }
+        ValueRow outerTemplate=new ValueRow(1);
+        outerTemplate.setRowArray(new DataValueDescriptor[]{new SQLInteger()});
+
+        Callable<Stream<ExecRow>> loader=new Callable<Stream<ExecRow>>(){
+            @Override
+            public Stream<ExecRow> call() throws Exception{
+                return Streams.wrap(inner);
+            }
+        };
+        JoinTable.Factory factory=OffHeapJoinTableLoader.INSTANCE.load(loader,new int[]{0},new int[]{0},outerTemplate);
+        try(JoinTable table=factory.newTable()){
+            for(int k=0;k<7;k++){
+                ValueRow outer=new ValueRow(1);
+                outer.setRowArray(new DataValueDescriptor[]{new SQLInteger(k)});
+                Set<String> values=new HashSet<>();
+                Iterator<ExecRow> matches=table.fetchInner(outer);
+                while(matches.hasNext()){
+                    ExecRow match=matches.next();
+                    Assert.assertEquals("Incorrect join key!",k,match.getColumn(1).getInt());
+                    values.add(match.getColumn(2).getString());
+                }
+                for(int i=k;i<100;i+=7){
+                    Assert.assertTrue("Missing inner row "+i,values.remove("row"+i));
+                }
+                Assert.assertTrue("Unexpected inner rows: "+values,values.isEmpty());
+            }
+
+            ValueRow missing=new ValueRow(1);
+            missing.setRowArray(new DataValueDescriptor[]{new SQLInteger(100)});
+            Assert.assertFalse("Found rows for a missing key!",table.fetchInner(missing).hasNext());
+        }
+    }
+
+    @Test
+    public void testEmptyInnerSide() throws Exception{
+        ValueRow outerTemplate=new ValueRow(1);
+        outerTemplate.setRowArray(new DataValueDescriptor[]{new SQLInteger()});
+        Callable<Stream<ExecRow>> loader=new Callable<Stream<ExecRow>>(){
+            @Override
+            public Stream<ExecRow> call() throws Exception{
+                return Streams.empty();
+            }
+        };
+        JoinTable.Factory factory=OffHeapJoinTableLoader.INSTANCE.load(loader,new int[]{0},new int[]{0},outerTemplate);
+        try(JoinTable table=factory.newTable()){
+            ValueRow outer=new ValueRow(1);
+            outer.setRowArray(new DataValueDescriptor[]{new SQLInteger(1)});
+            Assert.assertFalse("Found rows in an empty table!",table.fetchInner(outer).hasNext());
+        }
+    }
+}
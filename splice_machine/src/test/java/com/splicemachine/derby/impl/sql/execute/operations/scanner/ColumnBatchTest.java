@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2012 - 2018 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.splicemachine.derby.impl.sql.execute.operations.scanner;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.store.access.Qualifier;
+import com.splicemachine.db.iapi.types.DataType;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.db.iapi.types.SQLDouble;
+import com.splicemachine.db.iapi.types.SQLInteger;
+import com.splicemachine.db.iapi.types.SQLLongint;
+import com.splicemachine.db.iapi.types.SQLVarchar;
+import com.splicemachine.derby.utils.Scans;
+import com.splicemachine.encoding.Encoding;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for the filling and vectorized qualification of a {@link ColumnBatch}.
+ */
+@Category(ArchitectureIndependent.class)
+public class ColumnBatchTest{
+    private static final int NUM_ROWS=100;
+
+    @Test
+    public void testFilterMatchesRowQualification() throws Exception{
+        Qualifier[][][] cases=new Qualifier[][][]{
+                {{qualifier(0,DataType.ORDER_OP_GREATERTHAN,new SQLInteger(10),false,false,false)}},
+                {{qualifier(0,DataType.ORDER_OP_LESSOREQUALS,new SQLLongint(50),true,false,false),
+                  qualifier(1,DataType.ORDER_OP_GREATEROREQUALS,new SQLDouble(5.5d),false,false,false)}},
+                {{qualifier(0,DataType.ORDER_OP_EQUALS,new SQLLongint(42),false,false,true)}},
+                {{qualifier(1,DataType.ORDER_OP_LESSTHAN,new SQLInteger(30),true,true,false)}},
+                {{qualifier(0,DataType.ORDER_OP_GREATERTHAN,new SQLDouble(10.5d),false,false,false)},
+                 {qualifier(1,DataType.ORDER_OP_LESSOREQUALS,new SQLDouble(20d),false,false,false),
+                  qualifier(0,DataType.ORDER_OP_EQUALS,new SQLInteger(95),false,false,false)}}
+        };
+        for(Qualifier[][] qualifiers:cases){
+            ColumnBatch batch=fill();
+            Assert.assertTrue("Should evaluate numeric qualifiers over the batch!",batch.filter(qualifiers,null,null));
+
+            int selected=0;
+            for(int row=0;row<NUM_ROWS;row++){
+                boolean expected=Scans.qualifyRecordFromRow(materialize(batch,row),qualifiers,null,null);
+                boolean actual=selected<batch.numSelected() && batch.selected(selected)==row;
+                Assert.assertEquals("Incorrect qualification of row "+row+"!",expected,actual);
+                if(actual) selected++;
+            }
+            Assert.assertEquals("Unexpected rows were selected!",selected,batch.numSelected());
+        }
+    }
+
+    @Test
+    public void testFallsBackForNonNumericConstants() throws Exception{
+        ColumnBatch batch=fill();
+        Qualifier[][] qualifiers={{qualifier(0,DataType.ORDER_OP_EQUALS,new SQLVarchar("1"),false,false,false)}};
+        Assert.assertFalse("Should not evaluate a string comparison over the batch!",batch.filter(qualifiers,null,null));
+        Assert.assertEquals("Selection should be untouched!",NUM_ROWS,batch.numSelected());
+    }
+
+    @Test
+    public void testRejectedRowsAreDiscarded() throws Exception{
+        ColumnBatch batch=new ColumnBatch(4,new byte[]{ColumnBatch.LONG,ColumnBatch.DOUBLE},new boolean[2],null);
+        batch.clear();
+        batch.startRow();
+        batch.decode(0,Encoding.encode(1l),0,Encoding.encode(1l).length);
+        batch.startRow();
+        byte[] value=Encoding.encode(2l);
+        batch.decode(0,value,0,value.length);
+        batch.commitRow(new byte[]{1},0,1);
+
+        Assert.assertEquals("Incorrect batch size!",1,batch.size());
+        Assert.assertEquals("Incorrect value!",2l,batch.getLong(0,0));
+        Assert.assertTrue("Undecoded column should be null!",batch.isNull(1,0));
+        Assert.assertEquals("Incorrect row key!",1,batch.rowKeys()[batch.rowKeyOffset(0)]);
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private static ColumnBatch fill(){
+        ColumnBatch batch=new ColumnBatch(NUM_ROWS,new byte[]{ColumnBatch.LONG,ColumnBatch.DOUBLE},new boolean[2],null);
+        batch.clear();
+        for(int i=0;i<NUM_ROWS;i++){
+            batch.startRow();
+            if(i%7!=0){
+                byte[] l=Encoding.encode((long)i);
+                batch.decode(0,l,0,l.length);
+            }
+            if(i%11!=0){
+                byte[] d=Encoding.encode(i*0.5d);
+                batch.decode(1,d,0,d.length);
+            }
+            batch.commitRow(Encoding.encode(i),0,Encoding.encode(i).length);
+        }
+        Assert.assertTrue("Batch should be full!",batch.isFull());
+        return batch;
+    }
+
+    private static DataValueDescriptor[] materialize(ColumnBatch batch,int row) throws StandardException{
+        DataValueDescriptor[] dvds={new SQLLongint(),new SQLDouble()};
+        batch.materialize(row,dvds);
+        return dvds;
+    }
+
+    private static Qualifier qualifier(int column,int operator,DataValueDescriptor orderable,
+                                       boolean orderedNulls,boolean unknownRV,boolean negate) throws StandardException{
+        Qualifier q=mock(Qualifier.class);
+        when(q.getStoragePosition()).thenReturn(column);
+        when(q.getOperator()).thenReturn(operator);
+        when(q.getOrderable()).thenReturn(orderable);
+        when(q.getOrderedNulls()).thenReturn(orderedNulls);
+        when(q.getUnknownRV()).thenReturn(unknownRV);
+        when(q.negateCompareResult()).thenReturn(negate);
+        when(q.getVariantType()).thenReturn(Qualifier.CONSTANT);
+        return q;
+    }
+}
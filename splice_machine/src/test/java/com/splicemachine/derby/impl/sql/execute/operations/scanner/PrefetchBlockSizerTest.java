@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2012 - 2018 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.splicemachine.derby.impl.sql.execute.operations.scanner;
+
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+/**
+ * Tests for the read-ahead decisions of {@link PrefetchBlockSizer}.
+ */
+@Category(ArchitectureIndependent.class)
+public class PrefetchBlockSizerTest{
+    private static final int MAX_ROWS=128;
+
+    @Test
+    public void testResolvedScanDoesNotReadAhead() throws Exception{
+        //a filter over read-resolved rows never misses the transaction cache
+        PrefetchBlockSizer sizer=new PrefetchBlockSizer(MAX_ROWS);
+        for(int i=0;i<1000;i++){
+            Assert.assertEquals("Should not read ahead without cache misses!",1,sizer.nextBlockRows(0L,-1L));
+        }
+    }
+
+    @Test
+    public void testGrowsWhileMissingAndShrinksAfter() throws Exception{
+        PrefetchBlockSizer sizer=new PrefetchBlockSizer(MAX_ROWS);
+        long misses=0L;
+        int expected=1;
+        for(int i=0;i<10;i++){
+            misses++;
+            expected=Math.min(expected*2,MAX_ROWS);
+            Assert.assertEquals("Incorrect block size while missing!",expected,sizer.nextBlockRows(misses,-1L));
+        }
+        Assert.assertEquals("Should not grow past the maximum!",MAX_ROWS,expected);
+        for(int i=0;i<10;i++){
+            expected=Math.max(expected/2,1);
+            Assert.assertEquals("Incorrect block size once hits resume!",expected,sizer.nextBlockRows(misses,-1L));
+        }
+        Assert.assertEquals("Should stop reading ahead!",1,expected);
+    }
+
+    @Test
+    public void testCappedByRemainingRows() throws Exception{
+        PrefetchBlockSizer sizer=new PrefetchBlockSizer(MAX_ROWS);
+        long misses=0L;
+        for(int i=0;i<10;i++){
+            sizer.nextBlockRows(++misses,-1L);
+        }
+        Assert.assertEquals("Should not read past the limit!",10,sizer.nextBlockRows(++misses,10L));
+        Assert.assertEquals("Should read at least one row!",1,sizer.nextBlockRows(++misses,0L));
+    }
+}
@@ -0,0 +1,270 @@
+/*
+ * Copyright (c) 2012 - 2018 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.impl.storage;
+
+import com.carrotsearch.hppc.BitSet;
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.services.io.FormatableBitSet;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.store.access.Qualifier;
+import com.splicemachine.db.iapi.types.DataType;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.db.iapi.types.SQLInteger;
+import com.splicemachine.db.iapi.types.SQLLongint;
+import com.splicemachine.db.iapi.types.SQLVarchar;
+import com.splicemachine.db.impl.sql.execute.ValueRow;
+import com.splicemachine.derby.utils.marshall.dvd.V4SerializerMap;
+import com.splicemachine.encoding.Encoding;
+import com.splicemachine.encoding.MultiFieldEncoder;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import com.splicemachine.storage.EntryEncoder;
+import com.splicemachine.utils.kryo.KryoPool;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for building a {@link ZoneMap} and checking it against a {@link ZoneMapPredicate}.
+ */
+@Category(ArchitectureIndependent.class)
+public class ZoneMapTest{
+    private static final KryoPool KRYO_POOL=new KryoPool(10);
+    private static final int NUM_ROWS=100;
+    private static final int BLOCK_ROWS=10;
+
+    /*rows are (id bigint primary key, event_time bigint, name varchar), with event_time=(id-50)*10*/
+    @Test
+    public void testBlocksCoverEveryRow() throws Exception{
+        ZoneMap zoneMap=buildZoneMap();
+        Assert.assertEquals("Incorrect number of blocks!",NUM_ROWS/BLOCK_ROWS,zoneMap.numBlocks());
+        for(int b=0;b<zoneMap.numBlocks();b++){
+            Assert.assertArrayEquals("Incorrect first key!",Encoding.encode((long)b*BLOCK_ROWS),zoneMap.getFirstKey(b));
+            Assert.assertArrayEquals("Incorrect last key!",Encoding.encode((long)b*BLOCK_ROWS+BLOCK_ROWS-1),zoneMap.getLastKey(b));
+            Assert.assertEquals("Incorrect row count!",BLOCK_ROWS,zoneMap.getRowCount(b));
+            Assert.assertArrayEquals("Incorrect min!",Encoding.encode(eventTime(b*BLOCK_ROWS)),zoneMap.getMin(b,1));
+            Assert.assertArrayEquals("Incorrect max!",Encoding.encode(eventTime(b*BLOCK_ROWS+BLOCK_ROWS-1)),zoneMap.getMax(b,1));
+            Assert.assertNull("Should not keep the range of a non-scalar column!",zoneMap.getMin(b,2));
+            Assert.assertEquals("Incorrect null count!",0,zoneMap.getNullCount(b,1));
+        }
+    }
+
+    @Test
+    public void testRangePredicateSelectsBlocks() throws Exception{
+        ZoneMap zoneMap=buildZoneMap();
+        //event_time > 200 only holds for ids 71 and up
+        List<byte[][]> ranges=matchingRanges(zoneMap,
+                qualifier(1,DataType.ORDER_OP_GREATERTHAN,new SQLLongint(200),false,false));
+        Assert.assertEquals("Adjacent blocks should be merged!",1,ranges.size());
+        Assert.assertArrayEquals("Incorrect range start!",Encoding.encode(70l),ranges.get(0)[0]);
+        Assert.assertArrayEquals("Incorrect range end!",Encoding.encode(99l),ranges.get(0)[1]);
+
+        //NOT (event_time >= -300) only holds for ids below 20
+        ranges=matchingRanges(zoneMap,
+                qualifier(1,DataType.ORDER_OP_GREATEROREQUALS,new SQLLongint(-300),true,true));
+        Assert.assertEquals("Incorrect number of ranges!",1,ranges.size());
+        Assert.assertArrayEquals("Incorrect range start!",Encoding.encode(0l),ranges.get(0)[0]);
+        Assert.assertArrayEquals("Incorrect range end!",Encoding.encode(29l),ranges.get(0)[1]);
+
+        //event_time = 5 is in the range of ids 50 to 59, even though no row has it
+        ranges=matchingRanges(zoneMap,
+                qualifier(1,DataType.ORDER_OP_EQUALS,new SQLLongint(5),false,false));
+        Assert.assertEquals("Incorrect number of ranges!",1,ranges.size());
+        Assert.assertArrayEquals("Incorrect range start!",Encoding.encode(50l),ranges.get(0)[0]);
+        Assert.assertArrayEquals("Incorrect range end!",Encoding.encode(59l),ranges.get(0)[1]);
+
+        ranges=matchingRanges(zoneMap,
+                qualifier(1,DataType.ORDER_OP_EQUALS,new SQLLongint(5000),false,false));
+        Assert.assertTrue("No block should match!",ranges.isEmpty());
+    }
+
+    @Test
+    public void testUnusableQualifiersAreIgnored() throws Exception{
+        ExecRow template=template();
+        Qualifier[][] cases={
+                //key column
+                {qualifier(0,DataType.ORDER_OP_EQUALS,new SQLLongint(5),false,false)},
+                //non-scalar column
+                {qualifier(2,DataType.ORDER_OP_EQUALS,new SQLVarchar("a"),false,false)},
+                //a type which is not the column's
+                {qualifier(1,DataType.ORDER_OP_EQUALS,new SQLInteger(5),false,false)},
+                //not equals
+                {qualifier(1,DataType.ORDER_OP_EQUALS,new SQLLongint(5),true,true)},
+                //accepts nulls
+                {qualifier(1,DataType.ORDER_OP_LESSTHAN,new SQLLongint(5),false,true)},
+                //no value to compare against
+                {qualifier(1,DataType.ORDER_OP_LESSTHAN,new SQLLongint(),false,false)}
+        };
+        for(Qualifier[] clause:cases){
+            Assert.assertNull("Should not use "+clause[0].getOrderable(),
+                    ZoneMapPredicate.fromQualifiers(new Qualifier[][]{clause},null,template,new int[]{0},null,null,V4SerializerMap.VERSION));
+        }
+
+        FormatableBitSet defaults=new FormatableBitSet(3);
+        defaults.set(1);
+        Assert.assertNull("Should not use a column with a default value",
+                ZoneMapPredicate.fromQualifiers(new Qualifier[][]{{qualifier(1,DataType.ORDER_OP_LESSTHAN,new SQLLongint(5),false,false)}},
+                        null,template,new int[]{0},defaults,null,V4SerializerMap.VERSION));
+    }
+
+    @Test
+    public void testPredicateRoundTrips() throws Exception{
+        ZoneMapPredicate predicate=ZoneMapPredicate.fromQualifiers(
+                new Qualifier[][]{{qualifier(1,DataType.ORDER_OP_LESSTHAN,new SQLLongint(-200),false,false)}},
+                null,template(),new int[]{0},null,null,V4SerializerMap.VERSION);
+        Assert.assertNotNull("Should have built a predicate",predicate);
+        ZoneMapPredicate parsed=ZoneMapPredicate.parseFrom(predicate.toBytes());
+        List<byte[][]> ranges=new ArrayList<>();
+        buildZoneMap().addMatchingRanges(parsed,ranges);
+        Assert.assertEquals("Incorrect number of ranges!",1,ranges.size());
+        Assert.assertArrayEquals("Incorrect range start!",Encoding.encode(0l),ranges.get(0)[0]);
+        Assert.assertArrayEquals("Incorrect range end!",Encoding.encode(39l),ranges.get(0)[1]);
+    }
+
+    @Test
+    public void testCellsWithoutValuesDoNotBoundBlock() throws Exception{
+        ZoneMap.Builder builder=new ZoneMap.Builder(BLOCK_ROWS);
+        byte[] row=Encoding.encode(1l);
+        builder.row(row,0,row.length);
+        byte[] value=encode(null,"only a name");
+        builder.values(value,0,value.length);
+        ZoneMap zoneMap=builder.build();
+        Assert.assertEquals("Incorrect null count!",1,zoneMap.getNullCount(0,1));
+        //the cell may be an update which left event_time alone, so the row's value is unknown
+        Assert.assertEquals("A missing value should not rule the block out",1,
+                matchingRanges(zoneMap,qualifier(1,DataType.ORDER_OP_LESSTHAN,new SQLLongint(0),false,false)).size());
+    }
+
+    @Test
+    public void testPartialUpdateInAnotherFileIsNotPruned() throws Exception{
+        //(id=1,a=5,b=1) is inserted and flushed, then b is updated to 10 and flushed to a second file
+        byte[] row=Encoding.encode(1l);
+        ZoneMap inserted=singleCellZoneMap(row,encodeLongs(5l,1l));
+        ZoneMap updated=singleCellZoneMap(row,encodeLongs(null,10l));
+
+        ExecRow template=new ValueRow(3);
+        template.setRowArray(new DataValueDescriptor[]{new SQLLongint(),new SQLLongint(),new SQLLongint()});
+        ZoneMapPredicate predicate=ZoneMapPredicate.fromQualifiers(new Qualifier[][]{{
+                        qualifier(1,DataType.ORDER_OP_GREATERTHAN,new SQLLongint(3),false,false),
+                        qualifier(2,DataType.ORDER_OP_GREATERTHAN,new SQLLongint(5),false,false)}},
+                null,template,new int[]{0},null,null,V4SerializerMap.VERSION);
+        Assert.assertNotNull("Should have built a predicate",predicate);
+
+        //the merged row (5,10) matches a>3 AND b>5, so some file must keep its range
+        List<byte[][]> ranges=new ArrayList<>();
+        inserted.addMatchingRanges(predicate,ranges);
+        Assert.assertTrue("The inserted cell has b=1, so its file may be pruned",ranges.isEmpty());
+        updated.addMatchingRanges(predicate,ranges);
+        Assert.assertEquals("The update does not hold a, so its file must be kept",1,ranges.size());
+        Assert.assertArrayEquals("Incorrect range start!",row,ranges.get(0)[0]);
+        Assert.assertArrayEquals("Incorrect range end!",row,ranges.get(0)[1]);
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private static long eventTime(long id){
+        return (id-50)*10;
+    }
+
+    private static ZoneMap buildZoneMap() throws Exception{
+        ZoneMap.Builder builder=new ZoneMap.Builder(BLOCK_ROWS);
+        for(long id=0;id<NUM_ROWS;id++){
+            byte[] row=Encoding.encode(id);
+            //a commit timestamp cell, and then the packed row
+            builder.row(row,0,row.length);
+            builder.row(row,0,row.length);
+            byte[] value=encode(eventTime(id),"name"+id);
+            builder.values(value,0,value.length);
+        }
+        return builder.build();
+    }
+
+    private static byte[] encode(Long eventTime,String name) throws Exception{
+        BitSet setCols=new BitSet();
+        BitSet scalarFields=new BitSet();
+        if(eventTime!=null){
+            setCols.set(1);
+            scalarFields.set(1);
+        }
+        setCols.set(2);
+        EntryEncoder encoder=EntryEncoder.create(KRYO_POOL,3,setCols,scalarFields,null,null);
+        MultiFieldEncoder fields=encoder.getEntryEncoder();
+        if(eventTime!=null)
+            fields.encodeNext(eventTime);
+        fields.encodeNext(name);
+        return encoder.encode();
+    }
+
+    private static ZoneMap singleCellZoneMap(byte[] row,byte[] value) throws Exception{
+        ZoneMap.Builder builder=new ZoneMap.Builder(BLOCK_ROWS);
+        builder.row(row,0,row.length);
+        builder.values(value,0,value.length);
+        return builder.build();
+    }
+
+    /*a packed row of (id bigint primary key, a bigint, b bigint), with only the columns that are not null*/
+    private static byte[] encodeLongs(Long a,Long b) throws Exception{
+        BitSet setCols=new BitSet();
+        BitSet scalarFields=new BitSet();
+        if(a!=null){
+            setCols.set(1);
+            scalarFields.set(1);
+        }
+        if(b!=null){
+            setCols.set(2);
+            scalarFields.set(2);
+        }
+        EntryEncoder encoder=EntryEncoder.create(KRYO_POOL,3,setCols,scalarFields,null,null);
+        MultiFieldEncoder fields=encoder.getEntryEncoder();
+        if(a!=null)
+            fields.encodeNext(a);
+        if(b!=null)
+            fields.encodeNext(b);
+        return encoder.encode();
+    }
+
+    private static ExecRow template(){
+        ExecRow template=new ValueRow(3);
+        template.setRowArray(new DataValueDescriptor[]{new SQLLongint(),new SQLLongint(),new SQLVarchar()});
+        return template;
+    }
+
+    private static List<byte[][]> matchingRanges(ZoneMap zoneMap,Qualifier qualifier) throws StandardException{
+        ZoneMapPredicate predicate=ZoneMapPredicate.fromQualifiers(new Qualifier[][]{{qualifier}},null,template(),
+                new int[]{0},null,null,V4SerializerMap.VERSION);
+        Assert.assertNotNull("Should have built a predicate",predicate);
+        List<byte[][]> ranges=new ArrayList<>();
+        zoneMap.addMatchingRanges(predicate,ranges);
+        return ranges;
+    }
+
+    private static Qualifier qualifier(int column,int operator,DataValueDescriptor orderable,
+                                       boolean negate,boolean unknownRV) throws StandardException{
+        Qualifier q=mock(Qualifier.class);
+        when(q.getStoragePosition()).thenReturn(column);
+        when(q.getOperator()).thenReturn(operator);
+        when(q.getOrderable()).thenReturn(orderable);
+        when(q.getOrderedNulls()).thenReturn(false);
+        when(q.getUnknownRV()).thenReturn(unknownRV);
+        when(q.negateCompareResult()).thenReturn(negate);
+        when(q.getVariantType()).thenReturn(Qualifier.CONSTANT);
+        return q;
+    }
+}
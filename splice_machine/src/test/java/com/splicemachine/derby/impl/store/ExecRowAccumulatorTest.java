@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2012 - 2018 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.splicemachine.derby.impl.store;
+
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.db.iapi.types.SQLInteger;
+import com.splicemachine.db.iapi.types.SQLVarchar;
+import com.splicemachine.db.impl.sql.execute.ValueRow;
+import com.splicemachine.derby.utils.marshall.dvd.DescriptorSerializer;
+import com.splicemachine.derby.utils.marshall.dvd.VersionedSerializers;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import com.splicemachine.storage.EntryPredicateFilter;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+/**
+ * Tests for the late decoding of columns by an {@link ExecRowAccumulator}.
+ */
+@Category(ArchitectureIndependent.class)
+public class ExecRowAccumulatorTest{
+    private static final String VERSION="4.0";
+
+    @Test
+    public void testDeferredColumnsAreDecodedOnRequest() throws Exception{
+        ExecRow row=new ValueRow(new DataValueDescriptor[]{new SQLInteger(),new SQLVarchar()});
+        ExecRowAccumulator accumulator=ExecRowAccumulator.newAccumulator(EntryPredicateFilter.emptyPredicate(),false,row,new int[]{0,1},VERSION);
+        accumulator.deferColumns(new boolean[]{false,true});
+
+        accumulate(accumulator,row,7,"hello");
+        Assert.assertEquals("Qualifier column should be decoded!",7,row.getColumn(1).getInt());
+        Assert.assertTrue("Deferred column should not be decoded yet!",row.getColumn(2).isNull());
+
+        //the scanner resets the accumulator once a row is accumulated, which must not lose the deferred fields
+        accumulator.reset();
+        accumulator.decodeDeferred();
+        Assert.assertEquals("Deferred column should be decoded!","hello",row.getColumn(2).getString());
+    }
+
+    @Test
+    public void testDiscardedColumnsAreNotDecoded() throws Exception{
+        ExecRow row=new ValueRow(new DataValueDescriptor[]{new SQLInteger(),new SQLVarchar()});
+        ExecRowAccumulator accumulator=ExecRowAccumulator.newAccumulator(EntryPredicateFilter.emptyPredicate(),false,row,new int[]{0,1},VERSION);
+        accumulator.deferColumns(new boolean[]{false,true});
+
+        accumulate(accumulator,row,7,"hello");
+        accumulator.discardDeferred();
+        accumulator.decodeDeferred();
+        Assert.assertTrue("Discarded column should not be decoded!",row.getColumn(2).isNull());
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private static void accumulate(ExecRowAccumulator accumulator,ExecRow row,int value,String string) throws Exception{
+        DescriptorSerializer[] serializers=VersionedSerializers.forVersion(VERSION,false).getSerializers(row);
+        byte[] intBytes=serializers[0].encodeDirect(new SQLInteger(value),false);
+        byte[] stringBytes=serializers[1].encodeDirect(new SQLVarchar(string),false);
+        accumulator.reset();
+        accumulator.addScalar(0,intBytes,0,intBytes.length);
+        accumulator.add(1,stringBytes,0,stringBytes.length);
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2012 - 2017 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.stream.control;
+
+import com.splicemachine.SpliceKryoRegistry;
+import com.splicemachine.collections.CloseableIterator;
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.db.iapi.types.SQLInteger;
+import com.splicemachine.db.impl.sql.execute.ValueRow;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+import scala.Tuple2;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Tests for {@link ExternalSorter}.
+ */
+@Category(ArchitectureIndependent.class)
+public class ExternalSorterTest{
+    private static final Comparator<ExecRow> KEY_ORDER=new Comparator<ExecRow>(){
+        @Override
+        public int compare(ExecRow o1,ExecRow o2){
+            try{
+                return Integer.compare(o1.getColumn(1).getInt(),o2.getColumn(1).getInt());
+            }catch(StandardException e){
+                throw new RuntimeException(e);
+            }
+        }
+    };
+
+    @Rule public TemporaryFolder spillDir=new TemporaryFolder();
+
+    @Test
+    public void testSortsInMemoryWithoutSpilling() throws Exception{
+        ExternalSorter<ExecRow,ExecRow> sorter=newSorter(Long.MAX_VALUE);
+        assertSorted(sorter.sort(shuffledPairs(100).iterator()),100);
+        Assert.assertEquals("Should not have spilled!",0L,sorter.getSpilledBytes());
+        Assert.assertEquals("Spill directory should be empty!",0,spillDir.getRoot().list().length);
+    }
+
+    @Test
+    public void testSpillsAndMerges() throws Exception{
+        ExternalSorter<ExecRow,ExecRow> sorter=newSorter(1024L);
+        assertSorted(sorter.sort(shuffledPairs(1000).iterator()),1000);
+        Assert.assertTrue("Should have spilled!",sorter.getSpilledBytes()>0);
+        Assert.assertEquals("Run files were not removed!",0,spillDir.getRoot().list().length);
+    }
+
+    @Test
+    public void testMultiPassMergeIsStable() throws Exception{
+        //a tiny threshold forces more runs than can be merged at once
+        ExternalSorter<ExecRow,ExecRow> sorter=newSorter(1L);
+        List<Tuple2<ExecRow,ExecRow>> pairs=new ArrayList<>();
+        for(int i=0;i<500;i++){
+            pairs.add(new Tuple2<>(row(i%10),row(i)));
+        }
+        Iterator<Tuple2<ExecRow,ExecRow>> sorted=sorter.sort(pairs.iterator());
+        int previousKey=-1;
+        int previousValue=-1;
+        int count=0;
+        while(sorted.hasNext()){
+            Tuple2<ExecRow,ExecRow> next=sorted.next();
+            int key=next._1().getColumn(1).getInt();
+            int value=next._2().getColumn(1).getInt();
+            Assert.assertTrue("Out of order!",key>=previousKey);
+            if(key==previousKey)
+                Assert.assertTrue("Sort is not stable!",value>previousValue);
+            Assert.assertEquals("Value does not belong to key!",key,value%10);
+            previousKey=key;
+            previousValue=value;
+            count++;
+        }
+        Assert.assertEquals("Incorrect row count!",500,count);
+    }
+
+    @Test
+    public void testFailedInputRemovesSpilledRuns() throws Exception{
+        ExternalSorter<ExecRow,ExecRow> sorter=newSorter(1024L);
+        final Iterator<Tuple2<ExecRow,ExecRow>> pairs=shuffledPairs(1000).iterator();
+        Iterator<Tuple2<ExecRow,ExecRow>> failing=new Iterator<Tuple2<ExecRow,ExecRow>>(){
+            private int read=0;
+
+            @Override
+            public boolean hasNext(){
+                return pairs.hasNext();
+            }
+
+            @Override
+            public Tuple2<ExecRow,ExecRow> next(){
+                if(++read>500)
+                    throw new CancellationException();
+                return pairs.next();
+            }
+        };
+        try{
+            sorter.sort(failing);
+            Assert.fail("Should have failed!");
+        }catch(CancellationException expected){
+            //expected
+        }
+        Assert.assertTrue("Should have spilled before failing!",sorter.getSpilledBytes()>0);
+        Assert.assertEquals("Run files were not removed!",0,spillDir.getRoot().list().length);
+    }
+
+    @Test
+    public void testClosingAbandonedMergeRemovesRuns() throws Exception{
+        ExternalSorter<ExecRow,ExecRow> sorter=newSorter(1024L);
+        CloseableIterator<Tuple2<ExecRow,ExecRow>> sorted=sorter.sort(shuffledPairs(1000).iterator());
+        Assert.assertTrue("Should have spilled!",sorter.getSpilledBytes()>0);
+        for(int i=0;i<10;i++){
+            sorted.next();
+        }
+        sorted.close();
+        Assert.assertEquals("Run files were not removed!",0,spillDir.getRoot().list().length);
+        Assert.assertFalse("Closed merge should be empty!",sorted.hasNext());
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private ExternalSorter<ExecRow,ExecRow> newSorter(long threshold){
+        return new ExternalSorter<>(KEY_ORDER,threshold,spillDir.getRoot(),SpliceKryoRegistry.getInstance(),null);
+    }
+
+    private static List<Tuple2<ExecRow,ExecRow>> shuffledPairs(int size){
+        List<Tuple2<ExecRow,ExecRow>> pairs=new ArrayList<>(size);
+        for(int i=0;i<size;i++){
+            pairs.add(new Tuple2<>(row(i),row(-i)));
+        }
+        Collections.shuffle(pairs,new Random(0L));
+        return pairs;
+    }
+
+    private static void assertSorted(Iterator<Tuple2<ExecRow,ExecRow>> sorted,int expectedSize) throws StandardException{
+        int i=0;
+        while(sorted.hasNext()){
+            Tuple2<ExecRow,ExecRow> next=sorted.next();
+            Assert.assertEquals("Incorrect key!",i,next._1().getColumn(1).getInt());
+            Assert.assertEquals("Incorrect value!",-i,next._2().getColumn(1).getInt());
+            i++;
+        }
+        Assert.assertEquals("Incorrect row count!",expectedSize,i);
+    }
+
+    private static ExecRow row(int value){
+        ValueRow row=new ValueRow(1);
+        row.setRowArray(new DataValueDescriptor[]{new SQLInteger(value)});
+        return row;
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2012 - 2017 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.stream.control;
+
+import com.splicemachine.SpliceKryoRegistry;
+import com.splicemachine.collections.CloseableIterator;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+import scala.Tuple2;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Tests for {@link SpillingHashAggregator}.
+ */
+@Category(ArchitectureIndependent.class)
+public class SpillingHashAggregatorTest{
+    private static final int NUM_KEYS=200;
+    private static final int VALUES_PER_KEY=5;
+
+    private static final SpillingHashAggregator.Combiner<Integer,Integer> SUM=new SpillingHashAggregator.Combiner<Integer,Integer>(){
+        @Override public Integer createCombiner(Integer value){ return value; }
+        @Override public Integer mergeValue(Integer combiner,Integer value){ return combiner+value; }
+        @Override public Integer mergeCombiners(Integer first,Integer second){ return first+second; }
+        @Override public boolean retainsValues(){ return false; }
+    };
+
+    private static final SpillingHashAggregator.Combiner<Integer,List<Integer>> GROUP=new SpillingHashAggregator.Combiner<Integer,List<Integer>>(){
+        @Override
+        public List<Integer> createCombiner(Integer value){
+            List<Integer> values=new ArrayList<>();
+            values.add(value);
+            return values;
+        }
+
+        @Override
+        public List<Integer> mergeValue(List<Integer> combiner,Integer value){
+            combiner.add(value);
+            return combiner;
+        }
+
+        @Override
+        public List<Integer> mergeCombiners(List<Integer> first,List<Integer> second){
+            first.addAll(second);
+            return first;
+        }
+
+        @Override public boolean retainsValues(){ return true; }
+    };
+
+    @Rule public TemporaryFolder spillDir=new TemporaryFolder();
+
+    @Test
+    public void testAggregatesInMemoryWithoutSpilling() throws Exception{
+        SpillingHashAggregator<Integer,Integer,Integer> aggregator=newAggregator(SUM,Long.MAX_VALUE);
+        assertSums(aggregator.aggregate(pairs().iterator()));
+        Assert.assertEquals("Should not have spilled!",0L,aggregator.getSpilledBytes());
+    }
+
+    @Test
+    public void testSpilledPartitionsAreReaggregated() throws Exception{
+        SpillingHashAggregator<Integer,Integer,Integer> aggregator=newAggregator(SUM,4096L);
+        assertSums(aggregator.aggregate(pairs().iterator()));
+        Assert.assertTrue("Should have spilled!",aggregator.getSpilledBytes()>0);
+        Assert.assertEquals("Spill files were not removed!",0,spillDir.getRoot().list().length);
+    }
+
+    @Test
+    public void testRecursesUntilPartitionsFit() throws Exception{
+        //nothing fits, so every partition is split as deeply as we allow before falling back to memory
+        SpillingHashAggregator<Integer,Integer,Integer> aggregator=newAggregator(SUM,1L);
+        assertSums(aggregator.aggregate(pairs().iterator()));
+        Assert.assertEquals("Spill files were not removed!",0,spillDir.getRoot().list().length);
+    }
+
+    @Test
+    public void testGroupingSpillsValues() throws Exception{
+        SpillingHashAggregator<Integer,Integer,List<Integer>> aggregator=newAggregator(GROUP,4096L);
+        Iterator<Tuple2<Integer,List<Integer>>> groups=aggregator.aggregate(pairs().iterator());
+        Assert.assertTrue("Should have spilled!",aggregator.getSpilledBytes()>0);
+        int count=0;
+        while(groups.hasNext()){
+            Tuple2<Integer,List<Integer>> group=groups.next();
+            Assert.assertEquals("Incorrect group size for key "+group._1(),VALUES_PER_KEY,group._2().size());
+            for(Integer value:group._2()){
+                Assert.assertEquals("Value in the wrong group!",group._1().intValue(),value%NUM_KEYS);
+            }
+            count++;
+        }
+        Assert.assertEquals("Incorrect number of groups!",NUM_KEYS,count);
+    }
+
+    @Test
+    public void testClosingAbandonedResultsRemovesSpills() throws Exception{
+        SpillingHashAggregator<Integer,Integer,Integer> aggregator=newAggregator(SUM,4096L);
+        CloseableIterator<Tuple2<Integer,Integer>> sums=aggregator.aggregate(pairs().iterator());
+        Assert.assertTrue("Should have spilled!",aggregator.getSpilledBytes()>0);
+        sums.next();
+        Assert.assertTrue("Unread partitions should still be on disk!",spillDir.getRoot().list().length>0);
+        sums.close();
+        Assert.assertEquals("Spill files were not removed!",0,spillDir.getRoot().list().length);
+    }
+
+    @Test
+    public void testFailedInputRemovesSpills() throws Exception{
+        SpillingHashAggregator<Integer,Integer,Integer> aggregator=newAggregator(SUM,4096L);
+        final Iterator<Tuple2<Integer,Integer>> pairs=pairs().iterator();
+        Iterator<Tuple2<Integer,Integer>> failing=new Iterator<Tuple2<Integer,Integer>>(){
+            private int read=0;
+
+            @Override
+            public boolean hasNext(){
+                return pairs.hasNext();
+            }
+
+            @Override
+            public Tuple2<Integer,Integer> next(){
+                if(++read>NUM_KEYS*VALUES_PER_KEY/2)
+                    throw new CancellationException();
+                return pairs.next();
+            }
+        };
+        try{
+            aggregator.aggregate(failing);
+            Assert.fail("Should have failed!");
+        }catch(CancellationException expected){
+            //expected
+        }
+        Assert.assertEquals("Spill files were not removed!",0,spillDir.getRoot().list().length);
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private <C> SpillingHashAggregator<Integer,Integer,C> newAggregator(SpillingHashAggregator.Combiner<Integer,C> combiner,long threshold){
+        return new SpillingHashAggregator<>(combiner,threshold,spillDir.getRoot(),SpliceKryoRegistry.getInstance(),null);
+    }
+
+    private static List<Tuple2<Integer,Integer>> pairs(){
+        List<Tuple2<Integer,Integer>> pairs=new ArrayList<>(NUM_KEYS*VALUES_PER_KEY);
+        for(int i=0;i<NUM_KEYS*VALUES_PER_KEY;i++){
+            pairs.add(new Tuple2<>(i%NUM_KEYS,i));
+        }
+        Collections.shuffle(pairs,new Random(0L));
+        return pairs;
+    }
+
+    private static void assertSums(Iterator<Tuple2<Integer,Integer>> sums){
+        Map<Integer,Integer> expected=new HashMap<>();
+        for(Tuple2<Integer,Integer> pair:pairs()){
+            Integer sum=expected.get(pair._1());
+            expected.put(pair._1(),sum==null?pair._2():sum+pair._2());
+        }
+        int count=0;
+        while(sums.hasNext()){
+            Tuple2<Integer,Integer> sum=sums.next();
+            Assert.assertEquals("Incorrect sum for key "+sum._1(),expected.get(sum._1()),sum._2());
+            count++;
+        }
+        Assert.assertEquals("Incorrect number of keys!",NUM_KEYS,count);
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2012 - 2018 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.stream.window;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.services.io.FormatableHashtable;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.sql.execute.WindowFunction;
+import com.splicemachine.db.iapi.types.DataTypeDescriptor;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.db.iapi.types.SQLInteger;
+import com.splicemachine.db.iapi.types.SQLLongint;
+import com.splicemachine.db.iapi.types.UserType;
+import com.splicemachine.db.impl.sql.compile.LeadLagFunctionDefinition;
+import com.splicemachine.db.impl.sql.execute.ValueRow;
+import com.splicemachine.derby.impl.sql.execute.operations.window.FrameDefinition;
+import com.splicemachine.derby.impl.sql.execute.operations.window.WindowAggregator;
+import com.splicemachine.derby.impl.sql.execute.operations.window.WindowAggregatorImpl;
+import com.splicemachine.derby.impl.sql.execute.operations.window.function.LeadLagFunction;
+import com.splicemachine.derby.impl.sql.execute.operations.window.function.RowNumberFunction;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Tests for the streaming and the buffered paths of {@link BaseFrameBuffer}.
+ */
+@Category(ArchitectureIndependent.class)
+public class BaseFrameBufferTest{
+    private static final int NUM_ROWS=10;
+    /*ROWS BETWEEN UNBOUNDED PRECEDING AND CURRENT ROW*/
+    private static final FrameDefinition RUNNING_FRAME=new FrameDefinition(
+            FrameDefinition.FrameMode.ROWS.ordinal(),
+            FrameDefinition.Frame.UNBOUNDED_PRECEDING.ordinal(),0,
+            FrameDefinition.Frame.CURRENT_ROW.ordinal(),0);
+
+    /*rows are (value int, function, result), with the function and result columns only set in the template*/
+    @Test
+    public void testStreamsRowsAsTheyAreEvaluated() throws Exception{
+        CountingIterator source=new CountingIterator();
+        WindowFrameBuffer frameBuffer=frameBuffer(new RowNumberFunction(),source,new SQLLongint());
+
+        Assert.assertTrue("Should have a row!",frameBuffer.hasNext());
+        ExecRow first=frameBuffer.next();
+        Assert.assertEquals("Incorrect row number!",1L,first.getColumn(3).getLong());
+        Assert.assertTrue("Should not have read the whole partition, read "+source.read,source.read<NUM_ROWS);
+
+        List<ExecRow> results=new ArrayList<>();
+        results.add(first);
+        while(frameBuffer.hasNext()){
+            results.add(frameBuffer.next());
+        }
+        Assert.assertEquals("Incorrect number of rows!",NUM_ROWS,results.size());
+        for(int i=0;i<NUM_ROWS;i++){
+            Assert.assertEquals("Incorrect value!",i,results.get(i).getColumn(1).getInt());
+            Assert.assertEquals("Incorrect row number!",i+1,results.get(i).getColumn(3).getLong());
+        }
+    }
+
+    @Test
+    public void testBuffersFunctionsWhichNeedTheWholePartition() throws Exception{
+        LeadLagFunction lead=new LeadLagFunction();
+        FormatableHashtable args=new FormatableHashtable();
+        args.put(LeadLagFunctionDefinition.OFFSET,1);
+        lead.setup(null,"LEAD",DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.INTEGER),args);
+        CountingIterator source=new CountingIterator();
+        WindowFrameBuffer frameBuffer=frameBuffer(lead,source,new SQLInteger());
+
+        Assert.assertTrue("Should have a row!",frameBuffer.hasNext());
+        Assert.assertEquals("Should have read the whole partition first!",NUM_ROWS,source.read);
+
+        List<ExecRow> results=new ArrayList<>();
+        while(frameBuffer.hasNext()){
+            results.add(frameBuffer.next());
+        }
+        Assert.assertEquals("Incorrect number of rows!",NUM_ROWS,results.size());
+        for(int i=0;i<NUM_ROWS-1;i++){
+            Assert.assertEquals("Incorrect lead value!",i+1,results.get(i).getColumn(3).getInt());
+        }
+        Assert.assertTrue("The last row has no lead value!",results.get(NUM_ROWS-1).getColumn(3).isNull());
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods and classes*/
+    private static WindowFrameBuffer frameBuffer(WindowFunction function,Iterator<ExecRow> source,
+                                                 DataValueDescriptor resultType) throws StandardException{
+        ExecRow template=new ValueRow(3);
+        template.setRowArray(new DataValueDescriptor[]{new SQLInteger(),new UserType(),resultType});
+        WindowAggregator aggregator=new WindowAggregatorImpl(function,2,new int[]{1},3,RUNNING_FRAME);
+        return BaseFrameBuffer.createFrameBuffer(new WindowAggregator[]{aggregator},source,RUNNING_FRAME,new int[]{0},template);
+    }
+
+    private static class CountingIterator implements Iterator<ExecRow>{
+        private int read;
+
+        @Override
+        public boolean hasNext(){
+            return read<NUM_ROWS;
+        }
+
+        @Override
+        public ExecRow next(){
+            ExecRow row=new ValueRow(3);
+            row.setRowArray(new DataValueDescriptor[]{new SQLInteger(read++),new UserType(),new SQLInteger()});
+            return row;
+        }
+
+        @Override
+        public void remove(){
+            throw new UnsupportedOperationException();
+        }
+    }
+}
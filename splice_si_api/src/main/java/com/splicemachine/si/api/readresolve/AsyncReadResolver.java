@@ -26,23 +26,39 @@ import com.splicemachine.utils.ByteSlice;
 import com.splicemachine.utils.TrafficControl;
 import org.apache.log4j.Logger;
 import org.spark_project.guava.util.concurrent.ThreadFactoryBuilder;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Read-Resolver which asynchronously submits regions for execution, discarding
  * any entries which exceed the size of the processing queue.
  * <p/>
  * This implementation uses an LMAX disruptor to asynchronously pass Read-resolve events
- * to a background thread, which in turn uses a SynchronousReadResolver to actually perform the resolution.
+ * to a background thread, which in turn uses a KeyedReadResolver to actually perform the resolution.
+ * <p/>
+ * A scan will often ask for the same row versions to be resolved over and over again (and so will
+ * several scans of the same rows), so we remember a fingerprint of each row version we have recently queued,
+ * and don't queue it again. Row versions which are throttled, fail, or can't be resolved yet (e.g. because their
+ * transaction is still active) are forgotten again, so that a later read can queue them. The background thread gathers the events for each region into batches, which are
+ * resolved with a single bulk write. Before writing a batch, we check how close its region is to blocking
+ * writes; as that write pressure rises, we resolve less and less of the batch, so that read resolution
+ * can't swamp a region that is busy taking writes (e.g. during an import).
  *
  * @author Scott Fines
  *         Date: 7/1/14
  */
 @ThreadSafe
-public class AsyncReadResolver{
+public class AsyncReadResolver implements ReadResolverManagement{
     private static final Logger LOG=Logger.getLogger(AsyncReadResolver.class);
+    /*the resolved rate is measured over windows of this length*/
+    private static final long RATE_WINDOW=TimeUnit.SECONDS.toNanos(5);
+
     private final RingBuffer<ResolveEvent> ringBuffer;
     private final Disruptor<ResolveEvent> disruptor;
 
@@ -52,8 +68,43 @@ public class AsyncReadResolver{
     private final RollForwardStatus status;
     private final TrafficControl trafficControl;
     private final KeyedReadResolver synchronousResolver;
+    private final int maxBatchSize;
+    private final double maxWritePressure;
+
+    /*
+     * Fingerprints of the row versions which were recently queued. Threads read and write this
+     * without synchronization, so an entry may occasionally be lost, which only means that we queue a
+     * row version twice.
+     */
+    private final long[] recentlyQueued;
+    private final int recentMask;
+
+    /*monitoring fields*/
+    private final AtomicLong submitted=new AtomicLong(0l);
+    private final AtomicLong deduplicated=new AtomicLong(0l);
+    private final AtomicLong dropped=new AtomicLong(0l);
+    private final AtomicLong throttled=new AtomicLong(0l);
+    private final AtomicLong resolved=new AtomicLong(0l);
+    private final AtomicLong batches=new AtomicLong(0l);
+    private volatile double resolvedRate;
+    private volatile long lastRateWindowEnd=System.nanoTime();
+
+    public AsyncReadResolver(int maxThreads,int bufferSize,
+                             TxnSupplier txnSupplier,
+                             RollForwardStatus status,
+                             TrafficControl trafficControl,
+                             KeyedReadResolver synchronousResolver){
+        this(maxThreads,bufferSize,256,1d,txnSupplier,status,trafficControl,synchronousResolver);
+    }
 
+    /**
+     * @param maxBatchSize the maximum number of rows to resolve in a single write
+     * @param maxWritePressure the write pressure (see {@link KeyedReadResolver#writePressure(Partition)}) at which
+     *                         we stop resolving rows in a region. Above half of this, we resolve progressively less.
+     */
     public AsyncReadResolver(int maxThreads,int bufferSize,
+                             int maxBatchSize,
+                             double maxWritePressure,
                              TxnSupplier txnSupplier,
                              RollForwardStatus status,
                              TrafficControl trafficControl,
@@ -62,6 +113,8 @@ public class AsyncReadResolver{
         this.trafficControl=trafficControl;
         this.status=status;
         this.synchronousResolver = synchronousResolver;
+        this.maxBatchSize=Math.max(1,maxBatchSize);
+        this.maxWritePressure=maxWritePressure;
         consumerThreads=new ThreadPoolExecutor(maxThreads,maxThreads,
                 60,TimeUnit.SECONDS,
                 new LinkedBlockingQueue<Runnable>(),
@@ -70,6 +123,8 @@ public class AsyncReadResolver{
         int bSize=1;
         while(bSize<bufferSize)
             bSize<<=1;
+        this.recentlyQueued=new long[bSize];
+        this.recentMask=bSize-1;
         disruptor=new Disruptor<>(new ResolveEventFactory(),bSize,consumerThreads,
                 ProducerType.MULTI,
                 new BlockingWaitStrategy()); //we want low latency here, but it might cost too much in CPU
@@ -92,10 +147,69 @@ public class AsyncReadResolver{
         return new PartitionReadResolver(region,rollForward);
     }
 
+    /*monitoring methods*/
+    @Override
+    public int getQueueDepth(){
+        return (int)(ringBuffer.getBufferSize()-ringBuffer.remainingCapacity());
+    }
+
+    @Override
+    public int getQueueCapacity(){
+        return ringBuffer.getBufferSize();
+    }
+
+    @Override
+    public long getTotalSubmitted(){
+        return submitted.get();
+    }
+
+    @Override
+    public long getTotalDeduplicated(){
+        return deduplicated.get();
+    }
+
+    @Override
+    public long getTotalDropped(){
+        return dropped.get();
+    }
+
+    @Override
+    public long getTotalThrottled(){
+        return throttled.get();
+    }
+
+    @Override
+    public long getTotalResolved(){
+        return resolved.get();
+    }
+
+    @Override
+    public long getTotalBatches(){
+        return batches.get();
+    }
+
+    @Override
+    public double getResolvedRate(){
+        //if nothing has been resolved for a while, the last window's rate is stale
+        if(System.nanoTime()-lastRateWindowEnd>2*RATE_WINDOW) return 0d;
+        return resolvedRate;
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods and classes*/
+    private static long fingerprint(int regionHash,ByteSlice rowKey,long txnId){
+        long h=((long)regionHash<<32)^(rowKey.hashCode()&0xFFFFFFFFL)^(txnId*0x9E3779B97F4A7C15L);
+        h^=h>>>33;
+        h*=0xff51afd7ed558ccdL;
+        h^=h>>>33;
+        return h|1l; //0 marks an empty slot
+    }
+
     private static class ResolveEvent{
         Partition region;
         long txnId;
-        ByteSlice rowKey=new ByteSlice();
+        long fingerprint;
+        byte[] rowKey;
         RollForward rollForward;
     }
 
@@ -107,57 +221,177 @@ public class AsyncReadResolver{
         }
     }
 
+    private static class Batch{
+        private final byte[][] rowKeys;
+        private final long[] txnIds;
+        private final long[] fingerprints;
+        private int size;
+
+        Batch(int maxSize){
+            this.rowKeys=new byte[maxSize][];
+            this.txnIds=new long[maxSize];
+            this.fingerprints=new long[maxSize];
+        }
+
+        void add(byte[] rowKey,long txnId,long fingerprint){
+            rowKeys[size]=rowKey;
+            txnIds[size]=txnId;
+            fingerprints[size]=fingerprint;
+            size++;
+        }
+
+        void clear(){
+            Arrays.fill(rowKeys,0,size,null);
+            size=0;
+        }
+    }
+
+    /*
+     * There is only a single handler, so the batching state here is only ever touched by one thread
+     */
     private class ResolveEventHandler implements EventHandler<ResolveEvent>{
+        private final Map<Partition,Batch> pending=new HashMap<>();
+        private long windowStart=System.nanoTime();
+        private long windowResolved;
 
         @Override
         public void onEvent(ResolveEvent event,long sequence,boolean endOfBatch) throws Exception{
+            Partition region=event.region;
+            Batch batch=pending.get(region);
+            if(batch==null){
+                batch=new Batch(maxBatchSize);
+                pending.put(region,batch);
+            }
+            batch.add(event.rowKey,event.txnId,event.fingerprint);
+            //don't hold on to the data until this slot is reused
+            event.region=null;
+            event.rowKey=null;
+            event.rollForward=null;
+
+            if(batch.size>=maxBatchSize)
+                resolve(region,batch);
+            if(endOfBatch){
+                for(Map.Entry<Partition,Batch> entry:pending.entrySet()){
+                    if(entry.getValue().size>0)
+                        resolve(entry.getKey(),entry.getValue());
+                }
+                //don't keep batches for regions which we haven't seen in a while
+                pending.clear();
+            }
+        }
+
+        private void resolve(Partition region,Batch batch) throws Exception{
             try{
-                if(synchronousResolver.resolve(event.region,
-                        event.rowKey,
-                        event.txnId,
-                        txnSupplier,
-                        status,
-                        false,
-                        trafficControl)){
-//                    event.rollForward.recordResolved(event.rowKey,event.txnId);
+                int toResolve=batch.size;
+                double pressure=synchronousResolver.writePressure(region);
+                if(pressure>=maxWritePressure)
+                    toResolve=0;
+                else if(2*pressure>maxWritePressure)
+                    toResolve=(int)(toResolve*(maxWritePressure-pressure)/(maxWritePressure/2));
+                if(toResolve<batch.size){
+                    forget(batch,toResolve,batch.size);
+                    throttled.addAndGet(batch.size-toResolve);
                 }
+                if(toResolve>0){
+                    int count;
+                    try{
+                        count=synchronousResolver.resolveAll(region,
+                                batch.rowKeys,
+                                batch.txnIds,
+                                toResolve,
+                                txnSupplier,
+                                status,
+                                false,
+                                trafficControl);
+                    }catch(Exception e){
+                        forget(batch,0,toResolve);
+                        throw e;
+                    }
+                    /*
+                     * We aren't told which of the rows were left unresolved, so we forget all of them. Re-queueing
+                     * a row which was resolved costs little, since its readers will see the commit timestamp.
+                     */
+                    if(count<toResolve)
+                        forget(batch,0,toResolve);
+                    batches.incrementAndGet();
+                    resolved.addAndGet(count);
+                    windowResolved+=count;
+                }
+                updateRate();
             }catch(Exception e){
                 LOG.info("Error during read resolution",e);
                 throw e;
+            }finally{
+                batch.clear();
             }
         }
+
+        /*
+         * Clear the fingerprints of the entries [from,to) of the batch, unless another row version has taken their slot
+         */
+        private void forget(Batch batch,int from,int to){
+            for(int i=from;i<to;i++){
+                long fingerprint=batch.fingerprints[i];
+                int slot=(int)fingerprint&recentMask;
+                if(recentlyQueued[slot]==fingerprint)
+                    recentlyQueued[slot]=0l;
+            }
+        }
+
+        private void updateRate(){
+            long now=System.nanoTime();
+            long elapsed=now-windowStart;
+            if(elapsed<RATE_WINDOW) return;
+            resolvedRate=windowResolved*(double)TimeUnit.SECONDS.toNanos(1)/elapsed;
+            lastRateWindowEnd=now;
+            windowStart=now;
+            windowResolved=0l;
+        }
     }
 
     private class PartitionReadResolver implements ReadResolver{
         private final Partition region;
         private final RollForward rollForward;
+        private final int regionHash;
 
         public PartitionReadResolver(Partition region,RollForward rollForward){
             this.region=region;
             this.rollForward=rollForward;
+            this.regionHash=region.getName().hashCode();
         }
 
         @Override
         public void resolve(ByteSlice rowKey,long txnId){
             if(stopped) return; //we aren't running, so do nothing
+            long fingerprint=fingerprint(regionHash,rowKey,txnId);
+            int slot=(int)fingerprint&recentMask;
+            if(recentlyQueued[slot]==fingerprint){
+                deduplicated.incrementAndGet();
+                return;
+            }
             long sequence;
             try{
                 sequence=ringBuffer.tryNext();
             }catch(InsufficientCapacityException e){
                 if(LOG.isTraceEnabled())
                     LOG.trace("Unable to submit for read resolution");
+                dropped.incrementAndGet();
                 return;
             }
 
+            //remember the row version before publishing it, so the handler can't forget it before we record it
+            recentlyQueued[slot]=fingerprint;
             try{
                 ResolveEvent event=ringBuffer.get(sequence);
                 event.region=region;
                 event.txnId=txnId;
-                event.rowKey.set(rowKey.getByteCopy());
+                event.fingerprint=fingerprint;
+                event.rowKey=rowKey.getByteCopy();
                 event.rollForward=rollForward;
             }finally{
                 ringBuffer.publish(sequence);
             }
+            submitted.incrementAndGet();
         }
 
         @Override
@@ -32,4 +32,24 @@ public interface KeyedReadResolver{
                     RollForwardStatus status,
                     boolean failOnError,
                     TrafficControl trafficControl);
+
+    /**
+     * Resolve the first {@code size} row versions in {@code rowKeys} and {@code txnIds}, which must all
+     * belong to {@code region}, with as few writes as possible.
+     *
+     * @return the number of row versions which were resolved
+     */
+    int resolveAll(Partition region,
+                   byte[][] rowKeys,
+                   long[] txnIds,
+                   int size,
+                   TxnSupplier txnSupplier,
+                   RollForwardStatus status,
+                   boolean failOnError,
+                   TrafficControl trafficControl);
+
+    /**
+     * @return how close {@code region} is to blocking writes, from 0 (not at all) to 1 (writes are blocked)
+     */
+    double writePressure(Partition region);
 }
@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2012 - 2018 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.si.api.readresolve;
+
+import javax.management.MXBean;
+
+/**
+ * JMX view of asynchronous read resolution.
+ */
+@SuppressWarnings("unused")
+@MXBean(true)
+public interface ReadResolverManagement{
+
+    /**
+     * @return the number of row versions waiting to be resolved
+     */
+    int getQueueDepth();
+
+    int getQueueCapacity();
+
+    /**
+     * @return the number of row versions which were accepted for resolution
+     */
+    long getTotalSubmitted();
+
+    /**
+     * @return the number of row versions which were not queued, because the same version
+     * of the same row had been queued recently
+     */
+    long getTotalDeduplicated();
+
+    /**
+     * @return the number of row versions which were not queued, because the queue was full
+     */
+    long getTotalDropped();
+
+    /**
+     * @return the number of queued row versions which were not resolved, because their region
+     * was under too much write pressure
+     */
+    long getTotalThrottled();
+
+    /**
+     * @return the number of row versions which have been resolved
+     */
+    long getTotalResolved();
+
+    /**
+     * @return the number of bulk writes which have been performed
+     */
+    long getTotalBatches();
+
+    /**
+     * @return the number of row versions resolved per second, over the last few seconds
+     */
+    double getResolvedRate();
+}
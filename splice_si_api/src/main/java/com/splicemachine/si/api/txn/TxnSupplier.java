@@ -42,6 +42,19 @@ public interface TxnSupplier {
 		 */
 		TxnView getTransaction(long txnId,boolean getDestinationTables) throws IOException;
 
+		/**
+		 * Get the transactions associated with each of {@code txnIds}.
+		 *
+		 * This is functionally equivalent to calling {@link #getTransaction(long)} once
+		 * for each id, but implementations which have to go to a remote store should fetch
+		 * whatever they do not have cached in as few calls as they can.
+		 *
+		 * @param txnIds the transaction ids to fetch.
+		 * @return an array of the same length as {@code txnIds}, whose {@code i}th element
+		 * is the transaction for {@code txnIds[i]}
+		 */
+		TxnView[] getTransactions(long[] txnIds) throws IOException;
+
 		/**
 		 * Determines whether this Store has the transaction in its local cache
 		 * or not.
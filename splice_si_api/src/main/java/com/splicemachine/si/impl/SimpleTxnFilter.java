@@ -15,6 +15,7 @@
 package com.splicemachine.si.impl;
 
 import com.carrotsearch.hppc.LongHashSet;
+import com.carrotsearch.hppc.cursors.LongCursor;
 import com.splicemachine.si.api.filter.RowAccumulator;
 import com.splicemachine.si.api.filter.TxnFilter;
 import com.splicemachine.si.api.readresolve.ReadResolver;
@@ -23,6 +24,7 @@ import com.splicemachine.si.api.txn.TxnView;
 import com.splicemachine.si.impl.driver.SIDriver;
 import com.splicemachine.si.impl.store.ActiveTxnCacheSupplier;
 import com.splicemachine.si.impl.store.IgnoreTxnSupplier;
+import com.splicemachine.si.impl.store.SharedActiveTxnCache;
 import com.splicemachine.si.impl.txn.CommittedTxn;
 import com.splicemachine.storage.CellType;
 import com.splicemachine.storage.DataCell;
@@ -30,6 +32,8 @@ import com.splicemachine.storage.DataFilter;
 import com.splicemachine.utils.ByteSlice;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * Transaction filter which performs basic transactional filtering (i.e. row visibility, tombstones,
@@ -39,15 +43,24 @@ import java.io.IOException;
  *         Date: 6/23/14
  */
 public class SimpleTxnFilter implements TxnFilter{
+    /*transaction ids are always positive, so this marks the absence of a (anti-)tombstone in the current row*/
+    private static final long NO_TXN=-1L;
+
     private final TxnSupplier transactionStore;
     private final TxnView myTxn;
     private final ReadResolver readResolver;
+    private final IgnoreTxnSupplier ignoreTxnSupplier;
     //per row fields
     private final LongHashSet visitedTxnIds=new LongHashSet();
-    private Long tombstonedTxnRow = null;
-    private Long antiTombstonedTxnRow = null;
+    private long tombstonedTxnRow = NO_TXN;
+    private long antiTombstonedTxnRow = NO_TXN;
     private final ByteSlice rowKey=new ByteSlice();
     private final String tableName;
+    //scratch space for prefetching transactions
+    private final LongHashSet prefetchTxnIds=new LongHashSet();
+    private final LongHashSet committedTxnIds=new LongHashSet();
+    /*transactions which had to be fetched from the transaction store, rather than the cache*/
+    private long txnCacheMisses;
     /*
      * The most common case for databases is insert-only--that is, that there
      * are few updates and deletes relative to the number of inserts. As a result,
@@ -71,12 +84,34 @@ public class SimpleTxnFilter implements TxnFilter{
                            ReadResolver readResolver,
                            TxnSupplier baseSupplier,
                            boolean ignoreNewerTransactions) {
+        this(new ActiveTxnCacheSupplier(baseSupplier,1024),tableName,myTxn,readResolver,ignoreNewerTransactions);
+    }
+
+    /**
+     * @param activeTxnCache a cache of active transactions which is shared with the other readers of this table
+     */
+    public SimpleTxnFilter(String tableName,
+                           TxnView myTxn,
+                           ReadResolver readResolver,
+                           TxnSupplier baseSupplier,
+                           SharedActiveTxnCache activeTxnCache,
+                           boolean ignoreNewerTransactions) {
+        this(activeTxnCache.newSupplier(baseSupplier,myTxn),tableName,myTxn,readResolver,ignoreNewerTransactions);
+    }
+
+    private SimpleTxnFilter(TxnSupplier transactionStore,
+                            String tableName,
+                            TxnView myTxn,
+                            ReadResolver readResolver,
+                            boolean ignoreNewerTransactions){
         assert readResolver!=null;
-        this.transactionStore = new ActiveTxnCacheSupplier(baseSupplier,1024); //TODO -sf- configure
+        this.transactionStore = transactionStore;
         this.tableName=tableName;
         this.myTxn=myTxn;
         this.readResolver=readResolver;
         this.ignoreNewerTransactions = ignoreNewerTransactions;
+        SIDriver driver = SIDriver.driver();
+        this.ignoreTxnSupplier = driver!=null?driver.getIgnoreTxnSupplier():null;
     }
 
     @SuppressWarnings("unchecked")
@@ -138,11 +173,99 @@ public class SimpleTxnFilter implements TxnFilter{
     public void nextRow(){
         //clear row-specific fields
         visitedTxnIds.clear();
-        tombstonedTxnRow = null;
-        antiTombstonedTxnRow = null;
+        tombstonedTxnRow = NO_TXN;
+        antiTombstonedTxnRow = NO_TXN;
         rowKey.reset();
     }
 
+    /**
+     * Filter all of the cells in a single row at once.
+     *
+     * This resets the per-row state before it begins, so callers need not call {@link #nextRow()} themselves.
+     *
+     * @param rowCells the cells of the row, in the order in which they are stored
+     * @param visibleCells if not null, the cells which are visible to this transaction are added to it. Note that
+     *                     the cells are added as-is; the caller must copy them if the source re-uses its cells.
+     * @return the number of visible user data cells, or -1 if the row is hidden entirely (e.g. by a tombstone)
+     * @throws IOException if we are unable to determine the visibility of a cell
+     */
+    public int filterCells(Iterable<DataCell> rowCells,List<DataCell> visibleCells) throws IOException{
+        prefetchTransactions(rowCells);
+        nextRow();
+        int visible=0;
+        for(DataCell cell:rowCells){
+            switch(filterCell(cell)){
+                case NEXT_ROW:
+                    return -1;
+                case INCLUDE:
+                case INCLUDE_AND_NEXT_COL:
+                    visible++;
+                    if(visibleCells!=null)
+                        visibleCells.add(cell);
+                    break;
+                default:
+                    break;
+            }
+        }
+        return visible;
+    }
+
+    /**
+     * Fetch the transactions for all the versions in {@code cells} which we will need and which are not
+     * already cached, in as few calls to the transaction store as possible. Filtering those cells
+     * afterwards is then served from the cache.
+     *
+     * {@code cells} may cover any number of rows. Versions which have a commit timestamp don't need a
+     * lookup, and when only one transaction is missing there is nothing to batch, so it is left to be
+     * fetched when its cell is filtered.
+     *
+     * @param cells the cells which are about to be filtered
+     * @throws IOException if we are unable to fetch the transactions
+     */
+    public void prefetchTransactions(Iterable<DataCell> cells) throws IOException{
+        prefetchTxnIds.clear();
+        committedTxnIds.clear();
+        boolean skipNewer=ignoreNewerTransactions && !readResolver.enabled();
+        long beginTimestamp=myTxn.getBeginTimestamp();
+        for(DataCell cell:cells){
+            long txnId=cell.version();
+            switch(cell.dataType()){
+                case COMMIT_TIMESTAMP:
+                    committedTxnIds.add(txnId);
+                    break;
+                case TOMBSTONE:
+                case ANTI_TOMBSTONE:
+                case USER_DATA:
+                    if(skipNewer && beginTimestamp<txnId) break; //we'll never look these up
+                    if(currentTxn!=null && currentTxn.getTxnId()==txnId) break;
+                    prefetchTxnIds.add(txnId);
+                    break;
+                default:
+                    break;
+            }
+        }
+        if(prefetchTxnIds.size()<2) return;
+
+        long[] toFetch=new long[prefetchTxnIds.size()];
+        int fetchCount=0;
+        for(LongCursor txnId:prefetchTxnIds){
+            if(!committedTxnIds.contains(txnId.value) && !transactionStore.transactionCached(txnId.value))
+                toFetch[fetchCount++]=txnId.value;
+        }
+        if(fetchCount<2) return;
+        txnCacheMisses+=fetchCount;
+        transactionStore.getTransactions(fetchCount==toFetch.length?toFetch:Arrays.copyOf(toFetch,fetchCount));
+    }
+
+    /**
+     * @return the number of transactions this filter has looked up which were not in the cache, whether
+     * they were fetched one at a time or by {@link #prefetchTransactions(Iterable)}. Readers can use this
+     * to tell whether prefetching is worth the cost.
+     */
+    public long getTxnCacheMisses(){
+        return txnCacheMisses;
+    }
+
     @Override
     public boolean getExcludeRow(){
         return false;
@@ -209,17 +332,12 @@ public class SimpleTxnFilter implements TxnFilter{
 		 * it matches, then we can see it.
 		 */
         long timestamp=data.version();//dataStore.getOpFactory().getTimestamp(data);
-        SIDriver driver = SIDriver.driver();
-        IgnoreTxnSupplier ignoreTxnSupplier = null;
-        if (driver != null) {
-            ignoreTxnSupplier = driver.getIgnoreTxnSupplier();
-        }
         if (ignoreTxnSupplier != null && ignoreTxnSupplier.shouldIgnore(timestamp))
             return DataFilter.ReturnCode.SKIP;
-        if(tombstonedTxnRow != null && timestamp<= tombstonedTxnRow)
+        if(tombstonedTxnRow != NO_TXN && timestamp<= tombstonedTxnRow)
             return DataFilter.ReturnCode.NEXT_ROW;
 
-        if(antiTombstonedTxnRow != null && timestamp< antiTombstonedTxnRow)
+        if(antiTombstonedTxnRow != NO_TXN && timestamp< antiTombstonedTxnRow)
             return DataFilter.ReturnCode.NEXT_ROW;
 
         //we don't have any tombstone problems, so just check our own visibility
@@ -241,7 +359,11 @@ public class SimpleTxnFilter implements TxnFilter{
     private TxnView fetchTransaction(long txnId) throws IOException{
         TxnView toCompare=currentTxn;
         if(currentTxn==null || currentTxn.getTxnId()!=txnId){
-            toCompare=transactionStore.getTransaction(txnId);
+            toCompare=transactionStore.getTransactionFromCache(txnId);
+            if(toCompare==null){
+                txnCacheMisses++;
+                toCompare=transactionStore.getTransaction(txnId);
+            }
             currentTxn=toCompare;
         }
         return toCompare;
@@ -252,8 +374,8 @@ public class SimpleTxnFilter implements TxnFilter{
         /*
          * Check if we can see this anti-tombstone
          */
-        boolean empty = antiTombstonedTxnRow == null;
-        boolean tombstoned = tombstonedTxnRow != null && tombstonedTxnRow == txnId;
+        boolean empty = antiTombstonedTxnRow == NO_TXN;
+        boolean tombstoned = tombstonedTxnRow == txnId;
         if(empty && !tombstoned && isVisible(txnId)){
             antiTombstonedTxnRow = txnId;
         }
@@ -265,8 +387,8 @@ public class SimpleTxnFilter implements TxnFilter{
 		 * Only add a tombstone to our list if it's actually visible,
 		 * otherwise there's no point, since we can't see it anyway.
 		 */
-        boolean empty = tombstonedTxnRow == null;
-        boolean antiTombstoned = antiTombstonedTxnRow != null && antiTombstonedTxnRow == txnId;
+        boolean empty = tombstonedTxnRow == NO_TXN;
+        boolean antiTombstoned = antiTombstonedTxnRow == txnId;
         if(empty && !antiTombstoned && isVisible(txnId)) {
             tombstonedTxnRow = txnId;
         }
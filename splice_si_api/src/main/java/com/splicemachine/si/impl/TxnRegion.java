@@ -25,7 +25,9 @@ import com.splicemachine.si.api.server.Transactor;
 import com.splicemachine.si.api.txn.TxnSupplier;
 import com.splicemachine.si.api.txn.TxnView;
 import com.splicemachine.si.impl.filter.HRowAccumulator;
+import com.splicemachine.si.impl.driver.SIDriver;
 import com.splicemachine.si.impl.filter.PackedTxnFilter;
+import com.splicemachine.si.impl.store.SharedActiveTxnCache;
 import com.splicemachine.storage.*;
 import com.splicemachine.utils.ByteSlice;
 import org.spark_project.guava.collect.Iterators;
@@ -45,6 +47,7 @@ public class TxnRegion<InternalScanner> implements TransactionalRegion<InternalS
     private final TxnSupplier txnSupplier;
     private final Transactor transactor;
     private final TxnOperationFactory opFactory;
+    private final SharedActiveTxnCache activeTxnCache;
     private Partition region;
     private String tableName;
 
@@ -54,20 +57,37 @@ public class TxnRegion<InternalScanner> implements TransactionalRegion<InternalS
                      ReadResolver readResolver,
                      TxnSupplier txnSupplier,
                      Transactor transactor,TxnOperationFactory opFactory){
+        this(region,rollForward,readResolver,txnSupplier,transactor,opFactory,activeTxnCache(region));
+    }
+
+    public TxnRegion(Partition region,
+                     RollForward rollForward,
+                     ReadResolver readResolver,
+                     TxnSupplier txnSupplier,
+                     Transactor transactor,TxnOperationFactory opFactory,
+                     SharedActiveTxnCache activeTxnCache){
         this.region=region;
         this.rollForward=rollForward;
         this.readResolver=readResolver;
         this.txnSupplier=txnSupplier;
         this.transactor=transactor;
         this.opFactory=opFactory;
+        this.activeTxnCache=activeTxnCache;
         if(region!=null){
             this.tableName=region.getTableName();
         }
     }
 
+    private static SharedActiveTxnCache activeTxnCache(Partition region){
+        SIDriver driver=SIDriver.driver();
+        if(driver!=null && region!=null)
+            return driver.getActiveTxnCache(region);
+        return new SharedActiveTxnCache(1024);
+    }
+
     @Override
     public TxnFilter unpackedFilter(TxnView txn, boolean ignoreRecentTransactions) throws IOException{
-        return new SimpleTxnFilter(tableName,txn,readResolver,txnSupplier,ignoreRecentTransactions);
+        return new SimpleTxnFilter(tableName,txn,readResolver,txnSupplier,activeTxnCache,ignoreRecentTransactions);
     }
 
     @Override
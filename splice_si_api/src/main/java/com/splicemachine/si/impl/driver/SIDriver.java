@@ -14,6 +14,8 @@
 
 package com.splicemachine.si.impl.driver;
 
+import org.spark_project.guava.cache.Cache;
+import org.spark_project.guava.cache.CacheBuilder;
 import org.spark_project.guava.util.concurrent.ThreadFactoryBuilder;
 import com.splicemachine.access.api.DistributedFileSystem;
 import com.splicemachine.access.api.FilesystemAdmin;
@@ -29,6 +31,7 @@ import com.splicemachine.si.api.filter.TransactionReadController;
 import com.splicemachine.si.api.readresolve.AsyncReadResolver;
 import com.splicemachine.si.api.readresolve.KeyedReadResolver;
 import com.splicemachine.si.api.readresolve.ReadResolver;
+import com.splicemachine.si.api.readresolve.ReadResolverManagement;
 import com.splicemachine.si.api.rollforward.RollForward;
 import com.splicemachine.si.api.server.ClusterHealth;
 import com.splicemachine.si.api.server.TransactionalRegion;
@@ -45,6 +48,7 @@ import com.splicemachine.si.impl.rollforward.NoopRollForward;
 import com.splicemachine.si.impl.rollforward.RollForwardStatus;
 import com.splicemachine.si.impl.server.SITransactor;
 import com.splicemachine.si.impl.store.IgnoreTxnSupplier;
+import com.splicemachine.si.impl.store.SharedActiveTxnCache;
 import com.splicemachine.si.impl.txn.SITransactionReadController;
 import com.splicemachine.storage.DataFilterFactory;
 import com.splicemachine.storage.Partition;
@@ -105,6 +109,11 @@ public class SIDriver {
     private final ClusterHealth clusterHealth;
     private final ManagedThreadPool rejectingThreadPool;
     private final NonRejectingExecutor threadPool;
+    /*
+     * Active transaction caches, one per region (keyed by region name), shared by every TxnRegion
+     * opened against that region. Idle entries are dropped so that closed or moved regions don't pin memory.
+     */
+    private final Cache<String,SharedActiveTxnCache> activeTxnCaches;
     private boolean engineStarted = false;
 
     public SIDriver(SIEnvironment env){
@@ -122,6 +131,7 @@ public class SIDriver {
         this.partitionInfoCache = env.partitionInfoCache();
         this.snowflakeFactory = env.snowflakeFactory();
         this.ignoreTxnSupplier = env.ignoreTxnSupplier();
+        this.activeTxnCaches = CacheBuilder.newBuilder().expireAfterAccess(10,TimeUnit.MINUTES).build();
         //noinspection unchecked
         this.transactor = new SITransactor(
                 this.txnSupplier,
@@ -217,6 +227,13 @@ public class SIDriver {
         return readResolver.getResolver(basePartition,getRollForward());
     }
 
+    /**
+     * @return the monitoring view of asynchronous read resolution, or {@code null} if it is disabled
+     */
+    public ReadResolverManagement getReadResolverManagement(){
+        return readResolver;
+    }
+
     public TxnLifecycleManager lifecycleManager(){
         return lifecycleManager;
     }
@@ -232,15 +249,40 @@ public class SIDriver {
                     getReadResolver(basePartition),
                     getTxnSupplier(),
                     getTransactor(),
-                    getOperationFactory());
+                    getOperationFactory(),
+                    getActiveTxnCache(basePartition));
         }else{
             return new TxnRegion(basePartition,
                     NoopRollForward.INSTANCE,
                     NoOpReadResolver.INSTANCE,
                     getTxnSupplier(),
                     getTransactor(),
-                    getOperationFactory());
+                    getOperationFactory(),
+                    getActiveTxnCache(basePartition));
+        }
+    }
+
+    /**
+     * @param partition the region (or table, on the client side) being read
+     * @return the active transaction cache shared by all readers of {@code partition}
+     */
+    public SharedActiveTxnCache getActiveTxnCache(Partition partition){
+        String name=partition.getName();
+        SharedActiveTxnCache cache=activeTxnCaches.getIfPresent(name);
+        if(cache==null){
+            SharedActiveTxnCache newCache=new SharedActiveTxnCache(config.getActiveTransactionCacheSize());
+            cache=activeTxnCaches.asMap().putIfAbsent(name,newCache);
+            if(cache==null)
+                cache=newCache;
         }
+        return cache;
+    }
+
+    /**
+     * Drops the active transaction cache of {@code partition}, called when the region closes.
+     */
+    public void releaseActiveTxnCache(Partition partition){
+        activeTxnCaches.invalidate(partition.getName());
     }
 
     public Clock getClock(){
@@ -280,6 +322,8 @@ public class SIDriver {
         if(bufferSize<=0) return null;
         final AsyncReadResolver asyncReadResolver=new AsyncReadResolver(maxThreads,
                 bufferSize,
+                config.getReadResolverBatchSize(),
+                config.getReadResolverMaxWritePressure(),
                 txnSupplier,
                 new RollForwardStatus(),
                 GreenLight.INSTANCE,keyedResolver);
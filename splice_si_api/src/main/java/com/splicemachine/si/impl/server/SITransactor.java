@@ -21,7 +21,6 @@ import com.carrotsearch.hppc.cursors.LongCursor;
 import com.splicemachine.kvpair.KVPair;
 import com.splicemachine.primitives.Bytes;
 import com.splicemachine.si.api.data.*;
-import com.splicemachine.si.api.filter.TxnFilter;
 import com.splicemachine.si.api.rollforward.RollForward;
 import com.splicemachine.si.api.server.ConstraintChecker;
 import com.splicemachine.si.api.server.Transactor;
@@ -260,7 +259,7 @@ public class SITransactor implements Transactor{
                                                                TxnView transaction,
                                                                byte[] family, byte[] qualifier,
                                                                ConstraintChecker constraintChecker,
-                                                               TxnFilter constraintStateFilter,
+                                                               SimpleTxnFilter constraintStateFilter,
                                                                MutationStatus[] finalStatus, boolean skipConflictDetection,
                                                                boolean skipWAL, TxnSupplier supplier, boolean rollforward) throws IOException {
         IntObjectHashMap<DataPut> finalMutationsToWrite = new IntObjectHashMap(dataAndLocks.length, 0.9f);
@@ -328,7 +327,7 @@ public class SITransactor implements Transactor{
     }
 
     private boolean applyConstraint(ConstraintChecker constraintChecker,
-                                    TxnFilter constraintStateFilter,
+                                    SimpleTxnFilter constraintStateFilter,
                                     int rowPosition,
                                     KVPair mutation,
                                     DataResult row,
@@ -341,25 +340,13 @@ public class SITransactor implements Transactor{
         if(constraintChecker==null) return false;
 
         if(row==null || row.size()<=0) return false;
-        //must reset the filter here to avoid contaminating multiple rows with tombstones and stuff
-        constraintStateFilter.reset();
 
         //we need to make sure that this row is visible to the current transaction
         List<DataCell> visibleColumns=Lists.newArrayListWithExpectedSize(row.size());
-        for(DataCell data : row){
-            DataFilter.ReturnCode code=constraintStateFilter.filterCell(data);
-            switch(code){
-                case NEXT_ROW:
-                case NEXT_COL:
-                case SEEK:
-                    return false;
-                case SKIP:
-                    continue;
-                default:
-                    visibleColumns.add(data.getClone()); //TODO -sf- remove this clone
-            }
+        if(constraintStateFilter.filterCells(row,visibleColumns)<0) return false;
+        for(int i=0;i<visibleColumns.size();i++){
+            visibleColumns.set(i,visibleColumns.get(i).getClone()); //TODO -sf- remove this clone
         }
-        constraintStateFilter.nextRow();
         if(!additiveConflict && visibleColumns.size()<=0) return false; //no visible values to check
 
         MutationStatus operationStatus=constraintChecker.checkConstraint(mutation,opFactory.newResult(visibleColumns));
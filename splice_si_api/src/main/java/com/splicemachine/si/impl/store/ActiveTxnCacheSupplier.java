@@ -64,6 +64,34 @@ public class ActiveTxnCacheSupplier implements TxnSupplier {
         return txn;
     }
 
+    @Override
+    public TxnView[] getTransactions(long[] txnIds) throws IOException {
+        TxnView[] txns = new TxnView[txnIds.length];
+        int[] missing = new int[txnIds.length];
+        int missingCount = 0;
+        for (int i = 0; i < txnIds.length; i++) {
+            TxnView txn = this.cache.get(txnIds[i]);
+            if (txn != null)
+                txns[i] = txn;
+            else
+                missing[missingCount++] = i;
+        }
+        if (missingCount == 0) return txns;
+
+        long[] toFetch = new long[missingCount];
+        for (int i = 0; i < missingCount; i++) {
+            toFetch[i] = txnIds[missing[i]];
+        }
+        TxnView[] fetched = delegate.getTransactions(toFetch);
+        for (int i = 0; i < missingCount; i++) {
+            TxnView txn = fetched[i];
+            txns[missing[i]] = txn;
+            if (txn != null && txn.getEffectiveState() == Txn.State.ACTIVE)
+                this.cache.put(toFetch[i], txn);
+        }
+        return txns;
+    }
+
     @Override
     public boolean transactionCached(long txnId) {
         return cache.get(txnId) != null ? true : delegate.transactionCached(txnId);
@@ -14,7 +14,7 @@
 
 package com.splicemachine.si.impl.store;
 
-import com.googlecode.concurrentlinkedhashmap.ConcurrentLinkedHashMap;
+import com.splicemachine.collections.ConcurrentLongKeyedCache;
 import com.splicemachine.si.api.txn.TaskId;
 import com.splicemachine.si.api.txn.Txn;
 import com.splicemachine.si.api.txn.TxnSupplier;
@@ -22,33 +22,47 @@ import com.splicemachine.si.api.txn.TxnView;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 
 import java.io.IOException;
-import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * TxnSupplier which caches transaction which have "Completed"--i.e. which have entered the COMMITTED or ROLLEDBACK
  * state.
  * <p/>
- * This class is thread-safe, and safe to be shared between many threads.
+ * This class is thread-safe, and safe to be shared between many threads. Lookups do not box the transaction id,
+ * and in the common case take no locks (see {@link ConcurrentLongKeyedCache}).
+ * <p/>
+ * Top-level transactions (which are nearly all of them) are held in a {@link PackedTxnCache}, which stores
+ * only their timestamps and flags; child transactions keep their parent references, and are cached as objects.
  *
  * @author Scott Fines
  *         Date: 6/18/14
  */
 public class CompletedTxnCacheSupplier implements TxnSupplier{
-    private ConcurrentLinkedHashMap<Long, TxnView> cache; // autobox for now
+    private final PackedTxnCache packedCache;
+    private final ConcurrentLongKeyedCache<TxnView> cache;
     private final TxnSupplier delegate;
-    private final AtomicLong hits=new AtomicLong();
-    private final AtomicLong requests=new AtomicLong();
 
     public CompletedTxnCacheSupplier(TxnSupplier delegate,int maxSize,int concurrencyLevel){
-        cache=new ConcurrentLinkedHashMap.Builder<Long, TxnView>()
-                .maximumWeightedCapacity(maxSize)
-                .concurrencyLevel(concurrencyLevel)
-                .build();
+        this.packedCache=new PackedTxnCache(maxSize,concurrencyLevel);
+        //child transactions are uncommon, so they get a smaller share
+        this.cache=new ConcurrentLongKeyedCache<>(Math.max(maxSize/8,1),concurrencyLevel);
         this.delegate=delegate;
     }
 
     public int getMaxSize(){
-        return cache.size();
+        return packedCache.size()+cache.size();
+    }
+
+    public long getHitCount(){
+        return packedCache.hitCount()+cache.hitCount();
+    }
+
+    public long getRequestCount(){
+        //every request checks the packed cache first
+        return packedCache.requestCount();
+    }
+
+    public long getEvictionCount(){
+        return packedCache.evictionCount()+cache.evictionCount();
     }
 
     @Override
@@ -63,12 +77,12 @@ public class CompletedTxnCacheSupplier implements TxnSupplier{
     public TxnView getTransaction(long txnId,boolean getDestinationTables) throws IOException{
         if(txnId==-1)
             return Txn.ROOT_TRANSACTION;
-        requests.incrementAndGet();
-        TxnView txn=cache.get(txnId); // autobox until Cliff C merge
-        if(txn!=null){
-            hits.incrementAndGet();
+        TxnView txn=packedCache.get(txnId);
+        if(txn!=null && !getDestinationTables) //packed transactions do not keep their destination tables
+            return txn;
+        txn=cache.get(txnId);
+        if(txn!=null)
             return txn;
-        }
         //bummer, we aren't in the cache, need to check the delegate
         TxnView transaction=delegate.getTransaction(txnId,getDestinationTables);
         if(transaction==null) //noinspection ConstantConditions
@@ -77,33 +91,67 @@ public class CompletedTxnCacheSupplier implements TxnSupplier{
         switch(transaction.getEffectiveState()){
             case COMMITTED:
             case ROLLEDBACK:
-                cache.put(transaction.getTxnId(),transaction); // Cache for Future Use
+                store(transaction); // Cache for Future Use
         }
         return transaction;
     }
 
+    @Override
+    public TxnView[] getTransactions(long[] txnIds) throws IOException{
+        TxnView[] txns=new TxnView[txnIds.length];
+        int[] missing=new int[txnIds.length];
+        int missingCount=0;
+        for(int i=0;i<txnIds.length;i++){
+            long txnId=txnIds[i];
+            TxnView txn=txnId==-1?Txn.ROOT_TRANSACTION:getTransactionFromCache(txnId);
+            if(txn!=null)
+                txns[i]=txn;
+            else
+                missing[missingCount++]=i;
+        }
+        if(missingCount==0) return txns;
+
+        //fetch everything we are missing from the delegate in one go
+        long[] toFetch=new long[missingCount];
+        for(int i=0;i<missingCount;i++){
+            toFetch[i]=txnIds[missing[i]];
+        }
+        TxnView[] fetched=delegate.getTransactions(toFetch);
+        for(int i=0;i<missingCount;i++){
+            TxnView txn=fetched[i];
+            txns[missing[i]]=txn;
+            if(txn!=null && txn.getEffectiveState().isFinal())
+                store(txn);
+        }
+        return txns;
+    }
+
     @Override
     public boolean transactionCached(long txnId){
-        return cache.get(txnId)!=null;
+        return packedCache.containsKey(txnId) || cache.containsKey(txnId);
     }
 
     @Override
     public void cache(TxnView toCache){
         if(toCache.getState()==Txn.State.ACTIVE) return; //cannot cache incomplete transactions
-        cache.put(toCache.getTxnId(),toCache);
+        store(toCache);
     }
 
     @Override
     public TxnView getTransactionFromCache(long txnId){
-        requests.incrementAndGet();
-        TxnView txn=cache.get(txnId);
-        if(txn!=null)
-            hits.incrementAndGet();
-        return txn;
+        TxnView txn=packedCache.get(txnId);
+        return txn!=null?txn:cache.get(txnId);
     }
 
     @Override
     public TaskId getTaskId(long txnId) throws IOException {
         return delegate.getTaskId(txnId);
     }
+
+    private void store(TxnView txn){
+        if(PackedTxnCache.canPack(txn))
+            packedCache.put(txn);
+        else
+            cache.put(txn.getTxnId(),txn);
+    }
 }
@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2012 - 2018 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.si.impl.store;
+
+import com.splicemachine.collections.AbstractLongKeyedCache;
+import com.splicemachine.si.api.txn.Txn;
+import com.splicemachine.si.api.txn.TxnView;
+import com.splicemachine.si.impl.txn.InheritingTxnView;
+
+/**
+ * A compact cache of finished top-level transactions.
+ *
+ * Rather than holding on to each transaction's object graph, this keeps the handful of fields which a
+ * finished, top-level transaction actually has (begin timestamp, commit and global commit timestamps, state,
+ * isolation level and the additive/writable flags) in parallel primitive arrays, and builds an immutable
+ * {@link TxnView} over them on each lookup. An entry costs about 45 bytes of table space, and creates no
+ * objects for the garbage collector to trace, compared to well over a hundred bytes for a cached
+ * {@link InheritingTxnView} (plus the map entry and boxed key which refer to it).
+ *
+ * Only transactions whose parent is the root transaction can be packed (see {@link #canPack(TxnView)});
+ * the transactions which are left are rare enough that they can be cached as objects.
+ *
+ * The segments, probing and CLOCK eviction are shared with {@link com.splicemachine.collections.ConcurrentLongKeyedCache}
+ * through {@link AbstractLongKeyedCache}; only the value columns live here.
+ */
+public class PackedTxnCache extends AbstractLongKeyedCache<PackedTxnCache.PackedSegment>{
+    private static final int STATE_MASK=0x3;
+    private static final int ISOLATION_SHIFT=2;
+    private static final int ISOLATION_MASK=0x3<<ISOLATION_SHIFT;
+    private static final int ADDITIVE=1<<4;
+    private static final int ALLOWS_WRITES=1<<5;
+    /*marks an occupied slot, so that an all-zero flags byte means empty*/
+    private static final int PRESENT=1<<6;
+
+    private static final Txn.State[] STATES=Txn.State.values();
+    private static final Txn.IsolationLevel[] ISOLATION_LEVELS=Txn.IsolationLevel.values();
+
+    public PackedTxnCache(int maxEntries,int concurrencyLevel){
+        super(maxEntries,concurrencyLevel);
+    }
+
+    /**
+     * @param txn the transaction to check
+     * @return true if {@code txn} is finished and has no parent, so that it can be held by this cache
+     */
+    public static boolean canPack(TxnView txn){
+        Txn.State state=txn.getState();
+        if(state!=Txn.State.COMMITTED && state!=Txn.State.ROLLEDBACK) return false;
+        TxnView parent=txn.getParentTxnView();
+        return parent==null || Txn.ROOT_TRANSACTION.equals(parent);
+    }
+
+    /**
+     * @param txnId the id of the transaction
+     * @return a view of the cached transaction, or {@code null} if it is not in the cache
+     */
+    public TxnView get(long txnId){
+        long hash=hash(txnId);
+        TxnView txn=segmentFor(hash).get(txnId,hash);
+        recordLookup(txn!=null);
+        return txn;
+    }
+
+    /**
+     * Cache {@code txn}, which must satisfy {@link #canPack(TxnView)}.
+     */
+    public void put(TxnView txn){
+        assert canPack(txn): "Cannot pack transaction "+txn;
+        int flags=PRESENT|txn.getState().ordinal();
+        Txn.IsolationLevel level=txn.getIsolationLevel();
+        if(level!=null)
+            flags|=(level.ordinal()+1)<<ISOLATION_SHIFT;
+        if(txn.isAdditive())
+            flags|=ADDITIVE;
+        if(txn.allowsWrites())
+            flags|=ALLOWS_WRITES;
+        long hash=hash(txn.getTxnId());
+        recordPut(segmentFor(hash).put(txn.getTxnId(),hash,txn.getBeginTimestamp(),txn.getCommitTimestamp(),txn.getGlobalCommitTimestamp(),(byte)flags));
+    }
+
+    @Override
+    protected PackedSegment newSegment(int maxEntries){
+        return new PackedSegment(maxEntries);
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods and classes*/
+    private static TxnView unpack(long txnId,long beginTimestamp,long commitTimestamp,long globalCommitTimestamp,int flags){
+        int isolation=(flags&ISOLATION_MASK)>>>ISOLATION_SHIFT;
+        return new InheritingTxnView(Txn.ROOT_TRANSACTION,txnId,beginTimestamp,
+                isolation==0?null:ISOLATION_LEVELS[isolation-1],
+                true,(flags&ADDITIVE)!=0,
+                true,(flags&ALLOWS_WRITES)!=0,
+                commitTimestamp,globalCommitTimestamp,
+                STATES[flags&STATE_MASK]);
+    }
+
+    @SuppressWarnings("serial")
+    static final class PackedSegment extends AbstractLongKeyedCache.Segment{
+        private final long[] beginTimestamps;
+        private final long[] commitTimestamps;
+        private final long[] globalCommitTimestamps;
+        /*0 marks an empty slot*/
+        private final byte[] flags;
+
+        PackedSegment(int maxEntries){
+            //the columns are small, so allow a load factor of up to 0.75
+            super(maxEntries,0.75d);
+            int capacity=mask+1;
+            this.beginTimestamps=new long[capacity];
+            this.commitTimestamps=new long[capacity];
+            this.globalCommitTimestamps=new long[capacity];
+            this.flags=new byte[capacity];
+        }
+
+        TxnView get(long txnId,long hash){
+            long stamp=tryOptimisticRead();
+            int slot=find(txnId,hash);
+            long begin=0l, commit=0l, globalCommit=0l;
+            int f=0;
+            if(slot>=0){
+                begin=beginTimestamps[slot];
+                commit=commitTimestamps[slot];
+                globalCommit=globalCommitTimestamps[slot];
+                f=flags[slot];
+            }
+            if(!validate(stamp)){
+                stamp=readLock();
+                try{
+                    slot=find(txnId,hash);
+                    if(slot>=0){
+                        begin=beginTimestamps[slot];
+                        commit=commitTimestamps[slot];
+                        globalCommit=globalCommitTimestamps[slot];
+                        f=flags[slot];
+                    }
+                }finally{
+                    unlockRead(stamp);
+                }
+            }
+            if(slot<0) return null;
+            markReferenced(slot);
+            return unpack(txnId,begin,commit,globalCommit,f);
+        }
+
+        /**
+         * @return true if an entry was evicted to make room
+         */
+        boolean put(long txnId,long hash,long begin,long commit,long globalCommit,byte f){
+            long stamp=writeLock();
+            try{
+                int slot=findOrClaim(txnId,hash);
+                if(slot<0)
+                    slot=-(slot+1);
+                beginTimestamps[slot]=begin;
+                commitTimestamps[slot]=commit;
+                globalCommitTimestamps[slot]=globalCommit;
+                flags[slot]=f;
+                return evicted();
+            }finally{
+                unlockWrite(stamp);
+            }
+        }
+
+        @Override
+        protected boolean isOccupied(int slot){
+            return flags[slot]!=0;
+        }
+
+        @Override
+        protected void moveValue(int from,int to){
+            beginTimestamps[to]=beginTimestamps[from];
+            commitTimestamps[to]=commitTimestamps[from];
+            globalCommitTimestamps[to]=globalCommitTimestamps[from];
+            flags[to]=flags[from];
+            flags[from]=0;
+        }
+
+        @Override
+        protected void clearValue(int slot){
+            flags[slot]=0;
+        }
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2012 - 2017 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.si.impl.store;
+
+import com.splicemachine.collections.LongKeyedCache;
+import com.splicemachine.hash.HashFunctions;
+import com.splicemachine.si.api.txn.TaskId;
+import com.splicemachine.si.api.txn.Txn;
+import com.splicemachine.si.api.txn.TxnSupplier;
+import com.splicemachine.si.api.txn.TxnView;
+
+import java.io.IOException;
+
+/**
+ * A cache of active transactions which is shared by all of the readers of a single region, so
+ * that concurrent scans do not each have to build (and warm up) their own {@link ActiveTxnCacheSupplier}.
+ *
+ * Unlike a per-scan cache, an entry here can outlive the reader which looked it up, so we have to be careful
+ * about who is allowed to use it. If a transaction was active when it was looked up on behalf of a reader with
+ * begin timestamp {@code b}, then any commit timestamp it eventually receives must be larger than {@code b}.
+ * Therefore, every snapshot isolation reader whose begin timestamp is {@code <= b} would find that transaction
+ * invisible whether it was committed or not, and may safely treat it as still active. Each entry records the
+ * largest such {@code b}, and readers which began later go back to the underlying store.
+ *
+ * This reasoning does not hold for transactions which are ancestors or descendants of the reader (whose writes
+ * become visible as soon as they commit), or for readers which are not running under snapshot isolation, so
+ * those always bypass the shared cache.
+ */
+public class SharedActiveTxnCache{
+    private static final int STRIPES=16;
+
+    private final LongKeyedCache<Entry>[] stripes;
+    private final int privateCacheSize;
+
+    @SuppressWarnings("unchecked")
+    public SharedActiveTxnCache(int maxSize){
+        this.stripes=new LongKeyedCache[STRIPES];
+        int stripeSize=Math.max(1,maxSize/STRIPES);
+        for(int i=0;i<stripes.length;i++){
+            stripes[i]=LongKeyedCache.<Entry>newBuilder().maxEntries(stripeSize)
+                    .withHashFunction(HashFunctions.murmur3(0)).threadSafe(true).build();
+        }
+        this.privateCacheSize=maxSize;
+    }
+
+    /**
+     * @param delegate the supplier to use when the transaction is not in the shared cache
+     * @param reader the transaction which will be reading through the returned supplier
+     * @return a supplier which caches active transactions on behalf of {@code reader}
+     */
+    public TxnSupplier newSupplier(TxnSupplier delegate,TxnView reader){
+        if(reader.getIsolationLevel()!=Txn.IsolationLevel.SNAPSHOT_ISOLATION)
+            return new ActiveTxnCacheSupplier(delegate,privateCacheSize);
+        return new ReaderSupplier(delegate,reader);
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods and classes*/
+    private LongKeyedCache<Entry> stripe(long txnId){
+        //transaction ids are spaced by a constant, so mix before choosing a stripe
+        return stripes[(int)((txnId*0x9E3779B97F4A7C15L)>>>60)];
+    }
+
+    private static class Entry{
+        private final TxnView txn;
+        /*
+         * Every value ever stored here is a valid bound on its own, so racing updates
+         * may only make this more conservative than it needs to be
+         */
+        private volatile long validThrough;
+
+        Entry(TxnView txn,long validThrough){
+            this.txn=txn;
+            this.validThrough=validThrough;
+        }
+    }
+
+    private class ReaderSupplier implements TxnSupplier{
+        private final TxnSupplier delegate;
+        private final TxnView reader;
+        private final long readerBegin;
+
+        ReaderSupplier(TxnSupplier delegate,TxnView reader){
+            this.delegate=delegate;
+            this.reader=reader;
+            this.readerBegin=reader.getBeginTimestamp();
+        }
+
+        @Override
+        public TxnView getTransaction(long txnId) throws IOException{
+            return getTransaction(txnId,false);
+        }
+
+        @Override
+        public TxnView getTransaction(long txnId,boolean getDestinationTables) throws IOException{
+            TxnView cached=getTransactionFromSharedCache(txnId);
+            if(cached!=null) return cached;
+            TxnView txn=delegate.getTransaction(txnId,getDestinationTables);
+            if(txn!=null && txn.getEffectiveState()==Txn.State.ACTIVE)
+                share(txn);
+            return txn;
+        }
+
+        @Override
+        public TxnView[] getTransactions(long[] txnIds) throws IOException{
+            TxnView[] txns=new TxnView[txnIds.length];
+            int[] missing=new int[txnIds.length];
+            int missingCount=0;
+            for(int i=0;i<txnIds.length;i++){
+                TxnView txn=getTransactionFromSharedCache(txnIds[i]);
+                if(txn!=null)
+                    txns[i]=txn;
+                else
+                    missing[missingCount++]=i;
+            }
+            if(missingCount==0) return txns;
+
+            long[] toFetch=new long[missingCount];
+            for(int i=0;i<missingCount;i++){
+                toFetch[i]=txnIds[missing[i]];
+            }
+            TxnView[] fetched=delegate.getTransactions(toFetch);
+            for(int i=0;i<missingCount;i++){
+                TxnView txn=fetched[i];
+                txns[missing[i]]=txn;
+                if(txn!=null && txn.getEffectiveState()==Txn.State.ACTIVE)
+                    share(txn);
+            }
+            return txns;
+        }
+
+        @Override
+        public boolean transactionCached(long txnId){
+            return getTransactionFromSharedCache(txnId)!=null || delegate.transactionCached(txnId);
+        }
+
+        @Override
+        public void cache(TxnView toCache){
+            if(toCache.getState()==Txn.State.ACTIVE)
+                share(toCache);
+            else
+                delegate.cache(toCache);
+        }
+
+        @Override
+        public TxnView getTransactionFromCache(long txnId){
+            TxnView tentative=getTransactionFromSharedCache(txnId);
+            return tentative!=null?tentative:delegate.getTransactionFromCache(txnId);
+        }
+
+        @Override
+        public TaskId getTaskId(long txnId) throws IOException{
+            return delegate.getTaskId(txnId);
+        }
+
+        private TxnView getTransactionFromSharedCache(long txnId){
+            Entry e=stripe(txnId).get(txnId);
+            if(e==null || readerBegin>e.validThrough || isRelated(e.txn)) return null;
+            return e.txn;
+        }
+
+        private void share(TxnView txn){
+            if(isRelated(txn)) return;
+            LongKeyedCache<Entry> stripe=stripe(txn.getTxnId());
+            Entry existing=stripe.get(txn.getTxnId());
+            if(existing==null)
+                stripe.put(txn.getTxnId(),new Entry(txn,readerBegin));
+            else if(existing.validThrough<readerBegin)
+                existing.validThrough=readerBegin;
+        }
+
+        private boolean isRelated(TxnView txn){
+            return txn.getTxnId()==reader.getTxnId() || txn.descendsFrom(reader) || reader.descendsFrom(txn);
+        }
+    }
+}
@@ -58,6 +58,15 @@ public class SimpleCompletedTxnCacheSupplier implements TxnSupplier{
         }
     }
 
+    @Override
+    public TxnView[] getTransactions(long[] txnIds) throws IOException {
+        TxnView[] txns = new TxnView[txnIds.length];
+        for (int i = 0; i < txnIds.length; i++) {
+            txns[i] = getTransaction(txnIds[i]);
+        }
+        return txns;
+    }
+
     @Override
     public boolean transactionCached(long txnId) {
         return getTransactionFromCache(txnId)!=null;
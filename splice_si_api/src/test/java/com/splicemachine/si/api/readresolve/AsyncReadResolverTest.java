@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2012 - 2018 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.si.api.readresolve;
+
+import com.splicemachine.si.api.txn.TxnSupplier;
+import com.splicemachine.si.impl.rollforward.RollForwardStatus;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import com.splicemachine.storage.Partition;
+import com.splicemachine.utils.ByteSlice;
+import com.splicemachine.utils.GreenLight;
+import com.splicemachine.utils.TrafficControl;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for the deduplication, batching and throttling behavior of {@link AsyncReadResolver}.
+ */
+@Category(ArchitectureIndependent.class)
+public class AsyncReadResolverTest{
+
+    @Test
+    public void testDeduplicatesAndBatchesResolves() throws Exception{
+        Partition region=mockRegion();
+        KeyedReadResolver keyed=mockResolver(0d);
+        AsyncReadResolver resolver=new AsyncReadResolver(1,64,16,0.5d,null,new RollForwardStatus(),GreenLight.INSTANCE,keyed);
+        try{
+            ReadResolver rr=resolver.getResolver(region,null);
+            rr.resolve(ByteSlice.wrap(new byte[]{1}),0x100l);
+            rr.resolve(ByteSlice.wrap(new byte[]{1}),0x100l);
+            rr.resolve(ByteSlice.wrap(new byte[]{2}),0x100l);
+            rr.resolve(ByteSlice.wrap(new byte[]{1}),0x200l);
+            Assert.assertEquals("Incorrect submitted count!",3l,resolver.getTotalSubmitted());
+            Assert.assertEquals("Incorrect deduplicated count!",1l,resolver.getTotalDeduplicated());
+            Assert.assertEquals("Incorrect queue depth!",3,resolver.getQueueDepth());
+
+            resolver.start();
+            waitForQueue(resolver);
+            Assert.assertEquals("Incorrect resolved count!",3l,resolver.getTotalResolved());
+            Assert.assertEquals("Incorrect batch count!",1l,resolver.getTotalBatches());
+            verify(keyed,times(1)).resolveAll(eq(region),any(byte[][].class),any(long[].class),eq(3),
+                    any(TxnSupplier.class),any(RollForwardStatus.class),anyBoolean(),any(TrafficControl.class));
+        }finally{
+            resolver.shutdown();
+        }
+    }
+
+    @Test
+    public void testDropsWhenQueueIsFull() throws Exception{
+        AsyncReadResolver resolver=new AsyncReadResolver(1,2,16,0.5d,null,new RollForwardStatus(),GreenLight.INSTANCE,mockResolver(0d));
+        try{
+            ReadResolver rr=resolver.getResolver(mockRegion(),null);
+            for(byte i=0;i<4;i++){
+                rr.resolve(ByteSlice.wrap(new byte[]{i}),0x100l);
+            }
+            Assert.assertEquals("Incorrect submitted count!",2l,resolver.getTotalSubmitted());
+            Assert.assertEquals("Incorrect dropped count!",2l,resolver.getTotalDropped());
+        }finally{
+            resolver.shutdown();
+        }
+    }
+
+    @Test
+    public void testStopsResolvingUnderWritePressure() throws Exception{
+        KeyedReadResolver keyed=mockResolver(0.5d);
+        AsyncReadResolver resolver=new AsyncReadResolver(1,64,16,0.5d,null,new RollForwardStatus(),GreenLight.INSTANCE,keyed);
+        try{
+            ReadResolver rr=resolver.getResolver(mockRegion(),null);
+            for(byte i=0;i<4;i++){
+                rr.resolve(ByteSlice.wrap(new byte[]{i}),0x100l);
+            }
+            resolver.start();
+            waitForQueue(resolver);
+            Assert.assertEquals("Incorrect throttled count!",4l,resolver.getTotalThrottled());
+            Assert.assertEquals("Incorrect resolved count!",0l,resolver.getTotalResolved());
+            verify(keyed,never()).resolveAll(any(Partition.class),any(byte[][].class),any(long[].class),anyInt(),
+                    any(TxnSupplier.class),any(RollForwardStatus.class),anyBoolean(),any(TrafficControl.class));
+        }finally{
+            resolver.shutdown();
+        }
+    }
+
+    @Test
+    public void testResolvesPartOfBatchUnderModeratePressure() throws Exception{
+        KeyedReadResolver keyed=mockResolver(0.375d);
+        AsyncReadResolver resolver=new AsyncReadResolver(1,64,16,0.5d,null,new RollForwardStatus(),GreenLight.INSTANCE,keyed);
+        try{
+            ReadResolver rr=resolver.getResolver(mockRegion(),null);
+            for(byte i=0;i<4;i++){
+                rr.resolve(ByteSlice.wrap(new byte[]{i}),0x100l);
+            }
+            resolver.start();
+            waitForQueue(resolver);
+            Assert.assertEquals("Incorrect throttled count!",2l,resolver.getTotalThrottled());
+            Assert.assertEquals("Incorrect resolved count!",2l,resolver.getTotalResolved());
+        }finally{
+            resolver.shutdown();
+        }
+    }
+
+    @Test
+    public void testThrottledRowsCanBeQueuedAgain() throws Exception{
+        AsyncReadResolver resolver=new AsyncReadResolver(1,64,16,0.5d,null,new RollForwardStatus(),GreenLight.INSTANCE,mockResolver(0.5d));
+        try{
+            ReadResolver rr=resolver.getResolver(mockRegion(),null);
+            rr.resolve(ByteSlice.wrap(new byte[]{1}),0x100l);
+            resolver.start();
+            waitForQueue(resolver);
+            Assert.assertEquals("Incorrect throttled count!",1l,resolver.getTotalThrottled());
+
+            rr.resolve(ByteSlice.wrap(new byte[]{1}),0x100l);
+            Assert.assertEquals("Throttled row was not queued again!",2l,resolver.getTotalSubmitted());
+            Assert.assertEquals("Throttled row should not be deduplicated!",0l,resolver.getTotalDeduplicated());
+        }finally{
+            resolver.shutdown();
+        }
+    }
+
+    @Test
+    public void testUnresolvedRowsCanBeQueuedAgain() throws Exception{
+        KeyedReadResolver keyed=mock(KeyedReadResolver.class);
+        when(keyed.writePressure(any(Partition.class))).thenReturn(0d);
+        //e.g. the transaction is still active, so nothing can be resolved
+        when(keyed.resolveAll(any(Partition.class),any(byte[][].class),any(long[].class),anyInt(),
+                any(TxnSupplier.class),any(RollForwardStatus.class),anyBoolean(),any(TrafficControl.class))).thenReturn(0);
+        AsyncReadResolver resolver=new AsyncReadResolver(1,64,16,0.5d,null,new RollForwardStatus(),GreenLight.INSTANCE,keyed);
+        try{
+            ReadResolver rr=resolver.getResolver(mockRegion(),null);
+            rr.resolve(ByteSlice.wrap(new byte[]{1}),0x100l);
+            rr.resolve(ByteSlice.wrap(new byte[]{2}),0x100l);
+            resolver.start();
+            long stop=System.currentTimeMillis()+10000;
+            while(resolver.getTotalBatches()<1){
+                Assert.assertTrue("Read resolution did not finish in time!",System.currentTimeMillis()<stop);
+                Thread.sleep(10);
+            }
+
+            rr.resolve(ByteSlice.wrap(new byte[]{1}),0x100l);
+            rr.resolve(ByteSlice.wrap(new byte[]{2}),0x100l);
+            Assert.assertEquals("Unresolved rows were not queued again!",4l,resolver.getTotalSubmitted());
+            Assert.assertEquals("Unresolved rows should not be deduplicated!",0l,resolver.getTotalDeduplicated());
+        }finally{
+            resolver.shutdown();
+        }
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private static Partition mockRegion(){
+        Partition region=mock(Partition.class);
+        when(region.getName()).thenReturn("region");
+        return region;
+    }
+
+    private static KeyedReadResolver mockResolver(double writePressure){
+        KeyedReadResolver keyed=mock(KeyedReadResolver.class);
+        when(keyed.writePressure(any(Partition.class))).thenReturn(writePressure);
+        when(keyed.resolveAll(any(Partition.class),any(byte[][].class),any(long[].class),anyInt(),
+                any(TxnSupplier.class),any(RollForwardStatus.class),anyBoolean(),any(TrafficControl.class)))
+                .thenAnswer(new Answer<Integer>(){
+                    @Override
+                    public Integer answer(InvocationOnMock invocation) throws Throwable{
+                        return (Integer)invocation.getArguments()[3];
+                    }
+                });
+        return keyed;
+    }
+
+    private static void waitForQueue(AsyncReadResolver resolver) throws InterruptedException{
+        long stop=System.currentTimeMillis()+10000;
+        while(resolver.getTotalResolved()+resolver.getTotalThrottled()<resolver.getTotalSubmitted()){
+            Assert.assertTrue("Read resolution did not finish in time!",System.currentTimeMillis()<stop);
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2012 - 2018 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.si.impl;
+
+import com.splicemachine.concurrent.IncrementingClock;
+import com.splicemachine.encoding.Encoding;
+import com.splicemachine.primitives.Bytes;
+import com.splicemachine.si.api.data.TxnOperationFactory;
+import com.splicemachine.si.api.txn.Txn;
+import com.splicemachine.si.api.txn.TxnSupplier;
+import com.splicemachine.si.api.txn.TxnView;
+import com.splicemachine.si.constants.SIConstants;
+import com.splicemachine.si.impl.readresolve.NoOpReadResolver;
+import com.splicemachine.si.impl.store.ActiveTxnCacheSupplier;
+import com.splicemachine.si.impl.store.CompletedTxnCacheSupplier;
+import com.splicemachine.si.impl.store.SharedActiveTxnCache;
+import com.splicemachine.si.impl.store.TestingTimestampSource;
+import com.splicemachine.si.impl.store.TestingTxnStore;
+import com.splicemachine.si.impl.txn.CommittedTxn;
+import com.splicemachine.si.impl.txn.InheritingTxnView;
+import com.splicemachine.si.testenv.SITestEnvironment;
+import com.splicemachine.storage.DataCell;
+import com.splicemachine.storage.DataPut;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures the cost of filtering a full-table scan's worth of cells through {@link SimpleTxnFilter}, comparing
+ * cell-at-a-time filtering with a private active transaction cache against row-at-a-time filtering through
+ * a shared cache.
+ *
+ * This is not a unit test; run it by hand (with a test data environment on the classpath) when changing the
+ * filter's hot path.
+ */
+public class SimpleTxnFilterMicroBenchmark{
+    private static final int NUM_ROWS=1<<16;
+    private static final int NUM_WRITERS=64;
+    private static final int WARMUP_ITERATIONS=10;
+    private static final int ITERATIONS=20;
+
+    public static void main(String...args) throws IOException{
+        TxnOperationFactory opFactory=SITestEnvironment.loadTestDataEnvironment().getOperationFactory();
+        TestingTxnStore txnStore=new TestingTxnStore(new IncrementingClock(),new TestingTimestampSource(),null,Long.MAX_VALUE);
+        TxnSupplier baseSupplier=new CompletedTxnCacheSupplier(txnStore,1024,4);
+
+        /*
+         * Each row is a commit timestamp and a user data cell, written by one of a handful of transactions
+         * which have all committed; this is the common shape of a scan over read-resolved data
+         */
+        List<List<DataCell>> rows=new ArrayList<>(NUM_ROWS);
+        for(int i=0;i<NUM_ROWS;i++){
+            long txnId=(i%NUM_WRITERS+1)*0x100l;
+            TxnView writer=new CommittedTxn(txnId,txnId+0x10l);
+            baseSupplier.cache(writer);
+            DataPut put=opFactory.newDataPut(writer,Encoding.encode(i));
+            put.addCell(SIConstants.DEFAULT_FAMILY_BYTES,SIConstants.SNAPSHOT_ISOLATION_COMMIT_TIMESTAMP_COLUMN_BYTES,txnId,Bytes.toBytes(txnId+0x10l));
+            put.addCell(SIConstants.DEFAULT_FAMILY_BYTES,SIConstants.PACKED_COLUMN_BYTES,txnId,Encoding.encode("row"+i));
+            List<DataCell> row=new ArrayList<>(2);
+            for(DataCell cell:put.cells()){
+                row.add(cell);
+            }
+            rows.add(row);
+        }
+        TxnView reader=new InheritingTxnView(Txn.ROOT_TRANSACTION,0x100000l,0x100000l,Txn.IsolationLevel.SNAPSHOT_ISOLATION,Txn.State.ACTIVE);
+        SharedActiveTxnCache sharedCache=new SharedActiveTxnCache(1024);
+
+        for(int i=0;i<WARMUP_ITERATIONS;i++){
+            cellAtATime(rows,new SimpleTxnFilter(null,reader,NoOpReadResolver.INSTANCE,new ActiveTxnCacheSupplier(baseSupplier,1024)));
+            rowAtATime(rows,new SimpleTxnFilter(null,reader,NoOpReadResolver.INSTANCE,baseSupplier,sharedCache,false));
+        }
+
+        long cellTime=0l;
+        long rowTime=0l;
+        long visible=0l;
+        for(int i=0;i<ITERATIONS;i++){
+            long start=System.nanoTime();
+            visible+=cellAtATime(rows,new SimpleTxnFilter(null,reader,NoOpReadResolver.INSTANCE,new ActiveTxnCacheSupplier(baseSupplier,1024)));
+            cellTime+=System.nanoTime()-start;
+
+            start=System.nanoTime();
+            visible+=rowAtATime(rows,new SimpleTxnFilter(null,reader,NoOpReadResolver.INSTANCE,baseSupplier,sharedCache,false));
+            rowTime+=System.nanoTime()-start;
+        }
+        //print this out so that the loops don't get optimized away
+        System.out.printf("visible=%d%n",visible);
+        System.out.printf("cell-at-a-time: %.2f ns/row%n",(double)cellTime/ITERATIONS/NUM_ROWS);
+        System.out.printf("row-at-a-time:  %.2f ns/row%n",(double)rowTime/ITERATIONS/NUM_ROWS);
+    }
+
+    private static long cellAtATime(List<List<DataCell>> rows,SimpleTxnFilter filter) throws IOException{
+        long visible=0l;
+        nextRow:
+        for(List<DataCell> row:rows){
+            filter.nextRow();
+            for(DataCell cell:row){
+                switch(filter.filterCell(cell)){
+                    case NEXT_ROW:
+                        continue nextRow;
+                    case INCLUDE:
+                        visible++;
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+        return visible;
+    }
+
+    private static long rowAtATime(List<List<DataCell>> rows,SimpleTxnFilter filter) throws IOException{
+        long visible=0l;
+        for(List<DataCell> row:rows){
+            int count=filter.filterCells(row,null);
+            if(count>0)
+                visible+=count;
+        }
+        return visible;
+    }
+}
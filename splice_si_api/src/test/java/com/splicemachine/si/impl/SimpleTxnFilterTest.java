@@ -27,6 +27,7 @@ import com.splicemachine.si.constants.SIConstants;
 import com.splicemachine.si.impl.readresolve.NoOpReadResolver;
 import com.splicemachine.si.impl.store.ActiveTxnCacheSupplier;
 import com.splicemachine.si.impl.store.CompletedTxnCacheSupplier;
+import com.splicemachine.si.impl.store.SharedActiveTxnCache;
 import com.splicemachine.si.impl.store.TestingTimestampSource;
 import com.splicemachine.si.impl.store.TestingTxnStore;
 import com.splicemachine.si.impl.txn.*;
@@ -48,8 +49,12 @@ import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
 import static org.mockito.Matchers.anyLong;
 import static org.mockito.Mockito.*;
 
@@ -273,8 +278,108 @@ public class SimpleTxnFilterTest{
         assertRolledBack(baseStore,rolledBackTxn);
     }
 
+    @Test
+    public void testFilterCellsHidesTombstonedRow() throws Exception{
+        TxnSupplier baseStore=txnSupplier;
+        TxnView inserted=new CommittedTxn(0x100l,0x200l);
+        TxnView deleted=new CommittedTxn(0x300l,0x400l);
+        baseStore.cache(inserted);
+        baseStore.cache(deleted);
+
+        TxnView myTxn=new InheritingTxnView(Txn.ROOT_TRANSACTION,0x500l,0x500l,Txn.IsolationLevel.SNAPSHOT_ISOLATION,Txn.State.ACTIVE);
+        SimpleTxnFilter filter=new SimpleTxnFilter(null,myTxn,NoOpReadResolver.INSTANCE,baseStore);
+
+        DataPut tombstonePut=operationFactory.newDataPut(deleted,Encoding.encode("1"));
+        tombstonePut.addCell(SIConstants.DEFAULT_FAMILY_BYTES,SIConstants.SNAPSHOT_ISOLATION_TOMBSTONE_COLUMN_BYTES,deleted.getTxnId(),new byte[]{});
+        DataCell tombstone=tombstonePut.cells().iterator().next();
+        Assert.assertEquals("Incorrect data type!",CellType.TOMBSTONE,tombstone.dataType());
+        DataCell userCell=getUserCell(inserted);
+
+        List<DataCell> visible=new ArrayList<>();
+        Assert.assertEquals("Row should be hidden by the tombstone!",-1,filter.filterCells(Arrays.asList(tombstone,userCell),visible));
+
+        //the tombstone must not carry over into the next row
+        Assert.assertEquals("Incorrect visible count!",1,filter.filterCells(Arrays.asList(userCell),visible));
+        Assert.assertEquals("Incorrect visible cells!",Arrays.asList(userCell),visible);
+    }
+
+    @Test
+    public void testSharedActiveTxnCacheOnlyServesOlderReaders() throws Exception{
+        TxnView active=new WritableTxn(0x200l,0x200l,null,Txn.IsolationLevel.SNAPSHOT_ISOLATION,Txn.ROOT_TRANSACTION,mock(TxnLifecycleManager.class),false,exceptionFactory);
+        TxnSupplier baseStore=mock(TxnSupplier.class);
+        when(baseStore.getTransaction(anyLong(),anyBoolean())).thenReturn(active);
+        SharedActiveTxnCache cache=new SharedActiveTxnCache(1024);
+        DataCell userCell=getUserCell(active);
+
+        SimpleTxnFilter first=new SimpleTxnFilter(null,readerAt(0x300l),NoOpReadResolver.INSTANCE,baseStore,cache,false);
+        Assert.assertEquals("Should not see an active transaction!",0,first.filterCells(Arrays.asList(userCell),null));
+        verify(baseStore,times(1)).getTransaction(0x200l,false);
+
+        //a reader which began earlier can reuse the entry
+        SimpleTxnFilter older=new SimpleTxnFilter(null,readerAt(0x250l),NoOpReadResolver.INSTANCE,baseStore,cache,false);
+        Assert.assertEquals("Should not see an active transaction!",0,older.filterCells(Arrays.asList(userCell),null));
+        verify(baseStore,times(1)).getTransaction(0x200l,false);
+
+        //but a reader which began later must look again, since the transaction may have committed in between
+        SimpleTxnFilter newer=new SimpleTxnFilter(null,readerAt(0x400l),NoOpReadResolver.INSTANCE,baseStore,cache,false);
+        Assert.assertEquals("Should not see an active transaction!",0,newer.filterCells(Arrays.asList(userCell),null));
+        verify(baseStore,times(2)).getTransaction(0x200l,false);
+    }
+
+    @Test
+    public void testFilterCellsFetchesMissingTransactionsInOneCall() throws Exception{
+        final TxnView first=getMockCommittedTxn(0x100l,0x150l,null);
+        final TxnView second=getMockCommittedTxn(0x200l,0x250l,null);
+        TxnSupplier baseStore=mock(TxnSupplier.class);
+        when(baseStore.getTransactions(any(long[].class))).thenAnswer(new Answer<TxnView[]>(){
+            @Override
+            public TxnView[] answer(InvocationOnMock invocationOnMock) throws Throwable{
+                long[] txnIds=(long[])invocationOnMock.getArguments()[0];
+                TxnView[] txns=new TxnView[txnIds.length];
+                for(int i=0;i<txnIds.length;i++){
+                    txns[i]=txnIds[i]==first.getTxnId()?first:second;
+                }
+                return txns;
+            }
+        });
+        SimpleTxnFilter filter=new SimpleTxnFilter(null,readerAt(0x300l),NoOpReadResolver.INSTANCE,
+                new CompletedTxnCacheSupplier(baseStore,16,1));
+
+        List<DataCell> row=Arrays.asList(getUserCell(second),getUserCell(first));
+        Assert.assertEquals("Should see both versions!",2,filter.filterCells(row,null));
+        verify(baseStore,times(1)).getTransactions(any(long[].class));
+        verify(baseStore,never()).getTransaction(anyLong());
+        verify(baseStore,never()).getTransaction(anyLong(),anyBoolean());
+    }
+
+    @Test
+    public void testOnlyUnresolvedRowsMissTheCache() throws Exception{
+        TxnView unresolved=getMockCommittedTxn(0x200l,0x250l,null);
+        TxnSupplier baseStore=mock(TxnSupplier.class);
+        when(baseStore.getTransaction(anyLong())).thenReturn(unresolved);
+        when(baseStore.getTransaction(anyLong(),anyBoolean())).thenReturn(unresolved);
+        SimpleTxnFilter filter=new SimpleTxnFilter(null,readerAt(0x300l),NoOpReadResolver.INSTANCE,
+                new CompletedTxnCacheSupplier(baseStore,16,1));
+
+        //a read-resolved row carries its own commit timestamp, so it never goes to the store
+        TxnView resolved=new CommittedTxn(0x100l,0x150l);
+        DataPut commitPut=operationFactory.newDataPut(resolved,Encoding.encode("1"));
+        commitPut.addCell(SIConstants.DEFAULT_FAMILY_BYTES,SIConstants.SNAPSHOT_ISOLATION_COMMIT_TIMESTAMP_COLUMN_BYTES,resolved.getTxnId(),Bytes.toBytes(0x150l));
+        DataCell commitCell=commitPut.cells().iterator().next();
+        Assert.assertEquals("Should see the resolved version!",1,filter.filterCells(Arrays.asList(commitCell,getUserCell(resolved)),null));
+        Assert.assertEquals("Resolved row should not miss the cache!",0l,filter.getTxnCacheMisses());
+        verify(baseStore,never()).getTransaction(anyLong(),anyBoolean());
+
+        Assert.assertEquals("Should see the unresolved version!",1,filter.filterCells(Arrays.asList(getUserCell(unresolved)),null));
+        Assert.assertEquals("Unresolved row should miss the cache!",1l,filter.getTxnCacheMisses());
+    }
+
     /* ****************************************************************************************************************/
     /*private helper methods*/
+    private TxnView readerAt(long beginTs){
+        return new InheritingTxnView(Txn.ROOT_TRANSACTION,beginTs,beginTs,Txn.IsolationLevel.SNAPSHOT_ISOLATION,Txn.State.ACTIVE);
+    }
+
     private ReadResolver getRollBackReadResolver(final Pair<ByteSlice, Long> rolledBackTs){
         ReadResolver resolver=mock(ReadResolver.class);
         when(resolver.enabled()).thenReturn(true);
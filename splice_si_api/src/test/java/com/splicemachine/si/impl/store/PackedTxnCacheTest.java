@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2012 - 2018 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.si.impl.store;
+
+import com.splicemachine.si.api.txn.Txn;
+import com.splicemachine.si.api.txn.TxnView;
+import com.splicemachine.si.impl.txn.CommittedTxn;
+import com.splicemachine.si.impl.txn.InheritingTxnView;
+import com.splicemachine.si.impl.txn.RolledBackTxn;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import static com.splicemachine.si.impl.TxnTestUtils.assertTxnsMatch;
+
+/**
+ * Tests for the packing and eviction behavior of {@link PackedTxnCache}.
+ */
+@Category(ArchitectureIndependent.class)
+public class PackedTxnCacheTest{
+
+    @Test
+    public void testCommittedTransactionRoundTrips() throws Exception{
+        PackedTxnCache cache=new PackedTxnCache(16,1);
+        TxnView committed=new InheritingTxnView(Txn.ROOT_TRANSACTION,0x100l,0x100l,
+                Txn.IsolationLevel.READ_COMMITTED,
+                true,true,
+                true,false,
+                0x200l,0x200l,
+                Txn.State.COMMITTED);
+
+        cache.put(committed);
+        Assert.assertTrue("Cache does not think it is present!",cache.containsKey(0x100l));
+        TxnView fromCache=cache.get(0x100l);
+        assertTxnsMatch("Transaction from cache is not correct!",committed,fromCache);
+        Assert.assertEquals("Incorrect effective commit timestamp!",0x200l,fromCache.getEffectiveCommitTimestamp());
+        Assert.assertEquals("Incorrect effective state!",Txn.State.COMMITTED,fromCache.getEffectiveState());
+        Assert.assertFalse("Incorrect writable flag!",fromCache.allowsWrites());
+    }
+
+    @Test
+    public void testRolledBackTransactionRoundTrips() throws Exception{
+        PackedTxnCache cache=new PackedTxnCache(16,1);
+        TxnView rolledBack=new RolledBackTxn(0x100l);
+
+        cache.put(rolledBack);
+        TxnView fromCache=cache.get(0x100l);
+        assertTxnsMatch("Transaction from cache is not correct!",rolledBack,fromCache);
+        Assert.assertEquals("Incorrect effective state!",Txn.State.ROLLEDBACK,fromCache.getEffectiveState());
+    }
+
+    @Test
+    public void testOnlyPacksFinishedTopLevelTransactions() throws Exception{
+        TxnView parent=new CommittedTxn(0x100l,0x300l);
+        TxnView child=new InheritingTxnView(parent,0x200l,0x200l,null,
+                false,false,false,false,0x250l,-1l,Txn.State.COMMITTED);
+        TxnView active=new InheritingTxnView(Txn.ROOT_TRANSACTION,0x400l,0x400l,Txn.IsolationLevel.SNAPSHOT_ISOLATION,Txn.State.ACTIVE);
+
+        Assert.assertTrue("Should pack a committed transaction!",PackedTxnCache.canPack(parent));
+        Assert.assertFalse("Should not pack a child transaction!",PackedTxnCache.canPack(child));
+        Assert.assertFalse("Should not pack an active transaction!",PackedTxnCache.canPack(active));
+    }
+
+    @Test
+    public void testEvictsWhenFull() throws Exception{
+        PackedTxnCache cache=new PackedTxnCache(8,1);
+        for(long i=1;i<=100;i++){
+            cache.put(new CommittedTxn(i*0x100l,i*0x100l+1));
+            Assert.assertTrue("Cache grew too large!",cache.size()<=8);
+        }
+        Assert.assertEquals("Incorrect eviction count!",92l,cache.evictionCount());
+        TxnView last=cache.get(100*0x100l);
+        Assert.assertNotNull("Most recent entry should be present!",last);
+        Assert.assertEquals("Incorrect commit timestamp!",100*0x100l+1,last.getCommitTimestamp());
+    }
+}
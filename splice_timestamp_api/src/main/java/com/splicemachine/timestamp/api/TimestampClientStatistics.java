@@ -29,5 +29,11 @@ public interface TimestampClientStatistics{
 	long getNumberTimestampRequests();
 	
  	double getAvgTimestampRequestDuration();
+
+	/**
+	 * @return the number of requests sent to the timestamp server, each of which may be
+	 * shared by several concurrent callers
+	 */
+	long getNumberServerRequests();
 	
 }
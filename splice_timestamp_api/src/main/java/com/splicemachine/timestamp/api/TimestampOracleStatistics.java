@@ -41,5 +41,14 @@ public interface TimestampOracleStatistics{
      * @return number of timestamp blocks reserved
      */
     long getNumberBlocksReserved();
+
+    /**
+     * Returns the number of times a caller had to wait for a timestamp
+     * block to be reserved, because the blocks which had been reserved
+     * in the background were used up.
+     *
+     * @return number of times timestamp creation waited on a reservation
+     */
+    long getNumberReservationStalls();
 	
 }
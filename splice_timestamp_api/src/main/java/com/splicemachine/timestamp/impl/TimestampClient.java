@@ -16,7 +16,10 @@ package com.splicemachine.timestamp.impl;
 
 import java.lang.management.ManagementFactory;
 import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
@@ -35,7 +38,6 @@ import org.jboss.netty.channel.socket.nio.NioClientSocketChannelFactory;
 import org.jboss.netty.handler.codec.frame.FixedLengthFrameDecoder;
 import org.spark_project.guava.util.concurrent.ThreadFactoryBuilder;
 import com.splicemachine.concurrent.CountDownLatches;
-import com.splicemachine.timestamp.api.Callback;
 import com.splicemachine.timestamp.api.TimestampClientStatistics;
 import com.splicemachine.timestamp.api.TimestampHostProvider;
 import com.splicemachine.timestamp.api.TimestampIOException;
@@ -48,6 +50,13 @@ import org.apache.log4j.Logger;
  * For the caller, the invocation of {@link #getNextTimestamp()}
  * is synchronous.
  * <p>
+ * Callers which arrive while a request is outstanding are gathered into a
+ * batch, which is sent as a single request for as many timestamps as it has
+ * callers once the outstanding request is answered. The server hands back a
+ * contiguous range, which is split across the batch. Since a batch stops
+ * taking callers when it is sent, every timestamp is still created after
+ * the caller who gets it asked for it.
+ * <p>
  * This class should generally not be constructed directly.
  *
  * @author Walt Koetke
@@ -59,6 +68,11 @@ public class TimestampClient extends TimestampBaseHandler implements TimestampCl
 
     private static final short CLIENT_COUNTER_INIT = 100; // actual value doesn't matter
 
+    /**
+     * The most callers which can share a single request to the server.
+     */
+    private static final int MAX_BATCH_SIZE = 1024;
+
     /**
      * Fixed number of bytes in the message we expect to receive back from the server.
      */
@@ -69,10 +83,16 @@ public class TimestampClient extends TimestampBaseHandler implements TimestampCl
     }
 
     /**
-     * A map representing all currently active callers to this TimestampClient
+     * A map representing all currently active batches of callers to this TimestampClient
      * waiting for their response.
      */
-    private ConcurrentMap<Short, Callback> clientCallbacks = null;
+    private ConcurrentMap<Short, Batch> clientCallbacks = null;
+
+    private final Object batchLock = new Object();
+    // Callers whose request has not been sent yet. Guarded by batchLock
+    private Batch pendingBatch;
+    // The number of batches which have been sent, but not answered. Guarded by batchLock
+    private int batchesInFlight;
 
     private final AtomicReference<State> state = new AtomicReference<>(State.DISCONNECTED);
 
@@ -81,7 +101,7 @@ public class TimestampClient extends TimestampBaseHandler implements TimestampCl
     private NioClientSocketChannelFactory factory;
 
     /**
-     * Internal unique identifier for a single synchronous call to this instance
+     * Internal unique identifier for a single request from this instance
      * of {@link TimestampClient}. Necessary in order to subsequently associate
      * a server response with the original request. Although this is an atomic integer,
      * we consume it internally as a short so that we only pass two bytes (not four)
@@ -97,6 +117,7 @@ public class TimestampClient extends TimestampBaseHandler implements TimestampCl
     // for solid definitions of each metric.
     private AtomicLong numRequests = new AtomicLong(0);
     private AtomicLong totalRequestDuration = new AtomicLong(0);
+    private AtomicLong numServerRequests = new AtomicLong(0);
     private TimestampHostProvider timestampHostProvider;
 
 
@@ -219,50 +240,37 @@ public class TimestampClient extends TimestampBaseHandler implements TimestampCl
 
         connectIfNeeded();
 
-        short clientCallId = (short) clientCallCounter.getAndIncrement();
-        final ClientCallback callback = new ClientCallback(clientCallId);
-        SpliceLogUtils.debug(LOG, "Starting new client call with id %s", clientCallId);
-
-        // Add this caller (id and callback) to the map of current clients.
-        // If an entry was already present for this caller id, that is a bug,
-        // so throw an exception.
-        if (clientCallbacks.putIfAbsent(clientCallId, callback) != null) {
-            doClientErrorThrow(LOG, "Found existing client callback with caller id %s, so unable to handle new call.", null, clientCallId);
-        }
-
-        try {
-            ChannelBuffer buffer = ChannelBuffers.buffer(2);
-            buffer.writeShort(clientCallId);
-            SpliceLogUtils.trace(LOG, "Writing request message to server for client: %s", callback);
-            if(channel == null) {
-                throw new TimestampIOException("Unable to connect to TimestampServer");
+        ClientCallback callback;
+        Batch toSend = null;
+        synchronized (batchLock) {
+            if (pendingBatch == null) {
+                pendingBatch = new Batch((short) clientCallCounter.getAndIncrement());
             }
-            ChannelFuture futureWrite = channel.write(buffer);
-            futureWrite.addListener(new ChannelFutureListener() {
-                @Override
-                public void operationComplete(ChannelFuture future) throws Exception {
-                    if (!future.isSuccess()) {
-                        doClientErrorThrow(LOG, "Error writing message from timestamp client to server", future.getCause());
-                    } else {
-                        SpliceLogUtils.trace(LOG, "Request sent. Waiting for response for client: %s", callback);
-                    }
-                }
-            });
-        } catch (Exception e) { // Correct to catch all Exceptions in this case so we can remove client call
-            clientCallbacks.remove(clientCallId);
-            callback.error(e);
-            doClientErrorThrow(LOG, "Exception writing message to timestamp server for client: %s", e, callback);
+            callback = pendingBatch.add();
+            // Send now unless there is a request outstanding, in which case whoever gets its
+            // response sends this batch
+            if (batchesInFlight == 0 || pendingBatch.size() >= MAX_BATCH_SIZE) {
+                toSend = pendingBatch;
+                pendingBatch = null;
+                batchesInFlight++;
+            }
+        }
+        SpliceLogUtils.debug(LOG, "Starting new client call in batch %s", callback.getCallerId());
+        if (toSend != null) {
+            send(toSend);
         }
 
-        // If we get here, request was successfully sent without exception.
-        // However, we might not have received response yet, so we need to
-        // wait for that now.
+        // The request may not have been sent yet, and we might not have
+        // received the response, so we need to wait for that now.
 
         try {
             boolean success = callback.await(timeoutMillis);
             if (!success) {
                 // We timed out, close the channel so that the next request recreates the connection
-                channel.close();
+                Channel c = channel;
+                if (c != null) {
+                    c.close();
+                }
                 
                 doClientErrorThrow(LOG, "Client timed out after %s ms waiting for new timestamp: %s", null, timeoutMillis, callback);
             }
@@ -274,6 +282,9 @@ public class TimestampClient extends TimestampBaseHandler implements TimestampCl
         // which we can fetch now from the callback and send it back to the caller.
 
         long timestamp = callback.getNewTimestamp();
+        if (callback.getException() != null) {
+            doClientErrorThrow(LOG, "Exception requesting timestamp for client: %s", callback.getException(), callback);
+        }
         if (timestamp < 0) {
             doClientErrorThrow(LOG, "Invalid timestamp found for client: %s", null, callback);
         }
@@ -301,15 +312,18 @@ public class TimestampClient extends TimestampBaseHandler implements TimestampCl
         ensureReadableBytes(buf, 0);
 
         SpliceLogUtils.debug(LOG, "Response from server: clientCallerId = %s, timestamp = %s", clientCallerId, timestamp);
-        Callback cb = clientCallbacks.remove(clientCallerId);
-        if (cb == null) {
+        Batch batch = clientCallbacks.remove(clientCallerId);
+        if (batch == null) {
             doClientErrorThrow(LOG, "Client callback with id %s not found, so unable to deliver timestamp %s", null, clientCallerId, timestamp);
         }
 
-        // This releases the latch the original client thread is waiting for
-        // (to provide the synchronous behavior for that caller) and also
-        // provides the timestamp.
-        cb.complete(timestamp);
+        // This releases the latches the batch's client threads are waiting for
+        // (to provide the synchronous behavior for those callers) and also
+        // provides their timestamps.
+        if (batch.finish()) {
+            batch.complete(timestamp);
+            batchFinished();
+        }
 
         super.messageReceived(ctx, e);
     }
@@ -332,9 +346,71 @@ public class TimestampClient extends TimestampBaseHandler implements TimestampCl
             channel=null;
             shouldContinue = !state.compareAndSet(s,State.DISCONNECTED);
         }while(shouldContinue);
+        // Nothing will answer the outstanding requests now
+        for (Batch batch : clientCallbacks.values()) {
+            fail(batch, new TimestampIOException("TimestampClient was disconnected from the server"));
+        }
         connectIfNeeded();
     }
 
+    private void send(final Batch batch) {
+        if (clientCallbacks.putIfAbsent(batch.id, batch) != null) {
+            fail(batch, new TimestampIOException("Found existing client callback with caller id " + batch.id + ", so unable to handle new call."));
+            return;
+        }
+        try {
+            ChannelBuffer buffer = ChannelBuffers.buffer(4);
+            buffer.writeShort(batch.id);
+            buffer.writeShort(batch.size());
+            SpliceLogUtils.trace(LOG, "Writing request message to server for batch: %s", batch);
+            Channel c = channel;
+            if(c == null) {
+                throw new TimestampIOException("Unable to connect to TimestampServer");
+            }
+            numServerRequests.incrementAndGet();
+            ChannelFuture futureWrite = c.write(buffer);
+            futureWrite.addListener(new ChannelFutureListener() {
+                @Override
+                public void operationComplete(ChannelFuture future) throws Exception {
+                    if (!future.isSuccess()) {
+                        fail(batch, new TimestampIOException("Error writing message from timestamp client to server", future.getCause()));
+                    } else {
+                        SpliceLogUtils.trace(LOG, "Request sent. Waiting for response for batch: %s", batch);
+                    }
+                }
+            });
+        } catch (Exception e) { // Correct to catch all Exceptions in this case so we can remove client call
+            fail(batch, e);
+        }
+    }
+
+    private void fail(Batch batch, Exception e) {
+        clientCallbacks.remove(batch.id, batch);
+        if (batch.finish()) {
+            SpliceLogUtils.error(LOG, "Exception requesting timestamps for batch: %s", e, batch);
+            batch.error(e);
+            batchFinished();
+        }
+    }
+
+    /**
+     * Send the callers which have gathered while a request was outstanding.
+     */
+    private void batchFinished() {
+        Batch next;
+        synchronized (batchLock) {
+            batchesInFlight--;
+            next = pendingBatch;
+            if (next != null) {
+                pendingBatch = null;
+                batchesInFlight++;
+            }
+        }
+        if (next != null) {
+            send(next);
+        }
+    }
+
     @Override
     protected void doError(String message, Throwable t, Object... args) {
         SpliceLogUtils.error(LOG, message, t, args);
@@ -363,6 +439,11 @@ public class TimestampClient extends TimestampBaseHandler implements TimestampCl
         return a / b;
     }
 
+    @Override
+    public long getNumberServerRequests() {
+        return numServerRequests.get();
+    }
+
     @Override
     public void exceptionCaught(ChannelHandlerContext ctx, ExceptionEvent e) throws Exception {
         if(state.get() != State.SHUTDOWN) {
@@ -370,6 +451,55 @@ public class TimestampClient extends TimestampBaseHandler implements TimestampCl
         }
     }
 
+    /**
+     * The callers which share a single request to the server.
+     */
+    private static final class Batch {
+        final short id;
+        private final List<ClientCallback> callbacks = new ArrayList<>();
+        private final AtomicBoolean finished = new AtomicBoolean(false);
+
+        Batch(short id) {
+            this.id = id;
+        }
+
+        ClientCallback add() {
+            ClientCallback callback = new ClientCallback(id);
+            callbacks.add(callback);
+            return callback;
+        }
+
+        int size() {
+            return callbacks.size();
+        }
+
+        /**
+         * @return true for the first caller only, who must then complete or fail the batch
+         */
+        boolean finish() {
+            return finished.compareAndSet(false, true);
+        }
+
+        void complete(long firstTimestamp) {
+            long timestamp = firstTimestamp;
+            for (ClientCallback callback : callbacks) {
+                callback.complete(timestamp);
+                timestamp += TimestampOracle.TIMESTAMP_INCREMENT;
+            }
+        }
+
+        void error(Exception e) {
+            for (ClientCallback callback : callbacks) {
+                callback.error(e);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "Batch (callerId = " + id + ", size = " + callbacks.size() + ")";
+        }
+    }
+
     public static void doClientErrorThrow(Logger logger, String message, Throwable t, Object... args) throws TimestampIOException {
         if (message == null) message = "";
         TimestampIOException t1 = t != null ? new TimestampIOException(message, t) : new TimestampIOException(message);
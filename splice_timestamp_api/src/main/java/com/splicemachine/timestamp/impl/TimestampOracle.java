@@ -19,7 +19,11 @@ import com.splicemachine.timestamp.api.TimestampIOException;
 import com.splicemachine.timestamp.api.TimestampOracleStatistics;
 import com.splicemachine.utils.SpliceLogUtils;
 import org.apache.log4j.Logger;
+import org.spark_project.guava.util.concurrent.ThreadFactoryBuilder;
 import java.lang.management.ManagementFactory;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import javax.management.InstanceAlreadyExistsException;
 import javax.management.MBeanRegistrationException;
@@ -28,17 +32,35 @@ import javax.management.MalformedObjectNameException;
 import javax.management.NotCompliantMBeanException;
 import javax.management.ObjectName;
 
+/**
+ * Hands out timestamps from blocks which have been durably reserved through the {@link TimestampBlockManager}.
+ * <p>
+ * The next block is reserved in the background once half of the current one has been handed out, so that
+ * in steady state there is always a reserved block ahead of the counter and issuing a timestamp never waits
+ * on storage. A caller only stalls when the counter runs past the reserved maximum before the reservation
+ * completes; {@link #getNumberReservationStalls()} counts how often that happens.
+ */
 public class TimestampOracle implements TimestampOracleStatistics{
-	private static final long TIMESTAMP_INCREMENT = 0x100l;
+	// The distance between consecutive timestamps, which clients also need to split up a range of them
+	static final long TIMESTAMP_INCREMENT = 0x100l;
 
     private static final Logger LOG = Logger.getLogger(TimestampOracle.class);
 
 	// Contains the next timestamp value to be returned to caller use
 	private final AtomicLong _timestampCounter = new AtomicLong(0l);
 	
-	// Maximum timestamp that we can feed before reserving another block
+	// Maximum timestamp that we can feed before reserving another block. Only changes
+	// while holding this object's monitor, and waiters are notified when it does
 	private volatile long _maxReservedTimestamp = -1l;
 
+	// Whether a reservation is queued or running on the reserver thread
+	private final AtomicBoolean _reserving = new AtomicBoolean(false);
+	private final ExecutorService _reserver = Executors.newSingleThreadExecutor(
+			new ThreadFactoryBuilder().setNameFormat("timestampBlockReserver-%d").setDaemon(true).build());
+	// Guarded by this object's monitor
+	private long _numReservationFailures;
+	private TimestampIOException _lastReservationFailure;
+
 	// Singleton instance, used by TimestampServerHandler
 	private static volatile TimestampOracle _instance;
 	
@@ -46,9 +68,12 @@ public class TimestampOracle implements TimestampOracleStatistics{
 	// for solid definitions of each metric.
     private AtomicLong _numBlocksReserved = new AtomicLong(0);
     private AtomicLong _numTimestampsCreated = new AtomicLong(0);
+    private AtomicLong _numReservationStalls = new AtomicLong(0);
 
     private TimestampBlockManager timestampBlockManager;
     private long blockSize;
+    // Reserve the next block once fewer than this many timestamps are left in the current one
+    private long lowWaterMark;
 
     public static TimestampOracle getInstance(TimestampBlockManager timestampBlockManager, int blockSize) throws TimestampIOException{
 		TimestampOracle to = _instance;
@@ -64,9 +89,11 @@ public class TimestampOracle implements TimestampOracleStatistics{
 		return to;
 	}
 	
-	private TimestampOracle(TimestampBlockManager timestampBlockManager, int blockSize) throws TimestampIOException {
+	// Visible for testing; everybody else shares the instance from getInstance()
+	TimestampOracle(TimestampBlockManager timestampBlockManager, int blockSize) throws TimestampIOException {
         this.timestampBlockManager=timestampBlockManager;
         this.blockSize = blockSize * TIMESTAMP_INCREMENT;
+        this.lowWaterMark = this.blockSize / 2;
 		initialize();
 	}
 
@@ -88,24 +115,87 @@ public class TimestampOracle implements TimestampOracleStatistics{
     }
 
 	public long getNextTimestamp() throws TimestampIOException {
-		long nextTS = _timestampCounter.addAndGet(TIMESTAMP_INCREMENT);
+		return getNextTimestamps(1);
+	}
+
+	/**
+	 * Hand out {@code count} consecutive timestamps at once, {@link #TIMESTAMP_INCREMENT} apart.
+	 *
+	 * @return the first timestamp of the range
+	 */
+	public long getNextTimestamps(int count) throws TimestampIOException {
+		assert count > 0 : "Cannot hand out an empty range of timestamps";
+		long lastTS = _timestampCounter.addAndGet(count * TIMESTAMP_INCREMENT);
 		long maxTS = _maxReservedTimestamp; // avoid the double volatile read
-		if (nextTS > maxTS) {
-			reserveNextBlock(maxTS);
+		if (lastTS > maxTS - lowWaterMark) {
+			requestReservation();
+			if (lastTS > maxTS) {
+				awaitReservation(lastTS);
+			}
 		}
-		_numTimestampsCreated.incrementAndGet(); // JMX metric
-		return nextTS;
+		_numTimestampsCreated.addAndGet(count); // JMX metric
+		return lastTS - (count - 1) * TIMESTAMP_INCREMENT;
 	}
 
-    private void reserveNextBlock(long priorMaxReservedTimestamp) throws TimestampIOException {
-        synchronized(this)  {
-            if (_maxReservedTimestamp > priorMaxReservedTimestamp) return; // some other thread got there first
-            long nextMax = _maxReservedTimestamp + blockSize;
-            timestampBlockManager.reserveNextBlock(nextMax);
-            _maxReservedTimestamp = nextMax;
-            _numBlocksReserved.incrementAndGet(); // JMX metric
-            SpliceLogUtils.debug(LOG, "Next timestamp block reserved with max = %s", _maxReservedTimestamp);
-        }
+	private void requestReservation() {
+		if (!_reserving.compareAndSet(false, true)) return; // already on its way
+		_reserver.execute(new Runnable() {
+			@Override
+			public void run() {
+				reserveNextBlock();
+			}
+		});
+	}
+
+	private void reserveNextBlock() {
+		try {
+			long nextMax = _maxReservedTimestamp + blockSize; // only this thread moves the max
+			timestampBlockManager.reserveNextBlock(nextMax);
+			synchronized (this) {
+				_maxReservedTimestamp = nextMax;
+				notifyAll();
+			}
+			_numBlocksReserved.incrementAndGet(); // JMX metric
+			SpliceLogUtils.debug(LOG, "Next timestamp block reserved with max = %s", nextMax);
+		} catch (Throwable t) {
+			SpliceLogUtils.error(LOG, "Unable to reserve the next timestamp block", t);
+			synchronized (this) {
+				_numReservationFailures++;
+				_lastReservationFailure = t instanceof TimestampIOException ? (TimestampIOException) t
+						: new TimestampIOException("Unable to reserve the next timestamp block", t);
+				notifyAll();
+			}
+			_reserving.set(false);
+			return;
+		}
+		_reserving.set(false);
+		// A large range, or a burst while we were writing, may already have used up the new block
+		if (_timestampCounter.get() > _maxReservedTimestamp - lowWaterMark) {
+			requestReservation();
+		}
+	}
+
+	/**
+	 * Wait until {@code timestamp} has been reserved. This only happens when timestamps are handed out
+	 * faster than blocks can be reserved.
+	 */
+	private void awaitReservation(long timestamp) throws TimestampIOException {
+		_numReservationStalls.incrementAndGet(); // JMX metric
+		synchronized (this) {
+			while (timestamp > _maxReservedTimestamp) {
+				long failures = _numReservationFailures;
+				requestReservation();
+				try {
+					wait();
+				} catch (InterruptedException ie) {
+					Thread.currentThread().interrupt();
+					throw new TimestampIOException("Interrupted waiting for a timestamp block to be reserved", ie);
+				}
+				if (_numReservationFailures != failures) {
+					throw _lastReservationFailure;
+				}
+			}
+		}
 	}
 
 	private void registerJMX() throws MalformedObjectNameException, NotCompliantMBeanException, InstanceAlreadyExistsException, MBeanRegistrationException {
@@ -128,4 +218,9 @@ public class TimestampOracle implements TimestampOracleStatistics{
 	public long getNumberBlocksReserved() {
 		return _numBlocksReserved.get();
 	}
+
+	@Override
+	public long getNumberReservationStalls() {
+		return _numReservationStalls.get();
+	}
 }
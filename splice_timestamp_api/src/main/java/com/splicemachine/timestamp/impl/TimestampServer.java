@@ -31,14 +31,15 @@ public class TimestampServer {
     private static final Logger LOG = Logger.getLogger(TimestampServer.class);
 
     /**
-     * Fixed number of bytes in the message we expect to receive from the client.
+     * Fixed number of bytes in the message we expect to receive from the client. This used to be 2 (the client
+     * id alone), so clients and servers from before batched requests can't talk to each other.
      */
-    static final int FIXED_MSG_RECEIVED_LENGTH = 2; // 2 byte client id
+    static final int FIXED_MSG_RECEIVED_LENGTH = 4; // 2 byte client id + 2 byte number of timestamps
 
     /**
      * Fixed number of bytes in the message we expect to send back to the client.
      */
-    static final int FIXED_MSG_SENT_LENGTH = 10; // 2 byte client id + 8 byte timestamp
+    static final int FIXED_MSG_SENT_LENGTH = 10; // 2 byte client id + 8 byte first timestamp of the range
 
     private int port;
     private ChannelFactory factory;
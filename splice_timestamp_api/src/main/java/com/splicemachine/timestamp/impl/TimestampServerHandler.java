@@ -59,10 +59,15 @@ public class TimestampServerHandler extends TimestampBaseHandler {
         ensureReadableBytes(buf, TimestampServer.FIXED_MSG_RECEIVED_LENGTH);
 
         final short callerId = buf.readShort();
+        ensureReadableBytes(buf, 2);
+        int count = buf.readShort();
         ensureReadableBytes(buf, 0);
+        if (count <= 0) {
+            throw new TimestampIOException("Invalid number of timestamps " + count + " requested by caller id " + callerId);
+        }
 
-        SpliceLogUtils.trace(LOG, "Received timestamp request from client. Caller id = %s", callerId);
-        long nextTimestamp = oracle.getNextTimestamp();
+        SpliceLogUtils.trace(LOG, "Received request for %s timestamps from client. Caller id = %s", count, callerId);
+        long nextTimestamp = oracle.getNextTimestamps(count);
         assert nextTimestamp > 0;
 
 
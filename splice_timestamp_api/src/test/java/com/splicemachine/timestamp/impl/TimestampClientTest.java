@@ -19,9 +19,25 @@ package com.splicemachine.timestamp.impl;
 import com.splicemachine.timestamp.api.TimestampBlockManager;
 import com.splicemachine.timestamp.api.TimestampHostProvider;
 import com.splicemachine.timestamp.api.TimestampIOException;
+import org.jboss.netty.channel.ChannelHandlerContext;
+import org.jboss.netty.channel.MessageEvent;
 import org.junit.Test;
 import org.mockito.Mockito;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.Mockito.when;
 
@@ -55,4 +71,112 @@ public class TimestampClientTest {
         // We make sure the connection is active
         tc.getNextTimestamp();
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testConcurrentCallersShareRequests() throws Exception {
+        TimestampServer ts = new TimestampServer(0, Mockito.mock(TimestampBlockManager.class, Mockito.RETURNS_DEEP_STUBS), 10);
+        ts.startServer();
+        TimestampHostProvider hostProvider = Mockito.mock(TimestampHostProvider.class);
+        when(hostProvider.getHost()).thenReturn("localhost");
+        when(hostProvider.getPort()).thenReturn(ts.getBoundPort());
+        final TimestampClient tc = new TimestampClient(10000, hostProvider);
+
+        int numThreads = 16;
+        final int callsPerThread = 500;
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        try {
+            List<Future<long[]>> futures = new ArrayList<>();
+            for (int t = 0; t < numThreads; t++) {
+                futures.add(executor.submit(new Callable<long[]>() {
+                    @Override
+                    public long[] call() throws Exception {
+                        long[] timestamps = new long[callsPerThread];
+                        for (int i = 0; i < callsPerThread; i++) {
+                            timestamps[i] = tc.getNextTimestamp();
+                        }
+                        return timestamps;
+                    }
+                }));
+            }
+            Set<Long> seen = new HashSet<>();
+            for (Future<long[]> future : futures) {
+                long[] timestamps = future.get();
+                for (int i = 0; i < timestamps.length; i++) {
+                    assertTrue("Timestamps went backwards for a single caller!", i == 0 || timestamps[i] > timestamps[i - 1]);
+                    assertTrue("Timestamp " + timestamps[i] + " was handed out twice!", seen.add(timestamps[i]));
+                }
+            }
+            assertEquals("Incorrect number of timestamps!", numThreads * callsPerThread, seen.size());
+        } finally {
+            executor.shutdownNow();
+            tc.shutdown();
+            ts.stopServer();
+        }
+    }
+
+    @Test
+    public void testCallersWaitingOnAResponseShareTheNextRequest() throws Exception {
+        TimestampServer ts = new TimestampServer(0, Mockito.mock(TimestampBlockManager.class, Mockito.RETURNS_DEEP_STUBS), 10);
+        ts.startServer();
+        TimestampHostProvider hostProvider = Mockito.mock(TimestampHostProvider.class);
+        when(hostProvider.getHost()).thenReturn("localhost");
+        when(hostProvider.getPort()).thenReturn(ts.getBoundPort());
+        final CountDownLatch releaseResponse = new CountDownLatch(1);
+        final AtomicBoolean holdResponse = new AtomicBoolean(false);
+        final TimestampClient tc = new TimestampClient(10000, hostProvider) {
+            @Override
+            public void messageReceived(ChannelHandlerContext ctx, MessageEvent e) throws Exception {
+                // Hold the first response until every caller is waiting on a timestamp
+                if (holdResponse.compareAndSet(true, false))
+                    releaseResponse.await();
+                super.messageReceived(ctx, e);
+            }
+        };
+
+        int numThreads = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        try {
+            tc.getNextTimestamp(); // connect first
+            long requestsBefore = tc.getNumberServerRequests();
+            holdResponse.set(true);
+
+            final List<Thread> callers = new CopyOnWriteArrayList<>();
+            List<Future<Long>> futures = new ArrayList<>();
+            for (int t = 0; t < numThreads; t++) {
+                futures.add(executor.submit(new Callable<Long>() {
+                    @Override
+                    public Long call() throws Exception {
+                        callers.add(Thread.currentThread());
+                        return tc.getNextTimestamp();
+                    }
+                }));
+            }
+            long stop = System.currentTimeMillis() + 10000;
+            while (!allWaiting(callers, numThreads)) {
+                assertTrue("Callers did not block in time!", System.currentTimeMillis() < stop);
+                Thread.sleep(10);
+            }
+            releaseResponse.countDown();
+
+            Set<Long> seen = new HashSet<>();
+            for (Future<Long> future : futures) {
+                assertTrue("Timestamp was handed out twice!", seen.add(future.get()));
+            }
+            // One request for the first caller, and one for everybody who arrived while it was outstanding
+            assertEquals("Waiting callers did not share a request!", 2, tc.getNumberServerRequests() - requestsBefore);
+        } finally {
+            releaseResponse.countDown();
+            executor.shutdownNow();
+            tc.shutdown();
+            ts.stopServer();
+        }
+    }
+
+    private static boolean allWaiting(List<Thread> callers, int numCallers) {
+        if (callers.size() < numCallers) return false;
+        for (Thread caller : callers) {
+            if (caller.getState() != Thread.State.TIMED_WAITING) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,206 @@
+
+/*
+ * Copyright (c) 2012 - 2018 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+
+package com.splicemachine.timestamp.impl;
+
+import com.splicemachine.timestamp.api.TimestampBlockManager;
+import com.splicemachine.timestamp.api.TimestampIOException;
+import org.junit.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.splicemachine.timestamp.impl.TimestampOracle.TIMESTAMP_INCREMENT;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TimestampOracleTest {
+    private static final int BLOCK_SIZE = 10;
+    private static final long BLOCK = BLOCK_SIZE * TIMESTAMP_INCREMENT;
+
+    @Test
+    public void testNeverHandsOutTimestampsAbovePersistedMax() throws Exception {
+        FakeBlockManager blockManager = new FakeBlockManager();
+        TimestampOracle oracle = new TimestampOracle(blockManager, BLOCK_SIZE);
+        long last = 0;
+        for (int i = 0; i < 100; i++) {
+            int count = i % 7 + 1;
+            long first = oracle.getNextTimestamps(count);
+            assertTrue("Timestamps went backwards!", first > last);
+            last = first + (count - 1) * TIMESTAMP_INCREMENT;
+            assertTrue("Timestamp " + last + " is above the persisted max " + blockManager.persistedMax,
+                    last <= blockManager.persistedMax);
+        }
+    }
+
+    @Test
+    public void testReservesNextBlockInTheBackgroundAtLowWaterMark() throws Exception {
+        FakeBlockManager blockManager = new FakeBlockManager();
+        TimestampOracle oracle = new TimestampOracle(blockManager, BLOCK_SIZE);
+        // Nothing is reserved past the initial max, so the first caller has to wait for a block
+        assertEquals("Incorrect first timestamp!", 2 * TIMESTAMP_INCREMENT, oracle.getNextTimestamp());
+        assertEquals("Incorrect number of reservations!", 1, blockManager.reservations.get());
+
+        // Half of the block may be handed out without reserving another one
+        for (long ts = 3 * TIMESTAMP_INCREMENT; ts <= BLOCK / 2; ts += TIMESTAMP_INCREMENT) {
+            assertEquals("Incorrect timestamp!", ts, oracle.getNextTimestamp());
+        }
+        assertEquals("Reserved a block before the low-water mark!", 1, blockManager.reservations.get());
+
+        // Past it, the next block is reserved without making the caller wait for it
+        CountDownLatch gate = blockManager.close();
+        assertEquals("Incorrect timestamp!", BLOCK / 2 + TIMESTAMP_INCREMENT, oracle.getNextTimestamp());
+        gate.countDown();
+        blockManager.awaitReservations(2);
+        assertEquals("Incorrect persisted max!", 2 * BLOCK, blockManager.persistedMax);
+        assertEquals("Caller should not have stalled on the background reservation!", 1, oracle.getNumberReservationStalls());
+    }
+
+    @Test
+    public void testCountsStallsWhenTheCounterOvertakesTheReservation() throws Exception {
+        FakeBlockManager blockManager = new FakeBlockManager();
+        final TimestampOracle oracle = new TimestampOracle(blockManager, BLOCK_SIZE);
+        oracle.getNextTimestamp();
+        assertEquals("Incorrect number of stalls!", 1, oracle.getNumberReservationStalls());
+
+        CountDownLatch gate = blockManager.close();
+        long ts = 0;
+        while (ts < BLOCK) {
+            ts = oracle.getNextTimestamp();
+        }
+        assertEquals("Should not stall within the reserved block!", 1, oracle.getNumberReservationStalls());
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Long> stalled = executor.submit(new Callable<Long>() {
+                @Override
+                public Long call() throws Exception {
+                    return oracle.getNextTimestamp();
+                }
+            });
+            awaitStalls(oracle, 2);
+            assertFalse("Handed out a timestamp which is not reserved!", stalled.isDone());
+
+            gate.countDown();
+            assertEquals("Incorrect timestamp after the stall!", BLOCK + TIMESTAMP_INCREMENT, stalled.get().longValue());
+            assertTrue("Handed out a timestamp above the persisted max!", BLOCK + TIMESTAMP_INCREMENT <= blockManager.persistedMax);
+        } finally {
+            gate.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testFailedReservationReachesWaitingCallers() throws Exception {
+        FakeBlockManager blockManager = new FakeBlockManager();
+        final TimestampOracle oracle = new TimestampOracle(blockManager, BLOCK_SIZE);
+        TimestampIOException failure = new TimestampIOException("Unable to write the max timestamp");
+        blockManager.failure = failure;
+        CountDownLatch gate = blockManager.close();
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Long> waiting = executor.submit(new Callable<Long>() {
+                @Override
+                public Long call() throws Exception {
+                    return oracle.getNextTimestamp();
+                }
+            });
+            awaitStalls(oracle, 1);
+            gate.countDown();
+            try {
+                waiting.get();
+                fail("Expected the reservation failure");
+            } catch (ExecutionException ee) {
+                assertSame("Incorrect failure!", failure, ee.getCause());
+            }
+        } finally {
+            gate.countDown();
+            executor.shutdownNow();
+        }
+
+        // Once storage recovers, the oracle reserves blocks again
+        blockManager.failure = null;
+        assertEquals("Incorrect timestamp after recovering!", 3 * TIMESTAMP_INCREMENT, oracle.getNextTimestamp());
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private static void awaitStalls(TimestampOracle oracle, long stalls) throws InterruptedException {
+        long stop = System.currentTimeMillis() + 10000;
+        while (oracle.getNumberReservationStalls() < stalls) {
+            assertTrue("Caller did not stall in time!", System.currentTimeMillis() < stop);
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * Keeps the max timestamp in memory. Reservations can be held back with {@link #close()}, or made to fail.
+     */
+    private static class FakeBlockManager implements TimestampBlockManager {
+        private final AtomicInteger reservations = new AtomicInteger(0);
+        private volatile long persistedMax;
+        private volatile CountDownLatch gate;
+        private volatile TimestampIOException failure;
+
+        @Override
+        public long initialize() throws TimestampIOException {
+            return persistedMax;
+        }
+
+        @Override
+        public void reserveNextBlock(long nextMax) throws TimestampIOException {
+            CountDownLatch g = gate;
+            if (g != null) {
+                try {
+                    g.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new TimestampIOException("Interrupted", e);
+                }
+            }
+            TimestampIOException f = failure;
+            if (f != null) throw f;
+            assertTrue("Max timestamp went backwards!", nextMax > persistedMax);
+            persistedMax = nextMax;
+            reservations.incrementAndGet();
+        }
+
+        /**
+         * @return a latch which holds back reservations until it is counted down
+         */
+        CountDownLatch close() {
+            CountDownLatch g = new CountDownLatch(1);
+            gate = g;
+            return g;
+        }
+
+        void awaitReservations(int count) throws InterruptedException {
+            long stop = System.currentTimeMillis() + 10000;
+            while (reservations.get() < count) {
+                assertTrue("Block was not reserved in time!", System.currentTimeMillis() < stop);
+                Thread.sleep(10);
+            }
+        }
+    }
+}
@@ -0,0 +1,303 @@
+/*
+ * Copyright (c) 2012 - 2018 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.collections;
+
+import org.spark_project.guava.base.Preconditions;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * The skeleton of a thread-safe, bounded cache that is keyed by a primitive long.
+ *
+ * The cache is split into a power-of-two number of segments, each of which is a fixed-size open-addressing
+ * table (linear probing) guarded by its own {@link StampedLock}. A {@link Segment} owns the keys, the probing,
+ * the CLOCK eviction and the deletion of entries; how the values are stored (a slot of objects, or a set of
+ * primitive columns) is left to the subclass, which moves and clears its own columns when asked to.
+ *
+ * Hit, miss and eviction counts are kept in {@link LongAdder}s, so that recording them does not become a
+ * point of contention between readers.
+ *
+ * @param <S> the type of the segments
+ */
+public abstract class AbstractLongKeyedCache<S extends AbstractLongKeyedCache.Segment>{
+    private static final int MAX_SEGMENTS=1<<16;
+
+    private final Segment[] segments;
+    private final int segmentShift;
+    private final int maxEntries;
+
+    private final LongAdder hits=new LongAdder();
+    private final LongAdder misses=new LongAdder();
+    private final LongAdder evictions=new LongAdder();
+
+    /**
+     * @param maxEntries the maximum number of entries to hold
+     * @param concurrencyLevel the expected number of threads which will modify the cache concurrently
+     */
+    protected AbstractLongKeyedCache(int maxEntries,int concurrencyLevel){
+        Preconditions.checkArgument(maxEntries>0,"Cannot create an empty cache");
+        int numSegments=1;
+        int segmentBits=0;
+        while(numSegments<concurrencyLevel && numSegments<MAX_SEGMENTS && numSegments<maxEntries){
+            numSegments<<=1;
+            segmentBits++;
+        }
+        this.segmentShift=Long.SIZE-segmentBits;
+        int entriesPerSegment=(maxEntries+numSegments-1)/numSegments;
+        this.segments=new Segment[numSegments];
+        int total=0;
+        for(int i=0;i<numSegments;i++){
+            segments[i]=newSegment(entriesPerSegment);
+            total+=segments[i].maxEntries;
+        }
+        this.maxEntries=total;
+    }
+
+    /**
+     * @param key the key to look up
+     * @return true if {@code key} is in the cache. This does not count towards the hit statistics, nor does
+     * it mark the entry as recently used.
+     */
+    public boolean containsKey(long key){
+        long hash=hash(key);
+        return segmentFor(hash).contains(key,hash);
+    }
+
+    /**
+     * @return the number of entries currently in the cache. This is a sum over all segments, so it
+     * is only an estimate when the cache is being modified concurrently.
+     */
+    public int size(){
+        int size=0;
+        for(Segment segment:segments){
+            size+=segment.size;
+        }
+        return size;
+    }
+
+    public int maxSize(){
+        return maxEntries;
+    }
+
+    public long hitCount(){
+        return hits.sum();
+    }
+
+    public long missCount(){
+        return misses.sum();
+    }
+
+    public long requestCount(){
+        return hits.sum()+misses.sum();
+    }
+
+    public long evictionCount(){
+        return evictions.sum();
+    }
+
+    /* ****************************************************************************************************************/
+    /*subclass hooks*/
+
+    /**
+     * @param maxEntries the number of entries the segment should hold
+     * @return a new, empty segment. This is called from the constructor.
+     */
+    protected abstract S newSegment(int maxEntries);
+
+    @SuppressWarnings("unchecked")
+    protected final S segmentFor(long hash){
+        //the low bits select the slot within the segment, so use the high bits to select the segment
+        return (S)(segments.length==1?segments[0]:segments[(int)(hash>>>segmentShift)]);
+    }
+
+    protected final void recordLookup(boolean hit){
+        if(hit)
+            hits.increment();
+        else
+            misses.increment();
+    }
+
+    protected final void recordPut(boolean evicted){
+        if(evicted)
+            evictions.increment();
+    }
+
+    protected static long hash(long key){
+        //the finalizer from MurmurHash3, so that sequential keys spread over the whole table
+        key^=key>>>33;
+        key*=0xff51afd7ed558ccdL;
+        key^=key>>>33;
+        key*=0xc4ceb9fe1a85ec53L;
+        key^=key>>>33;
+        return key;
+    }
+
+    /**
+     * One open-addressing table of the cache. Readers look up entries with {@link #find(long, long)} inside an
+     * optimistic read (falling back to the read lock if {@link #validate(long)} fails), and writers hold the
+     * write lock around {@link #findOrClaim(long, long)} before filling in the value.
+     */
+    @SuppressWarnings("serial")
+    public static abstract class Segment extends StampedLock{
+        private final long[] keys;
+        /*
+         * The CLOCK reference bits. These are set by readers without holding the lock, so a
+         * bit may occasionally be lost or land on a neighbouring entry; that only makes eviction
+         * slightly less accurate.
+         */
+        private final byte[] referenced;
+        protected final int mask;
+        private final int maxEntries;
+        private volatile int size;
+        private int hand;
+        /*set by findOrClaim when it had to evict an entry; only read under the write lock*/
+        private boolean evicted;
+
+        /**
+         * @param maxEntries the number of entries to hold
+         * @param maxLoad the highest fraction of the table which may be occupied
+         */
+        protected Segment(int maxEntries,double maxLoad){
+            int capacity=2;
+            while(capacity*maxLoad<maxEntries){
+                capacity<<=1;
+            }
+            this.keys=new long[capacity];
+            this.referenced=new byte[capacity];
+            this.mask=capacity-1;
+            this.maxEntries=Math.min(maxEntries,capacity-1);
+        }
+
+        /**
+         * @return true if {@code slot} holds an entry
+         */
+        protected abstract boolean isOccupied(int slot);
+
+        /**
+         * Move the value in slot {@code from} to slot {@code to}, leaving {@code from} empty.
+         */
+        protected abstract void moveValue(int from,int to);
+
+        /**
+         * Empty slot {@code slot}, so that {@link #isOccupied(int)} returns false for it.
+         */
+        protected abstract void clearValue(int slot);
+
+        public boolean contains(long key,long hash){
+            long stamp=tryOptimisticRead();
+            boolean found=find(key,hash)>=0;
+            if(!validate(stamp)){
+                stamp=readLock();
+                try{
+                    found=find(key,hash)>=0;
+                }finally{
+                    unlockRead(stamp);
+                }
+            }
+            return found;
+        }
+
+        /**
+         * @return the slot holding {@code key}, or -1 if it is not in the table
+         */
+        protected final int find(long key,long hash){
+            /*
+             * During an optimistic read, the table may be changing underneath us, so never probe more than
+             * the table length; the caller will validate (and retry under the lock) if we saw a torn state.
+             */
+            int slot=(int)hash&mask;
+            for(int i=0;i<=mask;i++){
+                if(!isOccupied(slot)) return -1;
+                if(keys[slot]==key) return slot;
+                slot=(slot+1)&mask;
+            }
+            return -1;
+        }
+
+        /**
+         * Find the slot holding {@code key}, or claim an empty one for it (evicting an entry if the table is
+         * full). The caller must hold the write lock, and must fill in a claimed slot before releasing it.
+         *
+         * @return the slot, or {@code -(slot+1)} if the slot was newly claimed
+         */
+        protected final int findOrClaim(long key,long hash){
+            evicted=false;
+            int slot=find(key,hash);
+            if(slot>=0) return slot;
+            if(size>=maxEntries){
+                evict();
+                evicted=true;
+            }
+            slot=(int)hash&mask;
+            while(isOccupied(slot)){
+                slot=(slot+1)&mask;
+            }
+            keys[slot]=key;
+            referenced[slot]=0;
+            size++;
+            return -(slot+1);
+        }
+
+        /**
+         * @return true if the last call to {@link #findOrClaim(long, long)} evicted an entry to make room
+         */
+        protected final boolean evicted(){
+            return evicted;
+        }
+
+        protected final void markReferenced(int slot){
+            referenced[slot]=1;
+        }
+
+        private void evict(){
+            while(true){
+                int slot=hand;
+                hand=(hand+1)&mask;
+                if(!isOccupied(slot)) continue;
+                if(referenced[slot]!=0){
+                    referenced[slot]=0;
+                    continue;
+                }
+                delete(slot);
+                return;
+            }
+        }
+
+        private void delete(int slot){
+            /*
+             * Remove the entry, then shift any following entries in the same probe run back, so that
+             * lookups never have to step over a tombstone
+             */
+            clearValue(slot);
+            referenced[slot]=0;
+            int empty=slot;
+            int next=slot;
+            while(true){
+                next=(next+1)&mask;
+                if(!isOccupied(next)) break;
+                int home=(int)hash(keys[next])&mask;
+                boolean stays=empty<=next?(empty<home && home<=next):(empty<home || home<=next);
+                if(stays) continue;
+                keys[empty]=keys[next];
+                moveValue(next,empty);
+                referenced[empty]=referenced[next];
+                referenced[next]=0;
+                empty=next;
+            }
+            size--;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2012 - 2018 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.collections;
+
+/**
+ * A thread-safe, bounded cache that is keyed by a primitive long.
+ *
+ * The cache is split into a power-of-two number of segments, each of which is a fixed-size open-addressing
+ * table (linear probing, with a load factor of at most 0.5) guarded by its own
+ * {@link java.util.concurrent.locks.StampedLock}. Lookups are performed as optimistic reads, so in the common
+ * case a {@link #get(long)} takes no lock and allocates nothing; only when a writer to the same segment
+ * interferes does the reader fall back to the read lock.
+ *
+ * When a segment is full, an entry is evicted using the CLOCK algorithm (an approximation of LRU): every
+ * lookup sets a reference bit on its entry, and the clock hand clears reference bits until it finds an entry
+ * which has not been referenced since the hand last passed it.
+ *
+ * @param <T> the type of the cached values
+ */
+public class ConcurrentLongKeyedCache<T> extends AbstractLongKeyedCache<ConcurrentLongKeyedCache.ObjectSegment>{
+
+    /**
+     * @param maxEntries the maximum number of entries to hold
+     * @param concurrencyLevel the expected number of threads which will modify the cache concurrently
+     */
+    public ConcurrentLongKeyedCache(int maxEntries,int concurrencyLevel){
+        super(maxEntries,concurrencyLevel);
+    }
+
+    /**
+     * @param key the key to look up
+     * @return the value associated with {@code key}, or {@code null} if it is not in the cache
+     */
+    @SuppressWarnings("unchecked")
+    public T get(long key){
+        long hash=hash(key);
+        Object value=segmentFor(hash).get(key,hash);
+        recordLookup(value!=null);
+        return (T)value;
+    }
+
+    /**
+     * Associate {@code value} with {@code key}, replacing any existing value. If the cache is full,
+     * another entry will be evicted to make room.
+     */
+    public void put(long key,T value){
+        assert value!=null: "Cannot insert a null value!";
+        long hash=hash(key);
+        recordPut(segmentFor(hash).put(key,hash,value));
+    }
+
+    @Override
+    protected ObjectSegment newSegment(int maxEntries){
+        return new ObjectSegment(maxEntries);
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods and classes*/
+
+    @SuppressWarnings("serial")
+    static final class ObjectSegment extends AbstractLongKeyedCache.Segment{
+        /*a null value marks an empty slot*/
+        private final Object[] values;
+
+        ObjectSegment(int maxEntries){
+            super(maxEntries,0.5d);
+            this.values=new Object[mask+1];
+        }
+
+        Object get(long key,long hash){
+            long stamp=tryOptimisticRead();
+            int slot=find(key,hash);
+            Object value=slot<0?null:values[slot];
+            if(!validate(stamp)){
+                stamp=readLock();
+                try{
+                    slot=find(key,hash);
+                    value=slot<0?null:values[slot];
+                }finally{
+                    unlockRead(stamp);
+                }
+            }
+            if(slot>=0)
+                markReferenced(slot);
+            return value;
+        }
+
+        /**
+         * @return true if an entry was evicted to make room
+         */
+        boolean put(long key,long hash,Object value){
+            long stamp=writeLock();
+            try{
+                int slot=findOrClaim(key,hash);
+                if(slot>=0){
+                    values[slot]=value;
+                    markReferenced(slot);
+                    return false;
+                }
+                values[-(slot+1)]=value;
+                return evicted();
+            }finally{
+                unlockWrite(stamp);
+            }
+        }
+
+        @Override
+        protected boolean isOccupied(int slot){
+            return values[slot]!=null;
+        }
+
+        @Override
+        protected void moveValue(int from,int to){
+            values[to]=values[from];
+            values[from]=null;
+        }
+
+        @Override
+        protected void clearValue(int slot){
+            values[slot]=null;
+        }
+    }
+}
@@ -74,4 +74,12 @@ public class SpliceSnappy {
         }
         return bytes;
     }
+
+    public static int uncompress(byte[] input, int inputOffset, int inputLength, byte[] output, int outputOffset) throws IOException {
+        if (installed) {
+            return Snappy.uncompress(input, inputOffset, inputLength, output, outputOffset);
+        }
+        System.arraycopy(input, inputOffset, output, outputOffset, inputLength);
+        return inputLength;
+    }
 }
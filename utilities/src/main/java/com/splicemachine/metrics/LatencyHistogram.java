@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2012 - 2018 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.splicemachine.metrics;
+
+import com.splicemachine.annotations.ThreadSafe;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A concurrent histogram of latencies (or any other non-negative values), in the manner of HdrHistogram.
+ *
+ * Values are counted in log-linear buckets: each power of two is split into {@code 2^SUB_BUCKET_BITS}
+ * equal buckets, so that any recorded value can be read back to within about 6% of its true value,
+ * no matter its magnitude. Recording a value is a handful of arithmetic instructions and two uncontended
+ * atomic adds, so it is cheap enough to be done on every write.
+ *
+ * Values larger than {@link #MAX_VALUE} are counted as {@link #MAX_VALUE}.
+ */
+@ThreadSafe
+public class LatencyHistogram{
+    private static final int SUB_BUCKET_BITS=4;
+    private static final int SUB_BUCKETS=1<<SUB_BUCKET_BITS;
+    private static final int MAX_MAGNITUDE=36;
+    public static final long MAX_VALUE=(1l<<(MAX_MAGNITUDE+1))-1;
+    private static final int NUM_BUCKETS=(MAX_MAGNITUDE+2-SUB_BUCKET_BITS)*SUB_BUCKETS;
+
+    private final AtomicLongArray counts=new AtomicLongArray(NUM_BUCKETS);
+    private final LongAdder totalCount=new LongAdder();
+    private final LongAdder totalValue=new LongAdder();
+    private volatile long max;
+
+    public void record(long value){
+        if(value<0) value=0;
+        else if(value>MAX_VALUE) value=MAX_VALUE;
+        counts.incrementAndGet(bucketFor(value));
+        totalCount.increment();
+        totalValue.add(value);
+        long m=max;
+        if(value>m){
+            synchronized(this){
+                if(value>max)
+                    max=value;
+            }
+        }
+    }
+
+    public long count(){
+        return totalCount.sum();
+    }
+
+    public long max(){
+        return max;
+    }
+
+    public double mean(){
+        long n=totalCount.sum();
+        return n==0? 0d: (double)totalValue.sum()/n;
+    }
+
+    /**
+     * @param percentile the percentile of interest, between 0 and 100
+     * @return a value which at least {@code percentile} percent of the recorded values are less than or equal to
+     * (within the precision of the histogram), or 0 if nothing has been recorded
+     */
+    public long percentile(double percentile){
+        long[] snapshot=new long[NUM_BUCKETS];
+        long total=0l;
+        for(int i=0;i<NUM_BUCKETS;i++){
+            snapshot[i]=counts.get(i);
+            total+=snapshot[i];
+        }
+        if(total==0) return 0l;
+        long rank=(long)Math.ceil(Math.min(100d,Math.max(0d,percentile))/100d*total);
+        if(rank<1) rank=1;
+        long seen=0l;
+        for(int i=0;i<NUM_BUCKETS;i++){
+            seen+=snapshot[i];
+            if(seen>=rank)
+                return Math.min(max,highestValueIn(i));
+        }
+        return max;
+    }
+
+    public void reset(){
+        for(int i=0;i<NUM_BUCKETS;i++){
+            counts.set(i,0l);
+        }
+        totalCount.reset();
+        totalValue.reset();
+        synchronized(this){
+            max=0l;
+        }
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    static int bucketFor(long value){
+        if(value<2*SUB_BUCKETS) return (int)value;
+        int shift=(63-Long.numberOfLeadingZeros(value))-SUB_BUCKET_BITS;
+        return SUB_BUCKETS*(shift+1)+(int)(value>>>shift)-SUB_BUCKETS;
+    }
+
+    static long highestValueIn(int bucket){
+        if(bucket<2*SUB_BUCKETS) return bucket;
+        int shift=bucket/SUB_BUCKETS-1;
+        long subBucket=bucket%SUB_BUCKETS+SUB_BUCKETS;
+        return ((subBucket+1)<<shift)-1;
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2012 - 2018 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.collections;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Tests for the ConcurrentLongKeyedCache.
+ */
+public class ConcurrentLongKeyedCacheTest{
+
+    @Test
+    public void testCanPutAndThenFetch() throws Exception{
+        ConcurrentLongKeyedCache<Long> cache=new ConcurrentLongKeyedCache<>(4,1);
+
+        cache.put(1l,1l);
+        Assert.assertEquals("incorrect size estimate!",1,cache.size());
+        Assert.assertEquals("Incorrect cache fetch!",1l,cache.get(1l).longValue());
+        Assert.assertNull("Should not find a missing key!",cache.get(2l));
+        Assert.assertEquals("Incorrect hit count!",1l,cache.hitCount());
+        Assert.assertEquals("Incorrect request count!",2l,cache.requestCount());
+    }
+
+    @Test
+    public void testPutReplacesExistingEntry() throws Exception{
+        ConcurrentLongKeyedCache<Long> cache=new ConcurrentLongKeyedCache<>(4,1);
+
+        cache.put(1l,1l);
+        cache.put(1l,2l);
+        Assert.assertEquals("incorrect size estimate!",1,cache.size());
+        Assert.assertEquals("Incorrect cache fetch!",2l,cache.get(1l).longValue());
+    }
+
+    @Test
+    public void testEvictsUnreferencedEntriesFirst() throws Exception{
+        ConcurrentLongKeyedCache<Long> cache=new ConcurrentLongKeyedCache<>(4,1);
+        for(long i=0;i<4;i++){
+            cache.put(i,i);
+        }
+        //reference everything but 2
+        cache.get(0l);
+        cache.get(1l);
+        cache.get(3l);
+
+        cache.put(4l,4l);
+        Assert.assertEquals("incorrect size estimate!",4,cache.size());
+        Assert.assertEquals("Incorrect eviction count!",1l,cache.evictionCount());
+        Assert.assertFalse("Unreferenced entry should have been evicted!",cache.containsKey(2l));
+        for(long i:new long[]{0l,1l,3l,4l}){
+            Assert.assertEquals("Missing entry "+i+"!",i,cache.get(i).longValue());
+        }
+    }
+
+    @Test
+    public void testNeverExceedsMaxSize() throws Exception{
+        ConcurrentLongKeyedCache<Long> cache=new ConcurrentLongKeyedCache<>(100,4);
+        Random random=new Random(0);
+        for(int i=0;i<100000;i++){
+            long key=random.nextInt(1000);
+            cache.put(key,key);
+            Assert.assertTrue("Cache grew too large!",cache.size()<=cache.maxSize());
+            Long value=cache.get(random.nextInt(1000));
+            Assert.assertTrue("Incorrect value!",value==null || cache.containsKey(value));
+        }
+    }
+
+    @Test
+    public void testConcurrentReadersSeeConsistentValues() throws Exception{
+        final ConcurrentLongKeyedCache<Long> cache=new ConcurrentLongKeyedCache<>(1000,8);
+        ExecutorService executor=Executors.newFixedThreadPool(8);
+        try{
+            List<Future<Void>> futures=new ArrayList<>();
+            for(int t=0;t<8;t++){
+                final int seed=t;
+                futures.add(executor.submit(new Callable<Void>(){
+                    @Override
+                    public Void call() throws Exception{
+                        Random random=new Random(seed);
+                        for(int i=0;i<200000;i++){
+                            long key=random.nextInt(5000);
+                            if(random.nextInt(4)==0)
+                                cache.put(key,key);
+                            else{
+                                Long value=cache.get(key);
+                                Assert.assertTrue("Incorrect value for key "+key+"!",value==null || value==key);
+                            }
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for(Future<Void> future:futures){
+                future.get();
+            }
+        }finally{
+            executor.shutdownNow();
+        }
+        Assert.assertTrue("Cache grew too large!",cache.size()<=cache.maxSize());
+    }
+}
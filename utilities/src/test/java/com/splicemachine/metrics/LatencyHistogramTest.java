@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2012 - 2018 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.splicemachine.metrics;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * Tests for the LatencyHistogram.
+ */
+public class LatencyHistogramTest{
+
+    @Test
+    public void testBucketsCoverEveryValue() throws Exception{
+        Random random=new Random(0);
+        for(int i=0;i<100000;i++){
+            long value=i<1000? i: random.nextLong()&LatencyHistogram.MAX_VALUE;
+            int bucket=LatencyHistogram.bucketFor(value);
+            Assert.assertTrue("Value "+value+" is above its bucket!",value<=LatencyHistogram.highestValueIn(bucket));
+            if(bucket>0)
+                Assert.assertTrue("Value "+value+" is below its bucket!",value>LatencyHistogram.highestValueIn(bucket-1));
+        }
+        Assert.assertEquals("Incorrect top bucket!",LatencyHistogram.MAX_VALUE,
+                LatencyHistogram.highestValueIn(LatencyHistogram.bucketFor(LatencyHistogram.MAX_VALUE)));
+    }
+
+    @Test
+    public void testPercentilesAreWithinPrecision() throws Exception{
+        LatencyHistogram histogram=new LatencyHistogram();
+        for(long i=1;i<=10000;i++){
+            histogram.record(i);
+        }
+        Assert.assertEquals("Incorrect count!",10000l,histogram.count());
+        Assert.assertEquals("Incorrect max!",10000l,histogram.max());
+        Assert.assertEquals("Incorrect mean!",5000.5d,histogram.mean(),0.0001d);
+        assertWithin(5000l,histogram.percentile(50d));
+        assertWithin(9900l,histogram.percentile(99d));
+        Assert.assertEquals("Incorrect 100th percentile!",10000l,histogram.percentile(100d));
+    }
+
+    @Test
+    public void testResetClearsEverything() throws Exception{
+        LatencyHistogram histogram=new LatencyHistogram();
+        histogram.record(10l);
+        histogram.record(-1l);
+        histogram.record(Long.MAX_VALUE);
+        Assert.assertEquals("Incorrect max!",LatencyHistogram.MAX_VALUE,histogram.max());
+        Assert.assertEquals("Incorrect min percentile!",0l,histogram.percentile(0d));
+
+        histogram.reset();
+        Assert.assertEquals("Incorrect count!",0l,histogram.count());
+        Assert.assertEquals("Incorrect max!",0l,histogram.max());
+        Assert.assertEquals("Incorrect percentile!",0l,histogram.percentile(50d));
+    }
+
+    private static void assertWithin(long expected,long actual){
+        Assert.assertTrue("Expected about "+expected+", but got "+actual,
+                actual>=expected && actual<=expected+expected/16);
+    }
+}